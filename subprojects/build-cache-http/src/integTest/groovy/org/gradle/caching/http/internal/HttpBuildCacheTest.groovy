@@ -28,6 +28,8 @@ import spock.lang.Specification
 
 import javax.servlet.http.HttpServletRequest
 import javax.servlet.http.HttpServletResponse
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
 
 class HttpBuildCacheTest extends Specification {
     public static final List<Integer> FATAL_HTTP_ERROR_CODES = [
@@ -62,6 +64,10 @@ class HttpBuildCacheTest extends Specification {
         cache = new HttpBuildCache(server.uri.resolve("/cache/"))
     }
 
+    def cleanup() {
+        cache.close()
+    }
+
     def "can cache artifact"() {
         def destFile = tempDir.file("cached.zip")
         server.expectPut("/cache/${key.hashCode}", destFile)
@@ -165,6 +171,109 @@ class HttpBuildCacheTest extends Specification {
         httpCode << [HttpStatus.SC_INTERNAL_SERVER_ERROR, HttpStatus.SC_SERVICE_UNAVAILABLE]
     }
 
+    def "loads entries concurrently over pooled connections"() {
+        def keys = (1..4).collect { keyFor("0123456abcde$it") }
+        // Each response is delayed until all requests have been received
+        def allReceived = new CountDownLatch(keys.size())
+        keys.each { BuildCacheKey key ->
+            server.expect("/cache/${key.hashCode}", false, ['GET'], new HttpServer.ActionSupport("slow GET") {
+                @Override
+                void handle(HttpServletRequest request, HttpServletResponse response) {
+                    allReceived.countDown()
+                    if (!allReceived.await(10, TimeUnit.SECONDS)) {
+                        response.sendError(HttpStatus.SC_SERVICE_UNAVAILABLE, "timeout")
+                        return
+                    }
+                    response.outputStream << "Data ${key.hashCode}"
+                }
+            })
+        }
+
+        when:
+        def receivedInputs = new String[keys.size()]
+        def threads = (0..<keys.size()).collect { int index ->
+            Thread.start {
+                cache.load(keys[index]) { input ->
+                    receivedInputs[index] = input.text
+                }
+            }
+        }
+        threads*.join()
+
+        then:
+        receivedInputs as List == keys.collect { "Data ${it.hashCode}" }
+    }
+
+    def "reuses connections when the server responds slowly"() {
+        def keys = (1..3).collect { keyFor("0123456abcde$it") }
+        def remotePorts = Collections.synchronizedSet(new HashSet<Integer>())
+        keys.each { BuildCacheKey key ->
+            expectSlowGet(key, 200, remotePorts)
+        }
+
+        when:
+        def receivedInputs = keys.collect { BuildCacheKey key ->
+            def receivedInput = null
+            cache.load(key) { input ->
+                receivedInput = input.text
+            }
+            receivedInput
+        }
+
+        then:
+        receivedInputs == keys.collect { "Data ${it.hashCode}" }
+        remotePorts.size() == 1
+    }
+
+    def "slow responses do not hold up concurrent loads"() {
+        def latencyMillis = 500
+        def keys = (1..4).collect { keyFor("0123456abcde$it") }
+        keys.each { BuildCacheKey key ->
+            expectSlowGet(key, latencyMillis, Collections.synchronizedSet(new HashSet<Integer>()))
+        }
+
+        when:
+        def start = System.nanoTime()
+        def threads = keys.collect { BuildCacheKey key ->
+            Thread.start {
+                cache.load(key) { input -> input.text }
+            }
+        }
+        threads*.join()
+        def elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)
+
+        then:
+        elapsedMillis < latencyMillis * keys.size()
+    }
+
+    /**
+     * Expects a GET request for the given key, which the server answers after the given delay. Records the port the request was sent from.
+     */
+    private void expectSlowGet(BuildCacheKey key, long latencyMillis, Set<Integer> remotePorts) {
+        server.expect("/cache/${key.hashCode}", false, ['GET'], new HttpServer.ActionSupport("GET after ${latencyMillis}ms") {
+            @Override
+            void handle(HttpServletRequest request, HttpServletResponse response) {
+                remotePorts << request.remotePort
+                Thread.sleep(latencyMillis)
+                response.outputStream << "Data ${key.hashCode}"
+            }
+        })
+    }
+
+    private static BuildCacheKey keyFor(String hashCode) {
+        return new BuildCacheKey() {
+            @Override
+            String getHashCode() {
+                return hashCode
+            }
+
+            @Override
+            String toString() {
+                return hashCode
+            }
+        }
+    }
+
     private HttpResourceInteraction expectError(int httpCode, String method) {
         server.expect("/cache/${key.hashCode}", false, [method], new HttpServer.ActionSupport("return ${httpCode} broken") {
             @Override
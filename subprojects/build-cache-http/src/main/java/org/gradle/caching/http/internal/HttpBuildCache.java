@@ -27,6 +27,7 @@ import org.apache.http.client.utils.HttpClientUtils;
 import org.apache.http.entity.AbstractHttpEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.gradle.api.UncheckedIOException;
 import org.gradle.caching.BuildCache;
 import org.gradle.caching.BuildCacheEntryReader;
@@ -52,6 +53,10 @@ import java.util.Set;
  * Other responses are treated as recoverable or non-recoverable errors, depending on the status code.
  * E.g. we treat authentication failures (401 and 409) as non-recoverable while an internal server error (500) is recoverable.
  *
+ * <p>Requests are sent over a pool of persistent connections, so concurrent tasks do not wait for each other or open a new connection per request.</p>
+ *
+ * <p>Entries are not prefetched. The key of a task's entry depends on the snapshots of its inputs, which are only taken right before the task loads its entry,
+ * so the keys are not known ahead of time.</p>
  */
 public class HttpBuildCache implements BuildCache {
     private static final Logger LOGGER = LoggerFactory.getLogger(HttpBuildCache.class);
@@ -65,18 +70,35 @@ public class HttpBuildCache implements BuildCache {
         HttpStatus.SC_HTTP_VERSION_NOT_SUPPORTED,
         511 // network authentication required
     );
+    private static final int DEFAULT_MAX_CONNECTIONS = 20;
+    // How long a pooled connection may be idle before it is checked for being closed by the server
+    private static final int VALIDATE_AFTER_INACTIVITY_MILLIS = 2000;
 
     private final URI root;
     private final URI safeUri;
     private final CloseableHttpClient httpClient;
 
     public HttpBuildCache(URI root) {
+        this(root, DEFAULT_MAX_CONNECTIONS);
+    }
+
+    /**
+     * @param maxConnections The maximum number of concurrent connections to the server.
+     */
+    public HttpBuildCache(URI root, int maxConnections) {
         if (!root.getPath().endsWith("/")) {
             throw new IncompleteArgumentException("HTTP cache root URI must end with '/'");
         }
         this.root = root;
         this.safeUri = safeUri(root);
-        this.httpClient = HttpClients.createDefault();
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        // All requests go to the same host, so allow the route to use the whole pool
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnections);
+        connectionManager.setValidateAfterInactivity(VALIDATE_AFTER_INACTIVITY_MILLIS);
+        this.httpClient = HttpClients.custom()
+            .setConnectionManager(connectionManager)
+            .build();
     }
 
     @Override
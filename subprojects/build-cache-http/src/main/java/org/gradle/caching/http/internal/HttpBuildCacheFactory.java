@@ -28,6 +28,7 @@ import java.net.URI;
  */
 public class HttpBuildCacheFactory implements BuildCacheFactory {
     private static final String HTTP_URI_PROPERTY = "org.gradle.cache.tasks.http.uri";
+    private static final String HTTP_MAX_CONNECTIONS_PROPERTY = "org.gradle.cache.tasks.http.maxConnections";
 
     private final URI root;
 
@@ -45,6 +46,8 @@ public class HttpBuildCacheFactory implements BuildCacheFactory {
 
     @Override
     public BuildCache createCache(StartParameter startParameter) {
-        return new HttpBuildCache(root);
+        // By default, allow each worker to load an entry while entries are being stored in the background
+        int maxConnections = Integer.getInteger(HTTP_MAX_CONNECTIONS_PROPERTY, startParameter.getMaxWorkerCount() * 2);
+        return new HttpBuildCache(root, maxConnections);
     }
 }
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state;
+
+import org.gradle.api.internal.cache.StringInterner;
+import org.gradle.api.internal.changedetection.state.jdk7.ForkJoinDirectorySnapshotter;
+import org.gradle.api.internal.file.collections.DefaultDirectoryFileTreeFactory;
+import org.gradle.api.internal.file.collections.DirectoryFileTreeFactory;
+import org.gradle.api.internal.file.collections.FileTreeAdapter;
+import org.gradle.api.internal.hash.DefaultFileHasher;
+import org.gradle.api.internal.hash.FileHasher;
+import org.gradle.cache.internal.MapBackedInMemoryStore;
+import org.gradle.internal.nativeintegration.filesystem.FileSystem;
+import org.gradle.internal.nativeintegration.services.FileSystems;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Compares the serial directory walk with the fork-join walk over synthetic trees.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class DirectorySnapshottingBenchmark {
+    private static final int FILES_PER_DIRECTORY = 100;
+    private static final int DIRECTORIES_PER_DIRECTORY = 10;
+
+    @Param({"10000", "100000", "1000000"})
+    int fileCount;
+
+    private File root;
+    private FileTreeAdapter tree;
+    private ParallelDirectorySnapshotter serial;
+    private ParallelDirectorySnapshotter parallel;
+    private final StringInterner stringInterner = new StringInterner();
+    private final FileHasher contentHasher = new DefaultFileHasher();
+    private final FileSystem fileSystem = FileSystems.getDefault();
+    private final DirectoryFileTreeFactory directoryFileTreeFactory = new DefaultDirectoryFileTreeFactory();
+
+    @Setup(Level.Trial)
+    public void createTree() throws IOException {
+        root = File.createTempFile("snapshotting", "benchmark");
+        root.delete();
+        int directories = Math.max(1, fileCount / FILES_PER_DIRECTORY);
+        for (int i = 0; i < directories; i++) {
+            File dir = new File(root, pathFor(i));
+            dir.mkdirs();
+            for (int j = 0; j < FILES_PER_DIRECTORY; j++) {
+                FileOutputStream outputStream = new FileOutputStream(new File(dir, "file" + j + ".txt"));
+                try {
+                    outputStream.write(("content " + i + " " + j).getBytes("utf-8"));
+                } finally {
+                    outputStream.close();
+                }
+            }
+        }
+        tree = new FileTreeAdapter(directoryFileTreeFactory.create(root));
+        serial = new DisabledParallelDirectorySnapshotter();
+        parallel = new ForkJoinDirectorySnapshotter(Runtime.getRuntime().availableProcessors(), fileSystem);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteTree() {
+        parallel.stop();
+        deleteRecursively(root);
+    }
+
+    @Benchmark
+    public void serialWalk(Blackhole bh) {
+        bh.consume(snapshotter(serial).snapshot(tree, TaskFilePropertyCompareStrategy.UNORDERED, TaskFilePropertySnapshotNormalizationStrategy.RELATIVE));
+    }
+
+    @Benchmark
+    public void forkJoinWalk(Blackhole bh) {
+        bh.consume(snapshotter(parallel).snapshot(tree, TaskFilePropertyCompareStrategy.UNORDERED, TaskFilePropertySnapshotNormalizationStrategy.RELATIVE));
+    }
+
+    private DefaultGenericFileCollectionSnapshotter snapshotter(ParallelDirectorySnapshotter parallelDirectorySnapshotter) {
+        // Use a new mirror and file hash cache for each invocation, so that the tree is walked and hashed every time
+        CachingFileHasher hasher = new CachingFileHasher(contentHasher, new MapBackedInMemoryStore(), stringInterner, new FileTimeStampInspector(), "fileHashes");
+        return new DefaultGenericFileCollectionSnapshotter(hasher, stringInterner, fileSystem, directoryFileTreeFactory, new DefaultFileSystemMirror(), parallelDirectorySnapshotter);
+    }
+
+    private static String pathFor(int directoryIndex) {
+        StringBuilder path = new StringBuilder();
+        int remaining = directoryIndex;
+        do {
+            path.append("dir").append(remaining % DIRECTORIES_PER_DIRECTORY).append(File.separatorChar);
+            remaining /= DIRECTORIES_PER_DIRECTORY;
+        } while (remaining > 0);
+        return path.toString();
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+}
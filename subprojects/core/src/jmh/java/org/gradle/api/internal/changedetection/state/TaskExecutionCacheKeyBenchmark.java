@@ -0,0 +1,140 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import org.gradle.caching.internal.DefaultBuildCacheKeyBuilder;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.Serializable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Compares building cache keys with MD5 and with Murmur3 for a task with a large compile classpath and source tree, similar to a Java compile task.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class TaskExecutionCacheKeyBenchmark {
+    @Param({"100", "1000"})
+    int classpathEntries;
+
+    @Param({"1000", "10000"})
+    int sourceFiles;
+
+    private TaskExecution execution;
+
+    @Setup(Level.Trial)
+    public void createExecution() {
+        Random random = new Random(1234);
+        execution = new BenchmarkTaskExecution();
+        execution.setTaskClass("org.gradle.api.tasks.compile.JavaCompile");
+        execution.setTaskClassLoaderHash(randomHash(random));
+        execution.setTaskActionsClassLoaderHash(randomHash(random));
+
+        Map<String, Object> inputProperties = new LinkedHashMap<String, Object>();
+        inputProperties.put("options.encoding", "UTF-8");
+        inputProperties.put("options.fork", false);
+        inputProperties.put("options.compilerArgs", ImmutableList.of("-Xlint:all", "-Werror", "-parameters"));
+        inputProperties.put("sourceCompatibility", "1.7");
+        inputProperties.put("targetCompatibility", "1.7");
+        inputProperties.put("toolChain", new SerializableToolChain("JDK 8 (1.8)"));
+        execution.setInputProperties(inputProperties);
+
+        Map<String, FileCollectionSnapshot> inputFiles = new LinkedHashMap<String, FileCollectionSnapshot>();
+        inputFiles.put("classpath", snapshot(random, classpathEntries, "lib/library-", ".jar", TaskFilePropertyCompareStrategy.ORDERED));
+        inputFiles.put("source", snapshot(random, sourceFiles, "org/gradle/sample/package", ".java", TaskFilePropertyCompareStrategy.UNORDERED));
+        execution.setInputFilesSnapshot(inputFiles);
+        execution.setOutputPropertyNamesForCacheKey(ImmutableList.of("destinationDir"));
+    }
+
+    @Benchmark
+    public Object md5() {
+        return execution.calculateCacheKey(new DefaultBuildCacheKeyBuilder(Hashing.md5()));
+    }
+
+    @Benchmark
+    public Object murmur3() {
+        return execution.calculateCacheKey(new DefaultBuildCacheKeyBuilder(Hashing.murmur3_128()));
+    }
+
+    private static FileCollectionSnapshot snapshot(Random random, int count, String prefix, String suffix, TaskFilePropertyCompareStrategy compareStrategy) {
+        ImmutableMap.Builder<String, NormalizedFileSnapshot> snapshots = ImmutableMap.builder();
+        for (int i = 0; i < count; i++) {
+            String path = prefix + (i % 50) + "/File" + i + suffix;
+            snapshots.put("/home/user/project/" + path, new DefaultNormalizedFileSnapshot(path, new FileHashSnapshot(randomHash(random))));
+        }
+        return new DefaultFileCollectionSnapshot(snapshots.build(), compareStrategy, false);
+    }
+
+    private static HashCode randomHash(Random random) {
+        byte[] bytes = new byte[16];
+        random.nextBytes(bytes);
+        return HashCode.fromBytes(bytes);
+    }
+
+    private static class SerializableToolChain implements Serializable {
+        private final String name;
+
+        SerializableToolChain(String name) {
+            this.name = name;
+        }
+    }
+
+    private static class BenchmarkTaskExecution extends TaskExecution {
+        private Map<String, FileCollectionSnapshot> inputFilesSnapshot;
+        private Map<String, FileCollectionSnapshot> outputFilesSnapshot;
+        private FileCollectionSnapshot discoveredInputFilesSnapshot;
+
+        @Override
+        public Map<String, FileCollectionSnapshot> getOutputFilesSnapshot() {
+            return outputFilesSnapshot;
+        }
+
+        @Override
+        public void setOutputFilesSnapshot(Map<String, FileCollectionSnapshot> outputFilesSnapshot) {
+            this.outputFilesSnapshot = outputFilesSnapshot;
+        }
+
+        @Override
+        public Map<String, FileCollectionSnapshot> getInputFilesSnapshot() {
+            return inputFilesSnapshot;
+        }
+
+        @Override
+        public void setInputFilesSnapshot(Map<String, FileCollectionSnapshot> inputFilesSnapshot) {
+            this.inputFilesSnapshot = inputFilesSnapshot;
+        }
+
+        @Override
+        public FileCollectionSnapshot getDiscoveredInputFilesSnapshot() {
+            return discoveredInputFilesSnapshot;
+        }
+
+        @Override
+        public void setDiscoveredInputFilesSnapshot(FileCollectionSnapshot inputFilesSnapshot) {
+            this.discoveredInputFilesSnapshot = inputFilesSnapshot;
+        }
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.taskgraph;
+
+import org.gradle.api.Action;
+import org.gradle.api.Task;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.internal.TaskInternal;
+import org.gradle.api.internal.TaskOutputsInternal;
+import org.gradle.api.internal.project.ProjectInternal;
+import org.gradle.api.internal.tasks.TaskContainerInternal;
+import org.gradle.api.internal.tasks.TaskStateInternal;
+import org.gradle.api.tasks.TaskDependency;
+import org.gradle.initialization.BuildCancellationToken;
+import org.gradle.initialization.DefaultBuildCancellationToken;
+import org.gradle.internal.concurrent.DefaultExecutorFactory;
+import org.gradle.internal.operations.DefaultBuildOperationWorkerRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Executes a synthetic graph of 50k tasks in 500 projects with many worker threads, comparing the scanning scheduler with ready queue scheduling.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class TaskExecutionPlanBenchmark {
+    private static final int PROJECTS = 500;
+    private static final int TASKS_PER_PROJECT = 100;
+    private static final int MAX_DEPENDENCIES = 3;
+
+    @Param({"false", "true"})
+    boolean readyQueue;
+
+    @Param({"8", "32"})
+    int workers;
+
+    // Simulated work per task
+    @Param({"0", "1000"})
+    int workTokens;
+
+    private final BuildCancellationToken cancellationToken = new DefaultBuildCancellationToken();
+    private final DefaultExecutorFactory executorFactory = new DefaultExecutorFactory();
+    private List<Task> entryTasks;
+    private DefaultBuildOperationWorkerRegistry workerRegistry;
+    private DefaultTaskExecutionPlan plan;
+
+    @Setup(Level.Trial)
+    public void createTasks() {
+        Random random = new Random(1234);
+        List<TaskInternal> allTasks = new ArrayList<TaskInternal>();
+        entryTasks = new ArrayList<Task>();
+        for (int p = 0; p < PROJECTS; p++) {
+            ProjectInternal project = project(":project" + p);
+            List<TaskInternal> projectTasks = new ArrayList<TaskInternal>();
+            for (int t = 0; t < TASKS_PER_PROJECT; t++) {
+                Set<Task> dependencies = new LinkedHashSet<Task>();
+                Set<Task> mustRunAfter = new LinkedHashSet<Task>();
+                if (!allTasks.isEmpty()) {
+                    int dependencyCount = random.nextInt(MAX_DEPENDENCIES + 1);
+                    for (int d = 0; d < dependencyCount; d++) {
+                        // Mostly depend on recent tasks, so the graph has long chains as well as wide layers
+                        int bound = Math.min(allTasks.size(), 2000);
+                        dependencies.add(allTasks.get(allTasks.size() - 1 - random.nextInt(bound)));
+                    }
+                    if (random.nextInt(10) == 0) {
+                        mustRunAfter.add(allTasks.get(random.nextInt(allTasks.size())));
+                    }
+                }
+                TaskInternal task = task(project, "task" + t, dependencies, mustRunAfter);
+                allTasks.add(task);
+                projectTasks.add(task);
+            }
+            entryTasks.add(task(project, "build", new LinkedHashSet<Task>(projectTasks), Collections.<Task>emptySet()));
+        }
+        workerRegistry = new DefaultBuildOperationWorkerRegistry(workers);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        workerRegistry.stop();
+        executorFactory.stop();
+    }
+
+    @Setup(Level.Invocation)
+    public void createPlan() {
+        plan = new DefaultTaskExecutionPlan(cancellationToken, false, readyQueue);
+        plan.addToTaskGraph(entryTasks);
+        plan.determineExecutionPlan();
+    }
+
+    @Benchmark
+    public void executePlan() {
+        new ParallelTaskPlanExecutor(workers, executorFactory, workerRegistry).process(plan, new Action<TaskInternal>() {
+            @Override
+            public void execute(TaskInternal task) {
+                Blackhole.consumeCPU(workTokens);
+            }
+        });
+    }
+
+    private static ProjectInternal project(final String path) {
+        final TaskContainerInternal tasks = proxy(TaskContainerInternal.class, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                return objectMethod(proxy, method, args, "tasks of " + path);
+            }
+        });
+        return proxy(ProjectInternal.class, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if (method.getName().equals("getPath")) {
+                    return path;
+                }
+                if (method.getName().equals("getTasks")) {
+                    return tasks;
+                }
+                return objectMethod(proxy, method, args, path);
+            }
+        });
+    }
+
+    private static TaskInternal task(final ProjectInternal project, String name, Set<Task> dependencies, Set<Task> mustRunAfter) {
+        final String path = project.getPath() + ":" + name;
+        final TaskDependency taskDependencies = dependency(dependencies);
+        final TaskDependency mustRunAfterDependencies = dependency(mustRunAfter);
+        final TaskDependency noDependencies = dependency(Collections.<Task>emptySet());
+        final TaskStateInternal state = proxy(TaskStateInternal.class, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                return objectMethod(proxy, method, args, "state of " + path);
+            }
+        });
+        final FileCollection outputFiles = proxy(FileCollection.class, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if (method.getName().equals("iterator")) {
+                    return Collections.<File>emptySet().iterator();
+                }
+                return objectMethod(proxy, method, args, "outputs of " + path);
+            }
+        });
+        final TaskOutputsInternal outputs = proxy(TaskOutputsInternal.class, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if (method.getName().equals("getFiles")) {
+                    return outputFiles;
+                }
+                return objectMethod(proxy, method, args, "outputs of " + path);
+            }
+        });
+        return proxy(TaskInternal.class, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                String methodName = method.getName();
+                if (methodName.equals("getPath")) {
+                    return path;
+                } else if (methodName.equals("getProject")) {
+                    return project;
+                } else if (methodName.equals("getTaskDependencies")) {
+                    return taskDependencies;
+                } else if (methodName.equals("getMustRunAfter")) {
+                    return mustRunAfterDependencies;
+                } else if (methodName.equals("getShouldRunAfter") || methodName.equals("getFinalizedBy")) {
+                    return noDependencies;
+                } else if (methodName.equals("getState")) {
+                    return state;
+                } else if (methodName.equals("getOutputs")) {
+                    return outputs;
+                } else if (methodName.equals("compareTo")) {
+                    return path.compareTo(((Task) args[0]).getPath());
+                }
+                return objectMethod(proxy, method, args, path);
+            }
+        });
+    }
+
+    private static TaskDependency dependency(final Set<Task> tasks) {
+        return new TaskDependency() {
+            @Override
+            public Set<? extends Task> getDependencies(Task task) {
+                return tasks;
+            }
+        };
+    }
+
+    private static Object objectMethod(Object proxy, Method method, Object[] args, String displayName) {
+        String methodName = method.getName();
+        if (methodName.equals("hashCode")) {
+            return System.identityHashCode(proxy);
+        } else if (methodName.equals("equals")) {
+            return proxy == args[0];
+        } else if (methodName.equals("toString")) {
+            return displayName;
+        }
+        Class<?> returnType = method.getReturnType();
+        if (returnType == boolean.class) {
+            return false;
+        } else if (returnType == int.class) {
+            return 0;
+        } else if (returnType == long.class) {
+            return 0L;
+        }
+        return null;
+    }
+
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(TaskExecutionPlanBenchmark.class.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+}
@@ -17,6 +17,7 @@
 package org.gradle.api.internal.cache;
 
 import com.google.common.hash.HashCode;
+import org.gradle.api.internal.TaskOutputsInternal;
 import org.gradle.api.internal.hash.FileHasher;
 import org.gradle.api.internal.tasks.execution.TaskOutputsGenerationListener;
 import org.gradle.internal.event.ListenerManager;
@@ -73,7 +74,7 @@ public class DefaultFileContentCacheFactory implements FileContentCacheFactory {
         }
 
         @Override
-        public void beforeTaskOutputsGenerated() {
+        public void beforeTaskOutputsGenerated(TaskOutputsInternal taskOutputs) {
             // A very dumb strategy for invalidating cache
             cache.clear();
         }
@@ -19,6 +19,7 @@ package org.gradle.api.internal.changedetection.state;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.hash.HashCode;
 import org.gradle.api.file.FileCollection;
 import org.gradle.api.file.FileTreeElement;
 import org.gradle.api.file.FileVisitDetails;
@@ -36,6 +37,7 @@ import org.gradle.internal.nativeintegration.filesystem.FileSystem;
 import org.gradle.internal.serialize.SerializerRegistry;
 
 import java.io.File;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -50,13 +52,15 @@ public abstract class AbstractFileCollectionSnapshotter implements FileCollectio
     private final FileSystem fileSystem;
     private final DirectoryFileTreeFactory directoryFileTreeFactory;
     private final FileSystemMirror fileSystemMirror;
+    private final ParallelDirectorySnapshotter parallelDirectorySnapshotter;
 
-    public AbstractFileCollectionSnapshotter(FileHasher hasher, StringInterner stringInterner, FileSystem fileSystem, DirectoryFileTreeFactory directoryFileTreeFactory, FileSystemMirror fileSystemMirror) {
+    public AbstractFileCollectionSnapshotter(FileHasher hasher, StringInterner stringInterner, FileSystem fileSystem, DirectoryFileTreeFactory directoryFileTreeFactory, FileSystemMirror fileSystemMirror, ParallelDirectorySnapshotter parallelDirectorySnapshotter) {
         this.hasher = hasher;
         this.stringInterner = stringInterner;
         this.fileSystem = fileSystem;
         this.directoryFileTreeFactory = directoryFileTreeFactory;
         this.fileSystemMirror = fileSystemMirror;
+        this.parallelDirectorySnapshotter = parallelDirectorySnapshotter;
     }
 
     public void registerSerializers(SerializerRegistry registry) {
@@ -179,9 +183,14 @@ public abstract class AbstractFileCollectionSnapshotter implements FileCollectio
                     elements = treeDetails.elements;
                 } else {
                     // Scan the directory
-                    String path = getPath(directoryTree.getDir());
-                    elements = Lists.newArrayList();
-                    directoryTree.visit(new FileVisitorImpl(elements));
+                    File dir = directoryTree.getDir();
+                    String path = getPath(dir);
+                    if (parallelDirectorySnapshotter.isEnabled() && hasher instanceof CachingFileHasher && dir.isDirectory()) {
+                        elements = snapshotInParallel(dir, (CachingFileHasher) hasher);
+                    } else {
+                        elements = Lists.newArrayList();
+                        directoryTree.visit(new FileVisitorImpl(elements));
+                    }
                     DirectoryTreeDetails details = new DirectoryTreeDetails(path, ImmutableList.copyOf(elements));
                     fileSystemMirror.putDirectory(details);
                 }
@@ -192,6 +201,45 @@ public abstract class AbstractFileCollectionSnapshotter implements FileCollectio
         }
     }
 
+    /**
+     * Walks the directory and hashes the files that are not cached using the parallel snapshotter. The caches of the hasher are only used from this thread.
+     */
+    private List<FileDetails> snapshotInParallel(File dir, CachingFileHasher hasher) {
+        List<FileVisitDetails> treeElements = parallelDirectorySnapshotter.walk(dir);
+        HashCode[] hashes = new HashCode[treeElements.size()];
+        List<FileVisitDetails> uncachedFiles = Lists.newArrayList();
+        for (int i = 0; i < hashes.length; i++) {
+            FileVisitDetails element = treeElements.get(i);
+            if (!element.isDirectory()) {
+                hashes[i] = hasher.getCached(element);
+                if (hashes[i] == null) {
+                    uncachedFiles.add(element);
+                }
+            }
+        }
+        if (!uncachedFiles.isEmpty()) {
+            Iterator<HashCode> calculatedHashes = parallelDirectorySnapshotter.hash(uncachedFiles, hasher).iterator();
+            for (int i = 0; i < hashes.length; i++) {
+                FileVisitDetails element = treeElements.get(i);
+                if (!element.isDirectory() && hashes[i] == null) {
+                    hashes[i] = calculatedHashes.next();
+                    hasher.storeHash(element, hashes[i]);
+                }
+            }
+        }
+
+        List<FileDetails> elements = Lists.newArrayListWithCapacity(hashes.length);
+        for (int i = 0; i < hashes.length; i++) {
+            FileVisitDetails element = treeElements.get(i);
+            if (element.isDirectory()) {
+                elements.add(new DefaultFileDetails(getPath(element.getFile()), element.getRelativePath(), Directory, false, dirSnapshot()));
+            } else {
+                elements.add(new DefaultFileDetails(getPath(element.getFile()), element.getRelativePath(), RegularFile, false, new FileHashSnapshot(hashes[i], element.getLastModified())));
+            }
+        }
+        return elements;
+    }
+
     private class FileVisitorImpl implements FileVisitor {
         private final List<FileDetails> fileTreeElements;
 
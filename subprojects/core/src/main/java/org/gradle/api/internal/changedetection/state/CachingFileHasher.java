@@ -18,6 +18,7 @@ package org.gradle.api.internal.changedetection.state;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Objects;
 import com.google.common.hash.HashCode;
+import org.gradle.api.Nullable;
 import org.gradle.api.file.FileTreeElement;
 import org.gradle.api.internal.cache.StringInterner;
 import org.gradle.api.internal.hash.FileHasher;
@@ -33,14 +34,26 @@ import java.io.File;
 import java.io.InputStream;
 
 public class CachingFileHasher implements FileHasher {
+    private static final int IN_MEMORY_ENTRIES = 400000;
+
     private final PersistentIndexedCache<String, FileInfo> cache;
+    private final CompactFileHashCache compactCache;
     private final FileHasher delegate;
     private final StringInterner stringInterner;
     private final FileTimeStampInspector timestampInspector;
 
     public CachingFileHasher(FileHasher delegate, TaskHistoryStore store, StringInterner stringInterner, FileTimeStampInspector timestampInspector, String cacheName) {
+        this(delegate, store, stringInterner, timestampInspector, cacheName, null);
+    }
+
+    /**
+     * @param delegate Calculates the hashes of files that are not cached. Must be safe to use from multiple threads, see {@link #hashUncached(FileTreeElement)}.
+     * @param compactCache When not null, a process-wide cache that is consulted before the persistent cache.
+     */
+    public CachingFileHasher(FileHasher delegate, TaskHistoryStore store, StringInterner stringInterner, FileTimeStampInspector timestampInspector, String cacheName, @Nullable CompactFileHashCache compactCache) {
         this.delegate = delegate;
-        this.cache = store.createCache(cacheName, String.class, new FileInfoSerializer(), 400000, true);
+        this.compactCache = compactCache;
+        this.cache = store.createCache(cacheName, String.class, new FileInfoSerializer(), IN_MEMORY_ENTRIES, true);
         this.stringInterner = stringInterner;
         this.timestampInspector = timestampInspector;
     }
@@ -61,41 +74,100 @@ public class CachingFileHasher implements FileHasher {
 
     @Override
     public HashCode hash(File file) {
-        return snapshot(file).getHash();
+        return snapshot(file);
     }
 
     @Override
     public HashCode hash(FileTreeElement fileDetails) {
-        return snapshot(fileDetails).getHash();
+        return snapshot(fileDetails);
     }
 
     @Override
     public HashCode hash(File file, FileMetadataSnapshot fileDetails) {
-        return snapshot(file, fileDetails.getLength(), fileDetails.getLastModified()).getHash();
+        return snapshot(file, fileDetails.getLength(), fileDetails.getLastModified());
     }
 
-    private FileInfo snapshot(File file) {
+    private HashCode snapshot(File file) {
         return snapshot(file, file.length(), file.lastModified());
     }
 
-    private FileInfo snapshot(FileTreeElement file) {
+    private HashCode snapshot(FileTreeElement file) {
         return snapshot(file.getFile(), file.getSize(), file.getLastModified());
     }
 
-    private FileInfo snapshot(File file, long length, long timestamp) {
-        String absolutePath = file.getAbsolutePath();
-        if (timestampInspector.timestampCanBeUsedToDetectFileChange(timestamp)) {
-            FileInfo info = cache.get(absolutePath);
+    private HashCode snapshot(File file, long length, long timestamp) {
+        String absolutePath = absolutePath(file);
+        HashCode hash = getCached(absolutePath, length, timestamp);
+        if (hash != null) {
+            return hash;
+        }
+        hash = delegate.hash(file);
+        storeHash(absolutePath, length, timestamp, hash);
+        return hash;
+    }
+
+    /**
+     * Returns the hash of the given file from the caches, or null when the file has to be hashed using {@link #hashUncached(FileTreeElement)}.
+     * Must be called from the thread that uses this hasher.
+     */
+    @Nullable
+    public HashCode getCached(FileTreeElement file) {
+        return getCached(absolutePath(file.getFile()), file.getSize(), file.getLastModified());
+    }
+
+    /**
+     * Calculates the hash of the given file without using or updating the caches, so it can be called from any thread.
+     * Use {@link #storeHash(FileTreeElement, HashCode)} from the thread that uses this hasher to record the result.
+     */
+    public HashCode hashUncached(FileTreeElement file) {
+        return delegate.hash(file.getFile());
+    }
+
+    /**
+     * Records the hash of the given file calculated by {@link #hashUncached(FileTreeElement)}. Must be called from the thread that uses this hasher.
+     */
+    public void storeHash(FileTreeElement file, HashCode hash) {
+        storeHash(absolutePath(file.getFile()), file.getSize(), file.getLastModified(), hash);
+    }
+
+    private static String absolutePath(File file) {
+        return file.isAbsolute() ? file.getPath() : file.getAbsolutePath();
+    }
+
+    @Nullable
+    private HashCode getCached(String absolutePath, long length, long timestamp) {
+        if (!timestampInspector.timestampCanBeUsedToDetectFileChange(timestamp)) {
+            return null;
+        }
+        FileInfo info = cache.get(absolutePath);
+        boolean persisted = info != null && length == info.length && timestamp == info.timestamp;
+
+        if (compactCache != null) {
+            HashCode hash = compactCache.get(absolutePath, length, timestamp);
+            if (hash != null) {
+                // The compact cache is shared by all builds in the process, so the entry may not be in this build's persistent cache yet
+                if (!persisted) {
+                    cache.put(stringInterner.intern(absolutePath), new FileInfo(hash, length, timestamp));
+                }
+                return hash;
+            }
+        }
 
-            if (info != null && length == info.length && timestamp == info.timestamp) {
-                return info;
+        if (persisted) {
+            if (compactCache != null) {
+                compactCache.put(stringInterner.intern(absolutePath), length, timestamp, info.hash);
             }
+            return info.hash;
         }
+        return null;
+    }
 
-        HashCode hash = delegate.hash(file);
-        FileInfo info = new FileInfo(hash, length, timestamp);
-        cache.put(stringInterner.intern(absolutePath), info);
-        return info;
+    private void storeHash(String absolutePath, long length, long timestamp, HashCode hash) {
+        String internedPath = stringInterner.intern(absolutePath);
+        cache.put(internedPath, new FileInfo(hash, length, timestamp));
+        if (compactCache != null) {
+            compactCache.put(internedPath, length, timestamp, hash);
+        }
     }
 
     @VisibleForTesting
@@ -0,0 +1,255 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state;
+
+import com.google.common.hash.HashCode;
+import org.gradle.api.Nullable;
+
+/**
+ * An in-memory cache of file content hashes, keyed by absolute path, that stores its entries in flat arrays rather than as map entry and value objects.
+ *
+ * <p>The table is split into segments, each guarded by its own lock, so that concurrent lookups for different paths rarely contend. Each segment is an
+ * open-addressing table that holds a reference to the path, which callers are expected to intern, and to the content hash, so that a hit compares the full path
+ * and allocates nothing.</p>
+ *
+ * <p>When a segment is full, an entry is evicted to make room for the new one. Each segment uses a clock hand to pick the entry, which approximates random eviction.</p>
+ */
+public class CompactFileHashCache {
+    private static final int SEGMENT_BITS = 4;
+
+    private final Segment[] segments;
+    private final int maxEntries;
+
+    /**
+     * @param maxEntries The number of entries to retain. These are split evenly between the segments, each sized so that its load factor stays at or below 0.75.
+     */
+    public CompactFileHashCache(int maxEntries) {
+        this.maxEntries = Math.max(1, maxEntries);
+        segments = new Segment[1 << SEGMENT_BITS];
+        int segmentEntries = Math.max(1, this.maxEntries >> SEGMENT_BITS);
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = new Segment(segmentEntries);
+        }
+    }
+
+    /**
+     * Returns the content hash for the given file, or null when there is no entry for the file or the entry was recorded for a different length or timestamp.
+     */
+    @Nullable
+    public HashCode get(String absolutePath, long length, long timestamp) {
+        int key = spread(absolutePath.hashCode());
+        return segmentFor(key).get(key, absolutePath, length, timestamp);
+    }
+
+    public void put(String absolutePath, long length, long timestamp, HashCode hash) {
+        int key = spread(absolutePath.hashCode());
+        segmentFor(key).put(key, absolutePath, length, timestamp, hash);
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    public long getHits() {
+        long hits = 0;
+        for (Segment segment : segments) {
+            hits += segment.getHits();
+        }
+        return hits;
+    }
+
+    public long getMisses() {
+        long misses = 0;
+        for (Segment segment : segments) {
+            misses += segment.getMisses();
+        }
+        return misses;
+    }
+
+    public long getEvictions() {
+        long evictions = 0;
+        for (Segment segment : segments) {
+            evictions += segment.getEvictions();
+        }
+        return evictions;
+    }
+
+    public void clear() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("file hash cache (size: %d, max size: %d, hits: %d, misses: %d, evictions: %d)", size(), maxEntries, getHits(), getMisses(), getEvictions());
+    }
+
+    // Uses the high bits to pick the segment, leaving the low bits to pick the slot within the segment
+    private Segment segmentFor(int key) {
+        return segments[key >>> (32 - SEGMENT_BITS)];
+    }
+
+    // The murmur3 finalizer, so that similar paths spread across segments and slots
+    private static int spread(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 16;
+        return hash;
+    }
+
+    private static class Segment {
+        private final int capacity;
+        private final int maxEntries;
+        private final int[] keys;
+        private final String[] paths;
+        private final long[] lengths;
+        private final long[] timestamps;
+        private final HashCode[] hashes;
+        private int size;
+        private int clockHand;
+        private long hits;
+        private long misses;
+        private long evictions;
+
+        Segment(int maxEntries) {
+            int capacity = (int) Math.min(Integer.MAX_VALUE - 8, (long) maxEntries * 4 / 3 + 1);
+            // Always leave at least one slot empty, so that probing terminates
+            this.maxEntries = Math.min(maxEntries, capacity - 1);
+            this.capacity = capacity;
+            this.keys = new int[capacity];
+            this.paths = new String[capacity];
+            this.lengths = new long[capacity];
+            this.timestamps = new long[capacity];
+            this.hashes = new HashCode[capacity];
+        }
+
+        @Nullable
+        synchronized HashCode get(int key, String path, long length, long timestamp) {
+            int slot = find(key, path);
+            if (slot < 0 || lengths[slot] != length || timestamps[slot] != timestamp) {
+                misses++;
+                return null;
+            }
+            hits++;
+            return hashes[slot];
+        }
+
+        synchronized void put(int key, String path, long length, long timestamp, HashCode hash) {
+            int slot = find(key, path);
+            if (slot < 0) {
+                if (size >= maxEntries) {
+                    evict();
+                }
+                slot = home(key);
+                while (paths[slot] != null) {
+                    slot = next(slot);
+                }
+                keys[slot] = key;
+                paths[slot] = path;
+                size++;
+            }
+            lengths[slot] = length;
+            timestamps[slot] = timestamp;
+            hashes[slot] = hash;
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        synchronized long getHits() {
+            return hits;
+        }
+
+        synchronized long getMisses() {
+            return misses;
+        }
+
+        synchronized long getEvictions() {
+            return evictions;
+        }
+
+        synchronized void clear() {
+            for (int i = 0; i < capacity; i++) {
+                paths[i] = null;
+                hashes[i] = null;
+            }
+            size = 0;
+        }
+
+        private int find(int key, String path) {
+            for (int slot = home(key); paths[slot] != null; slot = next(slot)) {
+                String candidate = paths[slot];
+                if (keys[slot] == key && (candidate == path || candidate.equals(path))) {
+                    return slot;
+                }
+            }
+            return -1;
+        }
+
+        // Maps the low bits of the key onto [0, capacity) without a division
+        private int home(int key) {
+            return (int) (((key << SEGMENT_BITS) & 0xffffffffL) * capacity >>> 32);
+        }
+
+        private int next(int slot) {
+            return slot + 1 == capacity ? 0 : slot + 1;
+        }
+
+        private void evict() {
+            while (paths[clockHand] == null) {
+                clockHand = next(clockHand);
+            }
+            remove(clockHand);
+            evictions++;
+        }
+
+        /**
+         * Removes the entry in the given slot, shifting back any later entries of the same probe sequence so that lookups do not need tombstones.
+         */
+        private void remove(int slot) {
+            int free = slot;
+            int next = slot;
+            while (true) {
+                next = next(next);
+                if (paths[next] == null) {
+                    break;
+                }
+                int home = home(keys[next]);
+                boolean canMove = next > free ? home <= free || home > next : home <= free && home > next;
+                if (canMove) {
+                    keys[free] = keys[next];
+                    paths[free] = paths[next];
+                    lengths[free] = lengths[next];
+                    timestamps[free] = timestamps[next];
+                    hashes[free] = hashes[next];
+                    free = next;
+                }
+            }
+            paths[free] = null;
+            hashes[free] = null;
+            size--;
+        }
+    }
+}
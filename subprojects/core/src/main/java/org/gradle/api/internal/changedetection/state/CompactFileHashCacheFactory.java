@@ -0,0 +1,77 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state;
+
+import org.gradle.api.Nullable;
+import org.gradle.api.internal.cache.HeapProportionalCacheSizer;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.initialization.SessionLifecycleListener;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Provides the {@link CompactFileHashCache} instances used by {@link CachingFileHasher}. A single cache per name is shared by all builds run by the process.
+ */
+public class CompactFileHashCacheFactory implements SessionLifecycleListener {
+    public static final String COMPACT_FILE_HASH_CACHE_PROPERTY = "org.gradle.internal.filehashes.compact";
+    private static final Logger LOG = Logging.getLogger(CompactFileHashCacheFactory.class);
+
+    private final boolean enabled;
+    private final HeapProportionalCacheSizer cacheSizer = new HeapProportionalCacheSizer();
+    private final Map<String, CompactFileHashCache> caches = new HashMap<String, CompactFileHashCache>();
+
+    public CompactFileHashCacheFactory(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Returns the cache with the given name, or null when compact caches are not enabled. Caches with different names hold different hashes for the same file, so must not be shared.
+     *
+     * @param maxEntries The max number of entries to keep, scaled according to available heap.
+     */
+    @Nullable
+    public CompactFileHashCache getCache(String name, int maxEntries) {
+        if (!enabled) {
+            return null;
+        }
+        synchronized (caches) {
+            CompactFileHashCache cache = caches.get(name);
+            if (cache == null) {
+                cache = new CompactFileHashCache(cacheSizer.scaleCacheSize(maxEntries));
+                caches.put(name, cache);
+            }
+            return cache;
+        }
+    }
+
+    @Override
+    public void afterStart() {
+    }
+
+    @Override
+    public void beforeComplete() {
+        if (LOG.isDebugEnabled()) {
+            synchronized (caches) {
+                for (Map.Entry<String, CompactFileHashCache> entry : caches.entrySet()) {
+                    LOG.debug("Retaining compact {} for next session: {}", entry.getKey(), entry.getValue());
+                }
+            }
+        }
+    }
+}
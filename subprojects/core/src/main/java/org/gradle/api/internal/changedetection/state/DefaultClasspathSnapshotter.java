@@ -34,8 +34,8 @@ public class DefaultClasspathSnapshotter extends AbstractFileCollectionSnapshott
         }
     };
 
-    public DefaultClasspathSnapshotter(FileHasher hasher, StringInterner stringInterner, FileSystem fileSystem, DirectoryFileTreeFactory directoryFileTreeFactory, FileSystemMirror fileSystemMirror) {
-        super(hasher, stringInterner, fileSystem, directoryFileTreeFactory, fileSystemMirror);
+    public DefaultClasspathSnapshotter(FileHasher hasher, StringInterner stringInterner, FileSystem fileSystem, DirectoryFileTreeFactory directoryFileTreeFactory, FileSystemMirror fileSystemMirror, ParallelDirectorySnapshotter parallelDirectorySnapshotter) {
+        super(hasher, stringInterner, fileSystem, directoryFileTreeFactory, fileSystemMirror, parallelDirectorySnapshotter);
     }
 
     @Override
@@ -34,8 +34,8 @@ public class DefaultCompileClasspathSnapshotter extends AbstractFileCollectionSn
         }
     };
 
-    public DefaultCompileClasspathSnapshotter(FileHasher hasher, StringInterner stringInterner, FileSystem fileSystem, DirectoryFileTreeFactory directoryFileTreeFactory, FileSystemMirror fileSystemMirror) {
-        super(hasher, stringInterner, fileSystem, directoryFileTreeFactory, fileSystemMirror);
+    public DefaultCompileClasspathSnapshotter(FileHasher hasher, StringInterner stringInterner, FileSystem fileSystem, DirectoryFileTreeFactory directoryFileTreeFactory, FileSystemMirror fileSystemMirror, ParallelDirectorySnapshotter parallelDirectorySnapshotter) {
+        super(hasher, stringInterner, fileSystem, directoryFileTreeFactory, fileSystemMirror, parallelDirectorySnapshotter);
     }
 
     @Override
@@ -17,6 +17,7 @@
 package org.gradle.api.internal.changedetection.state;
 
 import org.gradle.api.Nullable;
+import org.gradle.api.internal.TaskOutputsInternal;
 import org.gradle.api.internal.tasks.execution.TaskOutputsGenerationListener;
 
 import java.util.Map;
@@ -29,8 +30,9 @@ public class DefaultFileSystemMirror implements FileSystemMirror, TaskOutputsGen
     private final Map<String, DirectoryTreeDetails> trees = new ConcurrentHashMap<String, DirectoryTreeDetails>();
 
     @Override
-    public void beforeTaskOutputsGenerated() {
-        // When the task outputs are generated, throw away all cached state. This is intentionally very simple, to be improved later
+    public void beforeTaskOutputsGenerated(TaskOutputsInternal taskOutputs) {
+        // When the task outputs are generated, throw away all cached state. This is intentionally very simple, as tasks may write to locations they do not declare.
+        // See WatchingFileSystemMirror for a mirror that only discards the state for the declared outputs
         files.clear();
         trees.clear();
     }
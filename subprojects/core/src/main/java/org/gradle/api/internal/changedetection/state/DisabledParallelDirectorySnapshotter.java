@@ -0,0 +1,49 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.changedetection.state;
+
+import com.google.common.hash.HashCode;
+import org.gradle.api.file.FileTreeElement;
+import org.gradle.api.file.FileVisitDetails;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * Used when parallel snapshotting is disabled or not supported by the JVM, so that directory trees are walked serially.
+ */
+public class DisabledParallelDirectorySnapshotter implements ParallelDirectorySnapshotter {
+    @Override
+    public boolean isEnabled() {
+        return false;
+    }
+
+    @Override
+    public List<FileVisitDetails> walk(File rootDir) {
+        throw new IllegalStateException("Parallel snapshotting is not enabled.");
+    }
+
+    @Override
+    public List<HashCode> hash(List<? extends FileTreeElement> files, CachingFileHasher hasher) {
+        throw new IllegalStateException("Parallel snapshotting is not enabled.");
+    }
+
+    @Override
+    public void stop() {
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state;
+
+import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.event.ListenerManager;
+import org.gradle.internal.filewatch.FileWatcherFactory;
+import org.gradle.internal.os.OperatingSystem;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Creates the {@link FileSystemMirror} instances used by a build.
+ *
+ * <p>By default, each build receives a new mirror that is discarded whenever any task outputs are generated. When retaining is enabled in a long-lived process,
+ * a single {@link WatchingFileSystemMirror} per name is shared by all builds run by the process. Retaining is not supported on macOS, where the JDK watch service polls the file system
+ * and can report a change well after it happened, so that a build could use stale state.</p>
+ */
+public class FileSystemMirrorFactory implements Stoppable {
+    public static final String RETAIN_FILE_SYSTEM_STATE_PROPERTY = "org.gradle.internal.filesystem.mirror.retain";
+    public static final String MAX_RETAINED_ENTRIES_PROPERTY = "org.gradle.internal.filesystem.mirror.maxEntries";
+
+    private final boolean retainAcrossBuilds;
+    private final FileWatcherFactory fileWatcherFactory;
+    private final ListenerManager globalListenerManager;
+    private final int maxRetainedEntries = Integer.getInteger(MAX_RETAINED_ENTRIES_PROPERTY, 100000);
+    private final Map<String, WatchingFileSystemMirror> retainedMirrors = new HashMap<String, WatchingFileSystemMirror>();
+
+    public FileSystemMirrorFactory(boolean retainAcrossBuilds, FileWatcherFactory fileWatcherFactory, ListenerManager globalListenerManager) {
+        this.retainAcrossBuilds = retainAcrossBuilds && !OperatingSystem.current().isMacOsX();
+        this.fileWatcherFactory = fileWatcherFactory;
+        this.globalListenerManager = globalListenerManager;
+    }
+
+    /**
+     * Returns the mirror with the given name for a build. Mirrors with different names hold different content hashes for the same file, so must not be shared.
+     */
+    public FileSystemMirror createMirror(String name, ListenerManager buildListenerManager) {
+        if (!retainAcrossBuilds) {
+            DefaultFileSystemMirror fileSystemMirror = new DefaultFileSystemMirror();
+            buildListenerManager.addListener(fileSystemMirror);
+            return fileSystemMirror;
+        }
+        synchronized (retainedMirrors) {
+            WatchingFileSystemMirror fileSystemMirror = retainedMirrors.get(name);
+            if (fileSystemMirror == null) {
+                fileSystemMirror = new WatchingFileSystemMirror(name, fileWatcherFactory, maxRetainedEntries);
+                // Events fired by the build listener managers are forwarded to the global listener manager
+                globalListenerManager.addListener(fileSystemMirror);
+                retainedMirrors.put(name, fileSystemMirror);
+            }
+            return fileSystemMirror;
+        }
+    }
+
+    @Override
+    public void stop() {
+        synchronized (retainedMirrors) {
+            for (WatchingFileSystemMirror fileSystemMirror : retainedMirrors.values()) {
+                globalListenerManager.removeListener(fileSystemMirror);
+            }
+            CompositeStoppable.stoppable(retainedMirrors.values()).stop();
+            retainedMirrors.clear();
+        }
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.changedetection.state;
+
+import com.google.common.hash.HashCode;
+import org.gradle.api.file.FileTreeElement;
+import org.gradle.api.file.FileVisitDetails;
+import org.gradle.internal.concurrent.Stoppable;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * Walks directory trees and hashes files using multiple threads. Created by {@link ParallelDirectorySnapshotterFactory}.
+ *
+ * <p>Only the file system is accessed from the snapshotter's threads. Looking up and recording hashes in the caches of a {@link CachingFileHasher} is left to the caller.</p>
+ */
+public interface ParallelDirectorySnapshotter extends Stoppable {
+    String PARALLEL_SNAPSHOTTING_PROPERTY = "org.gradle.internal.snapshotting.parallel";
+
+    /**
+     * Returns false when directory trees should be walked serially by the caller instead.
+     */
+    boolean isEnabled();
+
+    /**
+     * Returns all the elements of the given directory, excluding the directory itself, in the order they are visited by a {@link org.gradle.api.internal.file.collections.DirectoryFileTree} without patterns.
+     */
+    List<FileVisitDetails> walk(File rootDir);
+
+    /**
+     * Calculates the hashes of the given regular files using {@link CachingFileHasher#hashUncached(FileTreeElement)}, in the order of the files.
+     */
+    List<HashCode> hash(List<? extends FileTreeElement> files, CachingFileHasher hasher);
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.changedetection.state;
+
+import org.gradle.api.JavaVersion;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.nativeintegration.filesystem.FileSystem;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class ParallelDirectorySnapshotterFactory {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ParallelDirectorySnapshotterFactory.class);
+    private static final String FORK_JOIN_SNAPSHOTTER = "org.gradle.api.internal.changedetection.state.jdk7.ForkJoinDirectorySnapshotter";
+
+    private final JavaVersion javaVersion;
+    private final FileSystem fileSystem;
+
+    public ParallelDirectorySnapshotterFactory(JavaVersion javaVersion, FileSystem fileSystem) {
+        this.javaVersion = javaVersion;
+        this.fileSystem = fileSystem;
+    }
+
+    /**
+     * Creates a snapshotter that uses at most the given number of threads. The snapshotter is disabled when the parallelism is 1 or less, or when the JVM does not provide the fork-join framework.
+     */
+    public ParallelDirectorySnapshotter create(int parallelism) {
+        if (parallelism <= 1) {
+            return new DisabledParallelDirectorySnapshotter();
+        }
+        // Use java 7 APIs, if available
+        Class<?> snapshotterClass = null;
+        if (javaVersion.isJava7Compatible()) {
+            try {
+                snapshotterClass = ParallelDirectorySnapshotterFactory.class.getClassLoader().loadClass(FORK_JOIN_SNAPSHOTTER);
+            } catch (ClassNotFoundException e) {
+                // Ignore
+            }
+        }
+        if (snapshotterClass == null) {
+            LOGGER.debug("Unable to load {}. Continuing with serial directory snapshotting.", FORK_JOIN_SNAPSHOTTER);
+            return new DisabledParallelDirectorySnapshotter();
+        }
+        try {
+            return (ParallelDirectorySnapshotter) snapshotterClass.getConstructor(Integer.TYPE, FileSystem.class).newInstance(parallelism, fileSystem);
+        } catch (Exception e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+    }
+}
@@ -115,11 +115,14 @@ public abstract class TaskExecution {
     public abstract void setDiscoveredInputFilesSnapshot(FileCollectionSnapshot inputFilesSnapshot);
 
     public BuildCacheKey calculateCacheKey() {
+        return calculateCacheKey(DefaultBuildCacheKeyBuilder.create());
+    }
+
+    public BuildCacheKey calculateCacheKey(BuildCacheKeyBuilder builder) {
         if (taskClassLoaderHash == null || taskActionsClassLoaderHash == null) {
             return null;
         }
 
-        BuildCacheKeyBuilder builder = new DefaultBuildCacheKeyBuilder();
         builder.putString(taskClass);
         builder.putBytes(taskClassLoaderHash.asBytes());
         builder.putBytes(taskActionsClassLoaderHash.asBytes());
@@ -0,0 +1,387 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state;
+
+import org.gradle.api.Action;
+import org.gradle.api.Nullable;
+import org.gradle.api.Task;
+import org.gradle.api.execution.TaskActionListener;
+import org.gradle.api.internal.TaskOutputsInternal;
+import org.gradle.api.internal.file.FileSystemSubset;
+import org.gradle.api.internal.tasks.TaskOutputFilePropertySpec;
+import org.gradle.api.internal.tasks.execution.TaskOutputsGenerationListener;
+import org.gradle.initialization.SessionLifecycleListener;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.filewatch.FileWatcher;
+import org.gradle.internal.filewatch.FileWatcherEvent;
+import org.gradle.internal.filewatch.FileWatcherFactory;
+import org.gradle.internal.filewatch.FileWatcherListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * A {@link FileSystemMirror} that is retained across builds by a long-lived process.
+ *
+ * <p>Locations that are queried are registered with a {@link FileWatcher} in bulk, before task outputs are generated and at the end of each build session, and the state for a location is discarded when a change is reported for it or for one of its descendants.
+ * When task outputs are about to be generated, only the state for the declared outputs of the task is discarded. Writes to undeclared locations are picked up from the watcher.
+ * The watcher delivers events on its own thread, and the events it has received but not yet delivered are delivered at the start of each build session and after the actions of each task,
+ * so lookups never wait for the watcher.</p>
+ *
+ * <p>State for a location is only stored when the location was already watched when the lookup missed, and no change was reported for the location between that lookup and the corresponding put.
+ * When the watcher fails or stops, all state is discarded and a new watcher is started for the next build session.</p>
+ *
+ * <p>At the end of each build session, the state that was used least recently is evicted until at most the given number of locations is retained. Watches cannot be removed individually,
+ * so when the number of watched locations grows beyond twice that number, the watcher is stopped and all state is discarded.</p>
+ */
+public class WatchingFileSystemMirror implements FileSystemMirror, TaskOutputsGenerationListener, TaskActionListener, SessionLifecycleListener, FileWatcherListener, Stoppable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(WatchingFileSystemMirror.class);
+    // Separator used to build the exclusive upper bound of the range of descendants for a path
+    private static final char AFTER_SEPARATOR = (char) (File.separatorChar + 1);
+
+    private final String name;
+    private final FileWatcherFactory fileWatcherFactory;
+    private final int maxEntries;
+    // Sorted by path, so that all descendants of a path can be found as a contiguous range
+    private final ConcurrentNavigableMap<String, RetainedState<FileDetails>> files = new ConcurrentSkipListMap<String, RetainedState<FileDetails>>();
+    private final ConcurrentNavigableMap<String, RetainedState<DirectoryTreeDetails>> trees = new ConcurrentSkipListMap<String, RetainedState<DirectoryTreeDetails>>();
+    // Lookups that missed and have not been put yet. A lookup is marked as stale when a change is reported that may affect it
+    private final ConcurrentNavigableMap<String, PendingLookup> pendingLookups = new ConcurrentSkipListMap<String, PendingLookup>();
+    // Directories are watched recursively, so a location is covered when it or any of its ancestors is a watched tree
+    private final Set<String> watchedTrees = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    private final Set<String> watchedFiles = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    // Locations that missed while not being watched, mapped to whether they should be watched as a tree
+    private final ConcurrentMap<String, Boolean> locationsToWatch = new ConcurrentHashMap<String, Boolean>();
+    // Guards the lifecycle of the watcher only, lookups never hold it
+    private final Object lock = new Object();
+    private volatile FileWatcher watcher;
+    // Incremented at the start of each build session, used to find the state that was used least recently
+    private volatile int session;
+
+    /**
+     * @param maxEntries The maximum number of files and directory trees to retain between build sessions.
+     */
+    public WatchingFileSystemMirror(String name, FileWatcherFactory fileWatcherFactory, int maxEntries) {
+        this.name = name;
+        this.fileWatcherFactory = fileWatcherFactory;
+        this.maxEntries = maxEntries;
+    }
+
+    @Nullable
+    @Override
+    public FileDetails getFile(String path) {
+        RetainedState<FileDetails> state = files.get(path);
+        if (state == null) {
+            beginLookup(path, false);
+            return null;
+        }
+        state.lastUsed = session;
+        return state.details;
+    }
+
+    @Override
+    public void putFile(FileDetails file) {
+        if (completeLookup(file.getPath())) {
+            files.put(file.getPath(), new RetainedState<FileDetails>(file, session));
+        }
+    }
+
+    @Nullable
+    @Override
+    public DirectoryTreeDetails getDirectoryTree(String path) {
+        RetainedState<DirectoryTreeDetails> state = trees.get(path);
+        if (state == null) {
+            beginLookup(path, true);
+            return null;
+        }
+        state.lastUsed = session;
+        return state.details;
+    }
+
+    @Override
+    public void putDirectory(DirectoryTreeDetails directory) {
+        if (completeLookup(directory.path)) {
+            trees.put(directory.path, new RetainedState<DirectoryTreeDetails>(directory, session));
+        }
+    }
+
+    @Override
+    public void beforeTaskOutputsGenerated(TaskOutputsInternal taskOutputs) {
+        watchPendingLocations();
+        for (TaskOutputFilePropertySpec propertySpec : taskOutputs.getFileProperties()) {
+            for (File outputRoot : propertySpec.getPropertyFiles()) {
+                invalidate(outputRoot.getAbsolutePath());
+            }
+        }
+    }
+
+    @Override
+    public void beforeActions(Task task) {
+    }
+
+    @Override
+    public void afterActions(Task task) {
+        // Pick up the writes of the task to locations that it did not declare as outputs before they are looked up by later tasks
+        deliverPendingEvents();
+    }
+
+    @Override
+    public void onChange(FileWatcher watcher, FileWatcherEvent event) {
+        File file = event.getFile();
+        if (event.getType() == FileWatcherEvent.Type.UNDEFINED || file == null) {
+            // Events have been lost, so nothing that has been recorded can be trusted
+            LOGGER.debug("Discarding file system state for {} because of an undefined file system event.", name);
+            invalidateAll();
+            return;
+        }
+        invalidate(file.getAbsolutePath());
+    }
+
+    @Override
+    public void afterStart() {
+        session++;
+        synchronized (lock) {
+            if (watcher != null && !watcher.isRunning()) {
+                LOGGER.debug("File watcher for {} is no longer running, discarding file system state.", name);
+                watcher = null;
+                invalidateAll();
+            }
+        }
+        deliverPendingEvents();
+    }
+
+    @Override
+    public void beforeComplete() {
+        watchPendingLocations();
+        evictLeastRecentlyUsed();
+        if (watchedTrees.size() + watchedFiles.size() > 2 * maxEntries) {
+            LOGGER.debug("Too many locations are watched for {}, discarding file system state.", name);
+            stop();
+        }
+    }
+
+    @Override
+    public void stop() {
+        synchronized (lock) {
+            if (watcher != null) {
+                watcher.stop();
+                watcher = null;
+            }
+            invalidateAll();
+        }
+    }
+
+    private void beginLookup(String path, boolean tree) {
+        PendingLookup lookup = new PendingLookup();
+        PendingLookup existing = pendingLookups.putIfAbsent(path, lookup);
+        if (existing != null) {
+            lookup = existing;
+        }
+        // Only a scan that starts after the location is watched can be trusted, so the result of this lookup is not stored until the location has been watched
+        if (!isWatched(new File(path), tree)) {
+            lookup.stale = true;
+            if (tree) {
+                locationsToWatch.put(path, true);
+            } else {
+                locationsToWatch.putIfAbsent(path, false);
+            }
+        }
+    }
+
+    private boolean completeLookup(String path) {
+        PendingLookup lookup = pendingLookups.remove(path);
+        return lookup != null && !lookup.stale;
+    }
+
+    private boolean isWatched(File location, boolean tree) {
+        FileWatcher watcher = this.watcher;
+        if (watcher == null || !watcher.isRunning()) {
+            return false;
+        }
+        if (!tree && watchedFiles.contains(location.getPath())) {
+            return true;
+        }
+        for (File candidate = location; candidate != null; candidate = candidate.getParentFile()) {
+            if (watchedTrees.contains(candidate.getPath())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void deliverPendingEvents() {
+        FileWatcher watcher = this.watcher;
+        if (watcher != null) {
+            watcher.deliverPendingEvents();
+        }
+    }
+
+    private void watchPendingLocations() {
+        if (locationsToWatch.isEmpty()) {
+            return;
+        }
+        Map<String, Boolean> locations = new HashMap<String, Boolean>();
+        for (Iterator<Map.Entry<String, Boolean>> iterator = locationsToWatch.entrySet().iterator(); iterator.hasNext();) {
+            Map.Entry<String, Boolean> entry = iterator.next();
+            locations.put(entry.getKey(), entry.getValue());
+            iterator.remove();
+        }
+        FileSystemSubset.Builder builder = FileSystemSubset.builder();
+        for (String location : locations.keySet()) {
+            builder.add(new File(location));
+        }
+        try {
+            FileWatcher watcher = startWatcher();
+            if (!watcher.isRunning()) {
+                return;
+            }
+            watcher.watch(builder.build());
+        } catch (IOException e) {
+            LOGGER.debug("Could not watch " + locations.size() + " locations for " + name + ", their state will not be retained.", e);
+            return;
+        } catch (RuntimeException e) {
+            LOGGER.debug("Could not watch " + locations.size() + " locations for " + name + ", their state will not be retained.", e);
+            return;
+        }
+        for (Map.Entry<String, Boolean> entry : locations.entrySet()) {
+            if (entry.getValue()) {
+                watchedTrees.add(entry.getKey());
+            } else {
+                watchedFiles.add(entry.getKey());
+            }
+        }
+    }
+
+    private void evictLeastRecentlyUsed() {
+        int retained = files.size() + trees.size();
+        if (retained <= maxEntries) {
+            return;
+        }
+        // Count the entries by the session they were last used in, and keep the most recently used sessions that fit
+        SortedMap<Integer, Integer> entriesBySession = new TreeMap<Integer, Integer>(Collections.<Integer>reverseOrder());
+        countBySession(files.values(), entriesBySession);
+        countBySession(trees.values(), entriesBySession);
+        int kept = 0;
+        int oldestKept = session + 1;
+        for (Map.Entry<Integer, Integer> entry : entriesBySession.entrySet()) {
+            if (kept + entry.getValue() > maxEntries) {
+                break;
+            }
+            kept += entry.getValue();
+            oldestKept = entry.getKey();
+        }
+        LOGGER.debug("Evicting the state of {} locations not used since session {} from {}.", retained - kept, oldestKept, name);
+        evictUsedBefore(files, oldestKept);
+        evictUsedBefore(trees, oldestKept);
+    }
+
+    private static void countBySession(Iterable<? extends RetainedState<?>> states, Map<Integer, Integer> entriesBySession) {
+        for (RetainedState<?> state : states) {
+            Integer count = entriesBySession.get(state.lastUsed);
+            entriesBySession.put(state.lastUsed, count == null ? 1 : count + 1);
+        }
+    }
+
+    private static <T> void evictUsedBefore(ConcurrentMap<String, RetainedState<T>> states, int oldestKept) {
+        for (Map.Entry<String, RetainedState<T>> entry : states.entrySet()) {
+            if (entry.getValue().lastUsed < oldestKept) {
+                states.remove(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    private FileWatcher startWatcher() {
+        synchronized (lock) {
+            if (watcher == null) {
+                watcher = fileWatcherFactory.watch(new Action<Throwable>() {
+                    @Override
+                    public void execute(Throwable throwable) {
+                        LOGGER.debug("File watcher for " + name + " failed, discarding file system state.", throwable);
+                        invalidateAll();
+                    }
+                }, this);
+            }
+            return watcher;
+        }
+    }
+
+    private void invalidate(String path) {
+        String descendantsStart = path + File.separatorChar;
+        String descendantsEnd = path + AFTER_SEPARATOR;
+
+        files.remove(path);
+        files.subMap(descendantsStart, descendantsEnd).clear();
+
+        trees.remove(path);
+        trees.subMap(descendantsStart, descendantsEnd).clear();
+
+        markStale(pendingLookups.get(path));
+        for (PendingLookup lookup : pendingLookups.subMap(descendantsStart, descendantsEnd).values()) {
+            markStale(lookup);
+        }
+
+        // A tree contains all of its descendants, so also discard the trees rooted at any ancestor
+        for (File ancestor = new File(path).getParentFile(); ancestor != null; ancestor = ancestor.getParentFile()) {
+            String ancestorPath = ancestor.getPath();
+            trees.remove(ancestorPath);
+            markStale(pendingLookups.get(ancestorPath));
+        }
+    }
+
+    private void invalidateAll() {
+        for (PendingLookup lookup : pendingLookups.values()) {
+            lookup.stale = true;
+        }
+        files.clear();
+        trees.clear();
+        watchedTrees.clear();
+        watchedFiles.clear();
+    }
+
+    private static void markStale(@Nullable PendingLookup lookup) {
+        if (lookup != null) {
+            lookup.stale = true;
+        }
+    }
+
+    private static class PendingLookup {
+        volatile boolean stale;
+    }
+
+    private static class RetainedState<T> {
+        final T details;
+        volatile int lastUsed;
+
+        RetainedState(T details, int lastUsed) {
+            this.details = details;
+            this.lastUsed = lastUsed;
+        }
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state.jdk7;
+
+import com.google.common.hash.HashCode;
+import org.gradle.api.GradleException;
+import org.gradle.api.Nullable;
+import org.gradle.api.file.FileTreeElement;
+import org.gradle.api.file.FileVisitDetails;
+import org.gradle.api.file.RelativePath;
+import org.gradle.api.internal.changedetection.state.CachingFileHasher;
+import org.gradle.api.internal.changedetection.state.ParallelDirectorySnapshotter;
+import org.gradle.api.internal.file.DefaultFileVisitDetails;
+import org.gradle.internal.nativeintegration.filesystem.FileSystem;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Walks directory trees and hashes files using a fork-join pool. The pool is bounded and shared by all tasks that snapshot concurrently.
+ *
+ * <p>Produces the same elements, in the same order, as visiting a {@link org.gradle.api.internal.file.collections.DirectoryFileTree} without patterns using the JDK 7 directory walker.
+ * The pool threads only access the file system, and hash files using {@link CachingFileHasher#hashUncached(FileTreeElement)}.</p>
+ */
+public class ForkJoinDirectorySnapshotter implements ParallelDirectorySnapshotter {
+    // Number of files hashed by a single task before the work is split further
+    private static final int FILES_PER_TASK = 32;
+
+    private final FileSystem fileSystem;
+    private final ForkJoinPool pool;
+
+    /**
+     * @param parallelism The maximum number of threads to use.
+     */
+    public ForkJoinDirectorySnapshotter(int parallelism, FileSystem fileSystem) {
+        this.fileSystem = fileSystem;
+        this.pool = new ForkJoinPool(parallelism);
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    @Override
+    public List<FileVisitDetails> walk(File rootDir) {
+        return pool.invoke(new DirectoryTask(rootDir.toPath(), RelativePath.EMPTY_ROOT, null, new AtomicBoolean()));
+    }
+
+    @Override
+    public List<HashCode> hash(List<? extends FileTreeElement> files, CachingFileHasher hasher) {
+        HashCode[] hashes = new HashCode[files.size()];
+        pool.invoke(new HashFilesTask(files, hashes, 0, files.size(), hasher));
+        return Arrays.asList(hashes);
+    }
+
+    @Override
+    public void stop() {
+        pool.shutdownNow();
+    }
+
+    private static class Ancestor {
+        private final Object fileKey;
+        private final Ancestor parent;
+
+        Ancestor(Object fileKey, @Nullable Ancestor parent) {
+            this.fileKey = fileKey;
+            this.parent = parent;
+        }
+
+        boolean contains(@Nullable Object fileKey) {
+            if (fileKey == null) {
+                return false;
+            }
+            for (Ancestor ancestor = this; ancestor != null; ancestor = ancestor.parent) {
+                if (fileKey.equals(ancestor.fileKey)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private class DirectoryTask extends RecursiveTask<List<FileVisitDetails>> {
+        private final Path dir;
+        private final RelativePath relativePath;
+        private final Ancestor ancestors;
+        private final AtomicBoolean stopFlag;
+
+        DirectoryTask(Path dir, RelativePath relativePath, @Nullable Ancestor ancestors, AtomicBoolean stopFlag) {
+            this.dir = dir;
+            this.relativePath = relativePath;
+            this.ancestors = ancestors;
+            this.stopFlag = stopFlag;
+        }
+
+        @Override
+        protected List<FileVisitDetails> compute() {
+            List<Path> children = listChildren();
+            int count = children.size();
+            FileVisitDetails[] details = new FileVisitDetails[count];
+            DirectoryTask[] subtrees = new DirectoryTask[count];
+
+            for (int i = 0; i < count; i++) {
+                Path child = children.get(i);
+                BasicFileAttributes attributes = readAttributes(child);
+                File childFile = child.toFile();
+                if (attributes.isDirectory()) {
+                    Object fileKey = attributes.fileKey();
+                    if (ancestors != null && ancestors.contains(fileKey)) {
+                        // A file system loop, skip it
+                        continue;
+                    }
+                    RelativePath childPath = relativePath.append(false, childFile.getName());
+                    details[i] = new DefaultFileVisitDetails(childFile, childPath, stopFlag, fileSystem, fileSystem, true, attributes.lastModifiedTime().toMillis(), attributes.size());
+                    subtrees[i] = new DirectoryTask(child, childPath, new Ancestor(fileKey, ancestors), stopFlag);
+                    subtrees[i].fork();
+                } else {
+                    RelativePath childPath = relativePath.append(true, childFile.getName());
+                    details[i] = new DefaultFileVisitDetails(childFile, childPath, stopFlag, fileSystem, fileSystem, false, attributes.lastModifiedTime().toMillis(), attributes.size());
+                }
+            }
+
+            List<FileVisitDetails> elements = new ArrayList<FileVisitDetails>(count);
+            for (int i = 0; i < count; i++) {
+                if (details[i] != null) {
+                    elements.add(details[i]);
+                }
+                if (subtrees[i] != null) {
+                    elements.addAll(subtrees[i].join());
+                }
+            }
+            return elements;
+        }
+
+        private List<Path> listChildren() {
+            List<Path> children = new ArrayList<Path>();
+            try {
+                DirectoryStream<Path> stream = Files.newDirectoryStream(dir);
+                try {
+                    for (Path child : stream) {
+                        children.add(child);
+                    }
+                } finally {
+                    stream.close();
+                }
+            } catch (IOException e) {
+                throw new GradleException(String.format("Could not list contents of directory '%s'.", dir), e);
+            }
+            return children;
+        }
+
+        private BasicFileAttributes readAttributes(Path path) {
+            try {
+                return Files.readAttributes(path, BasicFileAttributes.class);
+            } catch (IOException e) {
+                throw new GradleException(String.format("Could not read path '%s'.", path), e);
+            }
+        }
+    }
+
+    private static class HashFilesTask extends RecursiveAction {
+        private final List<? extends FileTreeElement> files;
+        private final HashCode[] hashes;
+        private final int start;
+        private final int end;
+        private final CachingFileHasher hasher;
+
+        HashFilesTask(List<? extends FileTreeElement> files, HashCode[] hashes, int start, int end, CachingFileHasher hasher) {
+            this.files = files;
+            this.hashes = hashes;
+            this.start = start;
+            this.end = end;
+            this.hasher = hasher;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start > FILES_PER_TASK) {
+                int middle = (start + end) >>> 1;
+                invokeAll(new HashFilesTask(files, hashes, start, middle, hasher), new HashFilesTask(files, hashes, middle, end, hasher));
+                return;
+            }
+            for (int i = start; i < end; i++) {
+                hashes[i] = hasher.hashUncached(files.get(i));
+            }
+        }
+    }
+}
@@ -48,7 +48,7 @@ public class ExecuteActionsTaskExecuter implements TaskExecuter {
     public void execute(TaskInternal task, TaskStateInternal state, TaskExecutionContext context) {
         listener.beforeActions(task);
         if (!task.getTaskActions().isEmpty()) {
-            outputsGenerationListener.beforeTaskOutputsGenerated();
+            outputsGenerationListener.beforeTaskOutputsGenerated(task.getOutputs());
         }
         state.setExecuting(true);
         try {
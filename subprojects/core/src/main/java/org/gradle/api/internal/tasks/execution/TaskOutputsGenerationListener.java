@@ -16,10 +16,14 @@
 
 package org.gradle.api.internal.tasks.execution;
 
+import org.gradle.api.internal.TaskOutputsInternal;
+
 public interface TaskOutputsGenerationListener {
     /**
      * Invoked when the outputs for a task are about to be generated.
      * This is for example just before the task actions are executed or the outputs are loaded from the cache.
+     *
+     * @param taskOutputs the outputs of the task. Listeners can use the declared output files to limit the state they discard.
      */
-    void beforeTaskOutputsGenerated();
+    void beforeTaskOutputsGenerated(TaskOutputsInternal taskOutputs);
 }
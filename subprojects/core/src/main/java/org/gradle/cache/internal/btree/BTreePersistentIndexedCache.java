@@ -66,7 +66,13 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
         this.serializer = valueSerializer;
         this.maxChildIndexEntries = maxChildIndexEntries;
         this.minIndexChildNodes = maxChildIndexEntries / 2;
-        BlockStore cachingStore = new CachingBlockStore(new FileBackedBlockStore(cacheFile), IndexBlock.class, FreeListBlockStore.FreeListBlock.class);
+        BlockStore cachingStore;
+        if (MappedFileBlockStore.isEnabled()) {
+            // Blocks are decoded straight from the mapped file, so only keep the dirty blocks on the heap
+            cachingStore = new CachingBlockStore(new MappedFileBlockStore(cacheFile));
+        } else {
+            cachingStore = new CachingBlockStore(new FileBackedBlockStore(cacheFile), IndexBlock.class, FreeListBlockStore.FreeListBlock.class);
+        }
         store = new StateCheckBlockStore(new FreeListBlockStore(cachingStore, maxFreeListEntries));
         try {
             open();
@@ -15,234 +15,61 @@
  */
 package org.gradle.cache.internal.btree;
 
-import org.gradle.api.UncheckedIOException;
-
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
 
-public class FileBackedBlockStore implements BlockStore {
-    private final File cacheFile;
-    private RandomAccessFile file;
+public class FileBackedBlockStore extends AbstractFileBlockStore {
     private ByteOutput output;
     private ByteInput input;
-    private long nextBlock;
-    private Factory factory;
-    private long currentFileSize;
 
     public FileBackedBlockStore(File cacheFile) {
-        this.cacheFile = cacheFile;
+        super(cacheFile);
     }
 
     @Override
-    public String toString() {
-        return "cache '" + cacheFile + "'";
-    }
-
-    public void open(Runnable runnable, Factory factory) {
-        this.factory = factory;
-        try {
-            cacheFile.getParentFile().mkdirs();
-            file = new RandomAccessFile(cacheFile, "rw");
-            output = new ByteOutput(file);
-            input = new ByteInput(file);
-            currentFileSize = file.length();
-            nextBlock = currentFileSize;
-            if (currentFileSize == 0) {
-                runnable.run();
-            }
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
-        }
-    }
-
-    public void close() {
-        try {
-            file.close();
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
-        }
+    protected void opened(RandomAccessFile file) {
+        output = new ByteOutput(file);
+        input = new ByteInput(file);
     }
 
-    public void clear() {
-        try {
-            file.setLength(0);
-            currentFileSize = 0;
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
-        }
-        nextBlock = 0;
-    }
-
-    public void attach(BlockPayload block) {
-        if (block.getBlock() == null) {
-            block.setBlock(new BlockImpl(block));
-        }
+    @Override
+    protected void closing() {
     }
 
-    public void remove(BlockPayload block) {
-        BlockImpl blockImpl = (BlockImpl) block.getBlock();
-        blockImpl.detach();
+    @Override
+    protected void clearing() {
     }
 
-    public void flush() {
+    @Override
+    protected DataInputStream startRead(long offset) throws IOException {
+        return input.start(offset);
     }
 
-    public <T extends BlockPayload> T readFirst(Class<T> payloadType) {
-        return read(new BlockPointer(0), payloadType);
+    @Override
+    protected long getBytesRead() {
+        return input.getBytesRead();
     }
 
-    public <T extends BlockPayload> T read(BlockPointer pos, Class<T> payloadType) {
-        assert !pos.isNull();
-        try {
-            T payload = payloadType.cast(factory.create(payloadType));
-            BlockImpl block = new BlockImpl(payload, pos);
-            block.read();
-            return payload;
-        } catch (CorruptedCacheException e) {
-            throw e;
-        } catch (Exception e) {
-            throw new UncheckedIOException(e);
-        }
+    @Override
+    protected void finishRead() {
+        input.done();
     }
 
-    public void write(BlockPayload block) {
-        BlockImpl blockImpl = (BlockImpl) block.getBlock();
-        try {
-            blockImpl.write();
-        } catch (CorruptedCacheException e) {
-            throw e;
-        } catch (Exception e) {
-            throw new UncheckedIOException(e);
-        }
+    @Override
+    protected DataOutputStream startWrite(long offset, long end) throws IOException {
+        return output.start(offset);
     }
 
-    private long alloc(long length) {
-        long pos = nextBlock;
-        nextBlock += length;
-        return pos;
+    @Override
+    protected long getBytesWritten() {
+        return output.getBytesWritten();
     }
 
-    private final class BlockImpl extends Block {
-        private static final int HEADER_SIZE = 1 + INT_SIZE; // type, payload size
-        private static final int TAIL_SIZE = INT_SIZE;
-
-        private BlockPointer pos;
-        private int payloadSize;
-
-        private BlockImpl(BlockPayload payload, BlockPointer pos) {
-            this(payload);
-            setPos(pos);
-        }
-
-        public BlockImpl(BlockPayload payload) {
-            super(payload);
-            pos = null;
-            payloadSize = -1;
-        }
-
-        @Override
-        public boolean hasPos() {
-            return pos != null;
-        }
-
-        @Override
-        public BlockPointer getPos() {
-            if (pos == null) {
-                pos = new BlockPointer(alloc(getSize()));
-            }
-            return pos;
-        }
-
-        @Override
-        public void setPos(BlockPointer pos) {
-            assert this.pos == null && !pos.isNull();
-            this.pos = pos;
-        }
-
-        public int getSize() {
-            if (payloadSize < 0) {
-                payloadSize = getPayload().getSize();
-            }
-            return payloadSize + HEADER_SIZE + TAIL_SIZE;
-        }
-
-        @Override
-        public void setSize(int size) {
-            int newPayloadSize = size - HEADER_SIZE - TAIL_SIZE;
-            assert newPayloadSize >= payloadSize;
-            payloadSize = newPayloadSize;
-        }
-
-        public void write() throws Exception {
-            long pos = getPos().getPos();
-
-            DataOutputStream outputStream = output.start(pos);
-
-            BlockPayload payload = getPayload();
-
-            // Write header
-            outputStream.writeByte(payload.getType());
-            outputStream.writeInt(payloadSize);
-            long finalSize = pos + HEADER_SIZE + TAIL_SIZE + payloadSize;
-
-            // Write body
-            payload.write(outputStream);
-
-            // Write count
-            long bytesWritten = output.getBytesWritten();
-            if (bytesWritten > Integer.MAX_VALUE) {
-                throw new IllegalArgumentException("Block payload exceeds maximum size");
-            }
-            outputStream.writeInt((int) bytesWritten);
-            output.done();
-
-            // Pad
-            if (currentFileSize < finalSize) {
-                file.setLength(finalSize);
-                currentFileSize = finalSize;
-            }
-        }
-
-        public void read() throws Exception {
-            long pos = getPos().getPos();
-            assert pos >= 0;
-            if (pos + HEADER_SIZE >= currentFileSize) {
-                throw blockCorruptedException();
-            }
-
-            DataInputStream inputStream = input.start(pos);
-
-            BlockPayload payload = getPayload();
-
-            // Read header
-            byte type = inputStream.readByte();
-            if (type != payload.getType()) {
-                throw blockCorruptedException();
-            }
-
-            // Read body
-            payloadSize = inputStream.readInt();
-            if (pos + HEADER_SIZE + TAIL_SIZE + payloadSize > currentFileSize) {
-                throw blockCorruptedException();
-            }
-            payload.read(inputStream);
-
-            // Read and verify count
-            long actualCount = input.getBytesRead();
-            long count = inputStream.readInt();
-            if (actualCount != count) {
-                throw blockCorruptedException();
-            }
-            input.done();
-        }
-
-        public RuntimeException blockCorruptedException() {
-            return new CorruptedCacheException(String.format("Corrupted %s found in %s.", this,
-                    FileBackedBlockStore.this));
-        }
+    @Override
+    protected void finishWrite() throws IOException {
+        output.done();
     }
-
 }
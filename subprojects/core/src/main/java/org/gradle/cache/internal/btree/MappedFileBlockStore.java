@@ -0,0 +1,306 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+import org.gradle.internal.os.OperatingSystem;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A {@link BlockStore} that reads and writes blocks through memory-mapped regions of the backing file, rather than seeking and reading through a {@link RandomAccessFile}.
+ *
+ * <p>Uses the same file format as {@link FileBackedBlockStore}, so either store can open a file written by the other. The file is mapped in fixed size segments, and
+ * blocks are decoded straight from the mapping without first being copied to a buffer on the heap. The file grows to exactly the end of the last block written, the
+ * same as for {@link FileBackedBlockStore}, so nothing is left to reclaim when the process stops without closing the store. The last segment is mapped again when the
+ * file has grown past the end of its mapping.</p>
+ *
+ * <p>Writes go to the shared mapping, so are visible to the OS in the same way as writes through a {@link RandomAccessFile}: {@link #flush()} does not force the
+ * contents to the storage device. Mappings are released when they are replaced and when the store is closed, rather than when they are garbage collected.</p>
+ */
+public class MappedFileBlockStore extends AbstractFileBlockStore {
+    public static final String MAPPED_BLOCK_STORE_PROPERTY = "org.gradle.cache.internal.btree.mapped";
+    private static final Logger LOGGER = LoggerFactory.getLogger(MappedFileBlockStore.class);
+    private static final int SEGMENT_SHIFT = 20;
+    private static final int SEGMENT_SIZE = 1 << SEGMENT_SHIFT;
+    private static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+    private final List<MappedByteBuffer> segments = new ArrayList<MappedByteBuffer>();
+    private final MappedInput input = new MappedInput();
+    private final MappedOutput output = new MappedOutput();
+    private final DataInputStream dataInput = new DataInputStream(input);
+    private final DataOutputStream dataOutput = new DataOutputStream(output);
+    private FileChannel channel;
+
+    public MappedFileBlockStore(File cacheFile) {
+        super(cacheFile);
+    }
+
+    /**
+     * Returns true when the mapped store should be used in place of {@link FileBackedBlockStore}. Files cannot be truncated while they are mapped on Windows.
+     */
+    public static boolean isEnabled() {
+        return Boolean.getBoolean(MAPPED_BLOCK_STORE_PROPERTY) && !OperatingSystem.current().isWindows();
+    }
+
+    @Override
+    protected void opened(RandomAccessFile file) {
+        channel = file.getChannel();
+    }
+
+    @Override
+    protected void closing() {
+        unmapSegments();
+    }
+
+    @Override
+    protected void clearing() {
+        unmapSegments();
+    }
+
+    @Override
+    protected DataInputStream startRead(long offset) throws IOException {
+        input.start(offset);
+        return dataInput;
+    }
+
+    @Override
+    protected long getBytesRead() {
+        return input.getBytesRead();
+    }
+
+    @Override
+    protected void finishRead() {
+        input.done();
+    }
+
+    @Override
+    protected DataOutputStream startWrite(long offset, long end) throws IOException {
+        // Grow the file before writing, as the block can only be written once it is mapped
+        ensureFileSize(end);
+        output.start(offset);
+        return dataOutput;
+    }
+
+    @Override
+    protected long getBytesWritten() {
+        return output.getBytesWritten();
+    }
+
+    @Override
+    protected void finishWrite() {
+        output.done();
+    }
+
+    /**
+     * Returns the segment with the given index, mapped up to the end of the segment or the end of the file, whichever comes first.
+     */
+    private MappedByteBuffer segment(int index) throws IOException {
+        while (segments.size() <= index) {
+            segments.add(null);
+        }
+        long start = (long) index << SEGMENT_SHIFT;
+        int length = (int) Math.min(SEGMENT_SIZE, getFileSize() - start);
+        MappedByteBuffer segment = segments.get(index);
+        if (segment == null || segment.capacity() < length) {
+            if (segment != null) {
+                unmap(segment);
+            }
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, start, length);
+            segments.set(index, segment);
+        }
+        return segment;
+    }
+
+    private void unmapSegments() {
+        input.done();
+        output.done();
+        for (MappedByteBuffer segment : segments) {
+            if (segment != null) {
+                unmap(segment);
+            }
+        }
+        segments.clear();
+    }
+
+    /**
+     * Positions a view of the mapping at the given offset of the file. The view ends at the end of the segment or the end of the file.
+     */
+    private ByteBuffer view(long offset) throws IOException {
+        ByteBuffer view = segment((int) (offset >>> SEGMENT_SHIFT)).duplicate();
+        view.position((int) (offset & SEGMENT_MASK));
+        return view;
+    }
+
+    private final class MappedInput extends InputStream {
+        private long start;
+        private long viewStart;
+        private ByteBuffer view;
+
+        void start(long offset) throws IOException {
+            start = offset;
+            moveTo(offset);
+        }
+
+        long getBytesRead() {
+            return viewStart + view.position() - start;
+        }
+
+        void done() {
+            view = null;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!view.hasRemaining() && !next()) {
+                return -1;
+            }
+            return view.get() & 0xff;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            if (!view.hasRemaining() && !next()) {
+                return -1;
+            }
+            int n = Math.min(length, view.remaining());
+            view.get(buffer, offset, n);
+            return n;
+        }
+
+        private boolean next() throws IOException {
+            long end = viewStart + view.limit();
+            if (end >= getFileSize()) {
+                return false;
+            }
+            moveTo(end);
+            return true;
+        }
+
+        private void moveTo(long offset) throws IOException {
+            view = view(offset);
+            viewStart = offset - view.position();
+        }
+    }
+
+    private final class MappedOutput extends OutputStream {
+        private long start;
+        private long viewStart;
+        private ByteBuffer view;
+
+        void start(long offset) throws IOException {
+            start = offset;
+            moveTo(offset);
+        }
+
+        long getBytesWritten() {
+            return viewStart + view.position() - start;
+        }
+
+        void done() {
+            view = null;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (!view.hasRemaining()) {
+                next();
+            }
+            view.put((byte) b);
+        }
+
+        @Override
+        public void write(byte[] buffer, int offset, int length) throws IOException {
+            while (length > 0) {
+                if (!view.hasRemaining()) {
+                    next();
+                }
+                int n = Math.min(length, view.remaining());
+                view.put(buffer, offset, n);
+                offset += n;
+                length -= n;
+            }
+        }
+
+        private void next() throws IOException {
+            long end = viewStart + view.limit();
+            if (end >= getFileSize()) {
+                throw new IOException("Cannot write past the end of the block.");
+            }
+            moveTo(end);
+        }
+
+        private void moveTo(long offset) throws IOException {
+            view = view(offset);
+            viewStart = offset - view.position();
+        }
+    }
+
+    /**
+     * Releases the given mapping straight away, when the JVM allows it. Otherwise, the mapping is released when the buffer is garbage collected.
+     * Must not be called while any view of the buffer is still in use.
+     */
+    private static void unmap(MappedByteBuffer buffer) {
+        if (Unmapper.CLEAN == null) {
+            return;
+        }
+        try {
+            Object cleaner = Unmapper.CLEANER.invoke(buffer);
+            if (cleaner != null) {
+                Unmapper.CLEAN.invoke(cleaner);
+            }
+        } catch (Exception e) {
+            LOGGER.debug("Could not unmap buffer.", e);
+        }
+    }
+
+    // Resolved lazily, so that the lookup only happens when the mapped store is used
+    private static class Unmapper {
+        private static final Method CLEANER;
+        private static final Method CLEAN;
+
+        static {
+            Method cleaner = null;
+            Method clean = null;
+            try {
+                cleaner = Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner");
+                clean = Class.forName("sun.misc.Cleaner").getMethod("clean");
+            } catch (Exception e) {
+                LOGGER.debug("Mapped buffers cannot be unmapped explicitly on this JVM.", e);
+                cleaner = null;
+                clean = null;
+            }
+            CLEANER = cleaner;
+            CLEAN = clean;
+        }
+    }
+}
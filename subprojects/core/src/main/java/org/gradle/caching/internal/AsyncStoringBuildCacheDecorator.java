@@ -0,0 +1,243 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal;
+
+import org.apache.commons.io.IOUtils;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.api.internal.file.TemporaryFileProvider;
+import org.gradle.caching.BuildCache;
+import org.gradle.caching.BuildCacheEntryReader;
+import org.gradle.caching.BuildCacheEntryWriter;
+import org.gradle.caching.BuildCacheException;
+import org.gradle.caching.BuildCacheKey;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.StoppableExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@code BuildCache} decorator that pushes new cache entries to the delegate build cache in the background.
+ *
+ * <p>The entry is written to a local file by the calling thread, so the task's outputs are packed before any other task can change them. The local file is then
+ * pushed by a background thread. The number of entries waiting to be pushed is bounded: when the limit is reached, {@link #store(BuildCacheKey, BuildCacheEntryWriter)}
+ * blocks until an earlier entry has been pushed.</p>
+ *
+ * <p>{@link #close()} waits for the pending entries to be pushed, up to an optional deadline. When the deadline is reached, the pushes in progress are interrupted,
+ * the entries that were not picked up yet are discarded, and the delegate is closed once the last push in progress has finished.</p>
+ *
+ * <p>A failure to push an entry is rethrown by the next call to {@link #store(BuildCacheKey, BuildCacheEntryWriter)}, in place of storing that entry. The decorators in
+ * front of this one then handle it as they would a failure of a synchronous store, e.g. a {@link ShortCircuitingErrorHandlerBuildCacheDecorator} counts it towards
+ * disabling the cache. Failures other than {@link BuildCacheException} that have not been rethrown yet are rethrown by {@link #close()}.</p>
+ */
+public class AsyncStoringBuildCacheDecorator implements BuildCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AsyncStoringBuildCacheDecorator.class);
+
+    private final BuildCache delegate;
+    private final TemporaryFileProvider temporaryFileProvider;
+    private final StoppableExecutor executor;
+    private final Semaphore pendingStores;
+    // Entries that have been staged but not picked up by a push yet. A push or close() takes ownership of an entry by removing it from this set
+    private final Set<File> stagedEntries = Collections.newSetFromMap(new ConcurrentHashMap<File, Boolean>());
+    private final AtomicInteger pushesInProgress = new AtomicInteger();
+    private final AtomicBoolean delegateClosed = new AtomicBoolean();
+    private final Queue<Exception> pushFailures = new ConcurrentLinkedQueue<Exception>();
+    private final int timeoutSeconds;
+    private volatile boolean closing;
+
+    /**
+     * @param threads The number of entries to push concurrently.
+     * @param maxPendingStores The maximum number of entries waiting to be pushed.
+     * @param timeoutSeconds How long {@link #close()} waits for pending entries to be pushed, or 0 to wait until they have all been pushed.
+     */
+    public AsyncStoringBuildCacheDecorator(TemporaryFileProvider temporaryFileProvider, ExecutorFactory executorFactory, int threads, int maxPendingStores, int timeoutSeconds, BuildCache delegate) {
+        this.delegate = delegate;
+        this.temporaryFileProvider = temporaryFileProvider;
+        this.executor = executorFactory.create("Build cache store", threads);
+        this.pendingStores = new Semaphore(maxPendingStores);
+        this.timeoutSeconds = timeoutSeconds;
+    }
+
+    @Override
+    public boolean load(BuildCacheKey key, BuildCacheEntryReader reader) throws BuildCacheException {
+        return delegate.load(key, reader);
+    }
+
+    @Override
+    public void store(final BuildCacheKey key, BuildCacheEntryWriter writer) throws BuildCacheException {
+        Exception pushFailure = pushFailures.poll();
+        if (pushFailure != null) {
+            throw UncheckedException.throwAsUncheckedException(pushFailure);
+        }
+        final File stagedEntry = stageCacheEntry(writer);
+        try {
+            pendingStores.acquire();
+        } catch (InterruptedException e) {
+            discard(stagedEntry);
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    pushesInProgress.incrementAndGet();
+                    try {
+                        if (stagedEntries.remove(stagedEntry)) {
+                            push(key, stagedEntry);
+                        }
+                    } finally {
+                        pendingStores.release();
+                        if (pushesInProgress.decrementAndGet() == 0 && closing) {
+                            closeDelegateQuietly();
+                        }
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            discard(stagedEntry);
+            pendingStores.release();
+            throw e;
+        }
+    }
+
+    private void push(BuildCacheKey key, File stagedEntry) {
+        try {
+            delegate.store(key, new StagedEntryWriter(stagedEntry));
+        } catch (Exception e) {
+            pushFailures.add(e);
+        } finally {
+            stagedEntry.delete();
+        }
+    }
+
+    private void discard(File stagedEntry) {
+        stagedEntries.remove(stagedEntry);
+        stagedEntry.delete();
+    }
+
+    private File stageCacheEntry(BuildCacheEntryWriter writer) {
+        File stagedEntry = temporaryFileProvider.createTemporaryFile("gradle_cache", "entry");
+        stagedEntries.add(stagedEntry);
+        OutputStream output = null;
+        try {
+            output = new BufferedOutputStream(new FileOutputStream(stagedEntry));
+            writer.writeTo(output);
+            output.close();
+            return stagedEntry;
+        } catch (IOException e) {
+            discard(stagedEntry);
+            throw new UncheckedIOException(e);
+        } catch (RuntimeException e) {
+            discard(stagedEntry);
+            throw e;
+        } finally {
+            IOUtils.closeQuietly(output);
+        }
+    }
+
+    @Override
+    public String getDescription() {
+        return delegate.getDescription();
+    }
+
+    @Override
+    public void close() throws IOException {
+        closing = true;
+        try {
+            if (timeoutSeconds > 0) {
+                try {
+                    executor.stop(timeoutSeconds, TimeUnit.SECONDS);
+                } catch (IllegalStateException e) {
+                    LOGGER.warn("Gave up waiting for entries to be stored in {} after {} seconds.", delegate.getDescription(), timeoutSeconds);
+                    // Interrupt the pushes in progress and drop the ones that have not started
+                    executor.shutdownNow();
+                }
+            } else {
+                executor.stop();
+            }
+        } finally {
+            // Clean up the entries that were not picked up before the deadline. Entries being pushed are deleted by their push
+            for (File stagedEntry : stagedEntries) {
+                if (stagedEntries.remove(stagedEntry)) {
+                    stagedEntry.delete();
+                }
+            }
+            if (pushesInProgress.get() == 0) {
+                closeDelegate();
+            } else {
+                LOGGER.debug("Closing {} once the entries being stored have been stored.", delegate.getDescription());
+            }
+        }
+        // A failure to store an entry synchronously would have failed the build, unless it is a BuildCacheException
+        Exception pushFailure;
+        while ((pushFailure = pushFailures.poll()) != null) {
+            if (!(pushFailure instanceof BuildCacheException)) {
+                throw UncheckedException.throwAsUncheckedException(pushFailure);
+            }
+        }
+    }
+
+    private void closeDelegate() throws IOException {
+        if (delegateClosed.compareAndSet(false, true)) {
+            delegate.close();
+        }
+    }
+
+    private void closeDelegateQuietly() {
+        try {
+            closeDelegate();
+        } catch (Exception e) {
+            LOGGER.warn("Could not close {}.", delegate.getDescription(), e);
+        }
+    }
+
+    private static class StagedEntryWriter implements BuildCacheEntryWriter {
+        private final File stagedEntry;
+
+        StagedEntryWriter(File stagedEntry) {
+            this.stagedEntry = stagedEntry;
+        }
+
+        @Override
+        public void writeTo(OutputStream output) throws IOException {
+            InputStream input = new BufferedInputStream(new FileInputStream(stagedEntry));
+            try {
+                IOUtils.copyLarge(input, output);
+            } finally {
+                IOUtils.closeQuietly(input);
+            }
+        }
+    }
+}
@@ -31,6 +31,7 @@ public interface BuildCacheConfiguration {
     /**
      * Use the default local directory cache. The cache directory path defaults to {@code $GRADLE_HOME/task-cache}.
      * It can also be overridden via the {@code org.gradle.cache.tasks.directory} system property.
+     * The size of the cache can be limited via the {@code org.gradle.cache.tasks.directory.maxSize} system property, in megabytes.
      */
     void useLocalCache();
 
@@ -43,4 +44,18 @@ public interface BuildCacheConfiguration {
      * Use the give build cache factory.
      */
     void useCacheFactory(BuildCacheFactory factory);
+
+    /**
+     * Use the default local directory cache in front of the build cache created by the given factory.
+     *
+     * <p>Entries found in the remote cache are copied to the local cache. New entries, and entries found only in the local cache, are pushed to the remote cache
+     * in the background. Failures of the remote cache do not affect the local cache.</p>
+     */
+    void useLocalAndRemoteCache(BuildCacheFactory remoteFactory);
+
+    /**
+     * Compress task output stored in the build cache using multiple threads. Task output stored this way can be read by builds that do not use parallel compression.
+     * It can also be enabled via the {@code org.gradle.cache.tasks.parallelCompression} system property.
+     */
+    void useParallelCompression();
 }
@@ -22,4 +22,5 @@ public interface BuildCacheConfigurationInternal extends BuildCacheConfiguration
     BuildCache getCache();
     boolean isPullAllowed();
     boolean isPushAllowed();
+    boolean isParallelCompression();
 }
@@ -17,9 +17,11 @@
 package org.gradle.caching.internal;
 
 import org.gradle.StartParameter;
+import org.gradle.api.internal.file.TemporaryFileProvider;
 import org.gradle.cache.CacheRepository;
 import org.gradle.caching.BuildCache;
 import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.concurrent.Stoppable;
 import org.gradle.util.SingleMessageLogger;
 
@@ -28,17 +30,32 @@ import java.io.File;
 public class DefaultBuildCacheConfiguration implements BuildCacheConfigurationInternal, Stoppable {
     private final boolean pullAllowed;
     private final boolean pushAllowed;
+    private boolean parallelCompression;
     private final CacheRepository cacheRepository;
     private final StartParameter startParameter;
+    private final TemporaryFileProvider temporaryFileProvider;
+    private final ExecutorFactory executorFactory;
+    private final boolean asyncStore;
+    private final int asyncStoreTimeoutSeconds;
+    private final long localCacheMaxSize;
     private BuildCacheFactory factory;
+    // Whether the caches created by the factory already store entries in the background
+    private boolean factoryStoresInBackground;
     private BuildCache cache;
 
-    public DefaultBuildCacheConfiguration(CacheRepository cacheRepository, StartParameter startParameter) {
+    public DefaultBuildCacheConfiguration(CacheRepository cacheRepository, StartParameter startParameter, TemporaryFileProvider temporaryFileProvider, ExecutorFactory executorFactory) {
         this.cacheRepository = cacheRepository;
         this.startParameter = startParameter;
-        useLocalCache();
+        this.temporaryFileProvider = temporaryFileProvider;
+        this.executorFactory = executorFactory;
         this.pullAllowed = "true".equalsIgnoreCase(System.getProperty("org.gradle.cache.tasks.pull", "true").trim());
         this.pushAllowed = "true".equalsIgnoreCase(System.getProperty("org.gradle.cache.tasks.push", "true").trim());
+        this.parallelCompression = "true".equalsIgnoreCase(System.getProperty("org.gradle.cache.tasks.parallelCompression", "false").trim());
+        this.asyncStore = "true".equalsIgnoreCase(System.getProperty("org.gradle.cache.tasks.push.async", "false").trim());
+        this.asyncStoreTimeoutSeconds = Integer.getInteger("org.gradle.cache.tasks.push.async.timeout", 0);
+        long localCacheMaxSizeMegabytes = Long.getLong("org.gradle.cache.tasks.directory.maxSize", 0);
+        this.localCacheMaxSize = localCacheMaxSizeMegabytes > 0 ? localCacheMaxSizeMegabytes * 1024 * 1024 : LocalDirectoryBuildCache.UNLIMITED_SIZE;
+        useLocalCache();
     }
 
     @Override
@@ -46,12 +63,16 @@ public class DefaultBuildCacheConfiguration implements BuildCacheConfigurationIn
         setFactory(new BuildCacheFactory() {
             @Override
             public BuildCache createCache(StartParameter startParameter) {
-                String cacheDirectoryPath = System.getProperty("org.gradle.cache.tasks.directory");
-                return cacheDirectoryPath != null
-                    ? new LocalDirectoryBuildCache(cacheRepository, new File(cacheDirectoryPath))
-                    : new LocalDirectoryBuildCache(cacheRepository, "task-cache");
+                return createDefaultLocalCache();
             }
-        });
+        }, false);
+    }
+
+    private BuildCache createDefaultLocalCache() {
+        String cacheDirectoryPath = System.getProperty("org.gradle.cache.tasks.directory");
+        return cacheDirectoryPath != null
+            ? new LocalDirectoryBuildCache(cacheRepository, new File(cacheDirectoryPath), localCacheMaxSize)
+            : new LocalDirectoryBuildCache(cacheRepository, "task-cache", localCacheMaxSize);
     }
 
     @Override
@@ -59,28 +80,59 @@ public class DefaultBuildCacheConfiguration implements BuildCacheConfigurationIn
         setFactory(new BuildCacheFactory() {
             @Override
             public BuildCache createCache(StartParameter startParameter) {
-                return new LocalDirectoryBuildCache(cacheRepository, directory);
+                return new LocalDirectoryBuildCache(cacheRepository, directory, localCacheMaxSize);
             }
-        });
+        }, false);
     }
 
     @Override
     public void useCacheFactory(BuildCacheFactory factory) {
-        setFactory(factory);
+        setFactory(factory, false);
+    }
+
+    @Override
+    public void useLocalAndRemoteCache(final BuildCacheFactory remoteFactory) {
+        setFactory(new BuildCacheFactory() {
+            @Override
+            public BuildCache createCache(StartParameter startParameter) {
+                // Remote failures are handled here, so that they do not disable the local cache
+                BuildCache remote = new LenientBuildCacheDecorator(
+                    new ShortCircuitingErrorHandlerBuildCacheDecorator(3,
+                        new LoggingBuildCacheDecorator(
+                            remoteFactory.createCache(startParameter))));
+                // Entries are pushed to the remote cache in the background, reading them back from the local cache
+                int threads = startParameter.getMaxWorkerCount();
+                return new TwoTierBuildCache(createDefaultLocalCache(), remote, isPushAllowed(), executorFactory, threads, threads * 4, asyncStoreTimeoutSeconds);
+            }
+        }, true);
     }
 
-    private void setFactory(final BuildCacheFactory factory) {
+    @Override
+    public void useParallelCompression() {
+        this.parallelCompression = true;
+    }
+
+    private void setFactory(final BuildCacheFactory factory, boolean storesInBackground) {
         this.factory = factory;
+        this.factoryStoresInBackground = storesInBackground;
+    }
+
+    private BuildCache storeInBackground(BuildCache cache) {
+        int threads = startParameter.getMaxWorkerCount();
+        return new AsyncStoringBuildCacheDecorator(temporaryFileProvider, executorFactory, threads, threads * 4, asyncStoreTimeoutSeconds, cache);
     }
 
     @Override
     public BuildCache getCache() {
         // TODO:LPTR Instantiate this as a service instead
         if (cache == null) {
+            BuildCache delegate = new LoggingBuildCacheDecorator(factory.createCache(startParameter));
+            if (asyncStore && !factoryStoresInBackground) {
+                // Inside the error handlers, so that failures to push entries in the background count towards disabling the cache
+                delegate = storeInBackground(delegate);
+            }
             this.cache = new LenientBuildCacheDecorator(
-                new ShortCircuitingErrorHandlerBuildCacheDecorator(3,
-                    new LoggingBuildCacheDecorator(
-                            factory.createCache(startParameter))));
+                new ShortCircuitingErrorHandlerBuildCacheDecorator(3, delegate));
             if (isPullAllowed() && isPushAllowed()) {
                 SingleMessageLogger.incubatingFeatureUsed("Using " + cache.getDescription());
             } else if (isPushAllowed()) {
@@ -103,6 +155,11 @@ public class DefaultBuildCacheConfiguration implements BuildCacheConfigurationIn
         return pushAllowed;
     }
 
+    @Override
+    public boolean isParallelCompression() {
+        return parallelCompression;
+    }
+
     @Override
     public void stop() {
         CompositeStoppable.stoppable(cache).stop();
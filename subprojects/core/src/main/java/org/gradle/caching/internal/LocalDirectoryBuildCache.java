@@ -17,6 +17,7 @@
 package org.gradle.caching.internal;
 
 import com.google.common.io.Closer;
+import com.google.common.primitives.Longs;
 import org.gradle.api.UncheckedIOException;
 import org.gradle.cache.CacheBuilder;
 import org.gradle.cache.CacheRepository;
@@ -27,32 +28,99 @@ import org.gradle.caching.BuildCacheEntryWriter;
 import org.gradle.caching.BuildCacheException;
 import org.gradle.caching.BuildCacheKey;
 import org.gradle.internal.Factory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.io.FileFilter;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.regex.Pattern;
 
 import static org.gradle.cache.internal.FileLockManager.LockMode.None;
 import static org.gradle.cache.internal.filelock.LockOptionsBuilder.mode;
 
+/**
+ * Build cache implementation that stores each entry as a file in a local directory.
+ *
+ * <p>When a maximum size is given, the least recently used entries are deleted once the total size of the entries exceeds the maximum. Loading an entry
+ * updates its modification time, which is used to determine the least recently used entries, so the usage is shared by all processes using the directory.</p>
+ *
+ * <p>Entries are written to a temporary file that is then renamed, so a partially written entry is never visible. Temporary files left behind by a process
+ * that stopped while storing an entry are deleted when the cache is opened.</p>
+ */
 public class LocalDirectoryBuildCache implements BuildCache {
+    public static final long UNLIMITED_SIZE = -1;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LocalDirectoryBuildCache.class);
+    private static final Pattern ENTRY_NAME = Pattern.compile("[0-9a-f]+");
+    private static final String TEMP_FILE_SUFFIX = ".part";
+    // Evict down to this proportion of the max size, so that eviction does not run for every entry stored once the cache is full
+    private static final double EVICTION_TARGET = 0.9;
+
     private final PersistentCache persistentCache;
+    private final long maxSize;
+    private final Object sizeLock = new Object();
+    private long estimatedSize = -1;
 
     public LocalDirectoryBuildCache(CacheRepository cacheRepository, File directory) {
-        this(cacheRepository.cache(checkDirectory(directory)));
+        this(cacheRepository, directory, UNLIMITED_SIZE);
     }
 
     public LocalDirectoryBuildCache(CacheRepository cacheRepository, String cacheKey) {
-        this(cacheRepository.cache(cacheKey));
+        this(cacheRepository, cacheKey, UNLIMITED_SIZE);
+    }
+
+    /**
+     * @param maxSize The maximum total size of the entries in bytes, or {@link #UNLIMITED_SIZE}.
+     */
+    public LocalDirectoryBuildCache(CacheRepository cacheRepository, File directory, long maxSize) {
+        this(cacheRepository.cache(checkDirectory(directory)), maxSize);
+    }
+
+    /**
+     * @param maxSize The maximum total size of the entries in bytes, or {@link #UNLIMITED_SIZE}.
+     */
+    public LocalDirectoryBuildCache(CacheRepository cacheRepository, String cacheKey, long maxSize) {
+        this(cacheRepository.cache(cacheKey), maxSize);
     }
 
-    private LocalDirectoryBuildCache(CacheBuilder cacheBuilder) {
+    private LocalDirectoryBuildCache(CacheBuilder cacheBuilder, long maxSize) {
         this.persistentCache = cacheBuilder
             .withDisplayName("Build cache")
             .withLockOptions(mode(None))
             .open();
+        this.maxSize = maxSize;
+        persistentCache.useCache(new Runnable() {
+            @Override
+            public void run() {
+                deleteTempFiles();
+            }
+        });
+    }
+
+    /**
+     * Deletes the temporary files left behind by processes that stopped while storing an entry. Entries are stored while holding the lock of the cache,
+     * so no other process is writing a temporary file.
+     */
+    private void deleteTempFiles() {
+        File[] tempFiles = persistentCache.getBaseDir().listFiles(new FileFilter() {
+            @Override
+            public boolean accept(File file) {
+                return file.isFile() && file.getName().endsWith(TEMP_FILE_SUFFIX);
+            }
+        });
+        if (tempFiles == null) {
+            return;
+        }
+        for (File tempFile : tempFiles) {
+            //noinspection ResultOfMethodCallIgnored
+            tempFile.delete();
+        }
     }
 
     private static File checkDirectory(File directory) {
@@ -81,6 +149,9 @@ public class LocalDirectoryBuildCache implements BuildCache {
             public Boolean create() {
                 File file = getFile(key.getHashCode());
                 if (file.isFile()) {
+                    // Record the use of the entry for eviction
+                    //noinspection ResultOfMethodCallIgnored
+                    file.setLastModified(System.currentTimeMillis());
                     try {
                         Closer closer = Closer.create();
                         FileInputStream stream = closer.register(new FileInputStream(file));
@@ -105,21 +176,101 @@ public class LocalDirectoryBuildCache implements BuildCache {
             @Override
             public void run() {
                 File file = getFile(key.getHashCode());
+                // Write to a temporary file first, so that a partially written entry is never visible
+                File tempFile = null;
                 try {
+                    tempFile = File.createTempFile(key.getHashCode() + "-", TEMP_FILE_SUFFIX, persistentCache.getBaseDir());
                     Closer closer = Closer.create();
-                    OutputStream output = closer.register(new FileOutputStream(file));
+                    OutputStream output = closer.register(new FileOutputStream(tempFile));
                     try {
                         result.writeTo(output);
                     } finally {
                         closer.close();
                     }
+                    if (!tempFile.renameTo(file)) {
+                        // Some platforms do not replace an existing file on rename
+                        file.delete();
+                        if (!tempFile.renameTo(file)) {
+                            throw new IOException(String.format("Could not move temporary file %s to %s", tempFile, file));
+                        }
+                    }
                 } catch (IOException ex) {
                     throw new UncheckedIOException(ex);
+                } finally {
+                    if (tempFile != null) {
+                        tempFile.delete();
+                    }
                 }
+                entryStored(file.length());
             }
         });
     }
 
+    private void entryStored(long entrySize) {
+        if (maxSize < 0) {
+            return;
+        }
+        synchronized (sizeLock) {
+            if (estimatedSize < 0) {
+                estimatedSize = totalSize(listEntries());
+            } else {
+                estimatedSize += entrySize;
+            }
+            if (estimatedSize > maxSize) {
+                evict();
+            }
+        }
+    }
+
+    private void evict() {
+        File[] entries = listEntries();
+        final long[] lastModified = new long[entries.length];
+        Integer[] order = new Integer[entries.length];
+        long size = 0;
+        for (int i = 0; i < entries.length; i++) {
+            // Read the timestamps once, so that the sort order is stable while other processes use the cache
+            lastModified[i] = entries[i].lastModified();
+            order[i] = i;
+            size += entries[i].length();
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer o1, Integer o2) {
+                return Longs.compare(lastModified[o1], lastModified[o2]);
+            }
+        });
+        long targetSize = (long) (maxSize * EVICTION_TARGET);
+        int evicted = 0;
+        for (int i = 0; i < order.length && size > targetSize; i++) {
+            File entry = entries[order[i]];
+            long length = entry.length();
+            if (entry.delete()) {
+                size -= length;
+                evicted++;
+            }
+        }
+        LOGGER.debug("Evicted {} entries from {}", evicted, getDescription());
+        estimatedSize = size;
+    }
+
+    private File[] listEntries() {
+        File[] entries = persistentCache.getBaseDir().listFiles(new FileFilter() {
+            @Override
+            public boolean accept(File file) {
+                return file.isFile() && ENTRY_NAME.matcher(file.getName()).matches();
+            }
+        });
+        return entries == null ? new File[0] : entries;
+    }
+
+    private static long totalSize(File[] entries) {
+        long size = 0;
+        for (File entry : entries) {
+            size += entry.length();
+        }
+        return size;
+    }
+
     private File getFile(String key) {
         return new File(persistentCache.getBaseDir(), key);
     }
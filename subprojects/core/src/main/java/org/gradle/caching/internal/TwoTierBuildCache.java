@@ -0,0 +1,201 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal;
+
+import org.apache.commons.io.IOUtils;
+import org.gradle.caching.BuildCache;
+import org.gradle.caching.BuildCacheEntryReader;
+import org.gradle.caching.BuildCacheEntryWriter;
+import org.gradle.caching.BuildCacheException;
+import org.gradle.caching.BuildCacheKey;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.StoppableExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Combines a local and a remote build cache.
+ *
+ * <p>Entries are loaded from the local cache when present. Entries loaded from the remote cache are first stored in the local cache, so later builds
+ * on this machine find them locally. New entries are stored in the local cache, and then pushed to the remote cache in the background. Optionally, entries
+ * found in the local cache that are missing from the remote cache are also pushed, at most once per key for the lifetime of this cache, so that entries built
+ * before the remote cache was available are shared.</p>
+ *
+ * <p>Pushes read the entry back from the local cache, so the entry is not copied by the calling thread. The number of entries waiting to be pushed is bounded:
+ * when the limit is reached, {@link #store(BuildCacheKey, BuildCacheEntryWriter)} blocks until an earlier entry has been pushed, and entries found in the
+ * local cache are not pushed.</p>
+ *
+ * <p>Failures of the remote cache should not prevent the use of the local cache, so the remote cache should handle any {@link BuildCacheException} itself,
+ * e.g. by being a {@link LenientBuildCacheDecorator}. Failures to push an entry are logged.</p>
+ */
+public class TwoTierBuildCache implements BuildCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TwoTierBuildCache.class);
+    private static final BuildCacheEntryReader DISCARDING_READER = new BuildCacheEntryReader() {
+        @Override
+        public void readFrom(InputStream input) {
+        }
+    };
+
+    private final BuildCache local;
+    private final BuildCache remote;
+    private final boolean pushLocalHitsToRemote;
+    private final Set<String> pushedKeys = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    private final StoppableExecutor executor;
+    private final Semaphore pendingPushes;
+    private final int timeoutSeconds;
+
+    /**
+     * @param threads The number of entries to push concurrently.
+     * @param maxPendingPushes The maximum number of entries waiting to be pushed.
+     * @param timeoutSeconds How long {@link #close()} waits for pending entries to be pushed, or 0 to wait until they have all been pushed.
+     */
+    public TwoTierBuildCache(BuildCache local, BuildCache remote, boolean pushLocalHitsToRemote, ExecutorFactory executorFactory, int threads, int maxPendingPushes, int timeoutSeconds) {
+        this.local = local;
+        this.remote = remote;
+        this.pushLocalHitsToRemote = pushLocalHitsToRemote;
+        this.executor = executorFactory.create("Build cache push", threads);
+        this.pendingPushes = new Semaphore(maxPendingPushes);
+        this.timeoutSeconds = timeoutSeconds;
+    }
+
+    @Override
+    public boolean load(final BuildCacheKey key, BuildCacheEntryReader reader) throws BuildCacheException {
+        if (local.load(key, reader)) {
+            if (pushLocalHitsToRemote && pushedKeys.add(key.getHashCode())) {
+                if (pendingPushes.tryAcquire()) {
+                    push(key, true);
+                } else {
+                    // Try again on a later hit
+                    pushedKeys.remove(key.getHashCode());
+                }
+            }
+            return true;
+        }
+        boolean foundInRemote = remote.load(key, new BuildCacheEntryReader() {
+            @Override
+            public void readFrom(final InputStream input) throws IOException {
+                local.store(key, new BuildCacheEntryWriter() {
+                    @Override
+                    public void writeTo(OutputStream output) throws IOException {
+                        IOUtils.copyLarge(input, output);
+                    }
+                });
+            }
+        });
+        if (!foundInRemote) {
+            return false;
+        }
+        // The entry is already in the remote cache
+        pushedKeys.add(key.getHashCode());
+        return local.load(key, reader);
+    }
+
+    @Override
+    public void store(BuildCacheKey key, BuildCacheEntryWriter writer) throws BuildCacheException {
+        local.store(key, writer);
+        pushedKeys.add(key.getHashCode());
+        try {
+            pendingPushes.acquire();
+        } catch (InterruptedException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+        push(key, false);
+    }
+
+    /**
+     * Pushes the entry from the local cache to the remote cache in the background. The caller must have acquired a permit from {@link #pendingPushes}.
+     */
+    private void push(final BuildCacheKey key, final boolean onlyIfMissing) {
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        // Only the response status is needed, so the content is not read
+                        if (onlyIfMissing && remote.load(key, DISCARDING_READER)) {
+                            return;
+                        }
+                        remote.store(key, new LocalEntryWriter(key));
+                    } catch (Exception e) {
+                        LOGGER.warn("Could not store entry {} in {}.", key, remote.getDescription(), e);
+                    } finally {
+                        pendingPushes.release();
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            pendingPushes.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public String getDescription() {
+        return local.getDescription() + " and " + remote.getDescription();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (timeoutSeconds > 0) {
+                try {
+                    executor.stop(timeoutSeconds, TimeUnit.SECONDS);
+                } catch (IllegalStateException e) {
+                    LOGGER.warn("Gave up waiting for entries to be stored in {} after {} seconds.", remote.getDescription(), timeoutSeconds);
+                    executor.shutdownNow();
+                }
+            } else {
+                executor.stop();
+            }
+        } finally {
+            // Close the remote cache first, as it may still be reading entries from the local cache
+            CompositeStoppable.stoppable(remote, local).stop();
+        }
+    }
+
+    private class LocalEntryWriter implements BuildCacheEntryWriter {
+        private final BuildCacheKey key;
+
+        LocalEntryWriter(BuildCacheKey key) {
+            this.key = key;
+        }
+
+        @Override
+        public void writeTo(final OutputStream output) throws IOException {
+            boolean found = local.load(key, new BuildCacheEntryReader() {
+                @Override
+                public void readFrom(InputStream input) throws IOException {
+                    IOUtils.copyLarge(input, output);
+                }
+            });
+            if (!found) {
+                throw new BuildCacheException(String.format("Entry %s was removed from %s before it could be stored in %s.", key, local.getDescription(), remote.getDescription()));
+            }
+        }
+    }
+}
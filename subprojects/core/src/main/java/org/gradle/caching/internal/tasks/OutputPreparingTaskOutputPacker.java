@@ -23,6 +23,8 @@ import org.gradle.api.internal.tasks.CacheableTaskOutputFilePropertySpec;
 import org.gradle.api.internal.tasks.TaskOutputFilePropertySpec;
 import org.gradle.caching.internal.tasks.origin.TaskOutputOriginReader;
 import org.gradle.caching.internal.tasks.origin.TaskOutputOriginWriter;
+import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.internal.concurrent.Stoppable;
 
 import java.io.File;
 import java.io.IOException;
@@ -32,7 +34,7 @@ import java.io.OutputStream;
 /**
  * Prepares a task's outputs to be loaded from cache: removes any previous output and makes sure the output directories exist.
  */
-public class OutputPreparingTaskOutputPacker implements TaskOutputPacker {
+public class OutputPreparingTaskOutputPacker implements TaskOutputPacker, Stoppable {
     private final TaskOutputPacker delegate;
 
     public OutputPreparingTaskOutputPacker(TaskOutputPacker delegate) {
@@ -84,4 +86,9 @@ public class OutputPreparingTaskOutputPacker implements TaskOutputPacker {
         FileUtils.forceMkdir(output);
         return true;
     }
+
+    @Override
+    public void stop() {
+        CompositeStoppable.stoppable(delegate).stop();
+    }
 }
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.tasks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes a GZIP stream, compressing fixed size chunks of the input concurrently in the same way as pigz.
+ *
+ * <p>Each chunk is compressed into a raw deflate segment that ends on a byte boundary, using the last 32k of the previous chunk as a preset dictionary.
+ * The segments are concatenated in order, so the result is a single standard GZIP member that can be read by {@link java.util.zip.GZIPInputStream}.
+ * The number of chunks waiting to be written is bounded, so memory use does not depend on the size of the input.</p>
+ */
+public class ParallelGZipOutputStream extends OutputStream {
+    private static final int CHUNK_SIZE = 128 * 1024;
+    private static final int DICTIONARY_SIZE = 32 * 1024;
+    private static final byte[] HEADER = {(byte) 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0};
+
+    private final OutputStream output;
+    private final ExecutorService executor;
+    private final int maxPendingChunks;
+    private final Deque<Future<byte[]>> pending = new ArrayDeque<Future<byte[]>>();
+    private final CRC32 crc = new CRC32();
+    private byte[] chunk = new byte[CHUNK_SIZE];
+    private int chunkLength;
+    private byte[] previousChunk;
+    private long totalLength;
+    private boolean closed;
+
+    /**
+     * @param executor Used to compress chunks. Tasks submitted to the executor do not block, so the executor may be shared by several streams.
+     * @param parallelism The number of chunks to compress concurrently.
+     */
+    public ParallelGZipOutputStream(OutputStream output, ExecutorService executor, int parallelism) throws IOException {
+        this.output = output;
+        this.executor = executor;
+        this.maxPendingChunks = Math.max(1, parallelism) * 2;
+        output.write(HEADER);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (chunkLength == CHUNK_SIZE) {
+            submitChunk(false);
+        }
+        chunk[chunkLength++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] buffer, int offset, int length) throws IOException {
+        while (length > 0) {
+            if (chunkLength == CHUNK_SIZE) {
+                submitChunk(false);
+            }
+            int count = Math.min(length, CHUNK_SIZE - chunkLength);
+            System.arraycopy(buffer, offset, chunk, chunkLength, count);
+            chunkLength += count;
+            offset += count;
+            length -= count;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            submitChunk(true);
+            while (!pending.isEmpty()) {
+                writeNextSegment();
+            }
+            writeTrailer();
+        } finally {
+            for (Future<byte[]> future : pending) {
+                future.cancel(false);
+            }
+            output.close();
+        }
+    }
+
+    private void submitChunk(boolean last) throws IOException {
+        crc.update(chunk, 0, chunkLength);
+        totalLength += chunkLength;
+        pending.add(executor.submit(new CompressChunk(chunk, chunkLength, previousChunk, last)));
+        previousChunk = chunk;
+        // The submitted chunk is read by the compressing thread, so start a new one
+        chunk = new byte[CHUNK_SIZE];
+        chunkLength = 0;
+        while (pending.size() > maxPendingChunks) {
+            writeNextSegment();
+        }
+    }
+
+    private void writeNextSegment() throws IOException {
+        Future<byte[]> future = pending.removeFirst();
+        try {
+            output.write(future.get());
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException("Interrupted while compressing output.");
+        } catch (ExecutionException e) {
+            throw new IOException("Could not compress output.", e.getCause());
+        }
+    }
+
+    private void writeTrailer() throws IOException {
+        writeIntLittleEndian(crc.getValue());
+        writeIntLittleEndian(totalLength);
+    }
+
+    private void writeIntLittleEndian(long value) throws IOException {
+        output.write((int) value & 0xff);
+        output.write((int) (value >> 8) & 0xff);
+        output.write((int) (value >> 16) & 0xff);
+        output.write((int) (value >> 24) & 0xff);
+    }
+
+    private static class CompressChunk implements Callable<byte[]> {
+        private final byte[] chunk;
+        private final int length;
+        private final byte[] dictionary;
+        private final boolean last;
+
+        CompressChunk(byte[] chunk, int length, byte[] dictionary, boolean last) {
+            this.chunk = chunk;
+            this.length = length;
+            this.dictionary = dictionary;
+            this.last = last;
+        }
+
+        @Override
+        public byte[] call() {
+            Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+            try {
+                if (dictionary != null) {
+                    // The previous chunk is always full
+                    deflater.setDictionary(dictionary, CHUNK_SIZE - DICTIONARY_SIZE, DICTIONARY_SIZE);
+                }
+                deflater.setInput(chunk, 0, length);
+                ByteArrayOutputStream compressed = new ByteArrayOutputStream(length / 2 + 64);
+                byte[] buffer = new byte[16 * 1024];
+                if (last) {
+                    deflater.finish();
+                    while (!deflater.finished()) {
+                        int count = deflater.deflate(buffer);
+                        compressed.write(buffer, 0, count);
+                    }
+                } else {
+                    // Flush to a byte boundary so that the next segment can be appended
+                    int count;
+                    do {
+                        count = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+                        compressed.write(buffer, 0, count);
+                    } while (count == buffer.length);
+                }
+                return compressed.toByteArray();
+            } finally {
+                deflater.end();
+            }
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.tasks;
+
+import org.apache.commons.io.IOUtils;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.api.internal.TaskOutputsInternal;
+import org.gradle.caching.internal.tasks.origin.TaskOutputOriginReader;
+import org.gradle.caching.internal.tasks.origin.TaskOutputOriginWriter;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.concurrent.StoppableExecutor;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Adds compression and CRC32 checks to the packed task output, compressing using multiple threads.
+ *
+ * <p>Produces standard GZIP output, so the result can be unpacked by {@link GZipTaskOutputPacker} and this packer can unpack the output of {@link GZipTaskOutputPacker}.
+ * Decompression is not parallelized.</p>
+ */
+public class ParallelGZipTaskOutputPacker implements TaskOutputPacker, Stoppable {
+    private static final int INPUT_BUFFER_SIZE = 64 * 1024;
+
+    private final TaskOutputPacker delegate;
+    private final int parallelism;
+    private final StoppableExecutor executor;
+
+    public ParallelGZipTaskOutputPacker(TaskOutputPacker delegate, ExecutorFactory executorFactory, int parallelism) {
+        this.delegate = delegate;
+        this.parallelism = parallelism;
+        this.executor = executorFactory.create("Build cache compression", parallelism);
+    }
+
+    @Override
+    public void pack(TaskOutputsInternal taskOutputs, OutputStream output, TaskOutputOriginWriter writeOrigin) {
+        ParallelGZipOutputStream gzipOutput = createGzipOutputStream(output);
+        boolean closed = false;
+        try {
+            delegate.pack(taskOutputs, gzipOutput, writeOrigin);
+            // The last chunks are compressed while the stream is closed, so a failure to compress them is only reported here
+            gzipOutput.close();
+            closed = true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            if (!closed) {
+                IOUtils.closeQuietly(gzipOutput);
+            }
+        }
+    }
+
+    private ParallelGZipOutputStream createGzipOutputStream(OutputStream output) {
+        try {
+            return new ParallelGZipOutputStream(output, executor, parallelism);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void unpack(TaskOutputsInternal taskOutputs, InputStream input, TaskOutputOriginReader readOrigin) {
+        GZIPInputStream gzipInput = createGzipInputStream(input);
+        try {
+            delegate.unpack(taskOutputs, gzipInput, readOrigin);
+        } finally {
+            IOUtils.closeQuietly(gzipInput);
+        }
+    }
+
+    private GZIPInputStream createGzipInputStream(InputStream input) {
+        try {
+            return new GZIPInputStream(input, INPUT_BUFFER_SIZE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void stop() {
+        executor.stop();
+    }
+}
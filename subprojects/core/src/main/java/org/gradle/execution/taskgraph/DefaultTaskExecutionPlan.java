@@ -20,6 +20,7 @@ import com.google.common.base.Function;
 import com.google.common.base.Predicate;
 import com.google.common.base.StandardSystemProperty;
 import com.google.common.collect.*;
+import com.google.common.primitives.Ints;
 import org.gradle.api.*;
 import org.gradle.api.internal.TaskInternal;
 import org.gradle.api.internal.tasks.CachingTaskDependencyResolveContext;
@@ -57,6 +58,7 @@ import java.util.concurrent.locks.ReentrantLock;
 public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
 
     public static final String INTRA_PROJECT_TOGGLE = "org.gradle.parallel.intra";
+    public static final String READY_QUEUE_TOGGLE = "org.gradle.parallel.readyQueue";
 
     private final static Logger LOGGER = Logging.getLogger(DefaultTaskExecutionPlan.class);
 
@@ -81,13 +83,30 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
 
     private final boolean intraProjectParallelization;
 
-    public DefaultTaskExecutionPlan(BuildCancellationToken cancellationToken, boolean intraProjectParallelization) {
+    // State used when ready queue scheduling is enabled. Tasks whose dependencies have all completed are kept in a queue per project, so selecting
+    // the next task and completing a task do not need to scan the whole plan. The state is rebuilt from the task states when tasks change state
+    // in bulk, i.e. when the plan is aborted or finalizers are enforced.
+    private final boolean readyQueueScheduling;
+    private final Map<String, TreeSet<TaskInfo>> readyTasksByProject = new LinkedHashMap<String, TreeSet<TaskInfo>>();
+    private final Map<TaskInfo, List<TaskInfo>> incompleteDependents = Maps.newIdentityHashMap();
+    private boolean readyQueueStale = true;
+    private int incompleteTasks;
+
+    public DefaultTaskExecutionPlan(BuildCancellationToken cancellationToken, boolean intraProjectParallelization, boolean readyQueueScheduling) {
         this.cancellationToken = cancellationToken;
         this.intraProjectParallelization = intraProjectParallelization;
+        this.readyQueueScheduling = readyQueueScheduling;
 
         if (intraProjectParallelization) {
             LOGGER.info("intra project task parallelization is enabled");
         }
+        if (readyQueueScheduling) {
+            LOGGER.info("ready queue task scheduling is enabled");
+        }
+    }
+
+    public DefaultTaskExecutionPlan(BuildCancellationToken cancellationToken, boolean intraProjectParallelization) {
+        this(cancellationToken, intraProjectParallelization, Boolean.getBoolean(READY_QUEUE_TOGGLE));
     }
 
     public DefaultTaskExecutionPlan(BuildCancellationToken cancellationToken) {
@@ -309,6 +328,7 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
         }
         executionQueue.clear();
         executionQueue.addAll(executionPlan.values());
+        readyQueueStale = true;
     }
 
     private void maybeRemoveProcessedShouldRunAfterEdge(Stack<GraphEdge> walkedShouldRunAfterEdges, TaskInfo taskNode) {
@@ -458,6 +478,9 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
             canonicalizedOutputCache.clear();
             isParallelSafeCache.clear();
             runningTasks.clear();
+            readyTasksByProject.clear();
+            incompleteDependents.clear();
+            readyQueueStale = true;
         } finally {
             lock.unlock();
         }
@@ -476,6 +499,9 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
     }
 
     public TaskInfo getTaskToExecute() {
+        if (readyQueueScheduling) {
+            return getReadyTaskToExecute();
+        }
         lock.lock();
         try {
             while (true) {
@@ -521,6 +547,143 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
         }
     }
 
+    private TaskInfo getReadyTaskToExecute() {
+        lock.lock();
+        try {
+            while (true) {
+                if (cancellationToken.isCancellationRequested()) {
+                    if (abortExecution()) {
+                        tasksCancelled = true;
+                        readyQueueStale = true;
+                    }
+                }
+                if (readyQueueStale) {
+                    rebuildReadyQueue();
+                }
+                // As when scheduling without the ready queue, workers only finish once all tasks are complete, not just started
+                if (incompleteTasks == 0) {
+                    return null;
+                }
+                TaskInfo nextMatching = selectReadyTask();
+                if (nextMatching == null) {
+                    try {
+                        condition.await();
+                    } catch (InterruptedException e) {
+                        throw new RuntimeException(e);
+                    }
+                } else {
+                    removeReadyTask(nextMatching);
+                    if (nextMatching.allDependenciesSuccessful()) {
+                        nextMatching.startExecution();
+                        recordTaskStarted(nextMatching);
+                        return nextMatching;
+                    } else {
+                        nextMatching.skipExecution();
+                        readyTaskCompleted(nextMatching);
+                        condition.signalAll();
+                    }
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the ready task that comes first in the execution plan and can run alongside the currently running tasks.
+     */
+    @Nullable
+    private TaskInfo selectReadyTask() {
+        TaskInfo nextMatching = null;
+        for (Map.Entry<String, TreeSet<TaskInfo>> entry : readyTasksByProject.entrySet()) {
+            String projectPath = entry.getKey();
+            // Skip projects where no task can start, without checking each of their tasks
+            if (projectsWithRunningNonParallelizableTasks.contains(projectPath)
+                || (!intraProjectParallelization && projectsWithRunningTasks.contains(projectPath))) {
+                continue;
+            }
+            for (TaskInfo candidate : entry.getValue()) {
+                if (nextMatching != null && candidate.getExecutionQueuePosition() > nextMatching.getExecutionQueuePosition()) {
+                    break;
+                }
+                if (canRunWithWithCurrentlyExecutedTasks(candidate)) {
+                    nextMatching = candidate;
+                    break;
+                }
+            }
+        }
+        return nextMatching;
+    }
+
+    private void rebuildReadyQueue() {
+        readyTasksByProject.clear();
+        incompleteDependents.clear();
+        incompleteTasks = 0;
+        int position = 0;
+        for (TaskInfo taskInfo : executionQueue) {
+            taskInfo.setExecutionQueuePosition(position++);
+            if (!taskInfo.isComplete()) {
+                incompleteTasks++;
+            }
+            int incompleteDependencies = 0;
+            for (TaskInfo dependency : Sets.union(taskInfo.getMustSuccessors(), taskInfo.getDependencySuccessors())) {
+                if (!dependency.isComplete()) {
+                    incompleteDependencies++;
+                    List<TaskInfo> dependents = incompleteDependents.get(dependency);
+                    if (dependents == null) {
+                        dependents = new ArrayList<TaskInfo>();
+                        incompleteDependents.put(dependency, dependents);
+                    }
+                    dependents.add(taskInfo);
+                }
+            }
+            taskInfo.setIncompleteDependencies(incompleteDependencies);
+            if (taskInfo.isReady() && incompleteDependencies == 0) {
+                addReadyTask(taskInfo);
+            }
+        }
+        readyQueueStale = false;
+    }
+
+    private void readyTaskCompleted(TaskInfo taskInfo) {
+        incompleteTasks--;
+        List<TaskInfo> dependents = incompleteDependents.remove(taskInfo);
+        if (dependents == null) {
+            return;
+        }
+        for (TaskInfo dependent : dependents) {
+            if (dependent.dependencyCompleted() && dependent.isReady()) {
+                addReadyTask(dependent);
+            }
+        }
+    }
+
+    private void addReadyTask(TaskInfo taskInfo) {
+        String projectPath = taskInfo.getTask().getProject().getPath();
+        TreeSet<TaskInfo> readyTasks = readyTasksByProject.get(projectPath);
+        if (readyTasks == null) {
+            readyTasks = new TreeSet<TaskInfo>(EXECUTION_QUEUE_ORDER);
+            readyTasksByProject.put(projectPath, readyTasks);
+        }
+        readyTasks.add(taskInfo);
+    }
+
+    private void removeReadyTask(TaskInfo taskInfo) {
+        String projectPath = taskInfo.getTask().getProject().getPath();
+        TreeSet<TaskInfo> readyTasks = readyTasksByProject.get(projectPath);
+        readyTasks.remove(taskInfo);
+        if (readyTasks.isEmpty()) {
+            readyTasksByProject.remove(projectPath);
+        }
+    }
+
+    private static final Comparator<TaskInfo> EXECUTION_QUEUE_ORDER = new Comparator<TaskInfo>() {
+        @Override
+        public int compare(TaskInfo o1, TaskInfo o2) {
+            return Ints.compare(o1.getExecutionQueuePosition(), o2.getExecutionQueuePosition());
+        }
+    };
+
     private boolean canRunWithWithCurrentlyExecutedTasks(TaskInfo taskInfo) {
         TaskInternal task = taskInfo.getTask();
         String projectPath = task.getProject().getPath();
@@ -661,6 +824,9 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
 
             taskInfo.finishExecution();
             recordTaskCompleted(taskInfo);
+            if (readyQueueScheduling && !readyQueueStale) {
+                readyTaskCompleted(taskInfo);
+            }
             condition.signalAll();
         } finally {
             lock.unlock();
@@ -688,6 +854,8 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
 
                 if (node.isMustNotRun() || node.isRequired()) {
                     node.enforceRun();
+                    // A task that was not going to run will now run
+                    readyQueueStale = true;
                 }
             }
         }
@@ -697,7 +865,9 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
         Throwable executionFailure = taskInfo.getExecutionFailure();
         if (executionFailure != null) {
             // Always abort execution for an execution failure (as opposed to a task failure)
-            abortExecution();
+            if (abortExecution()) {
+                readyQueueStale = true;
+            }
             this.failures.add(executionFailure);
             return;
         }
@@ -708,7 +878,9 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
             this.failures.add(taskInfo.getTaskFailure());
         } catch (Exception e) {
             // If the failure handler rethrows exception, then execution of other tasks is aborted. (--continue will collect failures)
-            abortExecution();
+            if (abortExecution()) {
+                readyQueueStale = true;
+            }
             this.failures.add(e);
         }
     }
@@ -757,6 +929,12 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
     }
 
     private boolean allTasksComplete() {
+        if (readyQueueScheduling) {
+            if (readyQueueStale) {
+                rebuildReadyQueue();
+            }
+            return incompleteTasks == 0;
+        }
         for (TaskInfo taskInfo : executionPlan.values()) {
             if (!taskInfo.isComplete()) {
                 return false;
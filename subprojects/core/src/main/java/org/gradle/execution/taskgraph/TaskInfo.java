@@ -36,6 +36,8 @@ public class TaskInfo implements Comparable<TaskInfo> {
     private final TreeSet<TaskInfo> mustSuccessors = new TreeSet<TaskInfo>();
     private final TreeSet<TaskInfo> shouldSuccessors = new TreeSet<TaskInfo>();
     private final TreeSet<TaskInfo> finalizers = new TreeSet<TaskInfo>();
+    private int executionQueuePosition;
+    private int incompleteDependencies;
 
     public TaskInfo(TaskInternal task) {
         this.task = task;
@@ -167,6 +169,38 @@ public class TaskInfo implements Comparable<TaskInfo> {
         return shouldSuccessors;
     }
 
+    /**
+     * The position of this task in the execution plan, used to prefer tasks that come earlier in the plan.
+     */
+    public int getExecutionQueuePosition() {
+        return executionQueuePosition;
+    }
+
+    public void setExecutionQueuePosition(int executionQueuePosition) {
+        this.executionQueuePosition = executionQueuePosition;
+    }
+
+    /**
+     * The number of dependencies and must run after tasks of this task that have not completed yet.
+     */
+    public int getIncompleteDependencies() {
+        return incompleteDependencies;
+    }
+
+    public void setIncompleteDependencies(int incompleteDependencies) {
+        this.incompleteDependencies = incompleteDependencies;
+    }
+
+    /**
+     * Records that one of the incomplete dependencies of this task has completed.
+     *
+     * @return true if all dependencies of this task have now completed.
+     */
+    public boolean dependencyCompleted() {
+        assert incompleteDependencies > 0;
+        return --incompleteDependencies == 0;
+    }
+
     public boolean getDependenciesProcessed() {
         return dependenciesProcessed;
     }
@@ -39,4 +39,12 @@ public interface FileWatcher extends Stoppable {
     boolean isRunning();
 
     void watch(FileSystemSubset fileSystemSubset) throws IOException;
+
+    /**
+     * Delivers the events that the watcher has already received from the file system to the listener, on the calling thread.
+     * <p>
+     * When this method returns, all events that were queued by the watcher, or that were being delivered by the watcher's own thread, have been delivered.
+     * Does nothing when the watcher is not running.
+     */
+    void deliverPendingEvents();
 }
@@ -37,6 +37,8 @@ import java.nio.file.WatchService;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 public class WatchServiceFileWatcherBacking {
 
@@ -51,6 +53,8 @@ public class WatchServiceFileWatcherBacking {
     private final WatchServiceRegistrar watchServiceRegistrar;
     private final WatchService watchService;
     private final WatchServicePoller poller;
+    // Held while events are delivered, so that callers of deliverPendingEvents() wait for events that the poller thread is delivering
+    private final Lock deliveryLock = new ReentrantLock();
 
     private final FileWatcher fileWatcher = new FileWatcher() {
         @Override
@@ -63,6 +67,11 @@ public class WatchServiceFileWatcherBacking {
             WatchServiceFileWatcherBacking.this.watchServiceRegistrar.watch(fileSystemSubset);
         }
 
+        @Override
+        public void deliverPendingEvents() {
+            WatchServiceFileWatcherBacking.this.deliverPendingEvents();
+        }
+
         @Override
         public void stop() {
             WatchServiceFileWatcherBacking.this.stop();
@@ -129,7 +138,12 @@ public class WatchServiceFileWatcherBacking {
             try {
                 List<FileWatcherEvent> events = poller.takeEvents();
                 if (events != null) {
-                    deliverEvents(events);
+                    deliveryLock.lock();
+                    try {
+                        deliverEvents(events);
+                    } finally {
+                        deliveryLock.unlock();
+                    }
                 }
             } catch (ClosedWatchServiceException e) {
                 LOGGER.debug("Received ClosedWatchServiceException, stopping");
@@ -138,6 +152,24 @@ public class WatchServiceFileWatcherBacking {
         }
     }
 
+    private void deliverPendingEvents() {
+        if (!running.get()) {
+            return;
+        }
+        deliveryLock.lock();
+        try {
+            List<FileWatcherEvent> events = poller.pollEvents();
+            while (events != null) {
+                deliverEvents(events);
+                events = poller.pollEvents();
+            }
+        } catch (ClosedWatchServiceException e) {
+            // The watcher has been stopped, so there is nothing left to deliver
+        } finally {
+            deliveryLock.unlock();
+        }
+    }
+
     private void deliverEvents(List<FileWatcherEvent> events) {
         for (FileWatcherEvent event : events) {
             if (!isRunning()) {
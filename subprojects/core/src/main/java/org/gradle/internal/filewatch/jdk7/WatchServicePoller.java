@@ -46,6 +46,15 @@ class WatchServicePoller {
         return null;
     }
 
+    @Nullable
+    public List<FileWatcherEvent> pollEvents() {
+        WatchKey watchKey = watchService.poll();
+        if (watchKey != null) {
+            return handleWatchKey(watchKey);
+        }
+        return null;
+    }
+
     private List<FileWatcherEvent> handleWatchKey(WatchKey watchKey) {
         final Path watchedPath = (Path) watchKey.watchable();
         Transformer<FileWatcherEvent, WatchEvent<?>> watchEventTransformer = new Transformer<FileWatcherEvent, WatchEvent<?>>() {
@@ -111,8 +111,8 @@ public class BuildSessionScopeServices extends DefaultServiceRegistry {
         return new WorkerProcessClassPathProvider(cacheRepository);
     }
 
-    BuildCacheConfigurationInternal createBuildCacheConfiguration(CacheRepository cacheRepository, StartParameter startParameter) {
-        return new DefaultBuildCacheConfiguration(cacheRepository, startParameter);
+    BuildCacheConfigurationInternal createBuildCacheConfiguration(CacheRepository cacheRepository, StartParameter startParameter, TemporaryFileProvider temporaryFileProvider, ExecutorFactory executorFactory) {
+        return new DefaultBuildCacheConfiguration(cacheRepository, startParameter, temporaryFileProvider, executorFactory);
     }
 
     GeneratedGradleJarCache createGeneratedGradleJarCache(CacheRepository cacheRepository) {
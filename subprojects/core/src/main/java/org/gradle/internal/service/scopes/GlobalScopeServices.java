@@ -30,7 +30,9 @@ import org.gradle.api.internal.DynamicModulesClassPathProvider;
 import org.gradle.api.internal.cache.FileContentCacheBackingStore;
 import org.gradle.api.internal.cache.StringInterner;
 import org.gradle.api.internal.changedetection.state.CachingFileHasher;
+import org.gradle.api.internal.changedetection.state.CompactFileHashCacheFactory;
 import org.gradle.api.internal.changedetection.state.FileTimeStampInspector;
+import org.gradle.api.internal.changedetection.state.FileSystemMirrorFactory;
 import org.gradle.api.internal.changedetection.state.InMemoryTaskArtifactCache;
 import org.gradle.api.internal.classpath.DefaultModuleRegistry;
 import org.gradle.api.internal.classpath.DefaultPluginModuleRegistry;
@@ -131,9 +133,12 @@ import org.gradle.model.internal.manage.schema.extract.ModelSchemaExtractionStra
 import org.gradle.model.internal.manage.schema.extract.ModelSchemaExtractor;
 import org.gradle.process.internal.DefaultExecActionFactory;
 import org.gradle.process.internal.ExecHandleFactory;
+import org.gradle.process.internal.health.memory.DefaultMemoryAdmissionController;
 import org.gradle.process.internal.health.memory.DefaultMemoryManager;
+import org.gradle.process.internal.health.memory.MemoryAdmissionController;
 import org.gradle.process.internal.health.memory.MemoryInfo;
 import org.gradle.process.internal.health.memory.MemoryManager;
+import org.gradle.process.internal.worker.WorkerMemoryReservations;
 
 import java.util.List;
 
@@ -376,6 +381,17 @@ public class GlobalScopeServices {
         return new DefaultFileWatcherFactory(executorFactory, fileSystem);
     }
 
+    FileSystemMirrorFactory createFileSystemMirrorFactory(FileWatcherFactory fileWatcherFactory, ListenerManager listenerManager) {
+        boolean retainAcrossBuilds = environment.isLongLivingProcess() && Boolean.getBoolean(FileSystemMirrorFactory.RETAIN_FILE_SYSTEM_STATE_PROPERTY);
+        return new FileSystemMirrorFactory(retainAcrossBuilds, fileWatcherFactory, listenerManager);
+    }
+
+    CompactFileHashCacheFactory createCompactFileHashCacheFactory(ListenerManager listenerManager) {
+        CompactFileHashCacheFactory factory = new CompactFileHashCacheFactory(Boolean.getBoolean(CompactFileHashCacheFactory.COMPACT_FILE_HASH_CACHE_PROPERTY));
+        listenerManager.addListener(factory);
+        return factory;
+    }
+
     StringInterner createStringInterner() {
         return new StringInterner();
     }
@@ -415,4 +431,12 @@ public class GlobalScopeServices {
     MemoryManager createMemoryManager(MemoryInfo memoryInfo, ListenerManager listenerManager, ExecutorFactory executorFactory) {
         return new DefaultMemoryManager(memoryInfo, listenerManager, executorFactory);
     }
+
+    MemoryAdmissionController createMemoryAdmissionController(MemoryInfo memoryInfo, MemoryManager memoryManager) {
+        return new DefaultMemoryAdmissionController(memoryInfo, memoryManager);
+    }
+
+    WorkerMemoryReservations createWorkerMemoryReservations(MemoryAdmissionController memoryAdmissionController, BuildOperationExecutor buildOperationExecutor) {
+        return new WorkerMemoryReservations(memoryAdmissionController, buildOperationExecutor);
+    }
 }
@@ -16,6 +16,7 @@
 package org.gradle.internal.service.scopes;
 
 import org.gradle.StartParameter;
+import org.gradle.api.JavaVersion;
 import org.gradle.api.execution.TaskActionListener;
 import org.gradle.api.execution.internal.TaskInputsListener;
 import org.gradle.api.internal.GradleInternal;
@@ -26,23 +27,26 @@ import org.gradle.api.internal.changedetection.changes.ShortCircuitTaskArtifactS
 import org.gradle.api.internal.changedetection.state.CacheBackedFileSnapshotRepository;
 import org.gradle.api.internal.changedetection.state.CacheBackedTaskHistoryRepository;
 import org.gradle.api.internal.changedetection.state.CachingFileHasher;
+import org.gradle.api.internal.changedetection.state.CompactFileHashCacheFactory;
 import org.gradle.api.internal.changedetection.state.ClasspathSnapshotter;
 import org.gradle.api.internal.changedetection.state.CompileClasspathSnapshotter;
 import org.gradle.api.internal.changedetection.state.DefaultClasspathSnapshotter;
 import org.gradle.api.internal.changedetection.state.DefaultCompileClasspathSnapshotter;
 import org.gradle.api.internal.changedetection.state.DefaultFileCollectionSnapshotterRegistry;
-import org.gradle.api.internal.changedetection.state.DefaultFileSystemMirror;
 import org.gradle.api.internal.changedetection.state.DefaultGenericFileCollectionSnapshotter;
 import org.gradle.api.internal.changedetection.state.DefaultTaskHistoryStore;
 import org.gradle.api.internal.changedetection.state.FileCollectionSnapshot;
 import org.gradle.api.internal.changedetection.state.FileCollectionSnapshotter;
 import org.gradle.api.internal.changedetection.state.FileCollectionSnapshotterRegistry;
 import org.gradle.api.internal.changedetection.state.FileSystemMirror;
+import org.gradle.api.internal.changedetection.state.FileSystemMirrorFactory;
 import org.gradle.api.internal.changedetection.state.FileTimeStampInspector;
 import org.gradle.api.internal.changedetection.state.GenericFileCollectionSnapshotter;
 import org.gradle.api.internal.changedetection.state.InMemoryTaskArtifactCache;
 import org.gradle.api.internal.changedetection.state.JvmClassHasher;
 import org.gradle.api.internal.changedetection.state.OutputFilesSnapshotter;
+import org.gradle.api.internal.changedetection.state.ParallelDirectorySnapshotter;
+import org.gradle.api.internal.changedetection.state.ParallelDirectorySnapshotterFactory;
 import org.gradle.api.internal.changedetection.state.TaskHistoryRepository;
 import org.gradle.api.internal.changedetection.state.TaskHistoryStore;
 import org.gradle.api.internal.file.FileCollectionFactory;
@@ -67,6 +71,7 @@ import org.gradle.cache.CacheRepository;
 import org.gradle.caching.internal.BuildCacheConfigurationInternal;
 import org.gradle.caching.internal.tasks.GZipTaskOutputPacker;
 import org.gradle.caching.internal.tasks.OutputPreparingTaskOutputPacker;
+import org.gradle.caching.internal.tasks.ParallelGZipTaskOutputPacker;
 import org.gradle.caching.internal.tasks.TarTaskOutputPacker;
 import org.gradle.caching.internal.tasks.TaskOutputPacker;
 import org.gradle.caching.internal.tasks.origin.TaskOutputOriginFactory;
@@ -157,34 +162,37 @@ public class TaskExecutionServices {
         return new DefaultTaskHistoryStore(gradle, cacheRepository, inMemoryTaskArtifactCache);
     }
 
-    CachingFileHasher createFileSnapshotter(TaskHistoryStore cacheAccess, StringInterner stringInterner, FileTimeStampInspector fileTimeStampInspector) {
-        return new CachingFileHasher(new DefaultFileHasher(), cacheAccess, stringInterner, fileTimeStampInspector, "fileHashes");
+    CachingFileHasher createFileSnapshotter(TaskHistoryStore cacheAccess, StringInterner stringInterner, FileTimeStampInspector fileTimeStampInspector, CompactFileHashCacheFactory compactFileHashCacheFactory) {
+        return new CachingFileHasher(new DefaultFileHasher(), cacheAccess, stringInterner, fileTimeStampInspector, "fileHashes", compactFileHashCacheFactory.getCache("fileHashes", 400000));
     }
 
-    FileSystemMirror createFileSystemMirror(ListenerManager listenerManager) {
-        DefaultFileSystemMirror fileSystemMirror = new DefaultFileSystemMirror();
-        listenerManager.addListener(fileSystemMirror);
-        return fileSystemMirror;
+    FileSystemMirror createFileSystemMirror(FileSystemMirrorFactory fileSystemMirrorFactory, ListenerManager listenerManager) {
+        return fileSystemMirrorFactory.createMirror("fileHashes", listenerManager);
     }
 
-    GenericFileCollectionSnapshotter createGenericFileCollectionSnapshotter(FileHasher hasher, StringInterner stringInterner, FileSystem fileSystem, DirectoryFileTreeFactory directoryFileTreeFactory, FileSystemMirror fileSystemMirror) {
-        return new DefaultGenericFileCollectionSnapshotter(hasher, stringInterner, fileSystem, directoryFileTreeFactory,  fileSystemMirror);
+    ParallelDirectorySnapshotter createParallelDirectorySnapshotter(StartParameter startParameter, FileSystem fileSystem) {
+        int parallelism = Boolean.getBoolean(ParallelDirectorySnapshotter.PARALLEL_SNAPSHOTTING_PROPERTY) ? startParameter.getMaxWorkerCount() : 1;
+        return new ParallelDirectorySnapshotterFactory(JavaVersion.current(), fileSystem).create(parallelism);
     }
 
-    ClasspathSnapshotter createClasspathSnapshotter(FileHasher hasher, StringInterner stringInterner, FileSystem fileSystem, DirectoryFileTreeFactory directoryFileTreeFactory, FileSystemMirror fileSystemMirror) {
-        return new DefaultClasspathSnapshotter(hasher, stringInterner, fileSystem, directoryFileTreeFactory, fileSystemMirror);
+    GenericFileCollectionSnapshotter createGenericFileCollectionSnapshotter(FileHasher hasher, StringInterner stringInterner, FileSystem fileSystem, DirectoryFileTreeFactory directoryFileTreeFactory, FileSystemMirror fileSystemMirror, ParallelDirectorySnapshotter parallelDirectorySnapshotter) {
+        return new DefaultGenericFileCollectionSnapshotter(hasher, stringInterner, fileSystem, directoryFileTreeFactory,  fileSystemMirror, parallelDirectorySnapshotter);
     }
 
-    CompileClasspathSnapshotter createCompileClasspathSnapshotter(FileHasher hasher, StringInterner stringInterner, FileSystem fileSystem, DirectoryFileTreeFactory directoryFileTreeFactory, ListenerManager listenerManager, TaskHistoryStore store, FileTimeStampInspector fileTimeStampInspector) {
+    ClasspathSnapshotter createClasspathSnapshotter(FileHasher hasher, StringInterner stringInterner, FileSystem fileSystem, DirectoryFileTreeFactory directoryFileTreeFactory, FileSystemMirror fileSystemMirror, ParallelDirectorySnapshotter parallelDirectorySnapshotter) {
+        return new DefaultClasspathSnapshotter(hasher, stringInterner, fileSystem, directoryFileTreeFactory, fileSystemMirror, parallelDirectorySnapshotter);
+    }
+
+    CompileClasspathSnapshotter createCompileClasspathSnapshotter(FileHasher hasher, StringInterner stringInterner, FileSystem fileSystem, DirectoryFileTreeFactory directoryFileTreeFactory, ListenerManager listenerManager, TaskHistoryStore store, FileTimeStampInspector fileTimeStampInspector, FileSystemMirrorFactory fileSystemMirrorFactory, ParallelDirectorySnapshotter parallelDirectorySnapshotter, CompactFileHashCacheFactory compactFileHashCacheFactory) {
         FileHasher jvmClassHasher;
         if (Boolean.getBoolean("org.gradle.tasks.compileclasspath.snapshotting.disabled")) {
             jvmClassHasher = hasher;
         } else {
-            jvmClassHasher = new CachingFileHasher(new JvmClassHasher(hasher), store, stringInterner, fileTimeStampInspector, "jvmClassHashes");
+            // The delegate of a caching hasher is used by parallel snapshotting from multiple threads, so must not use the file hash cache itself
+            jvmClassHasher = new CachingFileHasher(new JvmClassHasher(new DefaultFileHasher()), store, stringInterner, fileTimeStampInspector, "jvmClassHashes", compactFileHashCacheFactory.getCache("jvmClassHashes", 400000));
         }
-        DefaultFileSystemMirror fileSystemMirror = new DefaultFileSystemMirror();
-        listenerManager.addListener(fileSystemMirror);
-        return new DefaultCompileClasspathSnapshotter(jvmClassHasher, stringInterner, fileSystem, directoryFileTreeFactory, fileSystemMirror);
+        FileSystemMirror fileSystemMirror = fileSystemMirrorFactory.createMirror("jvmClassHashes", listenerManager);
+        return new DefaultCompileClasspathSnapshotter(jvmClassHasher, stringInterner, fileSystem, directoryFileTreeFactory, fileSystemMirror, parallelDirectorySnapshotter);
     }
 
     FileCollectionSnapshotterRegistry createFileCollectionSnapshotterRegistry(ServiceRegistry serviceRegistry) {
@@ -225,12 +233,12 @@ public class TaskExecutionServices {
         return new TaskPlanExecutorFactory(parallelThreads, executorFactory, buildOperationWorkerRegistry).create();
     }
 
-    TaskOutputPacker createTaskResultPacker(FileSystem fileSystem) {
-        return new OutputPreparingTaskOutputPacker(
-            new GZipTaskOutputPacker(
-                new TarTaskOutputPacker(fileSystem)
-            )
-        );
+    TaskOutputPacker createTaskResultPacker(FileSystem fileSystem, GradleInternal gradle, StartParameter startParameter, ExecutorFactory executorFactory) {
+        TaskOutputPacker tarPacker = new TarTaskOutputPacker(fileSystem);
+        TaskOutputPacker compressingPacker = gradle.getBuildCache().isParallelCompression()
+            ? new ParallelGZipTaskOutputPacker(tarPacker, executorFactory, startParameter.getMaxWorkerCount())
+            : new GZipTaskOutputPacker(tarPacker);
+        return new OutputPreparingTaskOutputPacker(compressingPacker);
     }
 
     TaskOutputOriginFactory createTaskOutputOriginFactory(TimeProvider timeProvider, InetAddressFactory inetAddressFactory, GradleInternal gradleInternal) {
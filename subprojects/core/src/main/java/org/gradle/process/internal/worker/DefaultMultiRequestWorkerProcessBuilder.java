@@ -19,8 +19,11 @@ package org.gradle.process.internal.worker;
 import org.gradle.api.logging.LogLevel;
 import org.gradle.internal.UncheckedException;
 import org.gradle.internal.classloader.ClasspathUtil;
+import org.gradle.internal.serialize.Serializer;
 import org.gradle.process.internal.JavaExecHandleBuilder;
 import org.gradle.process.internal.worker.request.Receiver;
+import org.gradle.process.internal.worker.request.Request;
+import org.gradle.process.internal.worker.request.RequestArgumentSerializers;
 import org.gradle.process.internal.worker.request.RequestProtocol;
 import org.gradle.process.internal.worker.request.ResponseProtocol;
 import org.gradle.process.internal.worker.request.WorkerAction;
@@ -37,6 +40,7 @@ class DefaultMultiRequestWorkerProcessBuilder<WORKER> implements MultiRequestWor
     private final Class<WORKER> workerType;
     private final Class<?> workerImplementation;
     private final DefaultWorkerProcessBuilder workerProcessBuilder;
+    private final RequestArgumentSerializers argumentSerializers = new RequestArgumentSerializers();
 
     static {
         try {
@@ -51,7 +55,7 @@ class DefaultMultiRequestWorkerProcessBuilder<WORKER> implements MultiRequestWor
         this.workerType = workerType;
         this.workerImplementation = workerImplementation;
         this.workerProcessBuilder = workerProcessBuilder;
-        workerProcessBuilder.worker(new WorkerAction(workerImplementation));
+        workerProcessBuilder.worker(new WorkerAction(workerImplementation, argumentSerializers));
         workerProcessBuilder.setImplementationClasspath(ClasspathUtil.getClasspath(workerImplementation.getClassLoader()).getAsURLs());
     }
 
@@ -110,6 +114,11 @@ class DefaultMultiRequestWorkerProcessBuilder<WORKER> implements MultiRequestWor
         return this;
     }
 
+    @Override
+    public <A> void registerArgumentSerializer(Class<A> type, Class<? extends Serializer<A>> serializerType) {
+        argumentSerializers.add(type, serializerType);
+    }
+
     @Override
     public WORKER build() {
         final WorkerProcess workerProcess = workerProcessBuilder.build();
@@ -127,6 +136,7 @@ class DefaultMultiRequestWorkerProcessBuilder<WORKER> implements MultiRequestWor
                     }
                     workerProcess.getConnection().addIncoming(ResponseProtocol.class, receiver);
                     workerProcess.getConnection().useJavaSerializationForParameters(workerImplementation.getClassLoader());
+                    argumentSerializers.useFor(workerProcess.getConnection(), workerImplementation.getClassLoader());
                     requestProtocol = workerProcess.getConnection().addOutgoing(RequestProtocol.class);
                     workerProcess.getConnection().connect();
                     return null;
@@ -141,7 +151,7 @@ class DefaultMultiRequestWorkerProcessBuilder<WORKER> implements MultiRequestWor
                         requestProtocol = null;
                     }
                 }
-                requestProtocol.run(method.getName(), method.getParameterTypes(), args);
+                requestProtocol.run(new Request(method.getName(), method.getParameterTypes(), args));
                 boolean hasResult = receiver.awaitNextResult();
                 if (!hasResult) {
                     try {
@@ -21,6 +21,8 @@ import org.gradle.internal.classloader.ClasspathUtil;
 import org.gradle.internal.remote.ObjectConnection;
 import org.gradle.process.internal.JavaExecHandleBuilder;
 import org.gradle.process.internal.worker.request.Receiver;
+import org.gradle.process.internal.worker.request.Request;
+import org.gradle.process.internal.worker.request.RequestArgumentSerializers;
 import org.gradle.process.internal.worker.request.RequestProtocol;
 import org.gradle.process.internal.worker.request.ResponseProtocol;
 import org.gradle.process.internal.worker.request.WorkerAction;
@@ -35,12 +37,13 @@ class DefaultSingleRequestWorkerProcessBuilder<PROTOCOL> implements SingleReques
     private final Class<PROTOCOL> protocolType;
     private final Class<? extends PROTOCOL> workerImplementation;
     private final DefaultWorkerProcessBuilder builder;
+    private final RequestArgumentSerializers argumentSerializers = new RequestArgumentSerializers();
 
     public DefaultSingleRequestWorkerProcessBuilder(Class<PROTOCOL> protocolType, Class<? extends PROTOCOL> workerImplementation, DefaultWorkerProcessBuilder builder) {
         this.protocolType = protocolType;
         this.workerImplementation = workerImplementation;
         this.builder = builder;
-        builder.worker(new WorkerAction(workerImplementation));
+        builder.worker(new WorkerAction(workerImplementation, argumentSerializers));
         builder.setImplementationClasspath(ClasspathUtil.getClasspath(workerImplementation.getClassLoader()).getAsURLs());
     }
 
@@ -112,8 +115,9 @@ class DefaultSingleRequestWorkerProcessBuilder<PROTOCOL> implements SingleReques
                     RequestProtocol requestProtocol = connection.addOutgoing(RequestProtocol.class);
                     connection.addIncoming(ResponseProtocol.class, receiver);
                     connection.useJavaSerializationForParameters(workerImplementation.getClassLoader());
+                    argumentSerializers.useFor(connection, workerImplementation.getClassLoader());
                     connection.connect();
-                    requestProtocol.runThenStop(method.getName(), method.getParameterTypes(), args);
+                    requestProtocol.runThenStop(new Request(method.getName(), method.getParameterTypes(), args));
                     boolean hasResult = receiver.awaitNextResult();
                     workerProcess.waitForStop();
                     if (!hasResult) {
@@ -16,6 +16,8 @@
 
 package org.gradle.process.internal.worker;
 
+import org.gradle.internal.serialize.Serializer;
+
 /**
  * Configures and builds multi-request workers. A multi-request worker runs zero or more requests in a forked worker process.
  *
@@ -26,6 +28,14 @@ package org.gradle.process.internal.worker;
  * <p>The worker process must be explicitly started and stopped using the methods on {@link WorkerControl}.</p>
  */
 public interface MultiRequestWorkerProcessBuilder<T> extends WorkerProcessSettings {
+    /**
+     * Registers a serializer to use for arguments and results of the given type, instead of Java serialization.
+     *
+     * <p>The serializer type is instantiated in both the build process and the worker process, so it must have a public no-args constructor or a public constructor
+     * that accepts the {@link ClassLoader} to use to load classes.</p>
+     */
+    <A> void registerArgumentSerializer(Class<A> type, Class<? extends Serializer<A>> serializerType);
+
     /**
      * Creates a worker.
      *
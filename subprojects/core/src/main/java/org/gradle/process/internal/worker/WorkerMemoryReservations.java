@@ -0,0 +1,135 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.process.internal.worker;
+
+import org.gradle.api.Nullable;
+import org.gradle.api.Transformer;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.internal.operations.BuildOperationContext;
+import org.gradle.internal.progress.BuildOperationDetails;
+import org.gradle.internal.progress.BuildOperationExecutor;
+import org.gradle.process.internal.health.memory.MemoryAdmissionController;
+import org.gradle.process.internal.health.memory.MemoryReservation;
+
+/**
+ * Reserves memory for worker processes before they are started, so that no more worker processes are started than fit in the physical memory of the machine.
+ *
+ * <p>When a worker process has to wait for memory, the wait is run as a build operation, so that the time spent waiting and the amount of memory
+ * requested are visible to build operation listeners. See {@link WaitForMemoryDetails}.</p>
+ */
+public class WorkerMemoryReservations {
+    /**
+     * The maximum heap size assumed for a worker process that does not specify one.
+     */
+    public static final long DEFAULT_MAX_HEAP_BYTES = 512L * 1024 * 1024;
+    // Memory used by a JVM in addition to its heap, such as metaspace, thread stacks and the code cache
+    private static final long JVM_OVERHEAD_BYTES = 128L * 1024 * 1024;
+    private static final Logger LOGGER = Logging.getLogger(WorkerMemoryReservations.class);
+
+    private final MemoryAdmissionController admissionController;
+    private final BuildOperationExecutor buildOperationExecutor;
+
+    public WorkerMemoryReservations(MemoryAdmissionController admissionController, BuildOperationExecutor buildOperationExecutor) {
+        this.admissionController = admissionController;
+        this.buildOperationExecutor = buildOperationExecutor;
+    }
+
+    /**
+     * Reserves the memory for a worker process with the given maximum heap size, blocking until the memory is available.
+     *
+     * @param maxHeapSize The maximum heap size of the worker process, in the format of the {@code -Xmx} JVM option, or null when not specified.
+     * @param parent The build operation to run the wait for memory in, or null to use the operation of the current thread.
+     */
+    public MemoryReservation reserve(String displayName, @Nullable String maxHeapSize, @Nullable BuildOperationExecutor.Operation parent) {
+        final long memoryAmountBytes = getProjectedMemoryBytes(maxHeapSize);
+        MemoryReservation reservation = admissionController.tryReserve(memoryAmountBytes);
+        if (reservation != null) {
+            return reservation;
+        }
+
+        LOGGER.info("Waiting for {} MB of memory to start {}.", memoryAmountBytes / (1024 * 1024), displayName);
+        BuildOperationDetails operationDetails = BuildOperationDetails.displayName("Wait for memory to start " + displayName)
+            .parent(parent)
+            .operationDescriptor(new WaitForMemoryDetails(displayName, memoryAmountBytes))
+            .build();
+        return buildOperationExecutor.run(operationDetails, new Transformer<MemoryReservation, BuildOperationContext>() {
+            @Override
+            public MemoryReservation transform(BuildOperationContext context) {
+                return admissionController.reserve(memoryAmountBytes);
+            }
+        });
+    }
+
+    /**
+     * Returns the amount of memory a worker process with the given maximum heap size may use, in bytes.
+     */
+    static long getProjectedMemoryBytes(@Nullable String maxHeapSize) {
+        return getHeapSizeBytes(maxHeapSize) + JVM_OVERHEAD_BYTES;
+    }
+
+    private static long getHeapSizeBytes(@Nullable String heapSize) {
+        if (heapSize == null) {
+            return DEFAULT_MAX_HEAP_BYTES;
+        }
+        String normalized = heapSize.trim().toLowerCase();
+        long multiplier = 1;
+        if (normalized.endsWith("k")) {
+            multiplier = 1024L;
+        } else if (normalized.endsWith("m")) {
+            multiplier = 1024L * 1024;
+        } else if (normalized.endsWith("g")) {
+            multiplier = 1024L * 1024 * 1024;
+        } else if (normalized.endsWith("t")) {
+            multiplier = 1024L * 1024 * 1024 * 1024;
+        }
+        if (multiplier > 1) {
+            normalized = normalized.substring(0, normalized.length() - 1);
+        }
+        try {
+            return Long.parseLong(normalized) * multiplier;
+        } catch (NumberFormatException e) {
+            // The JVM will report the invalid value when the worker process is started
+            return DEFAULT_MAX_HEAP_BYTES;
+        }
+    }
+
+    /**
+     * Describes a build operation that waits for memory to become available to start a worker process.
+     */
+    public static class WaitForMemoryDetails {
+        private final String workerDisplayName;
+        private final long memoryAmountBytes;
+
+        WaitForMemoryDetails(String workerDisplayName, long memoryAmountBytes) {
+            this.workerDisplayName = workerDisplayName;
+            this.memoryAmountBytes = memoryAmountBytes;
+        }
+
+        public String getWorkerDisplayName() {
+            return workerDisplayName;
+        }
+
+        /**
+         * Returns the amount of memory requested for the worker process, in bytes.
+         */
+        public long getMemoryAmountBytes() {
+            return memoryAmountBytes;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.process.internal.worker.request;
+
+import org.gradle.api.Nullable;
+
+/**
+ * A request to run a method of the worker implementation.
+ */
+public class Request {
+    private final String methodName;
+    private final Class<?>[] paramTypes;
+    private final Object[] args;
+
+    public Request(String methodName, Class<?>[] paramTypes, @Nullable Object[] args) {
+        this.methodName = methodName;
+        this.paramTypes = paramTypes;
+        this.args = args;
+    }
+
+    public String getMethodName() {
+        return methodName;
+    }
+
+    public Class<?>[] getParamTypes() {
+        return paramTypes;
+    }
+
+    /**
+     * Returns the arguments, or null when the method takes no arguments.
+     */
+    @Nullable
+    public Object[] getArgs() {
+        return args;
+    }
+
+    @Override
+    public String toString() {
+        return "Request[method=" + methodName + "]";
+    }
+}
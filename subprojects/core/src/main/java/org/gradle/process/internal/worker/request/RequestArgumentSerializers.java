@@ -0,0 +1,228 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.process.internal.worker.request;
+
+import com.google.common.primitives.Primitives;
+import org.gradle.internal.Cast;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.remote.ObjectConnection;
+import org.gradle.internal.serialize.BaseSerializerFactory;
+import org.gradle.internal.serialize.Decoder;
+import org.gradle.internal.serialize.DefaultSerializerRegistry;
+import org.gradle.internal.serialize.Encoder;
+import org.gradle.internal.serialize.Message;
+import org.gradle.internal.serialize.Serializer;
+
+import java.io.File;
+import java.io.Serializable;
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The serializers to use for the arguments and results of the requests sent to a worker process.
+ *
+ * <p>Values of the registered types are written using their serializer, and values of any other type fall back to Java serialization. The
+ * registrations are sent to the worker process along with the {@link WorkerAction}, so each serializer type is instantiated in both processes,
+ * using either a constructor that accepts the {@link ClassLoader} to use to load classes, or a no-args constructor.</p>
+ */
+public class RequestArgumentSerializers implements Serializable {
+    private final Map<String, String> serializerTypes = new LinkedHashMap<String, String>();
+
+    public <T> void add(Class<T> type, Class<? extends Serializer<T>> serializerType) {
+        serializerTypes.put(type.getName(), serializerType.getName());
+    }
+
+    /**
+     * Uses these serializers for the request and response messages sent over the given connection.
+     */
+    public void useFor(ObjectConnection connection, ClassLoader classLoader) {
+        Serializer<Object> argumentSerializer = getSerializer(classLoader);
+
+        DefaultSerializerRegistry requestRegistry = new DefaultSerializerRegistry(false);
+        requestRegistry.register(Request.class, new RequestSerializer(argumentSerializer, classLoader));
+        connection.useParameterSerializers(requestRegistry);
+
+        // Results are declared as Object, so use a separate registry to avoid tagging them with the type of the registration
+        DefaultSerializerRegistry resultRegistry = new DefaultSerializerRegistry(false);
+        resultRegistry.register(Object.class, argumentSerializer);
+        connection.useParameterSerializers(resultRegistry);
+    }
+
+    public Serializer<Request> getRequestSerializer(ClassLoader classLoader) {
+        return new RequestSerializer(getSerializer(classLoader), classLoader);
+    }
+
+    /**
+     * Returns a serializer for argument and result values.
+     */
+    public Serializer<Object> getSerializer(ClassLoader classLoader) {
+        DefaultSerializerRegistry registry = new DefaultSerializerRegistry(false);
+        List<Class<?>> types = new ArrayList<Class<?>>();
+        register(registry, types, String.class, BaseSerializerFactory.STRING_SERIALIZER);
+        register(registry, types, Boolean.class, BaseSerializerFactory.BOOLEAN_SERIALIZER);
+        register(registry, types, Integer.class, BaseSerializerFactory.INTEGER_SERIALIZER);
+        register(registry, types, Long.class, BaseSerializerFactory.LONG_SERIALIZER);
+        register(registry, types, File.class, BaseSerializerFactory.FILE_SERIALIZER);
+        for (Map.Entry<String, String> entry : serializerTypes.entrySet()) {
+            Class<Object> type = Cast.uncheckedCast(load(entry.getKey(), classLoader));
+            Serializer<Object> serializer = Cast.uncheckedCast(instantiate(load(entry.getValue(), classLoader), classLoader));
+            register(registry, types, type, serializer);
+        }
+
+        Serializer<?>[] serializers = new Serializer<?>[types.size()];
+        Map<Class<?>, Integer> tags = new HashMap<Class<?>, Integer>();
+        for (int i = 0; i < types.size(); i++) {
+            Class<?> type = types.get(i);
+            serializers[i] = registry.build(type);
+            tags.put(type, i + ArgumentSerializer.FIRST_REGISTERED_TAG);
+        }
+        return new ArgumentSerializer(tags, serializers, classLoader);
+    }
+
+    private static <T> void register(DefaultSerializerRegistry registry, List<Class<?>> types, Class<T> type, Serializer<T> serializer) {
+        registry.register(type, serializer);
+        types.add(type);
+    }
+
+    private static Class<?> load(String className, ClassLoader classLoader) {
+        try {
+            return Class.forName(className, true, classLoader);
+        } catch (ClassNotFoundException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+    }
+
+    private static Object instantiate(Class<?> serializerType, ClassLoader classLoader) {
+        try {
+            for (Constructor<?> constructor : serializerType.getConstructors()) {
+                Class<?>[] parameterTypes = constructor.getParameterTypes();
+                if (parameterTypes.length == 1 && parameterTypes[0].equals(ClassLoader.class)) {
+                    return constructor.newInstance(classLoader);
+                }
+            }
+            return serializerType.newInstance();
+        } catch (Exception e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+    }
+
+    /**
+     * Writes a tag for each value, followed by the value written by the serializer registered for its exact type, or by Java serialization when there is no such serializer.
+     */
+    private static class ArgumentSerializer implements Serializer<Object> {
+        private static final int NULL_TAG = 0;
+        private static final int JAVA_TAG = 1;
+        private static final int FIRST_REGISTERED_TAG = 2;
+        private final Map<Class<?>, Integer> tags;
+        private final Serializer<?>[] serializers;
+        private final ClassLoader classLoader;
+
+        ArgumentSerializer(Map<Class<?>, Integer> tags, Serializer<?>[] serializers, ClassLoader classLoader) {
+            this.tags = tags;
+            this.serializers = serializers;
+            this.classLoader = classLoader;
+        }
+
+        @Override
+        public Object read(Decoder decoder) throws Exception {
+            int tag = decoder.readSmallInt();
+            if (tag == NULL_TAG) {
+                return null;
+            }
+            if (tag == JAVA_TAG) {
+                return Message.receive(decoder.getInputStream(), classLoader);
+            }
+            int index = tag - FIRST_REGISTERED_TAG;
+            if (index >= serializers.length) {
+                throw new IllegalArgumentException(String.format("Unexpected type tag %d found.", tag));
+            }
+            return serializers[index].read(decoder);
+        }
+
+        @Override
+        public void write(Encoder encoder, Object value) throws Exception {
+            if (value == null) {
+                encoder.writeSmallInt(NULL_TAG);
+                return;
+            }
+            Integer tag = tags.get(value.getClass());
+            if (tag == null) {
+                encoder.writeSmallInt(JAVA_TAG);
+                Message.send(value, encoder.getOutputStream());
+                return;
+            }
+            encoder.writeSmallInt(tag);
+            Serializer<Object> serializer = Cast.uncheckedCast(serializers[tag - FIRST_REGISTERED_TAG]);
+            serializer.write(encoder, value);
+        }
+    }
+
+    private static class RequestSerializer implements Serializer<Request> {
+        private static final Map<String, Class<?>> PRIMITIVE_TYPES = new HashMap<String, Class<?>>();
+        private final Serializer<Object> argumentSerializer;
+        private final ClassLoader classLoader;
+
+        static {
+            for (Class<?> type : Primitives.allPrimitiveTypes()) {
+                PRIMITIVE_TYPES.put(type.getName(), type);
+            }
+        }
+
+        RequestSerializer(Serializer<Object> argumentSerializer, ClassLoader classLoader) {
+            this.argumentSerializer = argumentSerializer;
+            this.classLoader = classLoader;
+        }
+
+        @Override
+        public Request read(Decoder decoder) throws Exception {
+            String methodName = decoder.readString();
+            int paramCount = decoder.readSmallInt();
+            Class<?>[] paramTypes = new Class<?>[paramCount];
+            for (int i = 0; i < paramCount; i++) {
+                String typeName = decoder.readString();
+                Class<?> type = PRIMITIVE_TYPES.get(typeName);
+                paramTypes[i] = type != null ? type : Class.forName(typeName, false, classLoader);
+            }
+            if (paramCount == 0) {
+                return new Request(methodName, paramTypes, null);
+            }
+            Object[] args = new Object[paramCount];
+            for (int i = 0; i < paramCount; i++) {
+                args[i] = argumentSerializer.read(decoder);
+            }
+            return new Request(methodName, paramTypes, args);
+        }
+
+        @Override
+        public void write(Encoder encoder, Request request) throws Exception {
+            encoder.writeString(request.getMethodName());
+            Class<?>[] paramTypes = request.getParamTypes();
+            encoder.writeSmallInt(paramTypes.length);
+            for (Class<?> paramType : paramTypes) {
+                encoder.writeString(paramType.getName());
+            }
+            Object[] args = request.getArgs();
+            for (int i = 0; i < paramTypes.length; i++) {
+                argumentSerializer.write(encoder, args[i]);
+            }
+        }
+    }
+}
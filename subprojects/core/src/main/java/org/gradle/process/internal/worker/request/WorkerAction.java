@@ -28,14 +28,16 @@ import java.util.concurrent.CountDownLatch;
 
 public class WorkerAction implements Action<WorkerProcessContext>, Serializable, RequestProtocol {
     private final String workerImplementationName;
+    private final RequestArgumentSerializers argumentSerializers;
     private transient CountDownLatch completed;
     private transient ResponseProtocol responder;
     private transient Throwable failure;
     private transient Class<?> workerImplementation;
     private transient Object implementation;
 
-    public WorkerAction(Class<?> workerImplementation) {
+    public WorkerAction(Class<?> workerImplementation, RequestArgumentSerializers argumentSerializers) {
         this.workerImplementationName = workerImplementation.getName();
+        this.argumentSerializers = argumentSerializers;
     }
 
     @Override
@@ -51,6 +53,7 @@ public class WorkerAction implements Action<WorkerProcessContext>, Serializable,
         ObjectConnection connection = workerProcessContext.getServerConnection();
         connection.addIncoming(RequestProtocol.class, this);
         responder = connection.addOutgoing(ResponseProtocol.class);
+        argumentSerializers.useFor(connection, workerImplementation != null ? workerImplementation.getClassLoader() : getClass().getClassLoader());
         connection.connect();
 
         try {
@@ -66,25 +69,25 @@ public class WorkerAction implements Action<WorkerProcessContext>, Serializable,
     }
 
     @Override
-    public void runThenStop(String methodName, Class<?>[] paramTypes, Object[] args) {
+    public void runThenStop(Request request) {
         try {
-            run(methodName, paramTypes, args);
+            run(request);
         } finally {
             stop();
         }
     }
 
     @Override
-    public void run(String methodName, Class<?>[] paramTypes, Object[] args) {
+    public void run(Request request) {
         if (failure != null) {
             responder.infrastructureFailed(failure);
             return;
         }
         try {
-            Method method = workerImplementation.getDeclaredMethod(methodName, paramTypes);
+            Method method = workerImplementation.getDeclaredMethod(request.getMethodName(), request.getParamTypes());
             Object result;
             try {
-                result = method.invoke(implementation, args);
+                result = method.invoke(implementation, request.getArgs());
             } catch (InvocationTargetException e) {
                 Throwable failure = e.getCause();
                 if (failure instanceof NoClassDefFoundError) {
@@ -162,6 +162,49 @@ class CachingFileHasherTest extends Specification {
         0 * _._
     }
 
+    def hashesUncachedFileSeparatelyFromCacheAccess() {
+        long lastModified = 123l
+        long length = 321l
+        def fileDetails = Mock(FileTreeElement)
+
+        when:
+        def cached = hasher.getCached(fileDetails)
+
+        then:
+        cached == null
+        1 * timeStampInspector.timestampCanBeUsedToDetectFileChange(lastModified) >> true
+        1 * cache.get(file.absolutePath) >> null
+        _ * fileDetails.file >> file
+        _ * fileDetails.lastModified >> lastModified
+        _ * fileDetails.size >> length
+        0 * _._
+
+        when:
+        def result = hasher.hashUncached(fileDetails)
+
+        then:
+        result == hash
+        1 * target.hash(file) >> hash
+        _ * fileDetails.file >> file
+        _ * fileDetails.lastModified >> lastModified
+        _ * fileDetails.size >> length
+        0 * _._
+
+        when:
+        hasher.storeHash(fileDetails, result)
+
+        then:
+        1 * cache.put(file.absolutePath, _) >> { String key, FileInfo fileInfo ->
+            assert fileInfo.hash == hash
+            assert fileInfo.length == length
+            assert fileInfo.timestamp == lastModified
+        }
+        _ * fileDetails.file >> file
+        _ * fileDetails.lastModified >> lastModified
+        _ * fileDetails.size >> length
+        0 * _._
+    }
+
     def hashesGivenFileMetadataSnapshot() {
         long lastModified = 123l
         long length = 321l
@@ -201,6 +244,70 @@ class CachingFileHasherTest extends Specification {
         0 * _._
     }
 
+    def usesCompactCacheInPreferenceToPersistentCache() {
+        def compactCache = new CompactFileHashCache(100)
+        1 * cacheAccess.createCache("compactFileHashes", _, _, _, _) >> cache
+        def compactHasher = new CachingFileHasher(target, cacheAccess, new StringInterner(), timeStampInspector, "compactFileHashes", compactCache)
+
+        when:
+        def first = compactHasher.hash(file)
+        def second = compactHasher.hash(file)
+
+        then:
+        first == hash
+        second == hash
+
+        and:
+        2 * timeStampInspector.timestampCanBeUsedToDetectFileChange(file.lastModified()) >> true
+        2 * cache.get(file.getAbsolutePath()) >>> [null, new FileInfo(hash, file.length(), file.lastModified())]
+        1 * target.hash(file) >> hash
+        1 * cache.put(file.getAbsolutePath(), _)
+        0 * _._
+
+        and:
+        compactCache.hits == 1
+        compactCache.misses == 1
+    }
+
+    def addsCompactCacheHitToPersistentCacheWhenMissing() {
+        def compactCache = new CompactFileHashCache(100)
+        compactCache.put(file.absolutePath, file.length(), file.lastModified(), hash)
+        1 * cacheAccess.createCache("compactFileHashes", _, _, _, _) >> cache
+        def compactHasher = new CachingFileHasher(target, cacheAccess, new StringInterner(), timeStampInspector, "compactFileHashes", compactCache)
+
+        when:
+        def result = compactHasher.hash(file)
+
+        then:
+        result == hash
+
+        and:
+        1 * timeStampInspector.timestampCanBeUsedToDetectFileChange(file.lastModified()) >> true
+        1 * cache.get(file.getAbsolutePath()) >> null
+        1 * cache.put(file.getAbsolutePath(), { it.hash == hash && it.length == file.length() && it.timestamp == file.lastModified() })
+        0 * _._
+    }
+
+    def populatesCompactCacheFromPersistentCache() {
+        def compactCache = new CompactFileHashCache(100)
+        1 * cacheAccess.createCache("compactFileHashes", _, _, _, _) >> cache
+        def compactHasher = new CachingFileHasher(target, cacheAccess, new StringInterner(), timeStampInspector, "compactFileHashes", compactCache)
+
+        when:
+        def result = compactHasher.hash(file)
+
+        then:
+        result == hash
+
+        and:
+        1 * timeStampInspector.timestampCanBeUsedToDetectFileChange(file.lastModified()) >> true
+        1 * cache.get(file.getAbsolutePath()) >> new FileInfo(hash, file.length(), file.lastModified())
+        0 * _._
+
+        and:
+        compactCache.get(file.absolutePath, file.length(), file.lastModified()) == hash
+    }
+
     def hashesContentWhenResourceIsNotBackedByFile() {
         def resource = Mock(TextResource)
 
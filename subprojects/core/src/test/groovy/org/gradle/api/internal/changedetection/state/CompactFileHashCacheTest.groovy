@@ -0,0 +1,101 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state
+
+import com.google.common.base.Charsets
+import com.google.common.hash.Hashing
+import spock.lang.Specification
+
+class CompactFileHashCacheTest extends Specification {
+    def cache = new CompactFileHashCache(100)
+
+    def "returns hash when length and timestamp match"() {
+        def hash = md5("content")
+
+        when:
+        cache.put("/some/file", 12, 34, hash)
+
+        then:
+        cache.get("/some/file", 12, 34) == hash
+        cache.get("/some/file", 13, 34) == null
+        cache.get("/some/file", 12, 35) == null
+        cache.get("/some/other", 12, 34) == null
+        cache.hits == 1
+        cache.misses == 3
+    }
+
+    def "replaces entry for same path"() {
+        when:
+        cache.put("/some/file", 1, 1, md5("old"))
+        cache.put("/some/file", 2, 2, md5("new"))
+
+        then:
+        cache.size() == 1
+        cache.get("/some/file", 2, 2) == md5("new")
+    }
+
+    def "distinguishes paths with the same hash code"() {
+        assert "Aa".hashCode() == "BB".hashCode()
+
+        when:
+        cache.put("Aa", 1, 1, md5("first"))
+        cache.put("BB", 1, 1, md5("second"))
+
+        then:
+        cache.size() == 2
+        cache.get("Aa", 1, 1) == md5("first")
+        cache.get("BB", 1, 1) == md5("second")
+    }
+
+    def "returns the hash instance that was put"() {
+        def hash = md5("content")
+
+        when:
+        cache.put("/some/file", 1, 1, hash)
+
+        then:
+        cache.get("/some/file", 1, 1).is(hash)
+    }
+
+    def "evicts entries when full and keeps remaining entries reachable"() {
+        def paths = (0..<1000).collect { "/dir/file$it".toString() }
+
+        when:
+        paths.each { cache.put(it, it.length(), 0, md5(it)) }
+
+        then:
+        cache.size() <= 100
+        cache.evictions == 1000 - cache.size()
+        paths.count { cache.get(it, it.length(), 0) != null } == cache.size()
+        paths.every { def h = cache.get(it, it.length(), 0); h == null || h == md5(it) }
+    }
+
+    def "can clear"() {
+        cache.put("/some/file", 1, 1, md5("content"))
+
+        when:
+        cache.clear()
+
+        then:
+        cache.size() == 0
+        cache.get("/some/file", 1, 1) == null
+    }
+
+    private static md5(String value) {
+        return Hashing.md5().hashString(value, Charsets.UTF_8)
+    }
+}
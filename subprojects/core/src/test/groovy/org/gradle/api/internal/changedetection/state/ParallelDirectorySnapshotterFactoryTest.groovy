@@ -0,0 +1,50 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.changedetection.state
+
+import org.gradle.api.JavaVersion
+import org.gradle.api.internal.changedetection.state.jdk7.ForkJoinDirectorySnapshotter
+import org.gradle.api.internal.file.TestFiles
+import spock.lang.Specification
+
+class ParallelDirectorySnapshotterFactoryTest extends Specification {
+    def "creates fork-join snapshotter on java 7 and later when parallelism is greater than one"() {
+        def snapshotter = factory(JavaVersion.VERSION_1_7).create(4)
+
+        expect:
+        snapshotter instanceof ForkJoinDirectorySnapshotter
+        snapshotter.enabled
+
+        cleanup:
+        snapshotter?.stop()
+    }
+
+    def "falls back to serial snapshotting when parallelism is one"() {
+        expect:
+        !factory(JavaVersion.VERSION_1_8).create(1).enabled
+    }
+
+    def "falls back to serial snapshotting on java 6"() {
+        expect:
+        !factory(JavaVersion.VERSION_1_6).create(4).enabled
+    }
+
+    private static ParallelDirectorySnapshotterFactory factory(JavaVersion javaVersion) {
+        return new ParallelDirectorySnapshotterFactory(javaVersion, TestFiles.fileSystem())
+    }
+}
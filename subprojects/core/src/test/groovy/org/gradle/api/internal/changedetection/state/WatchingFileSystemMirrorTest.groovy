@@ -0,0 +1,298 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state
+
+import org.gradle.api.Task
+import org.gradle.api.file.RelativePath
+import org.gradle.api.internal.TaskOutputsInternal
+import org.gradle.api.internal.file.collections.SimpleFileCollection
+import org.gradle.api.internal.tasks.TaskOutputFilePropertySpec
+import org.gradle.internal.filewatch.FileWatcher
+import org.gradle.internal.filewatch.FileWatcherEvent
+import org.gradle.internal.filewatch.FileWatcherFactory
+import org.gradle.internal.nativeintegration.filesystem.FileType
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+class WatchingFileSystemMirrorTest extends Specification {
+    @Rule
+    final TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+    def watcher = Mock(FileWatcher) {
+        isRunning() >> true
+    }
+    def watcherFactory = Mock(FileWatcherFactory) {
+        watch(_, _) >> watcher
+    }
+    def mirror = new WatchingFileSystemMirror("test", watcherFactory, 3)
+
+    def "retains file details that were looked up before being put"() {
+        def file = tmpDir.file("file")
+        def details = fileDetails(file)
+
+        expect:
+        mirror.getFile(file.path) == null
+        mirror.beforeComplete()
+        mirror.getFile(file.path) == null
+        mirror.putFile(details)
+        mirror.getFile(file.path) == details
+    }
+
+    def "does not retain details that were looked up before the location was watched"() {
+        def dir = tmpDir.file("dir")
+
+        when:
+        mirror.getDirectoryTree(dir.path)
+        mirror.putDirectory(new DirectoryTreeDetails(dir.path, []))
+
+        then:
+        mirror.getDirectoryTree(dir.path) == null
+    }
+
+    def "watches locations that missed in bulk outside of lookups"() {
+        when:
+        mirror.getDirectoryTree(tmpDir.file("a").path)
+        mirror.getDirectoryTree(tmpDir.file("b").path)
+        mirror.getFile(tmpDir.file("c").path)
+
+        then:
+        0 * watcher.watch(_)
+
+        when:
+        mirror.beforeTaskOutputsGenerated(Stub(TaskOutputsInternal) {
+            getFileProperties() >> new TreeSet()
+        })
+
+        then:
+        1 * watcher.watch(_)
+    }
+
+    def "does not wait for the watcher when returning retained state"() {
+        def dir = tmpDir.file("dir")
+        def tree = lookupAndPutTree(dir)
+
+        when:
+        def result = mirror.getDirectoryTree(dir.path)
+
+        then:
+        0 * watcher.deliverPendingEvents()
+        result == tree
+    }
+
+    def "delivers pending events after task actions"() {
+        def dir = tmpDir.file("dir")
+        lookupAndPutTree(dir)
+
+        when:
+        mirror.afterActions(Stub(Task))
+
+        then:
+        1 * watcher.deliverPendingEvents() >> { mirror.onChange(watcher, FileWatcherEvent.modify(dir.file("child"))) }
+
+        and:
+        mirror.getDirectoryTree(dir.path) == null
+    }
+
+    def "delivers pending events at the start of a session"() {
+        def dir = tmpDir.file("dir")
+        lookupAndPutTree(dir)
+
+        when:
+        mirror.afterStart()
+
+        then:
+        1 * watcher.deliverPendingEvents() >> { mirror.onChange(watcher, FileWatcherEvent.modify(dir.file("child"))) }
+
+        and:
+        mirror.getDirectoryTree(dir.path) == null
+    }
+
+    def "evicts least recently used state at the end of a session"() {
+        def a = lookupAndPutTree(tmpDir.file("a"))
+        def b = lookupAndPutTree(tmpDir.file("b"))
+
+        when:
+        mirror.afterStart()
+        mirror.getDirectoryTree(a.path)
+        def c = lookupAndPutTree(tmpDir.file("c"))
+        def d = lookupAndPutTree(tmpDir.file("d"))
+        mirror.beforeComplete()
+
+        then:
+        mirror.getDirectoryTree(a.path) == a
+        mirror.getDirectoryTree(c.path) == c
+        mirror.getDirectoryTree(d.path) == d
+        mirror.getDirectoryTree(b.path) == null
+    }
+
+    def "stops watching and discards state when too many locations are watched"() {
+        def a = lookupAndPutTree(tmpDir.file("a"))
+        ["b", "c", "d", "e", "f", "g"].each { mirror.getFile(tmpDir.file(it).path) }
+
+        when:
+        mirror.beforeComplete()
+
+        then:
+        1 * watcher.stop()
+        mirror.getDirectoryTree(a.path) == null
+    }
+
+    def "does not retain file details that were not looked up first"() {
+        def file = tmpDir.file("file")
+
+        when:
+        mirror.putFile(fileDetails(file))
+
+        then:
+        mirror.getFile(file.path) == null
+    }
+
+    def "does not retain details when a change is reported between lookup and put"() {
+        def dir = tmpDir.file("dir")
+
+        when:
+        mirror.getDirectoryTree(dir.path)
+        mirror.beforeComplete()
+        mirror.getDirectoryTree(dir.path)
+        mirror.onChange(watcher, FileWatcherEvent.modify(dir.file("child")))
+        mirror.putDirectory(new DirectoryTreeDetails(dir.path, []))
+
+        then:
+        mirror.getDirectoryTree(dir.path) == null
+    }
+
+    def "discards tree when a descendant changes"() {
+        def dir = tmpDir.file("dir")
+        def tree = lookupAndPutTree(dir)
+        def other = lookupAndPutTree(tmpDir.file("other"))
+
+        expect:
+        mirror.getDirectoryTree(dir.path) == tree
+
+        when:
+        mirror.onChange(watcher, FileWatcherEvent.create(dir.file("a/b")))
+
+        then:
+        mirror.getDirectoryTree(dir.path) == null
+        mirror.getDirectoryTree(tmpDir.file("other").path) == other
+    }
+
+    def "discards files below a changed directory"() {
+        def dir = tmpDir.file("dir")
+        def child = dir.file("child")
+        def sibling = tmpDir.file("dir-sibling")
+        lookupAndPutFile(child)
+        def siblingDetails = lookupAndPutFile(sibling)
+
+        when:
+        mirror.onChange(watcher, FileWatcherEvent.delete(dir))
+
+        then:
+        mirror.getFile(child.path) == null
+        mirror.getFile(sibling.path) == siblingDetails
+    }
+
+    def "discards only state for declared outputs when task outputs are generated"() {
+        def outputDir = tmpDir.file("build/classes")
+        def inputDir = tmpDir.file("src")
+        lookupAndPutTree(outputDir)
+        def inputTree = lookupAndPutTree(inputDir)
+        def propertySpec = Stub(TaskOutputFilePropertySpec) {
+            getPropertyFiles() >> new SimpleFileCollection(outputDir)
+        }
+        def outputs = Stub(TaskOutputsInternal) {
+            getFileProperties() >> new TreeSet([propertySpec])
+        }
+
+        when:
+        mirror.beforeTaskOutputsGenerated(outputs)
+
+        then:
+        mirror.getDirectoryTree(outputDir.path) == null
+        mirror.getDirectoryTree(inputDir.path) == inputTree
+    }
+
+    def "discards everything on undefined event"() {
+        def dir = tmpDir.file("dir")
+        lookupAndPutTree(dir)
+
+        when:
+        mirror.onChange(watcher, FileWatcherEvent.undefined())
+
+        then:
+        mirror.getDirectoryTree(dir.path) == null
+    }
+
+    def "does not retain state when location cannot be watched"() {
+        def dir = tmpDir.file("dir")
+        watcher.watch(_) >> { throw new IOException("too many watches") }
+
+        when:
+        mirror.getDirectoryTree(dir.path)
+        mirror.beforeComplete()
+        mirror.getDirectoryTree(dir.path)
+        mirror.putDirectory(new DirectoryTreeDetails(dir.path, []))
+
+        then:
+        mirror.getDirectoryTree(dir.path) == null
+    }
+
+    def "discards everything when watcher is no longer running at start of session"() {
+        def running = true
+        def stoppingWatcher = Mock(FileWatcher) {
+            isRunning() >> { running }
+        }
+        def factory = Mock(FileWatcherFactory) {
+            watch(_, _) >> stoppingWatcher
+        }
+        def mirror = new WatchingFileSystemMirror("test", factory, 3)
+        def dir = tmpDir.file("dir")
+        mirror.getDirectoryTree(dir.path)
+        mirror.beforeComplete()
+        mirror.getDirectoryTree(dir.path)
+        mirror.putDirectory(new DirectoryTreeDetails(dir.path, []))
+
+        when:
+        running = false
+        mirror.afterStart()
+
+        then:
+        mirror.getDirectoryTree(dir.path) == null
+    }
+
+    private DirectoryTreeDetails lookupAndPutTree(File dir) {
+        def details = new DirectoryTreeDetails(dir.path, [])
+        assert mirror.getDirectoryTree(dir.path) == null
+        mirror.beforeComplete()
+        assert mirror.getDirectoryTree(dir.path) == null
+        mirror.putDirectory(details)
+        return details
+    }
+
+    private FileDetails lookupAndPutFile(File file) {
+        def details = fileDetails(file)
+        assert mirror.getFile(file.path) == null
+        mirror.beforeComplete()
+        assert mirror.getFile(file.path) == null
+        mirror.putFile(details)
+        return details
+    }
+
+    private static FileDetails fileDetails(File file) {
+        return new DefaultFileDetails(file.path, new RelativePath(true, file.name), FileType.Missing, true, MissingFileSnapshot.getInstance())
+    }
+}
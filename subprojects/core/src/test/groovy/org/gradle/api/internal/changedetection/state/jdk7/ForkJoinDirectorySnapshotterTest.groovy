@@ -0,0 +1,146 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state.jdk7
+
+import org.gradle.api.GradleException
+import org.gradle.api.file.FileVisitDetails
+import org.gradle.api.file.FileVisitor
+import org.gradle.api.internal.cache.StringInterner
+import org.gradle.api.internal.changedetection.state.CachingFileHasher
+import org.gradle.api.internal.changedetection.state.DefaultFileSystemMirror
+import org.gradle.api.internal.changedetection.state.DefaultGenericFileCollectionSnapshotter
+import org.gradle.api.internal.changedetection.state.DisabledParallelDirectorySnapshotter
+import org.gradle.api.internal.changedetection.state.FileTimeStampInspector
+import org.gradle.api.internal.changedetection.state.TaskHistoryStore
+import org.gradle.api.internal.file.TestFiles
+import org.gradle.api.internal.file.collections.FileTreeAdapter
+import org.gradle.api.internal.hash.DefaultFileHasher
+import org.gradle.cache.PersistentIndexedCache
+import org.gradle.cache.internal.MapBackedInMemoryStore
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.gradle.util.UsesNativeServices
+import org.junit.Rule
+import spock.lang.Specification
+
+import static org.gradle.api.internal.changedetection.state.TaskFilePropertyCompareStrategy.UNORDERED
+import static org.gradle.api.internal.changedetection.state.TaskFilePropertySnapshotNormalizationStrategy.RELATIVE
+
+@UsesNativeServices
+class ForkJoinDirectorySnapshotterTest extends Specification {
+    @Rule
+    final TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+    def stringInterner = new StringInterner()
+    def parallelSnapshotter = new ForkJoinDirectorySnapshotter(4, TestFiles.fileSystem())
+
+    def cleanup() {
+        parallelSnapshotter.stop()
+    }
+
+    def "walks the tree in the same order as a serial walk"() {
+        def root = tmpDir.createDir("root")
+        3.times { d ->
+            def dir = root.createDir("dir$d")
+            100.times { f -> dir.file("sub${f % 5}/file${f}.txt").text = "content $d $f" }
+            dir.file("top.txt").text = "top $d"
+        }
+        root.createDir("empty")
+        root.file("root.txt").text = "root"
+
+        when:
+        def parallel = parallelSnapshotter.walk(root)
+        def serial = serialWalk(root)
+
+        then:
+        parallel.size() == serial.size()
+        parallel*.file == serial*.file
+        parallel*.relativePath == serial*.relativePath
+        parallel*.directory == serial*.directory
+        parallel.findAll { !it.directory }*.size == serial.findAll { !it.directory }*.size
+    }
+
+    def "hashes files without using the caches of the hasher"() {
+        def root = tmpDir.createDir("root")
+        100.times { root.file("file${it}.txt").text = "content $it" }
+        def cache = Mock(PersistentIndexedCache)
+        def hasher = new CachingFileHasher(new DefaultFileHasher(), Stub(TaskHistoryStore) { createCache(_, _, _, _, _) >> cache }, stringInterner, new FileTimeStampInspector(), "fileHashes")
+        def files = parallelSnapshotter.walk(root)
+
+        when:
+        def hashes = parallelSnapshotter.hash(files, hasher)
+
+        then:
+        hashes == files.collect { new DefaultFileHasher().hash(it.file) }
+        0 * cache._
+    }
+
+    def "snapshots through file collection snapshotter using the caches of the hasher from the calling thread only"() {
+        def root = tmpDir.createDir("root")
+        root.file("a/b.txt").text = "b"
+        root.file("c.txt").text = "c"
+        def callingThread = Thread.currentThread()
+        def cache = Mock(PersistentIndexedCache)
+        def hasher = new CachingFileHasher(new DefaultFileHasher(), Stub(TaskHistoryStore) { createCache(_, _, _, _, _) >> cache }, stringInterner, new FileTimeStampInspector(), "fileHashes")
+        def serialHasher = new CachingFileHasher(new DefaultFileHasher(), new MapBackedInMemoryStore(), stringInterner, new FileTimeStampInspector(), "fileHashes")
+        def serialSnapshotter = new DefaultGenericFileCollectionSnapshotter(serialHasher, stringInterner, TestFiles.fileSystem(), TestFiles.directoryFileTreeFactory(), new DefaultFileSystemMirror(), new DisabledParallelDirectorySnapshotter())
+        def snapshotter = new DefaultGenericFileCollectionSnapshotter(hasher, stringInterner, TestFiles.fileSystem(), TestFiles.directoryFileTreeFactory(), new DefaultFileSystemMirror(), parallelSnapshotter)
+        def files = new FileTreeAdapter(TestFiles.directoryFileTreeFactory().create(root))
+
+        when:
+        def parallel = snapshotter.snapshot(files, UNORDERED, RELATIVE)
+        def serial = serialSnapshotter.snapshot(files, UNORDERED, RELATIVE)
+
+        then:
+        2 * cache.get(_) >> {
+            assert Thread.currentThread() == callingThread
+            null
+        }
+        2 * cache.put(_, _) >> {
+            assert Thread.currentThread() == callingThread
+        }
+
+        and:
+        parallel.elements as List == serial.elements as List
+        !parallel.iterateContentChangesSince(serial, "files").hasNext()
+    }
+
+    def "fails when directory cannot be listed"() {
+        def missing = tmpDir.file("missing")
+
+        when:
+        parallelSnapshotter.walk(missing)
+
+        then:
+        def e = thrown(GradleException)
+        e.message == "Could not list contents of directory '$missing'."
+    }
+
+    private static List<FileVisitDetails> serialWalk(File root) {
+        def elements = []
+        TestFiles.directoryFileTreeFactory().create(root).visit(new FileVisitor() {
+            @Override
+            void visitDir(FileVisitDetails dirDetails) {
+                elements << dirDetails
+            }
+
+            @Override
+            void visitFile(FileVisitDetails fileDetails) {
+                elements << fileDetails
+            }
+        })
+        return elements
+    }
+}
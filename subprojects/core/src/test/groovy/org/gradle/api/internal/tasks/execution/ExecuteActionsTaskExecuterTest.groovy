@@ -17,6 +17,7 @@ package org.gradle.api.internal.tasks.execution
 
 import org.gradle.api.execution.TaskActionListener
 import org.gradle.api.internal.TaskInternal
+import org.gradle.api.internal.TaskOutputsInternal
 import org.gradle.api.internal.project.ProjectInternal
 import org.gradle.api.internal.tasks.ContextAwareTaskAction
 import org.gradle.api.internal.tasks.TaskExecutionContext
@@ -33,6 +34,7 @@ import static java.util.Collections.emptyList
 
 public class ExecuteActionsTaskExecuterTest extends Specification {
     private final TaskInternal task = Mock(TaskInternal);
+    private final TaskOutputsInternal outputs = Mock(TaskOutputsInternal)
     private final ContextAwareTaskAction action1 = Mock(ContextAwareTaskAction)
     private final ContextAwareTaskAction action2 = Mock(ContextAwareTaskAction)
     private final TaskStateInternal state = new TaskStateInternal("<task>")
@@ -49,6 +51,7 @@ public class ExecuteActionsTaskExecuterTest extends Specification {
         task.getState() >> state
         project.getBuildScriptSource() >> scriptSource
         task.getStandardOutputCapture() >> standardOutputCapture
+        task.getOutputs() >> outputs
     }
 
     void noMoreInteractions() {
@@ -91,7 +94,7 @@ public class ExecuteActionsTaskExecuterTest extends Specification {
         then:
         1 * publicListener.beforeActions(task)
         then:
-        1 * internalListener.beforeTaskOutputsGenerated()
+        1 * internalListener.beforeTaskOutputsGenerated(outputs)
         then:
         1 * standardOutputCapture.start()
         then:
@@ -137,7 +140,7 @@ public class ExecuteActionsTaskExecuterTest extends Specification {
         then:
         1 * publicListener.beforeActions(task)
         then:
-        1 * internalListener.beforeTaskOutputsGenerated()
+        1 * internalListener.beforeTaskOutputsGenerated(outputs)
         then:
         1 * standardOutputCapture.start()
 
@@ -170,7 +173,7 @@ public class ExecuteActionsTaskExecuterTest extends Specification {
         then:
         1 * publicListener.beforeActions(task)
         then:
-        1 * internalListener.beforeTaskOutputsGenerated()
+        1 * internalListener.beforeTaskOutputsGenerated(outputs)
         then:
         1 * standardOutputCapture.start()
         then:
@@ -203,7 +206,7 @@ public class ExecuteActionsTaskExecuterTest extends Specification {
         then:
         1 * publicListener.beforeActions(task)
         then:
-        1 * internalListener.beforeTaskOutputsGenerated()
+        1 * internalListener.beforeTaskOutputsGenerated(outputs)
         then:
         1 * standardOutputCapture.start()
         then:
@@ -235,7 +238,7 @@ public class ExecuteActionsTaskExecuterTest extends Specification {
         then:
         1 * publicListener.beforeActions(task)
         then:
-        1 * internalListener.beforeTaskOutputsGenerated()
+        1 * internalListener.beforeTaskOutputsGenerated(outputs)
         then:
         1 * standardOutputCapture.start()
         then:
@@ -0,0 +1,209 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal.btree
+
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.gradle.util.Requires
+import org.gradle.util.TestPrecondition
+import org.junit.Rule
+import spock.lang.Specification
+
+@Requires(TestPrecondition.NOT_WINDOWS)
+class MappedFileBlockStoreTest extends Specification {
+    @Rule
+    final TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+    def cacheFile = tmpDir.file("cache.bin")
+    def factory = { Class type -> type.newInstance() } as BlockStore.Factory
+
+    def "reads blocks that were written"() {
+        def store = open(new MappedFileBlockStore(cacheFile))
+        def first = write(store, "first")
+        def second = write(store, "second")
+
+        expect:
+        store.read(first.pos, TestPayload).value == "first"
+        store.read(second.pos, TestPayload).value == "second"
+        store.readFirst(TestPayload).value == "first"
+
+        cleanup:
+        store.close()
+    }
+
+    def "reads and writes blocks that span segments"() {
+        def store = open(new MappedFileBlockStore(cacheFile))
+        def values = (0..<3).collect { "value $it " * 100000 }
+        def blocks = values.collect { write(store, it) }
+
+        expect:
+        cacheFile.length() > 2 * 1024 * 1024
+        blocks.collect { store.read(it.pos, TestPayload).value } == values
+
+        cleanup:
+        store.close()
+    }
+
+    def "reads blocks written after the file has grown past the mapped part of a segment"() {
+        def store = open(new MappedFileBlockStore(cacheFile))
+        def first = write(store, "first")
+
+        expect:
+        store.read(first.pos, TestPayload).value == "first"
+
+        when:
+        def second = write(store, "second")
+
+        then:
+        store.read(second.pos, TestPayload).value == "second"
+        store.read(first.pos, TestPayload).value == "first"
+
+        cleanup:
+        store.close()
+    }
+
+    def "grows file to the end of the last block written, so nothing is left to reclaim when not closed"() {
+        def store = open(new MappedFileBlockStore(cacheFile))
+
+        when:
+        def first = write(store, "first")
+
+        then:
+        cacheFile.length() == first.block.size
+
+        when:
+        def second = write(store, "second")
+
+        then:
+        cacheFile.length() == first.block.size + second.block.size
+
+        cleanup:
+        store.close()
+    }
+
+    @Requires(TestPrecondition.LINUX)
+    def "releases mappings on close"() {
+        def store = open(new MappedFileBlockStore(cacheFile))
+        def block = write(store, "value")
+        store.read(block.pos, TestPayload)
+
+        expect:
+        mappings().contains(cacheFile.absolutePath)
+
+        when:
+        store.close()
+
+        then:
+        !mappings().contains(cacheFile.absolutePath)
+    }
+
+    def "uses the same format as file backed store"() {
+        def mapped = open(new MappedFileBlockStore(cacheFile))
+        def a = write(mapped, "a")
+        mapped.close()
+
+        def fileBacked = open(new FileBackedBlockStore(cacheFile))
+        def b = write(fileBacked, "b")
+
+        expect:
+        fileBacked.read(a.pos, TestPayload).value == "a"
+
+        when:
+        fileBacked.close()
+        mapped = open(new MappedFileBlockStore(cacheFile))
+
+        then:
+        mapped.read(a.pos, TestPayload).value == "a"
+        mapped.read(b.pos, TestPayload).value == "b"
+
+        cleanup:
+        mapped.close()
+    }
+
+    def "fails when block is past the end of the file"() {
+        def store = open(new MappedFileBlockStore(cacheFile))
+        write(store, "value")
+
+        when:
+        store.read(new BlockPointer(1000), TestPayload)
+
+        then:
+        thrown(CorruptedCacheException)
+
+        cleanup:
+        store.close()
+    }
+
+    def "discards content on clear"() {
+        def store = open(new MappedFileBlockStore(cacheFile))
+        write(store, "old")
+
+        when:
+        store.clear()
+        def block = write(store, "new")
+
+        then:
+        block.pos.pos == 0
+        store.readFirst(TestPayload).value == "new"
+
+        cleanup:
+        store.close()
+    }
+
+    private static String mappings() {
+        return new File("/proc/self/maps").text
+    }
+
+    private BlockStore open(BlockStore store) {
+        store.open({} as Runnable, factory)
+        return store
+    }
+
+    private static TestPayload write(BlockStore store, String value) {
+        def payload = new TestPayload(value: value)
+        store.attach(payload)
+        store.write(payload)
+        return payload
+    }
+
+    static class TestPayload extends BlockPayload {
+        String value
+
+        @Override
+        protected int getSize() {
+            return Block.INT_SIZE + value.length() * 2
+        }
+
+        @Override
+        protected byte getType() {
+            return 0x7f
+        }
+
+        @Override
+        protected void read(DataInputStream inputStream) throws Exception {
+            def chars = new char[inputStream.readInt()]
+            for (int i = 0; i < chars.length; i++) {
+                chars[i] = inputStream.readChar()
+            }
+            value = new String(chars)
+        }
+
+        @Override
+        protected void write(DataOutputStream outputStream) throws Exception {
+            outputStream.writeInt(value.length())
+            outputStream.writeChars(value)
+        }
+    }
+}
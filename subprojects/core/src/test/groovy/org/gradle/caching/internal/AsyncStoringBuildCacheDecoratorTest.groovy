@@ -0,0 +1,245 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal
+
+import org.gradle.api.UncheckedIOException
+import org.gradle.api.internal.file.DefaultTemporaryFileProvider
+import org.gradle.caching.BuildCache
+import org.gradle.caching.BuildCacheEntryReader
+import org.gradle.caching.BuildCacheEntryWriter
+import org.gradle.caching.BuildCacheException
+import org.gradle.caching.BuildCacheKey
+import org.gradle.internal.Factory
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import org.gradle.test.fixtures.ConcurrentTestUtil
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+class AsyncStoringBuildCacheDecoratorTest extends Specification {
+    @Rule
+    final TestNameTestDirectoryProvider temporaryFolder = new TestNameTestDirectoryProvider()
+
+    def key = Mock(BuildCacheKey)
+    def reader = Mock(BuildCacheEntryReader)
+    def delegate = Mock(BuildCache)
+    def executorFactory = new DefaultExecutorFactory()
+
+    def stageDir = temporaryFolder.createDir("tmp")
+    def temporaryFileProvider = new DefaultTemporaryFileProvider(new Factory<File>() {
+        @Override
+        File create() {
+            return stageDir
+        }
+    })
+
+    def cleanup() {
+        executorFactory.stop()
+    }
+
+    def "packs entry on calling thread and pushes it in the background"() {
+        def decorator = new AsyncStoringBuildCacheDecorator(temporaryFileProvider, executorFactory, 1, 4, 0, delegate)
+        def callingThread = Thread.currentThread()
+        def writerThread = null
+        def pushed = new ByteArrayOutputStream()
+        def pushThread = null
+
+        when:
+        decorator.store(key, writer { OutputStream output ->
+            writerThread = Thread.currentThread()
+            output << "content"
+        })
+        decorator.close()
+
+        then:
+        1 * delegate.store(key, _) >> { BuildCacheKey k, BuildCacheEntryWriter w ->
+            pushThread = Thread.currentThread()
+            w.writeTo(pushed)
+        }
+        1 * delegate.close()
+
+        and:
+        writerThread == callingThread
+        pushThread != callingThread
+        pushed.toString() == "content"
+        stageDir.list().length == 0
+    }
+
+    def "close waits for pending entries to be pushed"() {
+        def decorator = new AsyncStoringBuildCacheDecorator(temporaryFileProvider, executorFactory, 2, 4, 0, delegate)
+        def count = 0
+
+        when:
+        5.times {
+            decorator.store(key, writer { OutputStream output -> output << "content" })
+        }
+        decorator.close()
+
+        then:
+        5 * delegate.store(key, _) >> {
+            Thread.sleep(50)
+            synchronized (this) {
+                count++
+            }
+        }
+        1 * delegate.close()
+
+        and:
+        count == 5
+        stageDir.list().length == 0
+    }
+
+    def "failure to pack entry is rethrown by store"() {
+        def decorator = new AsyncStoringBuildCacheDecorator(temporaryFileProvider, executorFactory, 1, 4, 0, delegate)
+
+        when:
+        decorator.store(key, writer { OutputStream output -> throw new IOException("broken") })
+
+        then:
+        def e = thrown(UncheckedIOException)
+        e.cause.message == "broken"
+        0 * delegate.store(_, _)
+        stageDir.list().length == 0
+
+        cleanup:
+        decorator.close()
+    }
+
+    def "failure to push entry is rethrown by next store"() {
+        def decorator = new AsyncStoringBuildCacheDecorator(temporaryFileProvider, executorFactory, 1, 4, 0, delegate)
+        def failure = new BuildCacheException("remote unavailable")
+
+        when:
+        decorator.store(key, writer { OutputStream output -> output << "content" })
+        // The staged entry is deleted once the push has finished
+        ConcurrentTestUtil.poll(10) { assert stageDir.list().length == 0 }
+        decorator.store(key, writer { OutputStream output -> output << "content" })
+
+        then:
+        1 * delegate.store(key, _) >> { throw failure }
+        def e = thrown(BuildCacheException)
+        e.is(failure)
+        stageDir.list().length == 0
+
+        when:
+        decorator.close()
+
+        then:
+        noExceptionThrown()
+        0 * delegate.store(_, _)
+    }
+
+    def "failure to push entry that is not rethrown by store is ignored by close when it is a build cache failure"() {
+        def decorator = new AsyncStoringBuildCacheDecorator(temporaryFileProvider, executorFactory, 1, 4, 0, delegate)
+
+        when:
+        decorator.store(key, writer { OutputStream output -> output << "content" })
+        decorator.close()
+
+        then:
+        1 * delegate.store(key, _) >> { throw new BuildCacheException("remote unavailable") }
+        1 * delegate.close()
+        noExceptionThrown()
+        stageDir.list().length == 0
+    }
+
+    def "unexpected failure to push entry that is not rethrown by store is rethrown by close"() {
+        def decorator = new AsyncStoringBuildCacheDecorator(temporaryFileProvider, executorFactory, 1, 4, 0, delegate)
+        def failure = new IllegalStateException("broken")
+
+        when:
+        decorator.store(key, writer { OutputStream output -> output << "content" })
+        decorator.close()
+
+        then:
+        1 * delegate.store(key, _) >> { throw failure }
+        1 * delegate.close()
+        def e = thrown(IllegalStateException)
+        e.is(failure)
+        stageDir.list().length == 0
+    }
+
+    def "gives up waiting for pending entries after timeout"() {
+        def decorator = new AsyncStoringBuildCacheDecorator(temporaryFileProvider, executorFactory, 1, 4, 1, delegate)
+        def pushing = new CountDownLatch(1)
+        def release = new CountDownLatch(1)
+        def closed = new CountDownLatch(1)
+        def interrupted = false
+        def pushes = 0
+        delegate.store(key, _) >> {
+            pushes++
+            pushing.countDown()
+            while (true) {
+                try {
+                    release.await()
+                    break
+                } catch (InterruptedException e) {
+                    interrupted = true
+                }
+            }
+        }
+        delegate.close() >> { closed.countDown() }
+
+        when:
+        2.times {
+            decorator.store(key, writer { OutputStream output -> output << "content" })
+        }
+        pushing.await(10, TimeUnit.SECONDS)
+        decorator.close()
+
+        then:
+        // Only the entry being pushed is left, and the delegate is not closed while it is being pushed
+        stageDir.list().length == 1
+        closed.count == 1
+
+        when:
+        release.countDown()
+
+        then:
+        closed.await(10, TimeUnit.SECONDS)
+        interrupted
+        pushes == 1
+        stageDir.list().length == 0
+    }
+
+    def "delegates load and description"() {
+        def decorator = new AsyncStoringBuildCacheDecorator(temporaryFileProvider, executorFactory, 1, 4, 0, delegate)
+
+        when:
+        decorator.load(key, reader)
+        decorator.description
+
+        then:
+        1 * delegate.load(key, reader)
+        1 * delegate.description
+
+        cleanup:
+        decorator.close()
+    }
+
+    private static BuildCacheEntryWriter writer(Closure action) {
+        return new BuildCacheEntryWriter() {
+            @Override
+            void writeTo(OutputStream output) throws IOException {
+                action.call(output)
+            }
+        }
+    }
+}
@@ -16,6 +16,8 @@
 
 package org.gradle.caching.internal
 
+import com.google.common.hash.Hashing
+import org.apache.commons.lang.SerializationUtils
 import spock.lang.Specification
 
 class DefaultBuildCacheKeyBuilderTest extends Specification {
@@ -32,6 +34,50 @@ class DefaultBuildCacheKeyBuilderTest extends Specification {
         hashStrings(["abc", "de"]).hashCode != hashStrings(["ab", "cde"]).hashCode
     }
 
+    def 'hash collision for strings with murmur3'() {
+        def left = new DefaultBuildCacheKeyBuilder(Hashing.murmur3_128())
+        def right = new DefaultBuildCacheKeyBuilder(Hashing.murmur3_128())
+        ["abc", "de"].each { left.putString(it) }
+        ["ab", "cde"].each { right.putString(it) }
+
+        expect:
+        left.build().hashCode != right.build().hashCode
+    }
+
+    def 'murmur3 keys have the same length as md5 keys'() {
+        def md5 = new DefaultBuildCacheKeyBuilder(Hashing.md5()).putString("abc").build()
+        def murmur3 = new DefaultBuildCacheKeyBuilder(Hashing.murmur3_128()).putString("abc").build()
+
+        expect:
+        murmur3.hashCode.length() == md5.hashCode.length()
+        murmur3.hashCode != md5.hashCode
+    }
+
+    def 'serializable values are hashed as their serialized form'() {
+        def value = new SerializableValue(name: "value", count: 2)
+        def serialized = new DefaultBuildCacheKeyBuilder()
+        def explicit = new DefaultBuildCacheKeyBuilder()
+
+        when:
+        serialized.appendToCacheKey(value)
+        serialized.appendToCacheKey(new SerializableValue(name: "other value", count: 3))
+        explicit.putBytes(SerializationUtils.serialize(value))
+        explicit.putBytes(SerializationUtils.serialize(new SerializableValue(name: "other value", count: 3)))
+
+        then:
+        serialized.build().hashCode == explicit.build().hashCode
+    }
+
+    def 'create uses md5 by default'() {
+        expect:
+        DefaultBuildCacheKeyBuilder.create().putString("abc").build().hashCode == new DefaultBuildCacheKeyBuilder().putString("abc").build().hashCode
+    }
+
+    static class SerializableValue implements Serializable {
+        String name
+        int count
+    }
+
     def hashStrings(List<String> strings) {
         def builder = new DefaultBuildCacheKeyBuilder()
         strings.each { builder.putString(it) }
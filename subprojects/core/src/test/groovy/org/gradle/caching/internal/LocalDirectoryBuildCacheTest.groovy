@@ -0,0 +1,157 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal
+
+import org.gradle.cache.CacheBuilder
+import org.gradle.cache.CacheRepository
+import org.gradle.cache.PersistentCache
+import org.gradle.caching.BuildCacheEntryReader
+import org.gradle.caching.BuildCacheEntryWriter
+import org.gradle.caching.BuildCacheKey
+import org.gradle.internal.Factory
+import org.gradle.test.fixtures.file.TestFile
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+class LocalDirectoryBuildCacheTest extends Specification {
+    @Rule
+    final TestNameTestDirectoryProvider temporaryFolder = new TestNameTestDirectoryProvider()
+
+    def cacheDir = temporaryFolder.createDir("cache")
+    def persistentCache = Mock(PersistentCache) {
+        getBaseDir() >> cacheDir
+        useCache(_ as Factory) >> { Factory factory -> factory.create() }
+        useCache(_ as Runnable) >> { Runnable action -> action.run() }
+    }
+    def cacheBuilder = Mock(CacheBuilder) {
+        withDisplayName(_) >> { cacheBuilder }
+        withLockOptions(_) >> { cacheBuilder }
+        open() >> persistentCache
+    }
+    def cacheRepository = Mock(CacheRepository) {
+        cache(cacheDir) >> cacheBuilder
+    }
+
+    def "can store and load entry"() {
+        def cache = new LocalDirectoryBuildCache(cacheRepository, cacheDir)
+
+        when:
+        cache.store(key("0123abcd"), writer("content"))
+
+        then:
+        load(cache, "0123abcd") == "content"
+        load(cache, "0123abce") == null
+        cacheDir.list() as List == ["0123abcd"]
+    }
+
+    def "does not leave partial entry when store fails"() {
+        def cache = new LocalDirectoryBuildCache(cacheRepository, cacheDir)
+
+        when:
+        cache.store(key("0123abcd"), new BuildCacheEntryWriter() {
+            @Override
+            void writeTo(OutputStream output) throws IOException {
+                output << "partial"
+                throw new IOException("broken")
+            }
+        })
+
+        then:
+        thrown(Exception)
+        cacheDir.list().length == 0
+    }
+
+    def "deletes temporary files left behind by earlier processes when opened"() {
+        def tempFile = cacheDir.file("0123abcd-123456.part").createFile()
+        def propertiesFile = cacheDir.file("cache.properties").createFile()
+        def entry = cacheDir.file("0123abce").createFile()
+
+        when:
+        new LocalDirectoryBuildCache(cacheRepository, cacheDir)
+
+        then:
+        !tempFile.exists()
+        propertiesFile.exists()
+        entry.exists()
+    }
+
+    def "evicts least recently used entries when cache exceeds max size"() {
+        def cache = new LocalDirectoryBuildCache(cacheRepository, cacheDir, 1000)
+        def propertiesFile = cacheDir.file("cache.properties").createFile()
+
+        when:
+        cache.store(key("a1"), writer("x" * 400))
+        cache.store(key("a2"), writer("x" * 400))
+        entry("a1").lastModified = 1000
+        entry("a2").lastModified = 2000
+        // Use the oldest entry
+        load(cache, "a1")
+        cache.store(key("a3"), writer("x" * 400))
+
+        then:
+        entry("a1").exists()
+        !entry("a2").exists()
+        entry("a3").exists()
+        propertiesFile.exists()
+    }
+
+    def "does not evict entries when size is not limited"() {
+        def cache = new LocalDirectoryBuildCache(cacheRepository, cacheDir)
+
+        when:
+        10.times {
+            cache.store(key("a$it"), writer("x" * 400))
+        }
+
+        then:
+        cacheDir.list().length == 10
+    }
+
+    private TestFile entry(String hashCode) {
+        return cacheDir.file(hashCode)
+    }
+
+    private static String load(LocalDirectoryBuildCache cache, String hashCode) {
+        String result = null
+        cache.load(key(hashCode), new BuildCacheEntryReader() {
+            @Override
+            void readFrom(InputStream input) throws IOException {
+                result = input.text
+            }
+        })
+        return result
+    }
+
+    private static BuildCacheKey key(String hashCode) {
+        return new BuildCacheKey() {
+            @Override
+            String getHashCode() {
+                return hashCode
+            }
+        }
+    }
+
+    private static BuildCacheEntryWriter writer(String content) {
+        return new BuildCacheEntryWriter() {
+            @Override
+            void writeTo(OutputStream output) throws IOException {
+                output << content
+            }
+        }
+    }
+}
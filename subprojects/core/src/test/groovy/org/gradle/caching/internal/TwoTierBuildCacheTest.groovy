@@ -0,0 +1,204 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal
+
+import org.gradle.caching.BuildCache
+import org.gradle.caching.BuildCacheEntryReader
+import org.gradle.caching.BuildCacheEntryWriter
+import org.gradle.caching.BuildCacheException
+import org.gradle.caching.BuildCacheKey
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import spock.lang.Specification
+
+class TwoTierBuildCacheTest extends Specification {
+    private static final String HASH = "0123abcd"
+
+    def key = Stub(BuildCacheKey) {
+        getHashCode() >> HASH
+    }
+    def local = new InMemoryBuildCache("local")
+    def remote = new InMemoryBuildCache("remote")
+    def executorFactory = new DefaultExecutorFactory()
+
+    def cleanup() {
+        executorFactory.stop()
+    }
+
+    def "loads entry from local cache"() {
+        def cache = twoTierCache(local, remote, false)
+        local.entries[HASH] = "content"
+
+        expect:
+        load(cache) == "content"
+        remote.loads == 0
+        remote.stores == 0
+    }
+
+    def "copies entry found in remote cache to local cache"() {
+        def cache = twoTierCache(local, remote, true)
+        remote.entries[HASH] = "content"
+
+        expect:
+        load(cache) == "content"
+        local.entries[HASH] == "content"
+
+        and:
+        load(cache) == "content"
+        remote.loads == 1
+        remote.stores == 0
+    }
+
+    def "misses when neither cache has entry"() {
+        def cache = twoTierCache(local, remote, true)
+
+        expect:
+        load(cache) == null
+        local.entries.isEmpty()
+    }
+
+    def "pushes entry found in local cache to remote cache once"() {
+        def cache = twoTierCache(local, remote, true)
+        local.entries[HASH] = "content"
+
+        when:
+        3.times { load(cache) }
+        cache.close()
+
+        then:
+        remote.entries[HASH] == "content"
+        remote.loads == 1
+        remote.stores == 1
+    }
+
+    def "does not push entry found in local cache that is already in remote cache"() {
+        def cache = twoTierCache(local, remote, true)
+        local.entries[HASH] = "content"
+        remote.entries[HASH] = "content"
+
+        when:
+        load(cache)
+        cache.close()
+
+        then:
+        remote.loads == 1
+        remote.stores == 0
+    }
+
+    def "stores entry in both caches"() {
+        def cache = twoTierCache(local, remote, true)
+
+        when:
+        cache.store(key, new BuildCacheEntryWriter() {
+            @Override
+            void writeTo(OutputStream output) throws IOException {
+                output << "content"
+            }
+        })
+        load(cache)
+        cache.close()
+
+        then:
+        local.entries[HASH] == "content"
+        remote.entries[HASH] == "content"
+        remote.stores == 1
+    }
+
+    def "does not fail when entry is removed from local cache before it is pushed"() {
+        def remote = Mock(BuildCache)
+        def cache = twoTierCache(local, remote, true)
+
+        when:
+        cache.store(key, new BuildCacheEntryWriter() {
+            @Override
+            void writeTo(OutputStream output) throws IOException {
+                output << "content"
+            }
+        })
+        cache.close()
+
+        then:
+        1 * remote.store(key, _) >> { BuildCacheKey k, BuildCacheEntryWriter writer ->
+            local.entries.clear()
+            writer.writeTo(new ByteArrayOutputStream())
+        }
+        noExceptionThrown()
+    }
+
+    def "closes both caches"() {
+        def local = Mock(BuildCache)
+        def remote = Mock(BuildCache)
+        def cache = twoTierCache(local, remote, true)
+
+        when:
+        cache.close()
+
+        then:
+        1 * remote.close()
+
+        then:
+        1 * local.close()
+    }
+
+    private TwoTierBuildCache twoTierCache(BuildCache local, BuildCache remote, boolean pushLocalHitsToRemote) {
+        return new TwoTierBuildCache(local, remote, pushLocalHitsToRemote, executorFactory, 2, 8, 0)
+    }
+
+    private String load(BuildCache cache) {
+        String result = null
+        cache.load(key, new BuildCacheEntryReader() {
+            @Override
+            void readFrom(InputStream input) throws IOException {
+                result = input.text
+            }
+        })
+        return result
+    }
+
+    private static class InMemoryBuildCache implements BuildCache {
+        final String description
+        final Map<String, String> entries = [:]
+        int loads
+        int stores
+
+        InMemoryBuildCache(String description) {
+            this.description = description
+        }
+
+        @Override
+        boolean load(BuildCacheKey key, BuildCacheEntryReader reader) throws BuildCacheException {
+            loads++
+            def content = entries[key.getHashCode()]
+            if (content == null) {
+                return false
+            }
+            reader.readFrom(new ByteArrayInputStream(content.bytes))
+            return true
+        }
+
+        @Override
+        void store(BuildCacheKey key, BuildCacheEntryWriter writer) throws BuildCacheException {
+            stores++
+            def output = new ByteArrayOutputStream()
+            writer.writeTo(output)
+            entries[key.getHashCode()] = output.toString()
+        }
+
+        @Override
+        void close() throws IOException {
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.tasks
+
+import org.gradle.api.UncheckedIOException
+import org.gradle.api.internal.TaskOutputsInternal
+import org.gradle.caching.internal.tasks.origin.TaskOutputOriginReader
+import org.gradle.caching.internal.tasks.origin.TaskOutputOriginWriter
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import org.gradle.internal.concurrent.ExecutorFactory
+import org.gradle.internal.concurrent.StoppableExecutor
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import java.util.concurrent.Callable
+import java.util.concurrent.FutureTask
+
+class ParallelGZipTaskOutputPackerTest extends Specification {
+    def taskOutputs = Stub(TaskOutputsInternal)
+    def readOrigin = Stub(TaskOutputOriginReader)
+    def writeOrigin = Stub(TaskOutputOriginWriter)
+    def delegate = new BytesPacker()
+    def executorFactory = new DefaultExecutorFactory()
+    def packer = new ParallelGZipTaskOutputPacker(delegate, executorFactory, 4)
+    def gzipPacker = new GZipTaskOutputPacker(delegate)
+
+    def cleanup() {
+        packer.stop()
+        executorFactory.stop()
+    }
+
+    @Unroll
+    def "output of #size bytes compressed in parallel can be read by gzip packer"() {
+        delegate.content = content(size)
+        def output = new ByteArrayOutputStream()
+
+        when:
+        packer.pack(taskOutputs, output, writeOrigin)
+        delegate.content = null
+        gzipPacker.unpack(taskOutputs, new ByteArrayInputStream(output.toByteArray()), readOrigin)
+
+        then:
+        delegate.content == content(size)
+
+        where:
+        size << [0, 1, 128 * 1024, 128 * 1024 + 1, 3 * 1024 * 1024 + 17]
+    }
+
+    def "can read output of gzip packer"() {
+        delegate.content = content(1024 * 1024)
+        def output = new ByteArrayOutputStream()
+
+        when:
+        gzipPacker.pack(taskOutputs, output, writeOrigin)
+        delegate.content = null
+        packer.unpack(taskOutputs, new ByteArrayInputStream(output.toByteArray()), readOrigin)
+
+        then:
+        delegate.content == content(1024 * 1024)
+    }
+
+    @Unroll
+    def "fails when a chunk cannot be compressed (delegate closes output: #closeOutput)"() {
+        def failure = new IOException("broken")
+        def failingExecutor = Stub(StoppableExecutor) {
+            submit(_ as Callable) >> { Callable task ->
+                def future = new FutureTask({ throw failure } as Callable)
+                future.run()
+                future
+            }
+        }
+        def failingPacker = new ParallelGZipTaskOutputPacker(delegate, Stub(ExecutorFactory) {
+            create(_, _) >> failingExecutor
+        }, 4)
+        delegate.content = content(1024)
+        delegate.closeOutput = closeOutput
+
+        when:
+        failingPacker.pack(taskOutputs, new ByteArrayOutputStream(), writeOrigin)
+
+        then:
+        def e = thrown(UncheckedIOException)
+        e.cause.cause.is(failure)
+
+        where:
+        closeOutput << [true, false]
+    }
+
+    private static byte[] content(int size) {
+        def random = new Random(size)
+        def bytes = new byte[size]
+        for (int i = 0; i < size; i++) {
+            bytes[i] = random.nextInt(8) == 0 ? (byte) random.nextInt() : (byte) ('a' + i % 26)
+        }
+        return bytes
+    }
+
+    private static class BytesPacker implements TaskOutputPacker {
+        byte[] content
+        boolean closeOutput = true
+
+        @Override
+        void pack(TaskOutputsInternal taskOutputs, OutputStream output, TaskOutputOriginWriter writeOrigin) {
+            output.write(content)
+            if (closeOutput) {
+                output.close()
+            }
+        }
+
+        @Override
+        void unpack(TaskOutputsInternal taskOutputs, InputStream input, TaskOutputOriginReader readOrigin) {
+            content = input.bytes
+        }
+    }
+}
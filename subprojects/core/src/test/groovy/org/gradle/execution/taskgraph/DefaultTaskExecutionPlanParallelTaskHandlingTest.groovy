@@ -40,12 +40,16 @@ class DefaultTaskExecutionPlanParallelTaskHandlingTest extends AbstractProjectBu
 
     FileSystem fs = NativeServicesTestFixture.instance.get(FileSystem)
 
-    DefaultTaskExecutionPlan executionPlan = new DefaultTaskExecutionPlan(Stub(BuildCancellationToken), true)
+    DefaultTaskExecutionPlan executionPlan = createExecutionPlan(true)
     ProjectInternal root = createRootProject(temporaryFolder.testDirectory)
 
     List<TaskInfo> startedTasks = []
     List<Thread> blockedThreads = []
 
+    protected DefaultTaskExecutionPlan createExecutionPlan(boolean intraProjectParallelization) {
+        return new DefaultTaskExecutionPlan(Stub(BuildCancellationToken), intraProjectParallelization)
+    }
+
     void cleanup() {
         completeAllStartedTasks()
         allBlockedThreadsFinish()
@@ -99,7 +103,7 @@ class DefaultTaskExecutionPlanParallelTaskHandlingTest extends AbstractProjectBu
 
     def "tasks arent parallelized unless toggle is on"() {
         given:
-        executionPlan = new DefaultTaskExecutionPlan(Stub(BuildCancellationToken), false)
+        executionPlan = createExecutionPlan(false)
         Task a = root.task("a")
         Task b = root.task("b")
 
@@ -113,6 +117,27 @@ class DefaultTaskExecutionPlanParallelTaskHandlingTest extends AbstractProjectBu
         noMoreTasksCurrentlyAvailableForExecution()
     }
 
+    def "workers wait for running tasks to complete so that they can run finalizers"() {
+        given:
+        Task a = root.task("a", type: Parallel)
+        Task finalizer = root.task("finalizer", type: Parallel)
+        a.finalizedBy(finalizer)
+
+        when:
+        addToGraphAndPopulate(a)
+        startTasks(1)
+
+        then:
+        blockedThreads << blockedThread { startedTasks << executionPlan.getTaskToExecute() }
+
+        when:
+        completeAllStartedTasks()
+        allBlockedThreadsFinish()
+
+        then:
+        startedTasks*.task == [finalizer]
+    }
+
     def "two dependent parallelizable tasks are not executed in parallel"() {
         given:
         Task a = root.task("a", type: Parallel)
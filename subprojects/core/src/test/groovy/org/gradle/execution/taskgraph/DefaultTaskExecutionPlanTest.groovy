@@ -45,7 +45,11 @@ public class DefaultTaskExecutionPlanTest extends AbstractProjectBuilderSpec {
 
     def setup() {
         root = createRootProject(temporaryFolder.testDirectory);
-        executionPlan = new DefaultTaskExecutionPlan(cancellationHandler)
+        executionPlan = createExecutionPlan(cancellationHandler)
+    }
+
+    protected DefaultTaskExecutionPlan createExecutionPlan(BuildCancellationToken cancellationToken) {
+        return new DefaultTaskExecutionPlan(cancellationToken)
     }
 
     private void addToGraphAndPopulate(List tasks) {
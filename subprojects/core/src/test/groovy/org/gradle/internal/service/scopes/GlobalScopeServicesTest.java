@@ -63,7 +63,9 @@ import org.gradle.internal.service.DefaultServiceRegistry;
 import org.gradle.internal.service.ServiceRegistry;
 import org.gradle.internal.time.TimeProvider;
 import org.gradle.internal.time.TrueTimeProvider;
+import org.gradle.process.internal.health.memory.DefaultMemoryAdmissionController;
 import org.gradle.process.internal.health.memory.DefaultMemoryManager;
+import org.gradle.process.internal.health.memory.MemoryAdmissionController;
 import org.gradle.process.internal.health.memory.MemoryInfo;
 import org.gradle.process.internal.health.memory.MemoryManager;
 import org.gradle.testfixtures.internal.NativeServicesTestFixture;
@@ -223,4 +225,9 @@ public class GlobalScopeServicesTest {
     public void providesAMemoryManager() throws Exception {
         assertThat(registry().get(MemoryManager.class), instanceOf(DefaultMemoryManager.class));
     }
+
+    @Test
+    public void providesAMemoryAdmissionController() throws Exception {
+        assertThat(registry().get(MemoryAdmissionController.class), instanceOf(DefaultMemoryAdmissionController.class));
+    }
 }
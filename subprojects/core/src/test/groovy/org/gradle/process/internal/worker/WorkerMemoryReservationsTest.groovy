@@ -0,0 +1,78 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.process.internal.worker
+
+import org.gradle.api.Transformer
+import org.gradle.internal.operations.BuildOperationContext
+import org.gradle.internal.progress.BuildOperationDetails
+import org.gradle.internal.progress.BuildOperationExecutor
+import org.gradle.process.internal.health.memory.MemoryAdmissionController
+import org.gradle.process.internal.health.memory.MemoryReservation
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class WorkerMemoryReservationsTest extends Specification {
+    private static final long MB = 1024 * 1024
+
+    def admissionController = Mock(MemoryAdmissionController)
+    def buildOperationExecutor = Mock(BuildOperationExecutor)
+    def reservation = Stub(MemoryReservation)
+    def reservations = new WorkerMemoryReservations(admissionController, buildOperationExecutor)
+
+    def "reserves memory without running a build operation when memory is available"() {
+        when:
+        def result = reservations.reserve("worker", "1g", null)
+
+        then:
+        result == reservation
+        1 * admissionController.tryReserve(1152 * MB) >> reservation
+        0 * _
+    }
+
+    def "runs build operation while waiting for memory"() {
+        def parent = Stub(BuildOperationExecutor.Operation)
+
+        when:
+        def result = reservations.reserve("worker", "1g", parent)
+
+        then:
+        result == reservation
+        1 * admissionController.tryReserve(1152 * MB) >> null
+        1 * buildOperationExecutor.run({ BuildOperationDetails details ->
+            details.displayName == "Wait for memory to start worker" && details.parent == parent && details.operationDescriptor.memoryAmountBytes == 1152 * MB
+        }, _ as Transformer) >> { BuildOperationDetails details, Transformer transformer -> transformer.transform(Stub(BuildOperationContext)) }
+        1 * admissionController.reserve(1152 * MB) >> reservation
+        0 * _
+    }
+
+    @Unroll
+    def "projects memory of worker with max heap size #maxHeapSize"() {
+        expect:
+        WorkerMemoryReservations.getProjectedMemoryBytes(maxHeapSize) == (heapSizeMb + 128) * MB
+
+        where:
+        maxHeapSize  | heapSizeMb
+        null         | 512
+        "256m"       | 256
+        "256M"       | 256
+        "2g"         | 2048
+        "4096k"      | 4
+        "1073741824" | 1024
+        "lots"       | 512
+    }
+}
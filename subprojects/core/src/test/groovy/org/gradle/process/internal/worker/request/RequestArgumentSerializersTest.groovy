@@ -0,0 +1,150 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.process.internal.worker.request
+
+import org.gradle.internal.remote.ObjectConnection
+import org.gradle.internal.serialize.Decoder
+import org.gradle.internal.serialize.Encoder
+import org.gradle.internal.serialize.Serializer
+import org.gradle.internal.serialize.SerializerSpec
+
+class RequestArgumentSerializersTest extends SerializerSpec {
+    def argumentSerializers = new RequestArgumentSerializers()
+    def classLoader = getClass().classLoader
+
+    def "serializes values of built-in types more efficiently than Java serialization"() {
+        def serializer = argumentSerializers.getSerializer(classLoader)
+
+        expect:
+        usesEfficientSerialization(value, serializer) == value
+
+        where:
+        value << ["value", true, 123, 123L, new File("some-file")]
+    }
+
+    def "serializes null values"() {
+        def serializer = argumentSerializers.getSerializer(classLoader)
+
+        expect:
+        toBytes(null, serializer).length == 1
+        serialize(null, serializer) == null
+    }
+
+    def "falls back to Java serialization for other types"() {
+        def serializer = argumentSerializers.getSerializer(classLoader)
+
+        expect:
+        serialize(["a", "b"], serializer) == ["a", "b"]
+        serialize(new RuntimeException("broken"), serializer).message == "broken"
+    }
+
+    def "uses registered serializers"() {
+        argumentSerializers.add(Thing, ThingSerializer)
+        def serializer = argumentSerializers.getSerializer(classLoader)
+
+        expect:
+        toBytes(new Thing("thing"), serializer).length <= 7
+        serialize(new Thing("thing"), serializer).name == "thing"
+    }
+
+    def "passes class loader to registered serializers"() {
+        argumentSerializers.add(Thing, ClassLoaderAwareThingSerializer)
+        def serializer = argumentSerializers.getSerializer(classLoader)
+
+        expect:
+        serialize(new Thing("thing"), serializer).name == classLoader.toString()
+    }
+
+    def "serializes requests"() {
+        argumentSerializers.add(Thing, ThingSerializer)
+        def serializer = argumentSerializers.getRequestSerializer(classLoader)
+
+        when:
+        def result = serialize(new Request("doSomething", [String, int.class, Thing, Object[].class] as Class[], ["value", 12, new Thing("thing"), null] as Object[]), serializer)
+
+        then:
+        result.methodName == "doSomething"
+        result.paramTypes == [String, int.class, Thing, Object[].class] as Class[]
+        result.args[0] == "value"
+        result.args[1] == 12
+        result.args[2].name == "thing"
+        result.args[3] == null
+    }
+
+    def "serializes requests for methods without parameters"() {
+        def serializer = argumentSerializers.getRequestSerializer(classLoader)
+
+        when:
+        def result = serialize(new Request("doSomething", [] as Class[], null), serializer)
+
+        then:
+        result.methodName == "doSomething"
+        result.paramTypes.length == 0
+        result.args == null
+    }
+
+    def "registers serializers for requests and results with connection"() {
+        def connection = Mock(ObjectConnection)
+
+        when:
+        argumentSerializers.useFor(connection, classLoader)
+
+        then:
+        1 * connection.useParameterSerializers({ it.canSerialize(Request) })
+        1 * connection.useParameterSerializers({ it.canSerialize(Object) })
+        0 * connection._
+    }
+
+    static class Thing {
+        final String name
+
+        Thing(String name) {
+            this.name = name
+        }
+    }
+
+    static class ThingSerializer implements Serializer<Thing> {
+        @Override
+        Thing read(Decoder decoder) throws Exception {
+            return new Thing(decoder.readString())
+        }
+
+        @Override
+        void write(Encoder encoder, Thing value) throws Exception {
+            encoder.writeString(value.name)
+        }
+    }
+
+    static class ClassLoaderAwareThingSerializer implements Serializer<Thing> {
+        private final ClassLoader classLoader
+
+        ClassLoaderAwareThingSerializer(ClassLoader classLoader) {
+            this.classLoader = classLoader
+        }
+
+        @Override
+        Thing read(Decoder decoder) throws Exception {
+            decoder.readString()
+            return new Thing(classLoader.toString())
+        }
+
+        @Override
+        void write(Encoder encoder, Thing value) throws Exception {
+            encoder.writeString(value.name)
+        }
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.integtests.resolve.http
+
+import org.gradle.api.internal.artifacts.ivyservice.ParallelArtifactDownloader
+import org.gradle.integtests.fixtures.AbstractHttpDependencyResolutionTest
+import org.gradle.test.fixtures.server.http.HttpServer
+import org.gradle.test.fixtures.server.http.MavenHttpModule
+
+import javax.servlet.http.HttpServletRequest
+import javax.servlet.http.HttpServletResponse
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Downloads the files of a configuration from a slow HTTP repository with and without concurrent downloads, to compare the results and the time taken.
+ */
+class ParallelArtifactDownloadIntegrationTest extends AbstractHttpDependencyResolutionTest {
+    private static final int LATENCY_MILLIS = 300
+    private static final int MODULE_COUNT = 8
+
+    def inFlight = new AtomicInteger()
+    def maxInFlight = new AtomicInteger()
+    List<MavenHttpModule> modules = []
+
+    def setup() {
+        def shared = mavenHttpRepo.module('group', 'shared', '1.0').publish()
+        modules << shared
+        (1..MODULE_COUNT).each {
+            modules << mavenHttpRepo.module('group', "module$it", '1.0').dependsOn(shared).publish()
+        }
+
+        buildFile << """
+repositories {
+    maven { url '${mavenHttpRepo.uri}' }
+}
+configurations { compile }
+dependencies {
+    ${(1..MODULE_COUNT).reverse().collect { "compile 'group:module$it:1.0'" }.join('\n    ')}
+}
+task resolve {
+    doLast {
+        file('files.txt').text = configurations.compile.files.collect { it.name }.join('\\n')
+        file('artifacts.txt').text = configurations.compile.resolvedConfiguration.resolvedArtifacts.collect { it.id.displayName }.join('\\n')
+    }
+}
+"""
+    }
+
+    def "downloads the same files in the same order faster when downloading concurrently"() {
+        when:
+        def sequentialMillis = resolveWithLatency(0)
+        def sequentialFiles = file('files.txt').text
+        def sequentialArtifacts = file('artifacts.txt').text
+
+        then:
+        maxInFlight.get() == 1
+
+        when:
+        def parallelMillis = resolveWithLatency(MODULE_COUNT)
+
+        then:
+        maxInFlight.get() > 1
+        file('files.txt').text == sequentialFiles
+        file('artifacts.txt').text == sequentialArtifacts
+
+        and:
+        println "Downloaded ${modules.size()} files with ${LATENCY_MILLIS}ms latency: sequential ${sequentialMillis}ms, concurrent ${parallelMillis}ms"
+    }
+
+    def "reports download failures in the same way when downloading concurrently"() {
+        buildFile << """
+task listFiles {
+    doLast {
+        configurations.compile.files
+    }
+}
+"""
+        when:
+        server.resetExpectations()
+        modules.each { module ->
+            module.pom.expectGet()
+            if (module == modules[3]) {
+                // The failed download is attempted again when the files are collected, which reports the failure
+                module.artifact.expectGetBroken()
+                module.artifact.expectGetBroken()
+            } else {
+                module.artifact.allowGetOrHead()
+            }
+        }
+        executer.withArgument("-D${ParallelArtifactDownloader.PARALLEL_ARTIFACT_DOWNLOADS_PROPERTY}=$MODULE_COUNT")
+        fails 'listFiles'
+
+        then:
+        failure.assertHasCause("Could not resolve all files for configuration ':compile'.")
+        failure.assertHasCause("Could not download module3-1.0.jar (group:module3:1.0)")
+    }
+
+    private long resolveWithLatency(int parallelArtifactDownloads) {
+        server.resetExpectations()
+        inFlight.set(0)
+        maxInFlight.set(0)
+        modules.each { module ->
+            module.pom.expectGet()
+            server.expect(module.artifactPath, false, ['GET'], new HttpServer.ActionSupport("return ${module.artifactFile.name} after ${LATENCY_MILLIS}ms") {
+                void handle(HttpServletRequest request, HttpServletResponse response) {
+                    def current = inFlight.incrementAndGet()
+                    synchronized (maxInFlight) {
+                        maxInFlight.set(Math.max(maxInFlight.get(), current))
+                    }
+                    try {
+                        Thread.sleep(LATENCY_MILLIS)
+                        response.contentLength = module.artifactFile.length()
+                        response.outputStream << module.artifactFile.bytes
+                    } finally {
+                        inFlight.decrementAndGet()
+                    }
+                }
+            })
+        }
+
+        // Use a fresh cache for each run, so that all of the files are downloaded from the repository
+        executer.withGradleUserHomeDir(file("user-home-$parallelArtifactDownloads"))
+        executer.withArgument("-D${ParallelArtifactDownloader.PARALLEL_ARTIFACT_DOWNLOADS_PROPERTY}=$parallelArtifactDownloads")
+        def start = System.currentTimeMillis()
+        run 'resolve'
+        return System.currentTimeMillis() - start
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.integtests.resolve.http
+
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.DefaultArtifactDependencyResolver
+import org.gradle.integtests.fixtures.AbstractHttpDependencyResolutionTest
+import org.gradle.test.fixtures.server.http.HttpServer
+import org.gradle.test.fixtures.server.http.MavenHttpModule
+
+import javax.servlet.http.HttpServletRequest
+import javax.servlet.http.HttpServletResponse
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Resolves a graph from a slow HTTP repository with and without concurrent metadata fetching, to compare the results and the time taken.
+ */
+class ParallelMetadataResolveIntegrationTest extends AbstractHttpDependencyResolutionTest {
+    private static final int LATENCY_MILLIS = 300
+    private static final int MODULE_COUNT = 8
+
+    def inFlight = new AtomicInteger()
+    def maxInFlight = new AtomicInteger()
+    List<MavenHttpModule> modules = []
+
+    def setup() {
+        def shared = mavenHttpRepo.module('group', 'shared', '1.0').publish()
+        def sharedNewer = mavenHttpRepo.module('group', 'shared', '1.1').publish()
+        modules << shared << sharedNewer
+        (1..MODULE_COUNT).each {
+            // The last module pulls in a newer version of the shared module, so that a conflict is resolved
+            def sharedVersion = it == MODULE_COUNT ? '1.1' : '1.0'
+            modules << mavenHttpRepo.module('group', "module$it", '1.0').dependsOn('group', 'shared', sharedVersion).publish()
+        }
+
+        buildFile << """
+repositories {
+    maven { url '${mavenHttpRepo.uri}' }
+}
+configurations { compile }
+dependencies {
+    ${(1..MODULE_COUNT).collect { "compile 'group:module$it:1.0'" }.join('\n    ')}
+}
+task resolve {
+    doLast {
+        def result = configurations.compile.incoming.resolutionResult
+        file('result.txt').text = result.allComponents.collect { "\${it.id} \${it.selectionReason.description}" }.join('\\n')
+    }
+}
+"""
+    }
+
+    def "resolves the same graph faster when fetching metadata concurrently"() {
+        when:
+        def sequentialMillis = resolveWithLatency(0)
+        def sequentialResult = file('result.txt').text
+
+        then:
+        maxInFlight.get() == 1
+
+        when:
+        def parallelMillis = resolveWithLatency(MODULE_COUNT)
+        def parallelResult = file('result.txt').text
+
+        then:
+        maxInFlight.get() > 1
+        parallelResult == sequentialResult
+        parallelResult.contains('group:shared:1.1 conflict resolution')
+
+        and:
+        println "Resolved ${modules.size()} modules with ${LATENCY_MILLIS}ms latency: sequential ${sequentialMillis}ms, concurrent ${parallelMillis}ms"
+    }
+
+    def "runs component metadata and component selection rules on the resolving thread when fetching metadata concurrently"() {
+        given:
+        buildFile << """
+def ruleThreads = Collections.synchronizedSet(new HashSet())
+dependencies {
+    components {
+        all { details -> ruleThreads << Thread.currentThread() }
+    }
+}
+configurations.compile.resolutionStrategy.componentSelection {
+    all { selection -> ruleThreads << Thread.currentThread() }
+}
+task checkRuleThreads {
+    doLast {
+        configurations.compile.resolve()
+        assert !ruleThreads.empty
+        assert ruleThreads == [Thread.currentThread()] as Set
+    }
+}
+"""
+
+        when:
+        resolveWithLatency(MODULE_COUNT, 'checkRuleThreads')
+
+        then:
+        maxInFlight.get() > 1
+    }
+
+    private long resolveWithLatency(int parallelMetadataFetches, String task = 'resolve') {
+        server.resetExpectations()
+        inFlight.set(0)
+        maxInFlight.set(0)
+        modules.each { module ->
+            server.expect(module.pomPath, false, ['GET'], new HttpServer.ActionSupport("return ${module.pomFile.name} after ${LATENCY_MILLIS}ms") {
+                void handle(HttpServletRequest request, HttpServletResponse response) {
+                    def current = inFlight.incrementAndGet()
+                    synchronized (maxInFlight) {
+                        maxInFlight.set(Math.max(maxInFlight.get(), current))
+                    }
+                    try {
+                        Thread.sleep(LATENCY_MILLIS)
+                        response.contentLength = module.pomFile.length()
+                        response.outputStream << module.pomFile.bytes
+                    } finally {
+                        inFlight.decrementAndGet()
+                    }
+                }
+            })
+        }
+
+        // Use a fresh cache for each run, so that all of the metadata is fetched from the repository
+        executer.withGradleUserHomeDir(file("user-home-$parallelMetadataFetches"))
+        executer.withArgument("-D${DefaultArtifactDependencyResolver.PARALLEL_METADATA_FETCHES_PROPERTY}=$parallelMetadataFetches")
+        def start = System.currentTimeMillis()
+        run task
+        return System.currentTimeMillis() - start
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.integtests.resolve.transform
+
+import org.gradle.api.internal.artifacts.transform.TransformedFileCache
+import org.gradle.integtests.fixtures.AbstractHttpDependencyResolutionTest
+
+class TransformedFileCacheIntegrationTest extends AbstractHttpDependencyResolutionTest {
+    def setup() {
+        requireOwnGradleUserHomeDir()
+
+        def m1 = mavenRepo.module("test", "test", "1.3").publish()
+        m1.artifactFile.text = "1234"
+        def m2 = mavenRepo.module("test", "test2", "2.3").publish()
+        m2.artifactFile.text = "12"
+
+        settingsFile << """
+            rootProject.name = 'root'
+            include 'app1'
+            include 'app2'
+        """
+
+        buildFile << """
+class FileSizer extends ArtifactTransform {
+    void configure(AttributeContainer from, ArtifactTransformTargets targets) {
+        from.attribute(Attribute.of('artifactType', String), "jar")
+        targets.newTarget().attribute(Attribute.of('artifactType', String), "size")
+    }
+
+    List<File> transform(File input, AttributeContainer target) {
+        def output = new File(outputDirectory, input.name + ".txt")
+        println "Transforming \${input.name} to \${output.name}"
+        output.text = String.valueOf(input.length())
+        return [output]
+    }
+}
+
+subprojects {
+    repositories {
+        maven { url "${mavenRepo.uri}" }
+    }
+    configurations {
+        compile
+    }
+    dependencies {
+        compile 'test:test:1.3'
+        compile 'test:test2:2.3'
+        registerTransform(FileSizer) {
+            outputDirectory = project.file("\${buildDir}/transformed")
+        }
+    }
+    task resolve(type: Copy) {
+        from configurations.compile.incoming.getFiles(artifactType: 'size')
+        into "\${buildDir}/libs"
+    }
+}
+"""
+    }
+
+    def "transforms each file once for all projects and reuses the results in later builds"() {
+        when:
+        executer.withArgument("-D${TransformedFileCache.TRANSFORM_CACHE_PROPERTY}=100")
+        succeeds "resolve"
+
+        then:
+        output.count("Transforming test-1.3.jar to test-1.3.jar.txt") == 1
+        output.count("Transforming test2-2.3.jar to test2-2.3.jar.txt") == 1
+        ['app1', 'app2'].each {
+            file("$it/build/libs").assertHasDescendants("test-1.3.jar.txt", "test2-2.3.jar.txt")
+            assert file("$it/build/libs/test-1.3.jar.txt").text == "4"
+            assert file("$it/build/libs/test2-2.3.jar.txt").text == "2"
+        }
+
+        when:
+        file("app1/build").deleteDir()
+        file("app2/build").deleteDir()
+        executer.withArgument("-D${TransformedFileCache.TRANSFORM_CACHE_PROPERTY}=100")
+        succeeds "resolve"
+
+        then:
+        output.count("Transforming") == 0
+        ['app1', 'app2'].each {
+            file("$it/build/libs").assertHasDescendants("test-1.3.jar.txt", "test2-2.3.jar.txt")
+        }
+    }
+
+    def "transforms the file again when its content changes"() {
+        when:
+        executer.withArgument("-D${TransformedFileCache.TRANSFORM_CACHE_PROPERTY}=100")
+        succeeds "resolve"
+
+        then:
+        output.count("Transforming test-1.3.jar") == 1
+
+        when:
+        def m1 = mavenRepo.module("test", "test", "1.3").publish()
+        m1.artifactFile.text = "123456"
+        executer.withArgument("-D${TransformedFileCache.TRANSFORM_CACHE_PROPERTY}=100")
+        succeeds "resolve"
+
+        then:
+        output.count("Transforming test-1.3.jar") == 1
+        output.count("Transforming test2-2.3.jar") == 0
+        file("app1/build/libs/test-1.3.jar.txt").text == "6"
+        file("app2/build/libs/test-1.3.jar.txt").text == "6"
+    }
+
+    def "transforms files for each project when the cache is not enabled"() {
+        when:
+        succeeds "resolve"
+
+        then:
+        output.count("Transforming test-1.3.jar to test-1.3.jar.txt") == 2
+        file("app1/build/transformed").assertHasDescendants("test-1.3.jar.txt", "test2-2.3.jar.txt")
+        file("app2/build/transformed").assertHasDescendants("test-1.3.jar.txt", "test2-2.3.jar.txt")
+    }
+}
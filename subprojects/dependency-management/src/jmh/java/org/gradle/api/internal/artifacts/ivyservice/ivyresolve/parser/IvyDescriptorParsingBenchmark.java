@@ -0,0 +1,86 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser;
+
+import com.google.common.io.Files;
+import com.google.common.io.Resources;
+import org.apache.commons.io.FileUtils;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.internal.artifacts.ivyservice.modulecache.ModuleMetadataSerializer;
+import org.gradle.api.internal.artifacts.ivyservice.modulecache.ParsedDescriptorStore;
+import org.gradle.api.internal.component.ArtifactType;
+import org.gradle.internal.resource.local.LocallyAvailableExternalResource;
+import org.gradle.internal.resource.local.PathKeyFileStore;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Parses real-world ivy.xml files, comparing a full parse of the XML with reading the result of an earlier parse from a {@link ParsedDescriptorStore},
+ * which is what a warm build does for descriptors that have not changed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class IvyDescriptorParsingBenchmark {
+    private static final DescriptorParseContext PARSE_CONTEXT = new DescriptorParseContext() {
+        @Override
+        public LocallyAvailableExternalResource getMetaDataArtifact(ModuleComponentIdentifier componentIdentifier, ArtifactType artifactType) {
+            throw new UnsupportedOperationException();
+        }
+    };
+
+    @Param({"commons-httpclient-ivy.xml", "ivy-native-ivy.xml", "gradle-published-ivy.xml"})
+    String descriptor;
+
+    private File tmpDir;
+    private File descriptorFile;
+    private IvyXmlModuleDescriptorParser xmlParser;
+    private IvyXmlModuleDescriptorParser storeBackedParser;
+
+    @Setup(Level.Trial)
+    public void prepare() throws IOException {
+        tmpDir = Files.createTempDir();
+        descriptorFile = new File(tmpDir, descriptor);
+        Resources.asByteSource(Resources.getResource(getClass(), "ivy-corpus/" + descriptor)).copyTo(Files.asByteSink(descriptorFile));
+
+        xmlParser = new IvyXmlModuleDescriptorParser();
+        ParsedDescriptorStore store = new ParsedDescriptorStore(new PathKeyFileStore(new File(tmpDir, "parsed-descriptors")), new ModuleMetadataSerializer());
+        storeBackedParser = new IvyXmlModuleDescriptorParser(store);
+        // Populate the store
+        storeBackedParser.parseMetaData(PARSE_CONTEXT, descriptorFile);
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanup() throws IOException {
+        FileUtils.deleteDirectory(tmpDir);
+    }
+
+    @Benchmark
+    public Object parseXml() {
+        return xmlParser.parseMetaData(PARSE_CONTEXT, descriptorFile);
+    }
+
+    @Benchmark
+    public Object readParsed() {
+        return storeBackedParser.parseMetaData(PARSE_CONTEXT, descriptorFile);
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Sorts and selects from a long version listing, the way dynamic version selection and conflict resolution do for a module with many releases,
+ * milestones and release candidates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class VersionComparisonBenchmark {
+    private static final String[] SELECTORS = {"latest.release", "1.+", "2.3.+", "[1.5,3.0)", "[2.0,)", "2.7.1"};
+
+    private final DefaultVersionComparator versionComparator = new DefaultVersionComparator();
+    private final VersionSelectorScheme versionSelectorScheme = new DefaultVersionSelectorScheme(versionComparator);
+    private final List<String> listing = new ArrayList<String>();
+
+    @Setup(Level.Trial)
+    public void createListing() {
+        for (int major = 0; major < 4; major++) {
+            for (int minor = 0; minor < 10; minor++) {
+                listing.add(major + "." + minor + ".0-M1");
+                listing.add(major + "." + minor + ".0-RC1");
+                listing.add(major + "." + minor + ".0-rc2");
+                for (int patch = 0; patch < 8; patch++) {
+                    listing.add(major + "." + minor + "." + patch);
+                }
+                listing.add(major + "." + minor + ".1.Final");
+                listing.add(major + "." + minor + "-20170302.141503-" + minor);
+            }
+        }
+        Collections.shuffle(listing, new Random(1234));
+    }
+
+    @Benchmark
+    public List<String> sortListing() {
+        List<String> sorted = new ArrayList<String>(listing);
+        Collections.sort(sorted, Collections.reverseOrder(versionComparator.asStringComparator()));
+        return sorted;
+    }
+
+    @Benchmark
+    public void selectFromListing(Blackhole blackhole) {
+        Comparator<String> comparator = versionComparator.asStringComparator();
+        for (String selectorString : SELECTORS) {
+            VersionSelector selector = versionSelectorScheme.parseSelector(selectorString);
+            String best = null;
+            for (String candidate : listing) {
+                if ((selector.requiresMetadata() || selector.accept(candidate)) && (best == null || comparator.compare(candidate, best) > 0)) {
+                    best = candidate;
+                }
+            }
+            blackhole.consume(best);
+        }
+    }
+}
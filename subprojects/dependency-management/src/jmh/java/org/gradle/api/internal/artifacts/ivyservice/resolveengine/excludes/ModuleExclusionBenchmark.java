@@ -0,0 +1,122 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.excludes;
+
+import org.gradle.api.artifacts.ModuleIdentifier;
+import org.gradle.api.internal.artifacts.DefaultModuleIdentifier;
+import org.gradle.internal.component.external.descriptor.DefaultExclude;
+import org.gradle.internal.component.model.DefaultIvyArtifactName;
+import org.gradle.internal.component.model.Exclude;
+import org.gradle.internal.component.model.IvyArtifactName;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Combines and evaluates exclusions the way the dependency graph builder does for a graph of Spring and Hadoop style modules, whose POMs exclude
+ * the same logging, servlet and XML modules over and over.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class ModuleExclusionBenchmark {
+    private static final String[][] COMMON_EXCLUDES = {
+        {"commons-logging", "commons-logging"},
+        {"log4j", "log4j"},
+        {"org.slf4j", "slf4j-log4j12"},
+        {"javax.servlet", "servlet-api"},
+        {"javax.servlet.jsp", "jsp-api"},
+        {"com.sun.jersey", "jersey-core"},
+        {"com.sun.jersey", "jersey-server"},
+        {"com.sun.jersey", "jersey-json"},
+        {"org.mortbay.jetty", "*"},
+        {"tomcat", "*"},
+        {"xml-apis", "xml-apis"},
+        {"xerces", "xercesImpl"},
+        {"*", "junit"},
+        {"org.codehaus.jackson", "jackson-mapper-asl"},
+        {"io.netty", "netty"},
+        {"com.google.guava", "guava"},
+    };
+    private static final int MODULES = 400;
+    private static final int EDGES_PER_MODULE = 6;
+
+    private final List<ModuleExclusion> edgeExclusions = new ArrayList<ModuleExclusion>();
+    private final List<ModuleIdentifier> modules = new ArrayList<ModuleIdentifier>();
+    private final IvyArtifactName artifact = new DefaultIvyArtifactName("core", "jar", "jar");
+    private int[][] edges;
+
+    @Setup(Level.Trial)
+    public void createGraph() {
+        Random random = new Random(1234);
+        for (int i = 0; i < MODULES; i++) {
+            String group = i % 3 == 0 ? "org.springframework" : i % 3 == 1 ? "org.apache.hadoop" : COMMON_EXCLUDES[i % COMMON_EXCLUDES.length][0].replace("*", "other");
+            modules.add(DefaultModuleIdentifier.newId(group, "module" + i));
+            // Most POMs repeat a handful of the common excludes, some have none
+            List<Exclude> excludes = new ArrayList<Exclude>();
+            int count = random.nextInt(8);
+            for (int j = 0; j < count; j++) {
+                String[] exclude = COMMON_EXCLUDES[random.nextInt(COMMON_EXCLUDES.length)];
+                excludes.add(new DefaultExclude(exclude[0], exclude[1]));
+            }
+            if (random.nextInt(10) == 0) {
+                excludes.add(new DefaultExclude("*", "*", "tests", "*", "*", new String[0], PatternMatchers.EXACT));
+            }
+            edgeExclusions.add(ModuleExclusions.excludeAny(excludes));
+        }
+        edges = new int[MODULES][EDGES_PER_MODULE];
+        for (int i = 0; i < MODULES; i++) {
+            for (int j = 0; j < EDGES_PER_MODULE; j++) {
+                edges[i][j] = random.nextInt(MODULES);
+            }
+        }
+    }
+
+    @Benchmark
+    public void traverseGraph(Blackhole blackhole) {
+        ModuleExclusion[] nodeExclusions = new ModuleExclusion[MODULES];
+        for (int i = 0; i < MODULES; i++) {
+            ModuleExclusion from = nodeExclusions[i] == null ? ModuleExclusions.excludeNone() : nodeExclusions[i];
+            for (int target : edges[i]) {
+                // Path exclusion: those of the source node plus those declared on the edge
+                ModuleExclusion path = ModuleExclusions.intersect(from, edgeExclusions.get(target));
+                ModuleIdentifier targetModule = modules.get(target);
+                if (path.excludeModule(targetModule)) {
+                    continue;
+                }
+                // Node exclusion: only what every incoming path excludes
+                nodeExclusions[target] = nodeExclusions[target] == null ? path : ModuleExclusions.union(nodeExclusions[target], path);
+                blackhole.consume(path.excludeArtifact(targetModule, artifact));
+            }
+        }
+        blackhole.consume(nodeExclusions);
+    }
+
+    @Benchmark
+    public void evaluateExclusions(Blackhole blackhole) {
+        for (ModuleExclusion exclusion : edgeExclusions) {
+            for (int i = 0; i < MODULES; i += 7) {
+                blackhole.consume(exclusion.excludeModule(modules.get(i)));
+            }
+        }
+    }
+}
@@ -36,4 +36,11 @@ public interface ArtifactCacheMetaData {
      * @return Metadata store location
      */
     File getMetaDataStoreDirectory();
+
+    /**
+     * Returns the root directory for the store of parsed module descriptors, keyed by the SHA-1 of the descriptor file.
+     *
+     * @return Parsed descriptor store location
+     */
+    File getParsedDescriptorStoreDirectory();
 }
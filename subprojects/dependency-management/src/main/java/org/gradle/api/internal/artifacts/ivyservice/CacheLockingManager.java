@@ -16,6 +16,7 @@
 package org.gradle.api.internal.artifacts.ivyservice;
 
 import net.jcip.annotations.ThreadSafe;
+import org.gradle.api.Transformer;
 import org.gradle.cache.CacheAccess;
 import org.gradle.cache.PersistentIndexedCache;
 import org.gradle.internal.serialize.Serializer;
@@ -34,4 +35,15 @@ public interface CacheLockingManager extends CacheAccess {
      * <p>The returned cache may not be used by an action being run from {@link #longRunningOperation(org.gradle.internal.Factory)}.
      */
     <K, V> PersistentIndexedCache<K, V> createCache(String cacheName, Serializer<K> keySerializer, Serializer<V> valueSerializer);
+
+    /**
+     * Creates a cache implementation whose entries may be partitioned into independently locked segments, using the given partition key. This method may be used at any time.
+     *
+     * <p>When this locking manager partitions caches, each segment is stored in its own file and is locked separately from the other segments. The lock of this locking
+     * manager is released while a segment is used. Entries are also stored in the cache created by {@link #createCache(String, Serializer, Serializer)}, so that the
+     * contents are kept when partitioning is turned on or off. Otherwise, the returned cache is the same as one created by {@link #createCache(String, Serializer, Serializer)}.
+     *
+     * @param partitionKey Calculates the partition key for an entry. The key must be stable across processes.
+     */
+    <K, V> PersistentIndexedCache<K, V> createPartitionedCache(String cacheName, Serializer<K> keySerializer, Serializer<V> valueSerializer, Transformer<String, ? super K> partitionKey);
 }
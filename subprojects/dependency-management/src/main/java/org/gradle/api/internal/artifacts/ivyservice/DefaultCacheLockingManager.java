@@ -15,6 +15,8 @@
  */
 package org.gradle.api.internal.artifacts.ivyservice;
 
+import com.google.common.collect.ImmutableList;
+import org.gradle.api.Transformer;
 import org.gradle.cache.CacheBuilder;
 import org.gradle.cache.CacheRepository;
 import org.gradle.cache.PersistentCache;
@@ -22,16 +24,35 @@ import org.gradle.cache.PersistentIndexedCache;
 import org.gradle.cache.PersistentIndexedCacheParameters;
 import org.gradle.cache.internal.FileLockManager;
 import org.gradle.internal.Factory;
+import org.gradle.internal.concurrent.CompositeStoppable;
 import org.gradle.internal.serialize.Serializer;
 
 import java.io.Closeable;
+import java.io.File;
+import java.util.List;
 
 import static org.gradle.cache.internal.filelock.LockOptionsBuilder.mode;
 
 public class DefaultCacheLockingManager implements CacheLockingManager, Closeable {
+    /**
+     * The number of independently locked segments to partition the module metadata caches into. The caches are not partitioned when not set.
+     */
+    public static final String CACHE_SEGMENTS_PROPERTY = "org.gradle.resolution.cacheSegments";
+
     private final PersistentCache cache;
+    private final CacheRepository cacheRepository;
+    private final ArtifactCacheMetaData cacheMetaData;
+    private final int segmentCount;
+    private List<PersistentCache> segments;
 
     public DefaultCacheLockingManager(CacheRepository cacheRepository, ArtifactCacheMetaData cacheMetaData) {
+        this(cacheRepository, cacheMetaData, Integer.getInteger(CACHE_SEGMENTS_PROPERTY, 0));
+    }
+
+    public DefaultCacheLockingManager(CacheRepository cacheRepository, ArtifactCacheMetaData cacheMetaData, int segmentCount) {
+        this.cacheRepository = cacheRepository;
+        this.cacheMetaData = cacheMetaData;
+        this.segmentCount = segmentCount;
         cache = cacheRepository
                 .cache(cacheMetaData.getCacheDir())
                 .withCrossVersionCache(CacheBuilder.LockTarget.CacheDirectory)
@@ -42,6 +63,12 @@ public class DefaultCacheLockingManager implements CacheLockingManager, Closeabl
 
     @Override
     public void close() {
+        synchronized (this) {
+            if (segments != null) {
+                CompositeStoppable.stoppable(segments).stop();
+                segments = null;
+            }
+        }
         cache.close();
     }
 
@@ -70,4 +97,30 @@ public class DefaultCacheLockingManager implements CacheLockingManager, Closeabl
         String cacheFileInMetaDataStore = CacheLayout.META_DATA.getKey() + "/" + cacheName;
         return cache.createCache(new PersistentIndexedCacheParameters<K, V>(cacheFileInMetaDataStore, keySerializer, valueSerializer));
     }
+
+    @Override
+    public <K, V> PersistentIndexedCache<K, V> createPartitionedCache(String cacheName, Serializer<K> keySerializer, Serializer<V> valueSerializer, Transformer<String, ? super K> partitionKey) {
+        if (segmentCount <= 1) {
+            return createCache(cacheName, keySerializer, valueSerializer);
+        }
+        PersistentIndexedCache<K, V> unpartitioned = createCache(cacheName, keySerializer, valueSerializer);
+        return new StripedIndexedCache<K, V>(this, unpartitioned, getSegments(), new PersistentIndexedCacheParameters<K, V>(cacheName, keySerializer, valueSerializer), partitionKey);
+    }
+
+    private synchronized List<PersistentCache> getSegments() {
+        if (segments == null) {
+            File segmentsDir = new File(CacheLayout.META_DATA.getPath(cacheMetaData.getCacheDir()), "segments-" + segmentCount);
+            ImmutableList.Builder<PersistentCache> builder = ImmutableList.builder();
+            for (int i = 0; i < segmentCount; i++) {
+                builder.add(cacheRepository
+                        .cache(new File(segmentsDir, String.valueOf(i)))
+                        .withCrossVersionCache(CacheBuilder.LockTarget.DefaultTarget)
+                        .withDisplayName("artifact cache segment " + i)
+                        .withLockOptions(mode(FileLockManager.LockMode.None))
+                        .open());
+            }
+            segments = builder.build();
+        }
+        return segments;
+    }
 }
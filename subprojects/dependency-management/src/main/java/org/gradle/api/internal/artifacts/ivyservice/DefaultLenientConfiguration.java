@@ -56,6 +56,8 @@ import org.gradle.internal.component.local.model.OpaqueComponentArtifactIdentifi
 import org.gradle.internal.graph.CachingDirectedGraphWalker;
 import org.gradle.internal.graph.DirectedGraphWithEdgeValues;
 import org.gradle.util.CollectionUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.util.ArrayList;
@@ -69,6 +71,8 @@ import java.util.Map;
 import java.util.Set;
 
 public class DefaultLenientConfiguration implements LenientConfiguration, VisitedArtifactSet {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DefaultLenientConfiguration.class);
+
     private final CacheLockingManager cacheLockingManager;
     private final ConfigurationInternal configuration;
     private final Set<UnresolvedDependency> unresolvedDependencies;
@@ -76,11 +80,12 @@ public class DefaultLenientConfiguration implements LenientConfiguration, Visite
     private final VisitedFileDependencyResults fileDependencyResults;
     private final TransientConfigurationResultsLoader transientConfigurationResultsFactory;
     private final ArtifactTransforms artifactTransforms;
+    private final ParallelArtifactDownloader artifactDownloader;
     // Selected for the configuration
     private final SelectedArtifactResults selectedArtifacts;
     private final SelectedFileDependencyResults selectedFileDependencies;
 
-    public DefaultLenientConfiguration(ConfigurationInternal configuration, CacheLockingManager cacheLockingManager, Set<UnresolvedDependency> unresolvedDependencies, VisitedArtifactsResults artifactResults, VisitedFileDependencyResults fileDependencyResults, TransientConfigurationResultsLoader transientConfigurationResultsLoader, ArtifactTransforms artifactTransforms) {
+    public DefaultLenientConfiguration(ConfigurationInternal configuration, CacheLockingManager cacheLockingManager, Set<UnresolvedDependency> unresolvedDependencies, VisitedArtifactsResults artifactResults, VisitedFileDependencyResults fileDependencyResults, TransientConfigurationResultsLoader transientConfigurationResultsLoader, ArtifactTransforms artifactTransforms, ParallelArtifactDownloader artifactDownloader) {
         this.configuration = configuration;
         this.cacheLockingManager = cacheLockingManager;
         this.unresolvedDependencies = unresolvedDependencies;
@@ -88,6 +93,7 @@ public class DefaultLenientConfiguration implements LenientConfiguration, Visite
         this.fileDependencyResults = fileDependencyResults;
         this.transientConfigurationResultsFactory = transientConfigurationResultsLoader;
         this.artifactTransforms = artifactTransforms;
+        this.artifactDownloader = artifactDownloader;
         this.selectedArtifacts = artifactResults.select(Specs.<ComponentIdentifier>satisfyAll(), artifactTransforms.variantSelector(AttributeContainerInternal.EMPTY));
         this.selectedFileDependencies = fileDependencyResults.select(artifactTransforms.variantSelector(AttributeContainerInternal.EMPTY));
     }
@@ -123,6 +129,7 @@ public class DefaultLenientConfiguration implements LenientConfiguration, Visite
             @Override
             public <T extends Collection<? super File>> T collectFiles(T dest) throws ResolveException {
                 rethrowFailure();
+                downloadArtifacts(dependencySpec, componentSpec);
                 ResolvedFilesCollectingVisitor visitor = new ResolvedFilesCollectingVisitor(dest);
                 try {
                     DefaultLenientConfiguration.this.visitArtifacts(dependencySpec, requestedAttributes, artifactResults, fileDependencyResults, visitor);
@@ -145,6 +152,7 @@ public class DefaultLenientConfiguration implements LenientConfiguration, Visite
             @Override
             public <T extends Collection<? super ResolvedArtifactResult>> T collectArtifacts(T dest) throws ResolveException {
                 rethrowFailure();
+                downloadArtifacts(dependencySpec, componentSpec);
                 ResolvedArtifactCollectingVisitor visitor = new ResolvedArtifactCollectingVisitor(dest);
                 try {
                     DefaultLenientConfiguration.this.visitArtifacts(dependencySpec, requestedAttributes, artifactResults, fileDependencyResults, visitor);
@@ -225,6 +233,7 @@ public class DefaultLenientConfiguration implements LenientConfiguration, Visite
      * Recursive but excludes unsuccessfully resolved artifacts.
      */
     public Set<File> getFiles(Spec<? super Dependency> dependencySpec) {
+        downloadArtifacts(dependencySpec, Specs.<ComponentIdentifier>satisfyAll());
         Set<File> files = Sets.newLinkedHashSet();
         FilesAndArtifactCollectingVisitor visitor = new FilesAndArtifactCollectingVisitor(files);
         visitArtifacts(dependencySpec, AttributeContainerInternal.EMPTY, selectedArtifacts, selectedFileDependencies, visitor);
@@ -246,6 +255,28 @@ public class DefaultLenientConfiguration implements LenientConfiguration, Visite
         return filterUnresolved(visitor.artifacts);
     }
 
+    /**
+     * Downloads the files of the selected artifacts concurrently, when enabled, ahead of the visit that collects the files in order and reports failures.
+     * Only does this when all artifacts are requested, so that files that are filtered out by the dependency spec are not downloaded.
+     *
+     * <p>Visits the untransformed artifacts, so that no transforms are run here. Any failure is ignored and is reported by the visit that follows.</p>
+     */
+    private void downloadArtifacts(Spec<? super Dependency> dependencySpec, Spec<? super ComponentIdentifier> componentSpec) {
+        if (dependencySpec != Specs.SATISFIES_ALL || !artifactDownloader.isEnabled()) {
+            return;
+        }
+        try {
+            SelectedArtifactResults artifactResults = componentSpec.equals(Specs.satisfyAll())
+                ? selectedArtifacts
+                : this.artifactResults.select(componentSpec, artifactTransforms.variantSelector(AttributeContainerInternal.EMPTY));
+            ArtifactCollectingVisitor visitor = new ArtifactCollectingVisitor();
+            artifactResults.getArtifacts().visit(visitor);
+            artifactDownloader.download(visitor.artifacts);
+        } catch (Throwable t) {
+            LOGGER.debug("Could not download the artifacts of {} ahead of time.", configuration, t);
+        }
+    }
+
     private Set<ResolvedArtifact> filterUnresolved(final Set<ResolvedArtifact> artifacts) {
         return cacheLockingManager.useCache(new Factory<Set<ResolvedArtifact>>() {
             public Set<ResolvedArtifact> create() {
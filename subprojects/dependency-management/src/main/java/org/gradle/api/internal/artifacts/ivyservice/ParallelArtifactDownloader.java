@@ -0,0 +1,151 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice;
+
+import org.gradle.api.artifacts.ResolvedArtifact;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.cache.CacheAccess;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.concurrent.StoppableExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Downloads the files of the artifacts of external modules concurrently, before the files are used.
+ *
+ * <p>The files of a {@link ResolvedArtifact} are otherwise downloaded one at a time, as each file is requested. This downloads the files ahead of time so that
+ * the caller can then request the files in the order it requires, without waiting. A failure to download a file is ignored here, so that it is reported
+ * in the usual way when the caller requests the file.</p>
+ */
+public class ParallelArtifactDownloader implements Stoppable {
+    /**
+     * The maximum number of artifact files to download concurrently. Files are downloaded on demand when not set.
+     */
+    public static final String PARALLEL_ARTIFACT_DOWNLOADS_PROPERTY = "org.gradle.resolution.parallelArtifactDownloads";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ParallelArtifactDownloader.class);
+
+    private final ExecutorFactory executorFactory;
+    private final CacheAccess cacheAccess;
+    private final int parallelism;
+    private StoppableExecutor executor;
+
+    public ParallelArtifactDownloader(ExecutorFactory executorFactory, CacheAccess cacheAccess) {
+        this(executorFactory, cacheAccess, Integer.getInteger(PARALLEL_ARTIFACT_DOWNLOADS_PROPERTY, 0));
+    }
+
+    public ParallelArtifactDownloader(ExecutorFactory executorFactory, CacheAccess cacheAccess, int parallelism) {
+        this.executorFactory = executorFactory;
+        this.cacheAccess = cacheAccess;
+        this.parallelism = parallelism;
+    }
+
+    public boolean isEnabled() {
+        return parallelism > 1;
+    }
+
+    /**
+     * Downloads the files of the given artifacts, and waits for the downloads to complete. Does nothing when not enabled.
+     */
+    public void download(Iterable<? extends ResolvedArtifact> artifacts) {
+        if (!isEnabled()) {
+            return;
+        }
+        Set<Object> seen = new HashSet<Object>();
+        List<ResolvedArtifact> toDownload = new ArrayList<ResolvedArtifact>();
+        for (ResolvedArtifact artifact : artifacts) {
+            // Only external artifacts need to be downloaded, and each only once
+            if (artifact.getId().getComponentIdentifier() instanceof ModuleComponentIdentifier && seen.add(artifact.getId())) {
+                toDownload.add(artifact);
+            }
+        }
+        if (toDownload.size() < 2) {
+            return;
+        }
+
+        final List<Future<?>> downloads = new ArrayList<Future<?>>(toDownload.size());
+        for (final ResolvedArtifact artifact : toDownload) {
+            FutureTask<Void> download = new FutureTask<Void>(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        // Use the cache in the same way as the caller would, the lock is released while the file is downloaded
+                        cacheAccess.useCache(new Runnable() {
+                            @Override
+                            public void run() {
+                                artifact.getFile();
+                            }
+                        });
+                    } catch (Throwable t) {
+                        // Reported when the file is requested again
+                        LOGGER.debug("Could not download {} ahead of time.", artifact, t);
+                    }
+                }
+            }, null);
+            getExecutor().execute(download);
+            downloads.add(download);
+        }
+        // Release the cache lock, if held, so that the downloads can use the cache while this thread waits
+        cacheAccess.longRunningOperation(new Runnable() {
+            @Override
+            public void run() {
+                waitFor(downloads);
+            }
+        });
+    }
+
+    private static void waitFor(List<Future<?>> downloads) {
+        for (Future<?> download : downloads) {
+            try {
+                download.get();
+            } catch (InterruptedException e) {
+                throw UncheckedException.throwAsUncheckedException(e);
+            } catch (ExecutionException e) {
+                throw UncheckedException.throwAsUncheckedException(e.getCause());
+            }
+        }
+    }
+
+    private synchronized StoppableExecutor getExecutor() {
+        if (executor == null) {
+            executor = executorFactory.create("Artifact download", parallelism);
+        }
+        return executor;
+    }
+
+    @Override
+    public void stop() {
+        StoppableExecutor executor;
+        synchronized (this) {
+            executor = this.executor;
+            this.executor = null;
+        }
+        if (executor != null) {
+            executor.stop();
+        }
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.ivyservice;
+
+import org.gradle.api.Transformer;
+import org.gradle.cache.CacheAccess;
+import org.gradle.cache.PersistentCache;
+import org.gradle.cache.PersistentIndexedCache;
+import org.gradle.cache.PersistentIndexedCacheParameters;
+import org.gradle.internal.Factory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A {@link PersistentIndexedCache} whose entries are partitioned across several {@link PersistentCache} segments. Each segment stores its entries in its own file
+ * and has its own lock, so threads and processes that use entries in different segments do not wait for each other.
+ *
+ * <p>Callers usually hold the lock of the artifact cache while they use this cache, so the lock is released while a segment is used. Other threads can then use
+ * the artifact cache, and other segments, at the same time.</p>
+ *
+ * <p>Entries are also written to the unpartitioned cache, and are read from it when they are missing from their segment. The contents of the cache are
+ * kept when partitioning is turned on or off.</p>
+ *
+ * <p>The partition key is used to choose the segment for an entry, and so must be stable across processes.</p>
+ */
+class StripedIndexedCache<K, V> implements PersistentIndexedCache<K, V> {
+    private final CacheAccess cacheAccess;
+    private final PersistentIndexedCache<K, V> unpartitioned;
+    private final List<PersistentCache> segments;
+    private final List<PersistentIndexedCache<K, V>> caches;
+    private final Transformer<String, ? super K> partitionKey;
+
+    /**
+     * @param cacheAccess The access to the cache that contains the unpartitioned cache.
+     */
+    StripedIndexedCache(CacheAccess cacheAccess, PersistentIndexedCache<K, V> unpartitioned, List<PersistentCache> segments, PersistentIndexedCacheParameters<K, V> parameters, Transformer<String, ? super K> partitionKey) {
+        this.cacheAccess = cacheAccess;
+        this.unpartitioned = unpartitioned;
+        this.segments = segments;
+        this.partitionKey = partitionKey;
+        this.caches = new ArrayList<PersistentIndexedCache<K, V>>(segments.size());
+        for (PersistentCache segment : segments) {
+            caches.add(segment.createCache(parameters));
+        }
+    }
+
+    @Override
+    public V get(final K key) {
+        final int segment = segmentFor(key);
+        V value = cacheAccess.longRunningOperation(new Factory<V>() {
+            @Override
+            public V create() {
+                return segments.get(segment).useCache(new Factory<V>() {
+                    @Override
+                    public V create() {
+                        return caches.get(segment).get(key);
+                    }
+                });
+            }
+        });
+        if (value != null) {
+            return value;
+        }
+        final V storedValue = cacheAccess.useCache(new Factory<V>() {
+            @Override
+            public V create() {
+                return unpartitioned.get(key);
+            }
+        });
+        if (storedValue != null) {
+            // Stored while the cache was not partitioned, or by a process that does not partition the cache
+            withSegment(segment, new Runnable() {
+                @Override
+                public void run() {
+                    caches.get(segment).put(key, storedValue);
+                }
+            });
+        }
+        return storedValue;
+    }
+
+    @Override
+    public void put(final K key, final V value) {
+        final int segment = segmentFor(key);
+        withSegment(segment, new Runnable() {
+            @Override
+            public void run() {
+                caches.get(segment).put(key, value);
+            }
+        });
+        cacheAccess.useCache(new Runnable() {
+            @Override
+            public void run() {
+                unpartitioned.put(key, value);
+            }
+        });
+    }
+
+    @Override
+    public void remove(final K key) {
+        final int segment = segmentFor(key);
+        withSegment(segment, new Runnable() {
+            @Override
+            public void run() {
+                caches.get(segment).remove(key);
+            }
+        });
+        cacheAccess.useCache(new Runnable() {
+            @Override
+            public void run() {
+                unpartitioned.remove(key);
+            }
+        });
+    }
+
+    /**
+     * Runs the given action while holding the lock of the given segment, but not the lock of the artifact cache.
+     */
+    private void withSegment(final int segment, final Runnable action) {
+        cacheAccess.longRunningOperation(new Runnable() {
+            @Override
+            public void run() {
+                segments.get(segment).useCache(action);
+            }
+        });
+    }
+
+    private int segmentFor(K key) {
+        // String.hashCode() is specified, so gives the same segment in every process
+        return (partitionKey.transform(key).hashCode() & Integer.MAX_VALUE) % segments.size();
+    }
+}
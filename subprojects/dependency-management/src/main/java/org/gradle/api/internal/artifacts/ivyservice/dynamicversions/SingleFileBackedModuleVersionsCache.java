@@ -15,6 +15,7 @@
  */
 package org.gradle.api.internal.artifacts.ivyservice.dynamicversions;
 
+import org.gradle.api.Transformer;
 import org.gradle.api.artifacts.ModuleIdentifier;
 import org.gradle.api.internal.artifacts.DefaultModuleIdentifier;
 import org.gradle.api.internal.artifacts.ivyservice.CacheLockingManager;
@@ -50,7 +51,12 @@ public class SingleFileBackedModuleVersionsCache implements ModuleVersionsCache
     }
 
     private PersistentIndexedCache<ModuleKey, ModuleVersionsCacheEntry> initCache() {
-        return cacheLockingManager.createCache("module-versions", new ModuleKeySerializer(), new ModuleVersionsCacheEntrySerializer());
+        return cacheLockingManager.createPartitionedCache("module-versions", new ModuleKeySerializer(), new ModuleVersionsCacheEntrySerializer(), new Transformer<String, ModuleKey>() {
+            @Override
+            public String transform(ModuleKey key) {
+                return key.moduleId.getGroup();
+            }
+        });
     }
 
     public void cacheModuleVersionList(ModuleComponentRepository repository, ModuleIdentifier moduleId, Set<String> listedVersions) {
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.ivyresolve;
+
+import org.gradle.api.artifacts.component.ComponentIdentifier;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.internal.artifacts.configurations.dynamicversion.CachePolicy;
+import org.gradle.api.internal.artifacts.ivyservice.dynamicversions.DefaultResolvedModuleVersion;
+import org.gradle.api.internal.artifacts.ivyservice.modulecache.ModuleMetaDataCache;
+import org.gradle.api.specs.Spec;
+import org.gradle.internal.component.model.ComponentResolveMetadata;
+import org.gradle.internal.component.model.ModuleSource;
+
+/**
+ * Accepts the metadata of a module component that was resolved from the module metadata cache, or cached by it, as long as the cache still holds the same
+ * module descriptor and the cache policy does not require the module to be refreshed.
+ *
+ * <p>Must be used from an action run by {@link org.gradle.api.internal.artifacts.ivyservice.CacheLockingManager#useCache(org.gradle.internal.Factory)}.</p>
+ */
+public class CachedModuleMetadataUpToDateSpec implements Spec<ComponentResolveMetadata> {
+    private final ModuleMetaDataCache moduleMetaDataCache;
+    private final CachePolicy cachePolicy;
+
+    public CachedModuleMetadataUpToDateSpec(ModuleMetaDataCache moduleMetaDataCache, CachePolicy cachePolicy) {
+        this.moduleMetaDataCache = moduleMetaDataCache;
+        this.cachePolicy = cachePolicy;
+    }
+
+    @Override
+    public boolean isSatisfiedBy(ComponentResolveMetadata metadata) {
+        ComponentIdentifier componentId = metadata.getComponentId();
+        ModuleSource source = metadata.getSource();
+        if (!(componentId instanceof ModuleComponentIdentifier) || !(source instanceof RepositoryChainModuleSource)) {
+            return false;
+        }
+        RepositoryChainModuleSource repositorySource = (RepositoryChainModuleSource) source;
+        if (!(repositorySource.getDelegate() instanceof CachingModuleComponentRepository.CachingModuleSource)) {
+            return false;
+        }
+        CachingModuleComponentRepository.CachingModuleSource cachingSource = (CachingModuleComponentRepository.CachingModuleSource) repositorySource.getDelegate();
+        if (cachingSource.isChangingModule()) {
+            return false;
+        }
+
+        ModuleComponentIdentifier moduleComponentId = (ModuleComponentIdentifier) componentId;
+        ModuleMetaDataCache.CachedMetaData cachedMetaData = moduleMetaDataCache.getCachedModuleDescriptorEntry(repositorySource.getRepositoryId(), moduleComponentId);
+        if (cachedMetaData == null || !cachingSource.getDescriptorHash().equals(cachedMetaData.getDescriptorHash())) {
+            return false;
+        }
+        return !cachePolicy.mustRefreshModule(moduleComponentId, new DefaultResolvedModuleVersion(metadata.getId()), cachedMetaData.getAgeMillis());
+    }
+}
@@ -15,6 +15,7 @@
  */
 package org.gradle.api.internal.artifacts.ivyservice.ivyresolve;
 
+import org.gradle.api.Nullable;
 import org.gradle.api.artifacts.cache.ResolutionRules;
 import org.gradle.api.artifacts.component.ComponentIdentifier;
 import org.gradle.api.internal.artifacts.ComponentMetadataProcessor;
@@ -90,6 +91,30 @@ public class ResolveIvyFactory {
         startParameterResolutionOverride.addResolutionRules(resolutionRules);
 
         UserResolverChain moduleResolver = new UserResolverChain(versionSelectorScheme, versionComparator, resolutionStrategy.getComponentSelection());
+        addRepositories(moduleResolver, cachePolicy, repositories, metadataProcessor, true);
+        return moduleResolver;
+    }
+
+    /**
+     * Creates a resolver that fetches the metadata of a component from the given repositories and stores it in the persistent caches, without applying
+     * any component selection or component metadata rules and without using the in-memory caches. This is used to fetch metadata in the background
+     * ahead of the resolvers created by {@link #create}, which then apply the rules to the cached metadata.
+     *
+     * @return The resolver, or null when there are no repositories.
+     */
+    @Nullable
+    public ComponentMetaDataResolver createRawMetaDataResolver(ResolutionStrategyInternal resolutionStrategy, Collection<? extends ResolutionAwareRepository> repositories) {
+        if (repositories.isEmpty()) {
+            return null;
+        }
+
+        UserResolverChain moduleResolver = new UserResolverChain(versionSelectorScheme, versionComparator, new DefaultComponentSelectionRules());
+        addRepositories(moduleResolver, resolutionStrategy.getCachePolicy(), repositories, ComponentMetadataProcessor.NO_OP, false);
+        return moduleResolver.getComponentResolver();
+    }
+
+    private void addRepositories(UserResolverChain moduleResolver, CachePolicy cachePolicy, Collection<? extends ResolutionAwareRepository> repositories,
+                                 ComponentMetadataProcessor metadataProcessor, boolean cacheInMemory) {
         ParentModuleLookupResolver parentModuleResolver = new ParentModuleLookupResolver(versionSelectorScheme, versionComparator, cacheLockingManager);
 
         for (ResolutionAwareRepository repository : repositories) {
@@ -112,14 +137,15 @@ public class ResolveIvyFactory {
             if (baseRepository.isDynamicResolveMode()) {
                 moduleComponentRepository = IvyDynamicResolveModuleComponentRepositoryAccess.wrap(moduleComponentRepository);
             }
-            moduleComponentRepository = inMemoryCache.cached(moduleComponentRepository);
+            if (cacheInMemory) {
+                // The in-memory caches are shared by repository id, so only hold metadata with the rules applied
+                moduleComponentRepository = inMemoryCache.cached(moduleComponentRepository);
+            }
             moduleComponentRepository = new ErrorHandlingModuleComponentRepository(moduleComponentRepository);
 
             moduleResolver.add(moduleComponentRepository);
             parentModuleResolver.add(moduleComponentRepository);
         }
-
-        return moduleResolver;
     }
 
     /**
@@ -17,8 +17,17 @@
 package org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser;
 
 import org.apache.ivy.core.module.descriptor.DefaultModuleDescriptor;
+import org.gradle.api.Nullable;
+import org.gradle.api.internal.artifacts.ivyservice.modulecache.ParsedDescriptorStore;
 
 public class DownloadedIvyModuleDescriptorParser extends IvyXmlModuleDescriptorParser {
+    public DownloadedIvyModuleDescriptorParser() {
+    }
+
+    public DownloadedIvyModuleDescriptorParser(@Nullable ParsedDescriptorStore parsedDescriptorStore) {
+        super(parsedDescriptorStore);
+    }
+
     @Override
     protected void postProcess(DefaultModuleDescriptor moduleDescriptor) {
         moduleDescriptor.setDefault(false);
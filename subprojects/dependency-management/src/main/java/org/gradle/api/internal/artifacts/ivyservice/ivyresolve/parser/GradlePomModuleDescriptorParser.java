@@ -50,9 +50,15 @@ public final class GradlePomModuleDescriptorParser extends AbstractModuleDescrip
     private static final String DEPENDENCY_IMPORT_SCOPE = "import";
     private final VersionSelectorScheme gradleVersionSelectorScheme;
     private final VersionSelectorScheme mavenVersionSelectorScheme;
+    private final ParsedPomCache parsedPomCache;
 
     public GradlePomModuleDescriptorParser(VersionSelectorScheme gradleVersionSelectorScheme) {
+        this(gradleVersionSelectorScheme, new ParsedPomCache());
+    }
+
+    public GradlePomModuleDescriptorParser(VersionSelectorScheme gradleVersionSelectorScheme, ParsedPomCache parsedPomCache) {
         this.gradleVersionSelectorScheme = gradleVersionSelectorScheme;
+        this.parsedPomCache = parsedPomCache;
         mavenVersionSelectorScheme = new MavenVersionSelectorScheme(gradleVersionSelectorScheme);
     }
 
@@ -191,7 +197,7 @@ public final class GradlePomModuleDescriptorParser extends AbstractModuleDescrip
     }
 
     /**
-     * Parses other POM.
+     * Parses other POM. The content of the POM is shared with other parses of the same POM, as parent and imported POMs are usually referred to by many modules.
      *
      * @param parseContext Parse context
      * @param parentId Parent module revision ID
@@ -201,7 +207,7 @@ public final class GradlePomModuleDescriptorParser extends AbstractModuleDescrip
      */
     private PomReader parseOtherPom(DescriptorParseContext parseContext, ModuleComponentIdentifier parentId) throws IOException, SAXException {
         LocallyAvailableExternalResource localResource = parseContext.getMetaDataArtifact(parentId, ArtifactType.MAVEN_POM);
-        PomReader pomReader = new PomReader(localResource);
+        PomReader pomReader = new PomReader(localResource, parsedPomCache.parse(localResource));
         GradlePomModuleDescriptorBuilder mdBuilder = new GradlePomModuleDescriptorBuilder(pomReader, gradleVersionSelectorScheme, mavenVersionSelectorScheme);
         doParsePom(parseContext, mdBuilder, pomReader);
         return pomReader;
@@ -43,10 +43,12 @@ import org.apache.ivy.plugins.parser.xml.XmlModuleDescriptorParser;
 import org.apache.ivy.util.extendable.DefaultExtendableItem;
 import org.apache.ivy.util.url.URLHandlerRegistry;
 import org.gradle.api.Action;
+import org.gradle.api.Nullable;
 import org.gradle.api.Transformer;
 import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
 import org.gradle.api.internal.artifacts.ivyservice.IvyUtil;
 import org.gradle.api.internal.artifacts.ivyservice.NamespaceId;
+import org.gradle.api.internal.artifacts.ivyservice.modulecache.ParsedDescriptorStore;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.excludes.PatternMatchers;
 import org.gradle.api.internal.component.ArtifactType;
 import org.gradle.api.resources.MissingResourceException;
@@ -56,8 +58,10 @@ import org.gradle.internal.component.external.model.DefaultModuleComponentIdenti
 import org.gradle.internal.component.external.model.DefaultMutableIvyModuleResolveMetadata;
 import org.gradle.internal.component.external.model.IvyModulePublishMetadata;
 import org.gradle.internal.component.external.model.MutableIvyModuleResolveMetadata;
+import org.gradle.internal.component.external.model.MutableModuleComponentResolveMetadata;
 import org.gradle.internal.component.model.DefaultIvyArtifactName;
 import org.gradle.internal.component.model.IvyArtifactName;
+import org.gradle.internal.hash.HashValue;
 import org.gradle.internal.resource.ExternalResource;
 import org.gradle.internal.resource.local.LocallyAvailableExternalResource;
 import org.gradle.internal.resource.transfer.UrlExternalResource;
@@ -74,6 +78,9 @@ import org.xml.sax.helpers.DefaultHandler;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
@@ -90,6 +97,8 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import static org.gradle.api.internal.artifacts.ivyservice.IvyUtil.createModuleRevisionId;
 
@@ -104,7 +113,30 @@ public class IvyXmlModuleDescriptorParser extends AbstractModuleDescriptorParser
 
     private static final Logger LOGGER = LoggerFactory.getLogger(IvyXmlModuleDescriptorParser.class);
 
+    private final ParsedDescriptorStore parsedDescriptorStore;
+
+    public IvyXmlModuleDescriptorParser() {
+        this(null);
+    }
+
+    /**
+     * @param parsedDescriptorStore The store to reuse descriptors that have already been parsed from, or null to always parse the descriptor.
+     */
+    public IvyXmlModuleDescriptorParser(@Nullable ParsedDescriptorStore parsedDescriptorStore) {
+        this.parsedDescriptorStore = parsedDescriptorStore;
+    }
+
     protected MutableIvyModuleResolveMetadata doParseDescriptor(DescriptorParseContext parseContext, LocallyAvailableExternalResource resource, boolean validate) throws IOException, ParseException {
+        // Only reuse descriptors that were validated, so that an invalid descriptor is always reported
+        HashValue descriptorSha1 = null;
+        if (parsedDescriptorStore != null && validate) {
+            descriptorSha1 = resource.getLocalResource().getSha1();
+            MutableModuleComponentResolveMetadata stored = parsedDescriptorStore.get(getClass().getSimpleName(), descriptorSha1);
+            if (stored instanceof MutableIvyModuleResolveMetadata) {
+                return (MutableIvyModuleResolveMetadata) stored;
+            }
+        }
+
         Parser parser = createParser(parseContext, resource, populateProperties());
         parser.setValidate(validate);
         parser.parse();
@@ -112,7 +144,11 @@ public class IvyXmlModuleDescriptorParser extends AbstractModuleDescriptorParser
         DefaultModuleDescriptor moduleDescriptor = parser.getModuleDescriptor();
         postProcess(moduleDescriptor);
 
-        return parser.getMetaData();
+        MutableIvyModuleResolveMetadata metadata = parser.getMetaData();
+        if (descriptorSha1 != null && parser.isSelfContained()) {
+            parsedDescriptorStore.put(getClass().getSimpleName(), descriptorSha1, metadata.asImmutable());
+        }
+        return metadata;
     }
 
     protected Parser createParser(DescriptorParseContext parseContext, LocallyAvailableExternalResource resource, Map<String, String> properties) throws MalformedURLException {
@@ -468,6 +504,7 @@ public class IvyXmlModuleDescriptorParser extends AbstractModuleDescriptorParser
         private StringBuffer buffer;
         private String descriptorVersion;
         private String[] publicationsDefaultConf;
+        private boolean selfContained = true;
         final Map<String, String> properties;
 
         public Parser(DescriptorParseContext parseContext, ExternalResource res, URL descriptorURL, Map<String, String> properties) {
@@ -495,6 +532,13 @@ public class IvyXmlModuleDescriptorParser extends AbstractModuleDescriptorParser
             return parseContext;
         }
 
+        /**
+         * Returns true when the parsed descriptor depends only on the content of the descriptor file, and not on other descriptors or on properties of the environment.
+         */
+        public boolean isSelfContained() {
+            return selfContained;
+        }
+
         public void parse() throws ParseException {
             getResource().withContent(new Action<InputStream>() {
                 public void execute(InputStream inputStream) {
@@ -782,6 +826,7 @@ public class IvyXmlModuleDescriptorParser extends AbstractModuleDescriptorParser
         }
 
         private ModuleDescriptor parseModuleDescriptor(ExternalResource externalResource, URL descriptorURL) throws ParseException {
+            selfContained = false;
             Parser parser = newParser(externalResource, descriptorURL);
             parser.parse();
             return parser.getModuleDescriptor();
@@ -810,6 +855,7 @@ public class IvyXmlModuleDescriptorParser extends AbstractModuleDescriptorParser
 
             // create a new temporary parser to read the configurations from
             // the specified file.
+            selfContained = false;
             Parser parser = newParser(UrlExternalResource.open(url), url);
             ParserHelper.parse(url , null, parser);
 
@@ -1221,6 +1267,9 @@ public class IvyXmlModuleDescriptorParser extends AbstractModuleDescriptorParser
         }
 
         private String substitute(String value) {
+            if (value != null && value.contains("${")) {
+                selfContained = false;
+            }
             return IvyPatternHelper.substituteVariables(value, properties);
         }
 
@@ -1248,37 +1297,66 @@ public class IvyXmlModuleDescriptorParser extends AbstractModuleDescriptorParser
     }
 
     public static class ParserHelper {
-        static final String JAXP_SCHEMA_LANGUAGE
-                = "http://java.sun.com/xml/jaxp/properties/schemaLanguage";
-
-        static final String JAXP_SCHEMA_SOURCE
-                = "http://java.sun.com/xml/jaxp/properties/schemaSource";
-
         static final String XML_NAMESPACE_PREFIXES
                 = "http://xml.org/sax/features/namespace-prefixes";
 
         static final String W3C_XML_SCHEMA = "http://www.w3.org/2001/XMLSchema";
 
-        private static SAXParser newSAXParser(URL schema, InputStream schemaStream)
-                throws ParserConfigurationException, SAXException {
-            if (schema == null) {
-                SAXParserFactory parserFactory = SAXParserFactory.newInstance();
-                parserFactory.setValidating(false);
-                parserFactory.setNamespaceAware(true);
-                SAXParser parser = parserFactory.newSAXParser();
-                parser.getXMLReader().setFeature(XML_NAMESPACE_PREFIXES, true);
-                return parser;
-            } else {
-                SAXParserFactory parserFactory = SAXParserFactory.newInstance();
-                parserFactory.setValidating(true);
-                parserFactory.setNamespaceAware(true);
+        private static final SAXParserFactory NON_VALIDATING_PARSER_FACTORY;
+        private static final ConcurrentMap<String, SAXParserFactory> VALIDATING_PARSER_FACTORIES = new ConcurrentHashMap<String, SAXParserFactory>();
+
+        static {
+            ClassLoader original = Thread.currentThread().getContextClassLoader();
+            Thread.currentThread().setContextClassLoader(ClassLoaderUtils.getPlatformClassLoader());
+            try {
+                NON_VALIDATING_PARSER_FACTORY = SAXParserFactory.newInstance();
+                NON_VALIDATING_PARSER_FACTORY.setValidating(false);
+                NON_VALIDATING_PARSER_FACTORY.setNamespaceAware(true);
+            } finally {
+                Thread.currentThread().setContextClassLoader(original);
+            }
+        }
+
+        private static SAXParser newSAXParser(URL schema)
+                throws ParserConfigurationException, SAXException, IOException {
+            SAXParserFactory parserFactory = schema == null ? NON_VALIDATING_PARSER_FACTORY : getValidatingParserFactory(schema);
+            SAXParser parser;
+            // The factories are shared, and are not guaranteed to be thread-safe
+            synchronized (parserFactory) {
+                parser = parserFactory.newSAXParser();
+            }
+            parser.getXMLReader().setFeature(XML_NAMESPACE_PREFIXES, true);
+            return parser;
+        }
 
-                SAXParser parser = parserFactory.newSAXParser();
-                parser.setProperty(JAXP_SCHEMA_LANGUAGE, W3C_XML_SCHEMA);
-                parser.setProperty(JAXP_SCHEMA_SOURCE, schemaStream);
-                parser.getXMLReader().setFeature(XML_NAMESPACE_PREFIXES, true);
-                return parser;
+        /**
+         * Returns a factory for parsers that validate against the given schema. The schema is compiled once, rather than for each parsed descriptor.
+         */
+        private static SAXParserFactory getValidatingParserFactory(URL schema) throws SAXException, IOException {
+            String key = schema.toExternalForm();
+            SAXParserFactory parserFactory = VALIDATING_PARSER_FACTORIES.get(key);
+            if (parserFactory == null) {
+                InputStream schemaStream = URLHandlerRegistry.getDefault().openStream(schema);
+                try {
+                    SchemaFactory schemaFactory = SchemaFactory.newInstance(W3C_XML_SCHEMA);
+                    Schema compiledSchema = schemaFactory.newSchema(new StreamSource(schemaStream, key));
+                    parserFactory = SAXParserFactory.newInstance();
+                    parserFactory.setValidating(false);
+                    parserFactory.setNamespaceAware(true);
+                    parserFactory.setSchema(compiledSchema);
+                } finally {
+                    try {
+                        schemaStream.close();
+                    } catch (IOException ex) {
+                        // ignored
+                    }
+                }
+                SAXParserFactory existing = VALIDATING_PARSER_FACTORIES.putIfAbsent(key, parserFactory);
+                if (existing != null) {
+                    parserFactory = existing;
+                }
             }
+            return parserFactory;
         }
 
         public static void parse(
@@ -1301,30 +1379,15 @@ public class IvyXmlModuleDescriptorParser extends AbstractModuleDescriptorParser
         public static void parse(
                 InputSource xmlStream, URL schema, DefaultHandler handler)
                 throws SAXException, IOException, ParserConfigurationException {
-            InputStream schemaStream = null;
+            // Set the context classloader to the bootstrap classloader, to work around how JAXP locates implementation classes
+            // This should ensure that the JAXP classes provided by the JVM are used, rather than some other implementation
+            ClassLoader original = Thread.currentThread().getContextClassLoader();
+            Thread.currentThread().setContextClassLoader(ClassLoaderUtils.getPlatformClassLoader());
             try {
-                if (schema != null) {
-                    schemaStream = URLHandlerRegistry.getDefault().openStream(schema);
-                }
-
-                // Set the context classloader to the bootstrap classloader, to work around how JAXP locates implementation classes
-                // This should ensure that the JAXP classes provided by the JVM are used, rather than some other implementation
-                ClassLoader original = Thread.currentThread().getContextClassLoader();
-                Thread.currentThread().setContextClassLoader(ClassLoaderUtils.getPlatformClassLoader());
-                try {
-                    SAXParser parser = newSAXParser(schema, schemaStream);
-                    parser.parse(xmlStream, handler);
-                } finally {
-                    Thread.currentThread().setContextClassLoader(original);
-                }
+                SAXParser parser = newSAXParser(schema);
+                parser.parse(xmlStream, handler);
             } finally {
-                if (schemaStream != null) {
-                    try {
-                        schemaStream.close();
-                    } catch (IOException ex) {
-                        // ignored
-                    }
-                }
+                Thread.currentThread().setContextClassLoader(original);
             }
         }
     }
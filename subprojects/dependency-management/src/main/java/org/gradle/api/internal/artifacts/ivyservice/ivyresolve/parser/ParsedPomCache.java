@@ -0,0 +1,62 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.hash.HashValue;
+import org.gradle.internal.resource.local.LocallyAvailableExternalResource;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Caches the parsed content of parent and imported POMs in memory, keyed by the SHA-1 of the cached POM file.
+ *
+ * <p>The same parent and BOM POMs are typically used by many of the modules resolved in a build, so this avoids parsing them again for every module
+ * that refers to them. The cache holds the immutable content of the POM rather than a {@link PomReader}, as a {@link PomReader} is updated
+ * with the information inherited from its own parent and imported POMs while the referring POM is parsed.</p>
+ *
+ * <p>When several threads ask for the same POM at the same time, it is parsed by one of them and the others wait for the result.</p>
+ */
+public class ParsedPomCache implements Stoppable {
+    private final Cache<HashValue, PomElement> cache = CacheBuilder.newBuilder().build();
+
+    PomElement parse(final LocallyAvailableExternalResource resource) {
+        HashValue sha1 = resource.getLocalResource().getSha1();
+        try {
+            return cache.get(sha1, new Callable<PomElement>() {
+                @Override
+                public PomElement call() {
+                    return PomReader.parse(resource);
+                }
+            });
+        } catch (ExecutionException e) {
+            throw UncheckedException.throwAsUncheckedException(e.getCause());
+        } catch (UncheckedExecutionException e) {
+            throw UncheckedException.throwAsUncheckedException(e.getCause());
+        }
+    }
+
+    @Override
+    public void stop() {
+        cache.invalidateAll();
+    }
+}
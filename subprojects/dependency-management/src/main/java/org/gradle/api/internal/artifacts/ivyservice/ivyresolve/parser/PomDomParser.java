@@ -16,39 +16,156 @@
 
 package org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser;
 
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
+import com.google.common.collect.ImmutableSet;
+import org.apache.commons.io.IOUtils;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.classloader.ClassLoaderUtils;
 
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLResolver;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import java.io.*;
-import java.util.LinkedList;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.List;
+import java.util.Set;
 
+/**
+ * Reads a POM into a tree of {@link PomElement}, using a StAX parser.
+ *
+ * <p>Only the parts of the POM that are used to build the module metadata are kept: the build, reporting, repository and project information sections of the
+ * project and its profiles are skipped while parsing.</p>
+ */
 public final class PomDomParser {
+    private static final String PROFILE = "profile";
+    private static final Set<String> IGNORED_ELEMENTS = ImmutableSet.of(
+        "build", "reporting", "repositories", "pluginRepositories", "modules", "licenses", "developers", "contributors",
+        "mailingLists", "scm", "issueManagement", "ciManagement", "organization", "prerequisites", "url", "inceptionYear"
+    );
+    private static final byte[] M2_ENTITIES_RESOURCE;
+    // XMLInputFactory is not guaranteed to be thread-safe, so use an instance per thread. Each instance is only configured once.
+    private static final ThreadLocal<XMLInputFactory> XML_INPUT_FACTORY = new ThreadLocal<XMLInputFactory>() {
+        @Override
+        protected XMLInputFactory initialValue() {
+            return createInputFactory();
+        }
+    };
+
+    static {
+        byte[] bytes;
+        try {
+            bytes = IOUtils.toByteArray(org.apache.ivy.plugins.parser.m2.PomReader.class.getResourceAsStream("m2-entities.ent"));
+        } catch (IOException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+        M2_ENTITIES_RESOURCE = bytes;
+    }
+
     private PomDomParser() {}
 
-    public static String getTextContent(Element element) {
-        StringBuilder result = new StringBuilder();
+    private static XMLInputFactory createInputFactory() {
+        // Set the context classloader the bootstrap classloader, to work around the way that JAXP locates implementation classes
+        // This should ensure that the JAXP classes provided by the JVM are used, rather than some other implementation
+        ClassLoader original = Thread.currentThread().getContextClassLoader();
+        Thread.currentThread().setContextClassLoader(ClassLoaderUtils.getPlatformClassLoader());
+        try {
+            XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+            inputFactory.setProperty(XMLInputFactory.IS_VALIDATING, false);
+            inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, true);
+            inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, true);
+            inputFactory.setProperty(XMLInputFactory.IS_REPLACING_ENTITY_REFERENCES, true);
+            inputFactory.setProperty(XMLInputFactory.IS_COALESCING, true);
+            inputFactory.setXMLResolver(new XMLResolver() {
+                public Object resolveEntity(String publicId, String systemId, String baseUri, String namespace) {
+                    if ((systemId != null) && systemId.endsWith("m2-entities.ent")) {
+                        return new ByteArrayInputStream(M2_ENTITIES_RESOURCE);
+                    }
+                    return null;
+                }
+            });
+            return inputFactory;
+        } finally {
+            Thread.currentThread().setContextClassLoader(original);
+        }
+    }
 
-        NodeList childNodes = element.getChildNodes();
-        for (int i = 0; i < childNodes.getLength(); i++) {
-            Node child = childNodes.item(i);
+    /**
+     * Parses the given POM content, returning the root element.
+     */
+    static PomElement parse(InputStream stream, String systemId) throws IOException, XMLStreamException {
+        XMLStreamReader reader = XML_INPUT_FACTORY.get().createXMLStreamReader(systemId, new AddDTDFilterInputStream(stream));
+        try {
+            return readDocument(reader);
+        } finally {
+            reader.close();
+        }
+    }
 
-            switch (child.getNodeType()) {
-                case Node.CDATA_SECTION_NODE:
-                case Node.TEXT_NODE:
-                    result.append(child.getNodeValue());
+    private static PomElement readDocument(XMLStreamReader reader) throws XMLStreamException {
+        Deque<ElementBuilder> open = new ArrayDeque<ElementBuilder>();
+        while (reader.hasNext()) {
+            switch (reader.next()) {
+                case XMLStreamConstants.START_ELEMENT:
+                    String name = getName(reader);
+                    ElementBuilder parent = open.peek();
+                    if (parent != null && parent.keepsOnlyModelElements() && IGNORED_ELEMENTS.contains(name)) {
+                        skipElement(reader);
+                    } else {
+                        open.push(new ElementBuilder(name, parent == null || PROFILE.equals(name)));
+                    }
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    PomElement element = open.pop().build();
+                    if (open.isEmpty()) {
+                        return element;
+                    }
+                    open.peek().children.add(element);
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                    if (!open.isEmpty()) {
+                        open.peek().text.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                    }
                     break;
                 default:
                     break;
             }
         }
+        throw new XMLStreamException("No root element found");
+    }
+
+    private static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    private static String getName(XMLStreamReader reader) {
+        // Match the qualified node names used by a non namespace aware parser
+        String prefix = reader.getPrefix();
+        if (prefix == null || prefix.isEmpty()) {
+            return reader.getLocalName();
+        }
+        return prefix + ":" + reader.getLocalName();
+    }
 
-        return result.toString();
+    public static String getTextContent(PomElement element) {
+        return element.getText();
     }
 
-    public static String getFirstChildText(Element parentElem, String name) {
-        Element node = getFirstChildElement(parentElem, name);
+    public static String getFirstChildText(PomElement parentElem, String name) {
+        PomElement node = getFirstChildElement(parentElem, name);
         if (node != null) {
             return getTextContent(node);
         } else {
@@ -56,32 +173,54 @@ public final class PomDomParser {
         }
     }
 
-    public static Element getFirstChildElement(Element parentElem, String name) {
+    public static PomElement getFirstChildElement(PomElement parentElem, String name) {
         if (parentElem == null) {
             return null;
         }
-        NodeList childs = parentElem.getChildNodes();
-        for (int i = 0; i < childs.getLength(); i++) {
-            Node node = childs.item(i);
-            if (node instanceof Element && name.equals(node.getNodeName())) {
-                return (Element) node;
+        for (PomElement child : parentElem.getChildren()) {
+            if (name.equals(child.getName())) {
+                return child;
             }
         }
         return null;
     }
 
-    public static List<Element> getAllChilds(Element parent) {
-        List<Element> r = new LinkedList<Element>();
-        if (parent != null) {
-            NodeList childs = parent.getChildNodes();
-            for (int i = 0; i < childs.getLength(); i++) {
-                Node node = childs.item(i);
-                if (node instanceof Element) {
-                    r.add((Element) node);
+    public static List<PomElement> getAllChilds(PomElement parent) {
+        if (parent == null) {
+            return Collections.emptyList();
+        }
+        return parent.getChildren();
+    }
+
+    private static class ElementBuilder {
+        private final String name;
+        private final boolean keepsOnlyModelElements;
+        private final StringBuilder text = new StringBuilder();
+        private final List<PomElement> children = new ArrayList<PomElement>();
+
+        ElementBuilder(String name, boolean keepsOnlyModelElements) {
+            this.name = name;
+            this.keepsOnlyModelElements = keepsOnlyModelElements;
+        }
+
+        boolean keepsOnlyModelElements() {
+            return keepsOnlyModelElements;
+        }
+
+        PomElement build() {
+            // The text between child elements is only formatting, so don't keep it
+            String content = children.isEmpty() || !isBlank(text) ? text.toString() : "";
+            return new PomElement(name, content, children);
+        }
+
+        private static boolean isBlank(CharSequence text) {
+            for (int i = 0; i < text.length(); i++) {
+                if (!Character.isWhitespace(text.charAt(i))) {
+                    return false;
                 }
             }
+            return true;
         }
-        return r;
     }
 
     public static final class AddDTDFilterInputStream extends FilterInputStream {
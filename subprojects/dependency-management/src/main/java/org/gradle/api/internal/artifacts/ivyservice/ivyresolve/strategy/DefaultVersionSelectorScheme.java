@@ -16,14 +16,31 @@
 
 package org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
 public class DefaultVersionSelectorScheme implements VersionSelectorScheme {
     private final VersionComparator versionComparator;
+    // Selectors are immutable, so each selector string is parsed once and the result shared by all dependencies that use it
+    private final ConcurrentMap<String, VersionSelector> selectors = new ConcurrentHashMap<String, VersionSelector>();
 
     public DefaultVersionSelectorScheme(VersionComparator versionComparator) {
         this.versionComparator = versionComparator;
     }
 
     public VersionSelector parseSelector(String selectorString) {
+        VersionSelector selector = selectors.get(selectorString);
+        if (selector == null) {
+            selector = createSelector(selectorString);
+            VersionSelector existing = selectors.putIfAbsent(selectorString, selector);
+            if (existing != null) {
+                selector = existing;
+            }
+        }
+        return selector;
+    }
+
+    private VersionSelector createSelector(String selectorString) {
         if (VersionRangeSelector.ALL_RANGE.matcher(selectorString).matches()) {
             return new VersionRangeSelector(selectorString, versionComparator.asStringComparator());
         }
@@ -16,21 +16,18 @@
 
 package org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy;
 
-import com.google.common.collect.ImmutableMap;
-
 import java.util.Comparator;
-import java.util.Locale;
-import java.util.Map;
 
 class StaticVersionComparator implements Comparator<Version> {
-    private static final Map<String, Integer> SPECIAL_MEANINGS =
-            ImmutableMap.of("dev", new Integer(-1), "rc", new Integer(1), "final", new Integer(2));
+    private static final String[] SPECIAL_PARTS = {"dev", "rc", "final"};
+    private static final int[] SPECIAL_MEANINGS = {-1, 1, 2};
+    private static final int NO_SPECIAL_MEANING = Integer.MIN_VALUE;
 
     /**
      * Compares 2 versions. Algorithm is inspired by PHP version_compare one.
      */
     public int compare(Version version1, Version version2) {
-        if (version1.equals(version2)) {
+        if (version1 == version2 || version1.equals(version2)) {
             return 0;
         }
 
@@ -50,17 +47,17 @@ class StaticVersionComparator implements Comparator<Version> {
             if (is2Number && !is1Number) {
                 return -1;
             }
-            if (is1Number && is2Number) {
-                return Long.valueOf(parts1[i]).compareTo(Long.valueOf(parts2[i]));
+            if (is1Number) {
+                return compareNumbers(parts1[i], parts2[i]);
             }
             // both are strings, we compare them taking into account special meaning
-            Integer sm1 = SPECIAL_MEANINGS.get(parts1[i].toLowerCase(Locale.US));
-            Integer sm2 = SPECIAL_MEANINGS.get(parts2[i].toLowerCase(Locale.US));
-            if (sm1 != null) {
-                sm2 = sm2 == null ? 0 : sm2;
+            int sm1 = specialMeaning(parts1[i]);
+            int sm2 = specialMeaning(parts2[i]);
+            if (sm1 != NO_SPECIAL_MEANING) {
+                sm2 = sm2 == NO_SPECIAL_MEANING ? 0 : sm2;
                 return sm1 - sm2;
             }
-            if (sm2 != null) {
+            if (sm2 != NO_SPECIAL_MEANING) {
                 return -sm2;
             }
             return parts1[i].compareTo(parts2[i]);
@@ -75,7 +72,72 @@ class StaticVersionComparator implements Comparator<Version> {
         return 0;
     }
 
-    private boolean isNumber(String str) {
-        return str.matches("\\d+");
+    private static boolean isNumber(String str) {
+        if (str.length() == 0) {
+            return false;
+        }
+        for (int i = 0; i < str.length(); i++) {
+            char ch = str.charAt(i);
+            if (ch < '0' || ch > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Compares 2 strings of digits by their numeric value, without a limit on the number of digits.
+     */
+    private static int compareNumbers(String number1, String number2) {
+        int start1 = skipLeadingZeros(number1);
+        int start2 = skipLeadingZeros(number2);
+        int length1 = number1.length() - start1;
+        int length2 = number2.length() - start2;
+        if (length1 != length2) {
+            return length1 - length2;
+        }
+        for (int i = 0; i < length1; i++) {
+            int diff = number1.charAt(start1 + i) - number2.charAt(start2 + i);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return 0;
+    }
+
+    private static int skipLeadingZeros(String number) {
+        int start = 0;
+        while (start < number.length() - 1 && number.charAt(start) == '0') {
+            start++;
+        }
+        return start;
+    }
+
+    private static int specialMeaning(String part) {
+        for (int i = 0; i < SPECIAL_PARTS.length; i++) {
+            if (equalsLowerCase(SPECIAL_PARTS[i], part)) {
+                return SPECIAL_MEANINGS[i];
+            }
+        }
+        return NO_SPECIAL_MEANING;
+    }
+
+    /**
+     * Same as {@code lowerCase.equals(str.toLowerCase(Locale.US))} for an ASCII lower case string, without creating a new string.
+     */
+    private static boolean equalsLowerCase(String lowerCase, String str) {
+        if (lowerCase.length() != str.length()) {
+            return false;
+        }
+        for (int i = 0; i < str.length(); i++) {
+            char ch = str.charAt(i);
+            if (ch >= 'A' && ch <= 'Z') {
+                ch = (char) (ch + ('a' - 'A'));
+            }
+            if (ch != lowerCase.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
     }
 }
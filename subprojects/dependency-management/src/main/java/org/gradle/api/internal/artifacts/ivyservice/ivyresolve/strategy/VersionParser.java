@@ -16,14 +16,34 @@
 
 package org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import org.gradle.api.Transformer;
 
 import java.util.ArrayList;
 import java.util.List;
 
 public class VersionParser implements Transformer<Version, String> {
+    private static final int MAX_CACHED_VERSIONS = 20000;
+
+    // Versions are immutable, so are shared by all parsers. The same versions are parsed over and over again while resolving, for each comparison.
+    // The least recently used versions are discarded once the cache is full
+    private static final Cache<String, Version> CACHE = CacheBuilder.newBuilder().maximumSize(MAX_CACHED_VERSIONS).build();
+
     @Override
     public Version transform(String original) {
+        Version version = CACHE.getIfPresent(original);
+        if (version == null) {
+            version = parse(original);
+            Version existing = CACHE.asMap().putIfAbsent(original, version);
+            if (existing != null) {
+                version = existing;
+            }
+        }
+        return version;
+    }
+
+    private Version parse(String original) {
         List<String> parts = new ArrayList<String>();
         boolean digit = false;
         int startPart = 0;
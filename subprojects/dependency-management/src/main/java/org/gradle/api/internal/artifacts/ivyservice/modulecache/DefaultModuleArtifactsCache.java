@@ -16,7 +16,9 @@
 package org.gradle.api.internal.artifacts.ivyservice.modulecache;
 
 import com.google.common.base.Objects;
+import org.gradle.api.Transformer;
 import org.gradle.api.artifacts.component.ComponentIdentifier;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
 import org.gradle.api.internal.artifacts.ivyservice.CacheLockingManager;
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.ModuleComponentRepository;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.ComponentIdentifierSerializer;
@@ -52,7 +54,12 @@ public class DefaultModuleArtifactsCache implements ModuleArtifactsCache {
     }
 
     private PersistentIndexedCache<ModuleArtifactsKey, ModuleArtifactsCacheEntry> initCache() {
-        return cacheLockingManager.createCache("module-artifacts", new ModuleArtifactsKeySerializer(), new ModuleArtifactsCacheEntrySerializer());
+        return cacheLockingManager.createPartitionedCache("module-artifacts", new ModuleArtifactsKeySerializer(), new ModuleArtifactsCacheEntrySerializer(), new Transformer<String, ModuleArtifactsKey>() {
+            @Override
+            public String transform(ModuleArtifactsKey key) {
+                return key.componentId instanceof ModuleComponentIdentifier ? ((ModuleComponentIdentifier) key.componentId).getGroup() : key.componentId.getDisplayName();
+            }
+        });
     }
 
     public CachedArtifacts cacheArtifacts(ModuleComponentRepository repository, ComponentIdentifier componentId, String context, BigInteger descriptorHash, Set<? extends ComponentArtifactMetadata> artifacts) {
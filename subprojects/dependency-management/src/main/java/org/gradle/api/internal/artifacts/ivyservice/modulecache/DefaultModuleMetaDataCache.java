@@ -16,6 +16,7 @@
 package org.gradle.api.internal.artifacts.ivyservice.modulecache;
 
 import com.google.common.base.Objects;
+import org.gradle.api.Transformer;
 import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
 import org.gradle.api.internal.artifacts.ivyservice.ArtifactCacheMetaData;
 import org.gradle.api.internal.artifacts.ivyservice.CacheLockingManager;
@@ -58,7 +59,12 @@ public class DefaultModuleMetaDataCache implements ModuleMetaDataCache {
     }
 
     private PersistentIndexedCache<ModuleComponentAtRepositoryKey, ModuleMetadataCacheEntry> initCache() {
-        return cacheLockingManager.createCache("module-metadata", new RevisionKeySerializer(), new ModuleMetadataCacheEntrySerializer());
+        return cacheLockingManager.createPartitionedCache("module-metadata", new RevisionKeySerializer(), new ModuleMetadataCacheEntrySerializer(), new Transformer<String, ModuleComponentAtRepositoryKey>() {
+            @Override
+            public String transform(ModuleComponentAtRepositoryKey key) {
+                return key.getComponentId().getGroup();
+            }
+        });
     }
 
     public CachedMetaData getCachedModuleDescriptor(ModuleComponentRepository repository, ModuleComponentIdentifier componentId) {
@@ -79,6 +85,14 @@ public class DefaultModuleMetaDataCache implements ModuleMetaDataCache {
         return new DefaultCachedMetaData(entry, entry.configure(metadata), timeProvider);
     }
 
+    public CachedMetaData getCachedModuleDescriptorEntry(String repositoryId, ModuleComponentIdentifier componentId) {
+        ModuleMetadataCacheEntry entry = getCache().get(new ModuleComponentAtRepositoryKey(repositoryId, componentId));
+        if (entry == null || entry.isMissing()) {
+            return null;
+        }
+        return new DefaultCachedMetaData(entry, null, timeProvider);
+    }
+
     public CachedMetaData cacheMissing(ModuleComponentRepository repository, ModuleComponentIdentifier id) {
         LOGGER.debug("Recording absence of module descriptor in cache: {} [changing = {}]", id, false);
         ModuleMetadataCacheEntry entry = ModuleMetadataCacheEntry.forMissingModule(timeProvider.getCurrentTime());
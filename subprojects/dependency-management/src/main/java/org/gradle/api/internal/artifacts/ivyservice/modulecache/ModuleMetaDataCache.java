@@ -15,6 +15,7 @@
  */
 package org.gradle.api.internal.artifacts.ivyservice.modulecache;
 
+import org.gradle.api.Nullable;
 import org.gradle.api.artifacts.ResolvedModuleVersion;
 import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.ModuleComponentRepository;
@@ -30,6 +31,14 @@ public interface ModuleMetaDataCache {
 
     CachedMetaData getCachedModuleDescriptor(ModuleComponentRepository repository, ModuleComponentIdentifier id);
 
+    /**
+     * Returns the cache entry for the given component without loading its module descriptor, so the result carries no metadata.
+     *
+     * @return The entry, or null when the component is not cached or has been cached as missing.
+     */
+    @Nullable
+    CachedMetaData getCachedModuleDescriptorEntry(String repositoryId, ModuleComponentIdentifier id);
+
     interface CachedMetaData {
         ResolvedModuleVersion getModuleVersion();
 
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.modulecache;
+
+import com.google.common.util.concurrent.Striped;
+import org.gradle.api.Action;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.component.external.model.ModuleComponentResolveMetadata;
+import org.gradle.internal.component.external.model.MutableModuleComponentResolveMetadata;
+import org.gradle.internal.hash.HashValue;
+import org.gradle.internal.resource.local.LocallyAvailableResource;
+import org.gradle.internal.resource.local.PathKeyFileStore;
+import org.gradle.internal.serialize.kryo.KryoBackedDecoder;
+import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Stores the binary form of parsed module descriptors, keyed by the SHA-1 of the descriptor file and the kind of descriptor.
+ *
+ * <p>Reading the binary form is much cheaper than parsing the descriptor again, so descriptors that are read in every build,
+ * such as those of a local repository, are only parsed once.</p>
+ *
+ * <p>Descriptors are parsed by several threads at the same time, so an entry is only locked while it is being read or written.
+ * Reads and writes of different entries run concurrently.</p>
+ */
+public class ParsedDescriptorStore {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ParsedDescriptorStore.class);
+
+    private final PathKeyFileStore store;
+    private final ModuleMetadataSerializer moduleMetadataSerializer;
+    private final Striped<Lock> locks = Striped.lock(64);
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public ParsedDescriptorStore(PathKeyFileStore store, ModuleMetadataSerializer moduleMetadataSerializer) {
+        this.store = store;
+        this.moduleMetadataSerializer = moduleMetadataSerializer;
+    }
+
+    /**
+     * Returns the parsed descriptor with the given kind and SHA-1, or null when it has not been stored or cannot be read.
+     */
+    public MutableModuleComponentResolveMetadata get(String kind, HashValue descriptorSha1) {
+        String path = getFilePath(kind, descriptorSha1);
+        MutableModuleComponentResolveMetadata metadata;
+        Lock lock = locks.get(path);
+        lock.lock();
+        try {
+            metadata = read(path);
+        } finally {
+            lock.unlock();
+        }
+        if (metadata == null) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+        return metadata;
+    }
+
+    public void put(String kind, HashValue descriptorSha1, final ModuleComponentResolveMetadata metadata) {
+        String path = getFilePath(kind, descriptorSha1);
+        Lock lock = locks.get(path);
+        lock.lock();
+        try {
+            store.add(path, new Action<File>() {
+                public void execute(File descriptorFile) {
+                    try {
+                        KryoBackedEncoder encoder = new KryoBackedEncoder(new FileOutputStream(descriptorFile));
+                        try {
+                            moduleMetadataSerializer.write(encoder, metadata);
+                        } finally {
+                            encoder.close();
+                        }
+                    } catch (Exception e) {
+                        throw UncheckedException.throwAsUncheckedException(e);
+                    }
+                }
+            });
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of descriptors that have been read from this store.
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Returns the number of descriptors that have been requested from this store but could not be read.
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    private MutableModuleComponentResolveMetadata read(String path) {
+        LocallyAvailableResource resource = store.get(path);
+        if (resource == null) {
+            return null;
+        }
+        try {
+            KryoBackedDecoder decoder = new KryoBackedDecoder(new FileInputStream(resource.getFile()));
+            try {
+                return moduleMetadataSerializer.read(decoder);
+            } finally {
+                decoder.close();
+            }
+        } catch (Exception e) {
+            // The descriptor can always be parsed again, so don't fail
+            LOGGER.debug("Could not read parsed descriptor from {}.", resource.getFile(), e);
+            return null;
+        }
+    }
+
+    private String getFilePath(String kind, HashValue descriptorSha1) {
+        return descriptorSha1.asHexString() + "/" + kind + ".bin";
+    }
+}
@@ -16,34 +16,48 @@
 package org.gradle.api.internal.artifacts.ivyservice.resolveengine;
 
 import com.google.common.collect.Lists;
+import com.google.common.hash.HashCode;
 import org.gradle.api.attributes.AttributesSchema;
 import org.gradle.api.internal.artifacts.ArtifactDependencyResolver;
 import org.gradle.api.internal.artifacts.GlobalDependencyResolutionRules;
 import org.gradle.api.internal.artifacts.ResolveContext;
 import org.gradle.api.internal.artifacts.configurations.ConflictResolution;
 import org.gradle.api.internal.artifacts.configurations.ResolutionStrategyInternal;
+import org.gradle.api.internal.artifacts.dsl.ModuleReplacementsData;
 import org.gradle.api.internal.artifacts.ivyservice.CacheLockingArtifactResolver;
 import org.gradle.api.internal.artifacts.ivyservice.CacheLockingManager;
 import org.gradle.api.internal.artifacts.ivyservice.clientmodule.ClientModuleResolver;
 import org.gradle.api.internal.artifacts.ivyservice.dependencysubstitution.DependencySubstitutionResolver;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.CachedModuleMetadataUpToDateSpec;
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.ComponentResolvers;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.ConfiguredModuleComponentRepository;
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.ErrorHandlingArtifactResolver;
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.ResolveIvyFactory;
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.ResolverProviderFactory;
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.VersionComparator;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.VersionSelectorScheme;
+import org.gradle.api.internal.artifacts.ivyservice.modulecache.ModuleMetaDataCache;
 import org.gradle.api.internal.artifacts.ivyservice.moduleconverter.dependencies.DependencyDescriptorFactory;
 import org.gradle.api.internal.artifacts.ivyservice.resolutionstrategy.PreferProjectModulesConflictResolution;
 import org.gradle.api.internal.artifacts.ivyservice.resolutionstrategy.StrictConflictResolution;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.DependencyArtifactsVisitor;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.ResolvedArtifactsGraphVisitor;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.CachedGraph;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.CompositeDependencyGraphVisitor;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphBuilder;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphVisitor;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.MetadataPrefetcher;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.ResolvedGraphRecorder;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.conflicts.ConflictHandler;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.conflicts.DefaultConflictHandler;
 import org.gradle.api.internal.artifacts.repositories.ResolutionAwareRepository;
 import org.gradle.api.specs.Spec;
+import org.gradle.api.specs.Specs;
+import org.gradle.internal.Factory;
+import org.gradle.internal.component.model.ComponentResolveMetadata;
 import org.gradle.internal.component.model.DependencyMetadata;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.StoppableExecutor;
 import org.gradle.internal.resolve.resolver.ArtifactResolver;
 import org.gradle.internal.resolve.resolver.ComponentMetaDataResolver;
 import org.gradle.internal.resolve.resolver.DependencyToComponentIdResolver;
@@ -53,39 +67,118 @@ import org.gradle.internal.service.ServiceRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 public class DefaultArtifactDependencyResolver implements ArtifactDependencyResolver {
+    /**
+     * The maximum number of dependencies to fetch metadata for concurrently while building the dependency graph. Metadata is fetched on demand when not set.
+     */
+    public static final String PARALLEL_METADATA_FETCHES_PROPERTY = "org.gradle.resolution.parallelMetadataFetches";
+
     private static final Logger LOGGER = LoggerFactory.getLogger(DefaultArtifactDependencyResolver.class);
     private final ServiceRegistry serviceRegistry;
     private final DependencyDescriptorFactory dependencyDescriptorFactory;
     private final ResolveIvyFactory ivyFactory;
     private final CacheLockingManager cacheLockingManager;
     private final VersionComparator versionComparator;
+    private final ExecutorFactory executorFactory;
+    private final int parallelMetadataFetches;
+    private final ResolvedGraphCache graphCache;
+    private final ModuleMetaDataCache moduleMetaDataCache;
+    private final VersionSelectorScheme versionSelectorScheme;
+    private final boolean refreshDependencies;
 
     public DefaultArtifactDependencyResolver(ServiceRegistry serviceRegistry, ResolveIvyFactory ivyFactory, DependencyDescriptorFactory dependencyDescriptorFactory,
-                                             CacheLockingManager cacheLockingManager, VersionComparator versionComparator) {
+                                             CacheLockingManager cacheLockingManager, VersionComparator versionComparator, ExecutorFactory executorFactory,
+                                             ResolvedGraphCache graphCache, ModuleMetaDataCache moduleMetaDataCache, VersionSelectorScheme versionSelectorScheme,
+                                             boolean refreshDependencies) {
         this.serviceRegistry = serviceRegistry;
         this.ivyFactory = ivyFactory;
         this.dependencyDescriptorFactory = dependencyDescriptorFactory;
         this.cacheLockingManager = cacheLockingManager;
         this.versionComparator = versionComparator;
+        this.executorFactory = executorFactory;
+        this.parallelMetadataFetches = Integer.getInteger(PARALLEL_METADATA_FETCHES_PROPERTY, 0);
+        this.graphCache = graphCache;
+        this.moduleMetaDataCache = moduleMetaDataCache;
+        this.versionSelectorScheme = versionSelectorScheme;
+        this.refreshDependencies = refreshDependencies;
     }
 
     @Override
     public void resolve(ResolveContext resolveContext, List<? extends ResolutionAwareRepository> repositories, GlobalDependencyResolutionRules metadataHandler, Spec<? super DependencyMetadata> edgeFilter, DependencyGraphVisitor graphVisitor, DependencyArtifactsVisitor artifactsVisitor, AttributesSchema attributesSchema) {
         LOGGER.debug("Resolving {}", resolveContext);
         ComponentResolvers resolvers = createResolvers(resolveContext, repositories, metadataHandler);
-        DependencyGraphBuilder builder = createDependencyGraphBuilder(resolvers, resolveContext.getResolutionStrategy(), metadataHandler, edgeFilter, attributesSchema);
-
         ArtifactResolver artifactResolver = new ErrorHandlingArtifactResolver(new CacheLockingArtifactResolver(cacheLockingManager, resolvers.getArtifactResolver()));
         DependencyGraphVisitor artifactsGraphVisitor = new ResolvedArtifactsGraphVisitor(artifactsVisitor, artifactResolver);
 
-        // Resolve the dependency graph
-        builder.resolve(resolveContext, new CompositeDependencyGraphVisitor(graphVisitor, artifactsGraphVisitor));
+        HashCode graphKey = null;
+        if (edgeFilter == Specs.satisfyAll()) {
+            ComponentResolveMetadata rootComponent = resolveContext.toRootComponentMetaData();
+            graphKey = graphCache.fingerprint(rootComponent, resolveContext.getName(), resolveContext.getResolutionStrategy(), repositories, metadataHandler);
+            CachedGraph graph = graphKey == null || refreshDependencies ? null : graphCache.get(graphKey);
+            if (graph != null && isUpToDate(graph, resolveContext.getResolutionStrategy(), metadataHandler)) {
+                LOGGER.debug("Reusing the dependency graph of {} resolved by a previous build", resolveContext);
+                graph.replay(rootComponent, resolveContext.getName(), new CompositeDependencyGraphVisitor(graphVisitor, artifactsGraphVisitor));
+                return;
+            }
+        }
+
+        ComponentMetaDataResolver rawMetaDataResolver = parallelMetadataFetches > 0 ? ivyFactory.createRawMetaDataResolver(resolveContext.getResolutionStrategy(), repositories) : null;
+        final StoppableExecutor metadataExecutor = rawMetaDataResolver != null ? executorFactory.create("Dependency metadata fetch", parallelMetadataFetches) : null;
+        try {
+            MetadataPrefetcher metadataPrefetcher = metadataExecutor == null ? null : new MetadataPrefetcher(metadataExecutor, cacheLockingManager, rawMetaDataResolver, versionSelectorScheme);
+            DependencyGraphBuilder builder = createDependencyGraphBuilder(resolvers, resolveContext.getResolutionStrategy(), metadataHandler, edgeFilter, attributesSchema, metadataPrefetcher);
+
+            // Resolve the dependency graph
+            if (graphKey == null) {
+                builder.resolve(resolveContext, new CompositeDependencyGraphVisitor(graphVisitor, artifactsGraphVisitor));
+            } else {
+                ResolvedGraphRecorder recorder = new ResolvedGraphRecorder(versionSelectorScheme, metadataHandler.getModuleMetadataProcessor().getModuleReplacements(), localRepositoryIds(repositories));
+                builder.resolve(resolveContext, new CompositeDependencyGraphVisitor(graphVisitor, artifactsGraphVisitor, recorder));
+                if (recorder.getGraph() != null) {
+                    graphCache.put(graphKey, recorder.getGraph());
+                }
+            }
+        } finally {
+            if (metadataExecutor != null) {
+                // Fetches still in flight after a failure need the cache lock to complete
+                cacheLockingManager.longRunningOperation(new Runnable() {
+                    @Override
+                    public void run() {
+                        metadataExecutor.stop();
+                    }
+                });
+            }
+        }
+    }
+
+    private boolean isUpToDate(final CachedGraph graph, ResolutionStrategyInternal resolutionStrategy, GlobalDependencyResolutionRules metadataHandler) {
+        final ModuleReplacementsData moduleReplacements = metadataHandler.getModuleMetadataProcessor().getModuleReplacements();
+        final CachedModuleMetadataUpToDateSpec metadataUpToDate = new CachedModuleMetadataUpToDateSpec(moduleMetaDataCache, resolutionStrategy.getCachePolicy());
+        return cacheLockingManager.useCache(new Factory<Boolean>() {
+            @Override
+            public Boolean create() {
+                return graph.isUpToDate(moduleReplacements, metadataUpToDate);
+            }
+        });
+    }
+
+    private static Set<String> localRepositoryIds(List<? extends ResolutionAwareRepository> repositories) {
+        Set<String> ids = new HashSet<String>();
+        for (ResolutionAwareRepository repository : repositories) {
+            ConfiguredModuleComponentRepository resolver = repository.createResolver();
+            if (resolver.isLocal()) {
+                ids.add(resolver.getId());
+            }
+        }
+        return ids;
     }
 
-    private DependencyGraphBuilder createDependencyGraphBuilder(ComponentResolvers componentSource, ResolutionStrategyInternal resolutionStrategy, GlobalDependencyResolutionRules globalRules, Spec<? super DependencyMetadata> edgeFilter, AttributesSchema attributesSchema) {
+    private DependencyGraphBuilder createDependencyGraphBuilder(ComponentResolvers componentSource, ResolutionStrategyInternal resolutionStrategy, GlobalDependencyResolutionRules globalRules, Spec<? super DependencyMetadata> edgeFilter, AttributesSchema attributesSchema,
+                                                                MetadataPrefetcher metadataPrefetcher) {
 
         DependencyToComponentIdResolver componentIdResolver = new DependencySubstitutionResolver(componentSource.getComponentIdResolver(), resolutionStrategy.getDependencySubstitutionRule());
         ComponentMetaDataResolver componentMetaDataResolver = new ClientModuleResolver(componentSource.getComponentResolver(), dependencyDescriptorFactory);
@@ -93,7 +186,7 @@ public class DefaultArtifactDependencyResolver implements ArtifactDependencyReso
         ResolveContextToComponentResolver requestResolver = createResolveContextConverter();
         ConflictHandler conflictHandler = createConflictHandler(resolutionStrategy, globalRules);
 
-        return new DependencyGraphBuilder(componentIdResolver, componentMetaDataResolver, requestResolver, conflictHandler, edgeFilter, attributesSchema);
+        return new DependencyGraphBuilder(componentIdResolver, componentMetaDataResolver, requestResolver, conflictHandler, edgeFilter, attributesSchema, metadataPrefetcher);
     }
 
     private ComponentResolversChain createResolvers(ResolveContext resolveContext, List<? extends ResolutionAwareRepository> repositories, GlobalDependencyResolutionRules metadataHandler) {
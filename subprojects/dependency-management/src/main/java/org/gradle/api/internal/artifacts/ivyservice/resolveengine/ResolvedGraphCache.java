@@ -0,0 +1,221 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine;
+
+import com.google.common.base.Charsets;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import org.gradle.api.Nullable;
+import org.gradle.api.artifacts.ClientModule;
+import org.gradle.api.artifacts.DependencyArtifact;
+import org.gradle.api.artifacts.ExcludeRule;
+import org.gradle.api.artifacts.ExternalDependency;
+import org.gradle.api.artifacts.ExternalModuleDependency;
+import org.gradle.api.artifacts.ModuleDependency;
+import org.gradle.api.artifacts.ModuleVersionSelector;
+import org.gradle.api.artifacts.component.ModuleComponentSelector;
+import org.gradle.api.attributes.Attribute;
+import org.gradle.api.attributes.AttributeContainer;
+import org.gradle.api.internal.artifacts.GlobalDependencyResolutionRules;
+import org.gradle.api.internal.artifacts.configurations.ResolutionStrategyInternal;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.CachedGraph;
+import org.gradle.api.internal.artifacts.repositories.ResolutionAwareRepository;
+import org.gradle.internal.component.local.model.DslOriginDependencyMetadata;
+import org.gradle.internal.component.model.ComponentResolveMetadata;
+import org.gradle.internal.component.model.ConfigurationMetadata;
+import org.gradle.internal.component.model.DependencyMetadata;
+import org.gradle.internal.component.model.IvyArtifactName;
+import org.gradle.internal.concurrent.Stoppable;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Keeps the dependency graphs resolved by previous builds in this process, so that a configuration whose inputs have not changed does not need to be resolved again.
+ *
+ * <p>A graph is keyed by a fingerprint of the inputs of the resolution: the declared dependencies and excludes of the configuration, the conflict resolution
+ * strategy and forced modules, and the repositories. Configurations that use dependency substitution, component selection or component metadata rules are
+ * not cached, as the result of a rule cannot be fingerprinted. The dependencies declared inline by client modules and the attributes of the configuration are part of the
+ * fingerprint.</p>
+ *
+ * <p>Only graphs made of fixed versions of non-changing modules from remote repositories are kept (see
+ * {@link org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.ResolvedGraphRecorder}). A graph is reused only while the module metadata cache still holds
+ * the descriptors of its components and the cache policy of the configuration does not require them to be refreshed, see
+ * {@link org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.CachedGraph#isUpToDate}.</p>
+ *
+ * <p>The cache is bounded by the total size of the graphs it holds, and the graphs are softly referenced so that they can be discarded when memory is low.</p>
+ */
+public class ResolvedGraphCache implements Stoppable {
+    public static final String TOGGLE_PROPERTY = "org.gradle.resolution.graphCache";
+    public static final String MAX_SIZE_PROPERTY = "org.gradle.resolution.graphCache.maxSize";
+
+    private final boolean enabled;
+    private final Cache<HashCode, CachedGraph> graphs;
+
+    public ResolvedGraphCache() {
+        this(Boolean.getBoolean(TOGGLE_PROPERTY), Integer.getInteger(MAX_SIZE_PROPERTY, 200000));
+    }
+
+    /**
+     * @param maxSize The maximum total size of the cached graphs, see {@link CachedGraph#getSize()}.
+     */
+    ResolvedGraphCache(boolean enabled, int maxSize) {
+        this.enabled = enabled;
+        this.graphs = CacheBuilder.newBuilder().maximumWeight(maxSize).weigher(new Weigher<HashCode, CachedGraph>() {
+            @Override
+            public int weigh(HashCode key, CachedGraph graph) {
+                return graph.getSize();
+            }
+        }).softValues().build();
+    }
+
+    /**
+     * Calculates the key for resolving the given root configuration.
+     *
+     * @return The key, or null when the result of the resolution cannot be cached.
+     */
+    @Nullable
+    public HashCode fingerprint(ComponentResolveMetadata rootComponent, String configurationName, ResolutionStrategyInternal resolutionStrategy,
+                                List<? extends ResolutionAwareRepository> repositories, GlobalDependencyResolutionRules globalRules) {
+        if (!enabled
+            || resolutionStrategy.getDependencySubstitution().hasRules()
+            || !resolutionStrategy.getComponentSelection().getRules().isEmpty()
+            || globalRules.getDependencySubstitutionRules().hasRules()
+            || globalRules.getComponentMetadataProcessor().hasRules()) {
+            return null;
+        }
+        ConfigurationMetadata configuration = rootComponent.getConfiguration(configurationName);
+        if (configuration == null) {
+            return null;
+        }
+
+        Hasher hasher = Hashing.md5().newHasher();
+        putString(hasher, rootComponent.getComponentId().getDisplayName());
+        putString(hasher, rootComponent.getId().toString());
+        putString(hasher, configurationName);
+        putString(hasher, configuration.getExclusions().toString());
+        putAttributes(hasher, configuration.getAttributes());
+        for (DependencyMetadata dependency : configuration.getDependencies()) {
+            if (!(dependency.getSelector() instanceof ModuleComponentSelector)) {
+                return null;
+            }
+            putString(hasher, dependency.getSelector().getDisplayName());
+            for (String moduleConfiguration : new TreeSet<String>(dependency.getModuleConfigurations())) {
+                putString(hasher, moduleConfiguration);
+            }
+            hasher.putInt(dependency.getArtifacts().size());
+            for (IvyArtifactName artifact : dependency.getArtifacts()) {
+                putString(hasher, artifact.toString());
+            }
+            putString(hasher, dependency.getExclusions(configuration).toString());
+            hasher.putBoolean(dependency.isTransitive());
+            hasher.putBoolean(dependency.isForce());
+            hasher.putBoolean(dependency.isChanging());
+            ModuleDependency source = dependency instanceof DslOriginDependencyMetadata ? ((DslOriginDependencyMetadata) dependency).getSource() : null;
+            if (source instanceof ClientModule) {
+                putClientModuleDependencies(hasher, (ClientModule) source);
+            } else {
+                hasher.putInt(-1);
+            }
+        }
+
+        putString(hasher, resolutionStrategy.getConflictResolution().getClass().getName());
+        TreeSet<String> forcedModules = new TreeSet<String>();
+        for (ModuleVersionSelector forcedModule : resolutionStrategy.getForcedModules()) {
+            forcedModules.add(forcedModule.toString());
+        }
+        for (String forcedModule : forcedModules) {
+            putString(hasher, forcedModule);
+        }
+
+        for (ResolutionAwareRepository repository : repositories) {
+            putString(hasher, repository.createResolver().getId());
+        }
+        return hasher.hash();
+    }
+
+    private static void putAttributes(Hasher hasher, AttributeContainer attributes) {
+        TreeMap<String, Attribute<?>> sortedAttributes = new TreeMap<String, Attribute<?>>();
+        for (Attribute<?> attribute : attributes.keySet()) {
+            sortedAttributes.put(attribute.getName(), attribute);
+        }
+        hasher.putInt(sortedAttributes.size());
+        for (Attribute<?> attribute : sortedAttributes.values()) {
+            putString(hasher, attribute.getName());
+            putString(hasher, attribute.getType().getName());
+            putString(hasher, String.valueOf(attributes.getAttribute(attribute)));
+        }
+    }
+
+    /**
+     * Client modules replace the dependencies of the module's metadata with those declared inline, which may be client modules themselves.
+     */
+    private static void putClientModuleDependencies(Hasher hasher, ClientModule clientModule) {
+        TreeMap<String, ModuleDependency> dependencies = new TreeMap<String, ModuleDependency>();
+        for (ModuleDependency dependency : clientModule.getDependencies()) {
+            dependencies.put(dependency.getGroup() + ":" + dependency.getName() + ":" + dependency.getVersion() + ":" + dependency.getTargetConfiguration(), dependency);
+        }
+        hasher.putInt(dependencies.size());
+        for (Map.Entry<String, ModuleDependency> entry : dependencies.entrySet()) {
+            ModuleDependency dependency = entry.getValue();
+            putString(hasher, entry.getKey());
+            hasher.putBoolean(dependency.isTransitive());
+            hasher.putBoolean(dependency instanceof ExternalDependency && ((ExternalDependency) dependency).isForce());
+            hasher.putBoolean(dependency instanceof ExternalModuleDependency && ((ExternalModuleDependency) dependency).isChanging());
+            TreeSet<String> excludes = new TreeSet<String>();
+            for (ExcludeRule excludeRule : dependency.getExcludeRules()) {
+                excludes.add(excludeRule.getGroup() + ":" + excludeRule.getModule());
+            }
+            TreeSet<String> artifacts = new TreeSet<String>();
+            for (DependencyArtifact artifact : dependency.getArtifacts()) {
+                artifacts.add(artifact.getName() + ":" + artifact.getType() + ":" + artifact.getExtension() + ":" + artifact.getClassifier() + ":" + artifact.getUrl());
+            }
+            putString(hasher, excludes.toString());
+            putString(hasher, artifacts.toString());
+            if (dependency instanceof ClientModule) {
+                putClientModuleDependencies(hasher, (ClientModule) dependency);
+            } else {
+                hasher.putInt(-1);
+            }
+        }
+    }
+
+    private static void putString(Hasher hasher, String value) {
+        hasher.putInt(value.length());
+        hasher.putString(value, Charsets.UTF_8);
+    }
+
+    @Nullable
+    public CachedGraph get(HashCode key) {
+        return graphs.getIfPresent(key);
+    }
+
+    public void put(HashCode key, CachedGraph graph) {
+        graphs.put(key, graph);
+    }
+
+    @Override
+    public void stop() {
+        graphs.invalidateAll();
+    }
+}
@@ -16,11 +16,34 @@
 
 package org.gradle.api.internal.artifacts.ivyservice.resolveengine.excludes;
 
+import org.gradle.api.artifacts.ModuleIdentifier;
+
 import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 abstract class AbstractCompositeExclusion extends AbstractModuleExclusion {
+    private static final int MAX_CACHED_MODULES = 1024;
+
+    // The filters do not change once constructed, so the module results and hash code can be cached
+    private final ConcurrentMap<ModuleIdentifier, Boolean> excludedModules = new ConcurrentHashMap<ModuleIdentifier, Boolean>();
+    private int hashCode;
+
     abstract Collection<AbstractModuleExclusion> getFilters();
 
+    public final boolean excludeModule(ModuleIdentifier module) {
+        Boolean excluded = excludedModules.get(module);
+        if (excluded == null) {
+            excluded = doExcludeModule(module);
+            if (excludedModules.size() < MAX_CACHED_MODULES) {
+                excludedModules.put(module, excluded);
+            }
+        }
+        return excluded;
+    }
+
+    protected abstract boolean doExcludeModule(ModuleIdentifier module);
+
     @Override
     public String toString() {
         StringBuilder builder = new StringBuilder();
@@ -48,7 +71,10 @@ abstract class AbstractCompositeExclusion extends AbstractModuleExclusion {
 
     @Override
     protected int doHashCode() {
-        return getFilters().hashCode();
+        if (hashCode == 0) {
+            hashCode = getFilters().hashCode();
+        }
+        return hashCode;
     }
 
     /**
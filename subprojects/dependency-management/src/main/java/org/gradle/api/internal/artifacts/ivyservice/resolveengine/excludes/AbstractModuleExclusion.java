@@ -19,9 +19,16 @@ import org.gradle.api.artifacts.ModuleIdentifier;
 import org.gradle.internal.component.model.IvyArtifactName;
 
 import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Map;
 
 abstract class AbstractModuleExclusion implements ModuleExclusion {
     private static final String WILDCARD = "*";
+    private static final int MAX_COMBINED_RESULTS = 64;
+
+    // Results of combining this canonical exclusion with other canonical exclusions, see ModuleExclusions
+    private Map<AbstractModuleExclusion, ModuleExclusion> intersections;
+    private Map<AbstractModuleExclusion, ModuleExclusion> unions;
 
     protected static boolean isWildcard(String attribute) {
         return WILDCARD.equals(attribute);
@@ -79,6 +86,32 @@ abstract class AbstractModuleExclusion implements ModuleExclusion {
         specs.add(this);
     }
 
+    synchronized ModuleExclusion getIntersection(AbstractModuleExclusion other) {
+        return intersections == null ? null : intersections.get(other);
+    }
+
+    synchronized void setIntersection(AbstractModuleExclusion other, ModuleExclusion result) {
+        if (intersections == null) {
+            intersections = new IdentityHashMap<AbstractModuleExclusion, ModuleExclusion>();
+        }
+        if (intersections.size() < MAX_COMBINED_RESULTS) {
+            intersections.put(other, result);
+        }
+    }
+
+    synchronized ModuleExclusion getUnion(AbstractModuleExclusion other) {
+        return unions == null ? null : unions.get(other);
+    }
+
+    synchronized void setUnion(AbstractModuleExclusion other, ModuleExclusion result) {
+        if (unions == null) {
+            unions = new IdentityHashMap<AbstractModuleExclusion, ModuleExclusion>();
+        }
+        if (unions.size() < MAX_COMBINED_RESULTS) {
+            unions.put(other, result);
+        }
+    }
+
     @Override
     public final boolean equals(Object obj) {
         if (obj == this) {
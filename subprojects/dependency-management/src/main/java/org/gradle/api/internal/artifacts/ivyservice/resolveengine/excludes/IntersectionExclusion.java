@@ -19,17 +19,46 @@ package org.gradle.api.internal.artifacts.ivyservice.resolveengine.excludes;
 import org.gradle.api.artifacts.ModuleIdentifier;
 import org.gradle.internal.component.model.IvyArtifactName;
 
-import java.util.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 /**
  * A spec that excludes modules or artifacts that are excluded by _any_ of the supplied exclusions.
  * As such, this is an intersection of the separate exclude rule filters.
+ *
+ * <p>The exact match rules are compiled into sets of excluded groups, module names and module ids, so that a module can be checked against
+ * any number of these rules with a few lookups.</p>
  */
 class IntersectionExclusion extends AbstractCompositeExclusion {
     private final Set<AbstractModuleExclusion> excludeSpecs = new HashSet<AbstractModuleExclusion>();
+    private final Set<ModuleIdentifier> excludedModuleIds = new HashSet<ModuleIdentifier>();
+    private final Set<String> excludedGroups = new HashSet<String>();
+    private final Set<String> excludedModuleNames = new HashSet<String>();
+    private final List<AbstractModuleExclusion> otherModuleSpecs = new ArrayList<AbstractModuleExclusion>();
+    private final List<AbstractModuleExclusion> artifactSpecs = new ArrayList<AbstractModuleExclusion>();
+    private boolean excludesAllModules;
 
     public IntersectionExclusion(Collection<AbstractModuleExclusion> specs) {
         this.excludeSpecs.addAll(specs);
+        for (AbstractModuleExclusion spec : excludeSpecs) {
+            if (spec instanceof ModuleIdExcludeSpec) {
+                excludedModuleIds.add(((ModuleIdExcludeSpec) spec).moduleId);
+            } else if (spec instanceof GroupNameExcludeSpec) {
+                excludedGroups.add(((GroupNameExcludeSpec) spec).group);
+            } else if (spec instanceof ModuleNameExcludeSpec) {
+                excludedModuleNames.add(((ModuleNameExcludeSpec) spec).module);
+            } else if (spec instanceof ExcludeAllModulesSpec) {
+                excludesAllModules = true;
+            } else if (!spec.excludesNoModules()) {
+                otherModuleSpecs.add(spec);
+            }
+            if (spec.mayExcludeArtifacts()) {
+                artifactSpecs.add(spec);
+            }
+        }
     }
 
     Collection<AbstractModuleExclusion> getFilters() {
@@ -46,8 +75,15 @@ class IntersectionExclusion extends AbstractCompositeExclusion {
         return true;
     }
 
-    public boolean excludeModule(ModuleIdentifier element) {
-        for (AbstractModuleExclusion excludeSpec : excludeSpecs) {
+    @Override
+    protected boolean doExcludeModule(ModuleIdentifier element) {
+        if (excludesAllModules
+            || excludedModuleIds.contains(element)
+            || excludedGroups.contains(element.getGroup())
+            || excludedModuleNames.contains(element.getName())) {
+            return true;
+        }
+        for (AbstractModuleExclusion excludeSpec : otherModuleSpecs) {
             if (excludeSpec.excludeModule(element)) {
                 return true;
             }
@@ -56,7 +92,7 @@ class IntersectionExclusion extends AbstractCompositeExclusion {
     }
 
     public boolean excludeArtifact(ModuleIdentifier module, IvyArtifactName artifact) {
-        for (AbstractModuleExclusion excludeSpec : excludeSpecs) {
+        for (AbstractModuleExclusion excludeSpec : artifactSpecs) {
             if (excludeSpec.excludeArtifact(module, artifact)) {
                 return true;
             }
@@ -65,13 +101,7 @@ class IntersectionExclusion extends AbstractCompositeExclusion {
     }
 
     public boolean mayExcludeArtifacts() {
-        for (AbstractModuleExclusion spec : excludeSpecs) {
-            if (spec.mayExcludeArtifacts()) {
-                return true;
-            }
-        }
-
-        return false;
+        return !artifactSpecs.isEmpty();
     }
 
     /**
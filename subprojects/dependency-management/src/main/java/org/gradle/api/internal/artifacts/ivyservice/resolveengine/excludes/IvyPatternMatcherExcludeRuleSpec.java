@@ -16,6 +16,7 @@
 
 package org.gradle.api.internal.artifacts.ivyservice.resolveengine.excludes;
 
+import org.apache.ivy.plugins.matcher.Matcher;
 import org.apache.ivy.plugins.matcher.PatternMatcher;
 import org.gradle.api.artifacts.ModuleIdentifier;
 import org.gradle.internal.component.model.Exclude;
@@ -29,12 +30,23 @@ class IvyPatternMatcherExcludeRuleSpec extends AbstractModuleExclusion {
     private final IvyArtifactName ivyArtifactName;
     private final PatternMatcher matcher;
     private final boolean isArtifactExclude;
+    // Compiled once, as some matchers (eg regexp) compile the expression for each call to getMatcher()
+    private final Matcher groupMatcher;
+    private final Matcher moduleMatcher;
+    private final Matcher nameMatcher;
+    private final Matcher extensionMatcher;
+    private final Matcher typeMatcher;
 
     IvyPatternMatcherExcludeRuleSpec(Exclude rule) {
         this.moduleId = rule.getModuleId();
         this.ivyArtifactName = rule.getArtifact();
         this.matcher = PatternMatchers.getInstance().getMatcher(rule.getMatcher());
         isArtifactExclude = !isWildcard(ivyArtifactName.getName()) || !isWildcard(ivyArtifactName.getType()) || !isWildcard(ivyArtifactName.getExtension());
+        groupMatcher = matcher.getMatcher(moduleId.getGroup());
+        moduleMatcher = matcher.getMatcher(moduleId.getName());
+        nameMatcher = matcher.getMatcher(ivyArtifactName.getName());
+        extensionMatcher = matcher.getMatcher(ivyArtifactName.getExtension());
+        typeMatcher = matcher.getMatcher(ivyArtifactName.getType());
     }
 
     @Override
@@ -70,25 +82,21 @@ class IvyPatternMatcherExcludeRuleSpec extends AbstractModuleExclusion {
         if (isArtifactExclude) {
             return false;
         }
-        return matches(moduleId.getGroup(), module.getGroup()) && matches(moduleId.getName(), module.getName());
+        return groupMatcher.matches(module.getGroup()) && moduleMatcher.matches(module.getName());
     }
 
     public boolean excludeArtifact(ModuleIdentifier module, IvyArtifactName artifact) {
         if (!isArtifactExclude) {
             return false;
         }
-        return matches(moduleId.getGroup(), module.getGroup())
-            && matches(moduleId.getName(), module.getName())
-            && matches(ivyArtifactName.getName(), artifact.getName())
-            && matches(ivyArtifactName.getExtension(), artifact.getExtension())
-            && matches(ivyArtifactName.getType(), artifact.getType());
+        return groupMatcher.matches(module.getGroup())
+            && moduleMatcher.matches(module.getName())
+            && nameMatcher.matches(artifact.getName())
+            && extensionMatcher.matches(artifact.getExtension())
+            && typeMatcher.matches(artifact.getType());
     }
 
     public boolean mayExcludeArtifacts() {
         return isArtifactExclude;
     }
-
-    private boolean matches(String expression, String input) {
-        return matcher.getMatcher(expression).matches(input);
-    }
 }
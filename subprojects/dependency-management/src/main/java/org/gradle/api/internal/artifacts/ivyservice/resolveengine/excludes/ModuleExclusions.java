@@ -16,6 +16,8 @@
 
 package org.gradle.api.internal.artifacts.ivyservice.resolveengine.excludes;
 
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 import org.gradle.api.Transformer;
 import org.gradle.api.artifacts.ModuleIdentifier;
 import org.gradle.internal.component.model.Exclude;
@@ -40,6 +42,9 @@ import static org.gradle.api.internal.artifacts.ivyservice.resolveengine.exclude
  * dependency graph of a particular version that has already been traversed when a new incoming edge is added (eg a newly discovered dependency) and when an incoming edge is removed (eg a conflict
  * evicts a version that depends on the given version). </p>
  *
+ * <p>The specs returned by this class are canonical: equal specs are the same instance, and the results of combining specs are cached by each spec.
+ * As the same specs are combined for many edges of the graph, union and intersection are mostly an identity lookup.</p>
+ *
  * <ul>
  *     <li>When a module dependency has multiple exclusions, then the resulting exclusion is the _intersection_ of those exclusions (module is excluded if excluded by _any_).</li>
  *     <li>When a module is depended on via a transitive path, then the resulting exclusion is the _intersection_ of the exclusions on each leg of the path (module is excluded if excluded by _any_).</li>
@@ -49,6 +54,7 @@ import static org.gradle.api.internal.artifacts.ivyservice.resolveengine.exclude
 public class ModuleExclusions {
     private static final ExcludeNone EXCLUDE_NONE = new ExcludeNone();
     private static final ExcludeAllModulesSpec EXCLUDE_ALL_MODULES_SPEC = new ExcludeAllModulesSpec();
+    private static final Interner<AbstractModuleExclusion> CANONICAL_SPECS = Interners.newWeakInterner();
 
     /**
      * Returns a spec that excludes nothing.
@@ -74,12 +80,16 @@ public class ModuleExclusions {
         if (excludes.isEmpty()) {
             return EXCLUDE_NONE;
         }
-        return new IntersectionExclusion(CollectionUtils.collect(excludes, new Transformer<AbstractModuleExclusion, Exclude>() {
+        return canonical(new IntersectionExclusion(CollectionUtils.collect(excludes, new Transformer<AbstractModuleExclusion, Exclude>() {
             @Override
             public AbstractModuleExclusion transform(Exclude exclude) {
                 return forExclude(exclude);
             }
-        }));
+        })));
+    }
+
+    private static AbstractModuleExclusion canonical(ModuleExclusion spec) {
+        return CANONICAL_SPECS.intern((AbstractModuleExclusion) spec);
     }
 
     private static AbstractModuleExclusion forExclude(Exclude rule) {
@@ -123,15 +133,20 @@ public class ModuleExclusions {
         if (two == EXCLUDE_NONE) {
             return one;
         }
-        if (one.equals(two)) {
-            return one;
+        AbstractModuleExclusion canonicalOne = canonical(one);
+        AbstractModuleExclusion canonicalTwo = canonical(two);
+        if (canonicalOne == canonicalTwo) {
+            return canonicalOne;
         }
-
-        List<AbstractModuleExclusion> specs = new ArrayList<AbstractModuleExclusion>();
-        ((AbstractModuleExclusion) one).unpackIntersection(specs);
-        ((AbstractModuleExclusion) two).unpackIntersection(specs);
-
-        return new IntersectionExclusion(specs);
+        ModuleExclusion result = canonicalOne.getIntersection(canonicalTwo);
+        if (result == null) {
+            List<AbstractModuleExclusion> specs = new ArrayList<AbstractModuleExclusion>();
+            canonicalOne.unpackIntersection(specs);
+            canonicalTwo.unpackIntersection(specs);
+            result = canonical(new IntersectionExclusion(specs));
+            canonicalOne.setIntersection(canonicalTwo, result);
+        }
+        return result;
     }
 
     /**
@@ -144,13 +159,23 @@ public class ModuleExclusions {
         if (one == EXCLUDE_NONE || two == EXCLUDE_NONE) {
             return EXCLUDE_NONE;
         }
-        if (one.equals(two)) {
-            return one;
+        AbstractModuleExclusion canonicalOne = canonical(one);
+        AbstractModuleExclusion canonicalTwo = canonical(two);
+        if (canonicalOne == canonicalTwo) {
+            return canonicalOne;
         }
+        ModuleExclusion result = canonicalOne.getUnion(canonicalTwo);
+        if (result == null) {
+            result = canonical(doUnion(canonicalOne, canonicalTwo));
+            canonicalOne.setUnion(canonicalTwo, result);
+        }
+        return result;
+    }
 
+    private static ModuleExclusion doUnion(AbstractModuleExclusion one, AbstractModuleExclusion two) {
         List<AbstractModuleExclusion> specs = new ArrayList<AbstractModuleExclusion>();
-        ((AbstractModuleExclusion) one).unpackUnion(specs);
-        ((AbstractModuleExclusion) two).unpackUnion(specs);
+        one.unpackUnion(specs);
+        two.unpackUnion(specs);
         for (int i = 0; i < specs.size();) {
             AbstractModuleExclusion spec = specs.get(i);
             AbstractModuleExclusion merged = null;
@@ -0,0 +1,442 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph;
+
+import org.gradle.api.artifacts.ModuleDependency;
+import org.gradle.api.artifacts.ModuleIdentifier;
+import org.gradle.api.artifacts.ModuleVersionIdentifier;
+import org.gradle.api.artifacts.ModuleVersionSelector;
+import org.gradle.api.artifacts.component.ComponentIdentifier;
+import org.gradle.api.artifacts.component.ComponentSelector;
+import org.gradle.api.artifacts.result.ComponentSelectionReason;
+import org.gradle.api.internal.artifacts.ResolvedConfigurationIdentifier;
+import org.gradle.api.internal.artifacts.dsl.ModuleReplacementsData;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.excludes.ModuleExclusion;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.VersionSelectionReasons;
+import org.gradle.api.specs.Spec;
+import org.gradle.internal.component.local.model.DslOriginDependencyMetadata;
+import org.gradle.internal.component.model.ComponentArtifactMetadata;
+import org.gradle.internal.component.model.ComponentResolveMetadata;
+import org.gradle.internal.component.model.ConfigurationMetadata;
+import org.gradle.internal.component.model.DependencyMetadata;
+import org.gradle.internal.resolve.ModuleVersionResolveException;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A detached copy of a successfully resolved dependency graph, which can be replayed to a {@link DependencyGraphVisitor} in a later build.
+ *
+ * <p>The copy does not reference the root component, which belongs to the project that declared the configuration. The edges from the root refer to the declared
+ * dependencies by their position instead, and are attached to the root component of the configuration being resolved when the graph is replayed.
+ * All other nodes are external module components, whose metadata is shared by the replayed graphs.</p>
+ *
+ * <p>Use {@link ResolvedGraphRecorder} to create instances.</p>
+ */
+public class CachedGraph {
+    private final Long rootNodeId;
+    private final Long rootComponentId;
+    private final List<ComponentData> components;
+    private final List<NodeData> nodes;
+    private final List<SelectorData> selectors;
+    private final List<EdgeData> edges;
+    private final int[] rootOutgoing;
+    private final Map<ModuleIdentifier, ModuleIdentifier> moduleReplacements;
+
+    CachedGraph(Long rootNodeId, Long rootComponentId, List<ComponentData> components, List<NodeData> nodes, List<SelectorData> selectors, List<EdgeData> edges,
+                int[] rootOutgoing, Map<ModuleIdentifier, ModuleIdentifier> moduleReplacements) {
+        this.rootNodeId = rootNodeId;
+        this.rootComponentId = rootComponentId;
+        this.components = components;
+        this.nodes = nodes;
+        this.selectors = selectors;
+        this.edges = edges;
+        this.rootOutgoing = rootOutgoing;
+        this.moduleReplacements = moduleReplacements;
+    }
+
+    /**
+     * Returns the number of components, nodes and edges in this graph, as a measure of the memory it retains.
+     */
+    public int getSize() {
+        return components.size() + nodes.size() + edges.size();
+    }
+
+    /**
+     * Returns true when the module replacements that applied to the modules of this graph are unchanged, so that conflict resolution would select the same versions,
+     * and the metadata of every component of the graph is still accepted by the given spec.
+     */
+    public boolean isUpToDate(ModuleReplacementsData replacements, Spec<? super ComponentResolveMetadata> metadataUpToDate) {
+        for (Map.Entry<ModuleIdentifier, ModuleIdentifier> entry : moduleReplacements.entrySet()) {
+            ModuleIdentifier replacement = replacements.getReplacementFor(entry.getKey());
+            if (replacement == null ? entry.getValue() != null : !replacement.equals(entry.getValue())) {
+                return false;
+            }
+        }
+        for (ComponentData component : components) {
+            if (!metadataUpToDate.isSatisfiedBy(component.metadata)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Replays this graph to the given visitor, in the same order as {@link DependencyGraphBuilder} visits a graph.
+     *
+     * @param rootMetadata The root component of the configuration being resolved. Its dependencies must be the same as those the graph was resolved from.
+     */
+    public void replay(ComponentResolveMetadata rootMetadata, String rootConfigurationName, DependencyGraphVisitor visitor) {
+        ConfigurationMetadata rootConfiguration = rootMetadata.getConfiguration(rootConfigurationName);
+        ReplayedComponent rootComponent = new ReplayedComponent(new ComponentData(rootComponentId, rootMetadata.getId(), VersionSelectionReasons.ROOT, rootMetadata.getComponentId(), rootMetadata));
+        ReplayedNode root = new ReplayedNode(rootNodeId, new ResolvedConfigurationIdentifier(rootMetadata.getId(), rootConfigurationName), rootComponent, rootConfiguration);
+
+        List<ReplayedComponent> replayedComponents = new ArrayList<ReplayedComponent>(components.size());
+        for (ComponentData component : components) {
+            replayedComponents.add(new ReplayedComponent(component));
+        }
+        List<ReplayedNode> replayedNodes = new ArrayList<ReplayedNode>(nodes.size());
+        for (NodeData node : nodes) {
+            ReplayedComponent owner = replayedComponents.get(node.component);
+            ReplayedNode replayedNode = new ReplayedNode(node.nodeId, node.id, owner, node.metadata);
+            owner.nodes.add(replayedNode);
+            replayedNodes.add(replayedNode);
+        }
+        List<? extends DependencyMetadata> rootDependencies = rootConfiguration.getDependencies();
+        List<ReplayedEdge> replayedEdges = new ArrayList<ReplayedEdge>(edges.size());
+        for (EdgeData edge : edges) {
+            ReplayedNode from = edge.from < 0 ? root : replayedNodes.get(edge.from);
+            DependencyMetadata rootDependency = edge.rootDependency < 0 ? null : rootDependencies.get(edge.rootDependency);
+            ReplayedEdge replayedEdge = new ReplayedEdge(edge, from, rootDependency);
+            for (int target : edge.targets) {
+                replayedEdge.targets.add(replayedNodes.get(target));
+            }
+            replayedEdges.add(replayedEdge);
+        }
+        for (int edge : rootOutgoing) {
+            root.outgoingEdges.add(replayedEdges.get(edge));
+        }
+        for (int i = 0; i < nodes.size(); i++) {
+            NodeData node = nodes.get(i);
+            ReplayedNode replayedNode = replayedNodes.get(i);
+            for (int edge : node.incoming) {
+                replayedNode.incomingEdges.add(replayedEdges.get(edge));
+            }
+            for (int edge : node.outgoing) {
+                replayedNode.outgoingEdges.add(replayedEdges.get(edge));
+            }
+        }
+
+        visitor.start(root);
+        visitor.visitNode(root);
+        for (ReplayedNode node : replayedNodes) {
+            visitor.visitNode(node);
+        }
+        for (SelectorData selector : selectors) {
+            visitor.visitSelector(selector);
+        }
+        visitor.visitEdges(root);
+        for (ReplayedNode node : replayedNodes) {
+            visitor.visitEdges(node);
+        }
+        visitor.finish(root);
+    }
+
+    static class ComponentData {
+        final Long resultId;
+        final ModuleVersionIdentifier id;
+        final ComponentSelectionReason selectionReason;
+        final ComponentIdentifier componentId;
+        final ComponentResolveMetadata metadata;
+
+        ComponentData(Long resultId, ModuleVersionIdentifier id, ComponentSelectionReason selectionReason, ComponentIdentifier componentId, ComponentResolveMetadata metadata) {
+            this.resultId = resultId;
+            this.id = id;
+            this.selectionReason = selectionReason;
+            this.componentId = componentId;
+            this.metadata = metadata;
+        }
+    }
+
+    static class NodeData {
+        final Long nodeId;
+        final ResolvedConfigurationIdentifier id;
+        final int component;
+        final ConfigurationMetadata metadata;
+        int[] incoming;
+        int[] outgoing;
+
+        NodeData(Long nodeId, ResolvedConfigurationIdentifier id, int component, ConfigurationMetadata metadata) {
+            this.nodeId = nodeId;
+            this.id = id;
+            this.component = component;
+            this.metadata = metadata;
+        }
+    }
+
+    static class SelectorData implements DependencyGraphSelector {
+        private final Long resultId;
+        private final ComponentSelector requested;
+
+        SelectorData(Long resultId, ComponentSelector requested) {
+            this.resultId = resultId;
+            this.requested = requested;
+        }
+
+        @Override
+        public Long getResultId() {
+            return resultId;
+        }
+
+        @Override
+        public ComponentSelector getRequested() {
+            return requested;
+        }
+    }
+
+    static class EdgeData {
+        /**
+         * The index of the source node, or -1 for the root node.
+         */
+        final int from;
+        /**
+         * The index of the dependency in the root configuration, or -1 when not from the root node.
+         */
+        final int rootDependency;
+        final SelectorData selector;
+        final ComponentSelector requested;
+        final ModuleVersionSelector requestedModuleVersion;
+        final ModuleExclusion exclusions;
+        final boolean transitive;
+        final Long selected;
+        final ComponentSelectionReason reason;
+        final int[] targets;
+        /**
+         * The artifacts of each target, for edges not from the root node.
+         */
+        final List<Set<ComponentArtifactMetadata>> targetArtifacts;
+
+        EdgeData(int from, int rootDependency, SelectorData selector, ComponentSelector requested, ModuleVersionSelector requestedModuleVersion, ModuleExclusion exclusions,
+                 boolean transitive, Long selected, ComponentSelectionReason reason, int[] targets, List<Set<ComponentArtifactMetadata>> targetArtifacts) {
+            this.from = from;
+            this.rootDependency = rootDependency;
+            this.selector = selector;
+            this.requested = requested;
+            this.requestedModuleVersion = requestedModuleVersion;
+            this.exclusions = exclusions;
+            this.transitive = transitive;
+            this.selected = selected;
+            this.reason = reason;
+            this.targets = targets;
+            this.targetArtifacts = targetArtifacts;
+        }
+    }
+
+    private static class ReplayedComponent implements DependencyGraphComponent {
+        final ComponentData data;
+        final List<ReplayedNode> nodes = new ArrayList<ReplayedNode>();
+
+        ReplayedComponent(ComponentData data) {
+            this.data = data;
+        }
+
+        @Override
+        public Long getResultId() {
+            return data.resultId;
+        }
+
+        @Override
+        public ModuleVersionIdentifier getModuleVersion() {
+            return data.id;
+        }
+
+        @Override
+        public ComponentSelectionReason getSelectionReason() {
+            return data.selectionReason;
+        }
+
+        @Override
+        public ComponentIdentifier getComponentId() {
+            return data.componentId;
+        }
+
+        @Override
+        public ComponentResolveMetadata getMetadata() {
+            return data.metadata;
+        }
+
+        @Override
+        public Set<ReplayedComponent> getDependents() {
+            Set<ReplayedComponent> incoming = new LinkedHashSet<ReplayedComponent>();
+            for (ReplayedNode node : nodes) {
+                for (ReplayedEdge edge : node.incomingEdges) {
+                    incoming.add(edge.from.owner);
+                }
+            }
+            return incoming;
+        }
+
+        @Override
+        public String toString() {
+            return data.id.toString();
+        }
+    }
+
+    private static class ReplayedNode implements DependencyGraphNode {
+        final Long nodeId;
+        final ResolvedConfigurationIdentifier id;
+        final ReplayedComponent owner;
+        final ConfigurationMetadata metadata;
+        final Set<ReplayedEdge> incomingEdges = new LinkedHashSet<ReplayedEdge>();
+        final Set<ReplayedEdge> outgoingEdges = new LinkedHashSet<ReplayedEdge>();
+
+        ReplayedNode(Long nodeId, ResolvedConfigurationIdentifier id, ReplayedComponent owner, ConfigurationMetadata metadata) {
+            this.nodeId = nodeId;
+            this.id = id;
+            this.owner = owner;
+            this.metadata = metadata;
+        }
+
+        @Override
+        public Long getNodeId() {
+            return nodeId;
+        }
+
+        @Override
+        public ResolvedConfigurationIdentifier getResolvedConfigurationId() {
+            return id;
+        }
+
+        @Override
+        public DependencyGraphComponent getOwner() {
+            return owner;
+        }
+
+        @Override
+        public Set<ReplayedEdge> getIncomingEdges() {
+            return incomingEdges;
+        }
+
+        @Override
+        public Set<ReplayedEdge> getOutgoingEdges() {
+            return outgoingEdges;
+        }
+
+        @Override
+        public ConfigurationMetadata getMetadata() {
+            return metadata;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s(%s)", owner, id.getConfiguration());
+        }
+    }
+
+    private static class ReplayedEdge implements DependencyGraphEdge {
+        final EdgeData data;
+        final ReplayedNode from;
+        final DependencyMetadata rootDependency;
+        final List<ReplayedNode> targets = new ArrayList<ReplayedNode>();
+
+        ReplayedEdge(EdgeData data, ReplayedNode from, DependencyMetadata rootDependency) {
+            this.data = data;
+            this.from = from;
+            this.rootDependency = rootDependency;
+        }
+
+        @Override
+        public DependencyGraphNode getFrom() {
+            return from;
+        }
+
+        @Override
+        public DependencyGraphSelector getSelector() {
+            return data.selector;
+        }
+
+        @Override
+        public ComponentSelector getRequested() {
+            return data.requested;
+        }
+
+        @Override
+        public ModuleVersionSelector getRequestedModuleVersion() {
+            return data.requestedModuleVersion;
+        }
+
+        @Override
+        public ModuleVersionResolveException getFailure() {
+            // Graphs with failures are not cached
+            return null;
+        }
+
+        @Override
+        public Long getSelected() {
+            return data.selected;
+        }
+
+        @Override
+        public ComponentSelectionReason getReason() {
+            return data.reason;
+        }
+
+        @Override
+        public ModuleExclusion getExclusions() {
+            return data.exclusions;
+        }
+
+        @Override
+        public boolean isTransitive() {
+            return data.transitive;
+        }
+
+        @Override
+        public Set<ComponentArtifactMetadata> getArtifacts(ConfigurationMetadata metaData) {
+            if (rootDependency != null) {
+                return rootDependency.getArtifacts(from.metadata, metaData);
+            }
+            for (int i = 0; i < targets.size(); i++) {
+                if (targets.get(i).metadata == metaData) {
+                    return data.targetArtifacts.get(i);
+                }
+            }
+            throw new IllegalArgumentException(String.format("%s is not a target of %s.", metaData, this));
+        }
+
+        @Override
+        public ModuleDependency getModuleDependency() {
+            if (rootDependency instanceof DslOriginDependencyMetadata) {
+                return ((DslOriginDependencyMetadata) rootDependency).getSource();
+            }
+            return null;
+        }
+
+        @Override
+        public Iterable<ReplayedNode> getTargets() {
+            return targets;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s -> %s", from, data.requested);
+        }
+    }
+}
@@ -66,6 +66,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Future;
 
 public class DependencyGraphBuilder {
     private static final Logger LOGGER = LoggerFactory.getLogger(DependencyGraphBuilder.class);
@@ -75,16 +76,28 @@ public class DependencyGraphBuilder {
     private final DependencyToComponentIdResolver idResolver;
     private final ComponentMetaDataResolver metaDataResolver;
     private final AttributesSchema attributesSchema;
+    private final MetadataPrefetcher metadataPrefetcher;
 
     public DependencyGraphBuilder(DependencyToComponentIdResolver componentIdResolver, ComponentMetaDataResolver componentMetaDataResolver,
                                   ResolveContextToComponentResolver resolveContextToComponentResolver,
                                   ConflictHandler conflictHandler, Spec<? super DependencyMetadata> edgeFilter, AttributesSchema attributesSchema) {
+        this(componentIdResolver, componentMetaDataResolver, resolveContextToComponentResolver, conflictHandler, edgeFilter, attributesSchema, null);
+    }
+
+    /**
+     * @param metadataPrefetcher Used to fetch the metadata for the outgoing dependencies of each configuration concurrently, or null to fetch the metadata on demand.
+     */
+    public DependencyGraphBuilder(DependencyToComponentIdResolver componentIdResolver, ComponentMetaDataResolver componentMetaDataResolver,
+                                  ResolveContextToComponentResolver resolveContextToComponentResolver,
+                                  ConflictHandler conflictHandler, Spec<? super DependencyMetadata> edgeFilter, AttributesSchema attributesSchema,
+                                  MetadataPrefetcher metadataPrefetcher) {
         this.idResolver = componentIdResolver;
         this.metaDataResolver = componentMetaDataResolver;
         this.moduleResolver = resolveContextToComponentResolver;
         this.conflictHandler = conflictHandler;
         this.edgeFilter = edgeFilter;
         this.attributesSchema = attributesSchema;
+        this.metadataPrefetcher = metadataPrefetcher;
     }
 
     public void resolve(ResolveContext resolveContext, DependencyGraphVisitor modelVisitor) {
@@ -92,7 +105,7 @@ public class DependencyGraphBuilder {
         DefaultBuildableComponentResolveResult rootModule = new DefaultBuildableComponentResolveResult();
         moduleResolver.resolve(resolveContext, rootModule);
 
-        ResolveState resolveState = new ResolveState(idGenerator, rootModule, resolveContext.getName(), idResolver, metaDataResolver, edgeFilter, attributesSchema);
+        ResolveState resolveState = new ResolveState(idGenerator, rootModule, resolveContext.getName(), idResolver, metaDataResolver, edgeFilter, attributesSchema, metadataPrefetcher);
         conflictHandler.registerResolver(new DirectDependencyForcingResolver(resolveState.root.moduleRevision));
 
         traverseGraph(resolveState, conflictHandler);
@@ -116,6 +129,9 @@ public class DependencyGraphBuilder {
                 // Calculate the outgoing edges of this configuration
                 dependencies.clear();
                 node.visitOutgoingDependencies(dependencies);
+                if (metadataPrefetcher != null) {
+                    prefetchMetadata(dependencies);
+                }
 
                 for (DependencyEdge dependency : dependencies) {
                     LOGGER.debug("Visiting dependency {}", dependency);
@@ -178,6 +194,27 @@ public class DependencyGraphBuilder {
         }
     }
 
+    /**
+     * Starts fetching the metadata for the selectors of the given edges that have not been resolved yet, one selector per target module. The edges are still visited
+     * one at a time and in order below, and each selector is resolved using the resolvers once its fetch has completed, so the traversal makes the same decisions as
+     * when fetching on demand.
+     */
+    private void prefetchMetadata(List<DependencyEdge> dependencies) {
+        Map<ModuleResolveState, ModuleVersionSelectorResolveState> unresolved = new LinkedHashMap<ModuleResolveState, ModuleVersionSelectorResolveState>();
+        for (DependencyEdge dependency : dependencies) {
+            if (dependency.selector.canPrefetch() && !unresolved.containsKey(dependency.selector.targetModule)) {
+                unresolved.put(dependency.selector.targetModule, dependency.selector);
+            }
+        }
+        if (unresolved.size() < 2) {
+            // Nothing to overlap
+            return;
+        }
+        for (ModuleVersionSelectorResolveState selector : unresolved.values()) {
+            selector.prefetch();
+        }
+    }
+
     /**
      * Populates the result from the graph traversal state.
      */
@@ -366,14 +403,17 @@ public class DependencyGraphBuilder {
         private final Set<ConfigurationNode> queued = new HashSet<ConfigurationNode>();
         private final LinkedList<ConfigurationNode> queue = new LinkedList<ConfigurationNode>();
         private final AttributesSchema attributesSchema;
+        private final MetadataPrefetcher metadataPrefetcher;
 
         public ResolveState(IdGenerator<Long> idGenerator, ComponentResolveResult rootResult, String rootConfigurationName, DependencyToComponentIdResolver idResolver,
-                            ComponentMetaDataResolver metaDataResolver, Spec<? super DependencyMetadata> edgeFilter, AttributesSchema attributesSchema) {
+                            ComponentMetaDataResolver metaDataResolver, Spec<? super DependencyMetadata> edgeFilter, AttributesSchema attributesSchema,
+                            MetadataPrefetcher metadataPrefetcher) {
             this.idGenerator = idGenerator;
             this.idResolver = idResolver;
             this.metaDataResolver = metaDataResolver;
             this.edgeFilter = edgeFilter;
             this.attributesSchema = attributesSchema;
+            this.metadataPrefetcher = metadataPrefetcher;
             ModuleVersionResolveState rootVersion = getRevision(rootResult.getId());
             rootVersion.setMetaData(rootResult.getMetaData());
             root = new RootConfigurationNode(idGenerator.generateId(), rootVersion, new ResolvedConfigurationIdentifier(rootVersion.id, rootConfigurationName), this);
@@ -908,6 +948,7 @@ public class DependencyGraphBuilder {
         ModuleResolveState targetModule;
         ModuleVersionResolveState targetModuleRevision;
         BuildableComponentIdResolveResult idResolveResult;
+        Future<?> prefetched;
 
         private ModuleVersionSelectorResolveState(Long id, DependencyMetadata dependencyMetadata, DependencyToComponentIdResolver resolver, ResolveState resolveState) {
             this.id = id;
@@ -959,6 +1000,10 @@ public class DependencyGraphBuilder {
                 return null;
             }
 
+            if (prefetched != null) {
+                resolveState.metadataPrefetcher.waitFor(prefetched);
+                prefetched = null;
+            }
             idResolveResult = new DefaultBuildableComponentIdResolveResult();
             resolver.resolve(dependencyMetadata, idResolveResult);
             if (idResolveResult.getFailure() != null) {
@@ -975,6 +1020,19 @@ public class DependencyGraphBuilder {
             return targetModuleRevision;
         }
 
+        public boolean canPrefetch() {
+            // Only fetch the metadata when no version of the target module has been seen yet, as the version is then very likely to be selected.
+            // A version that conflicts with another may never need its metadata.
+            return idResolveResult == null && prefetched == null && targetModule.versions.isEmpty();
+        }
+
+        /**
+         * Starts fetching the metadata for the target of this selector in the background. {@link #resolveModuleRevisionId()} waits for the fetch before resolving this selector.
+         */
+        public void prefetch() {
+            prefetched = resolveState.metadataPrefetcher.prefetch(dependencyMetadata);
+        }
+
         public void restart(ModuleVersionResolveState moduleRevision) {
             this.targetModuleRevision = moduleRevision;
             this.targetModule = moduleRevision.module;
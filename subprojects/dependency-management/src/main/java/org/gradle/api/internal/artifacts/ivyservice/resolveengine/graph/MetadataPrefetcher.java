@@ -0,0 +1,124 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph;
+
+import org.gradle.api.Nullable;
+import org.gradle.api.artifacts.component.ComponentSelector;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.artifacts.component.ModuleComponentSelector;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.VersionSelectorScheme;
+import org.gradle.cache.CacheAccess;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.component.external.model.DefaultModuleComponentIdentifier;
+import org.gradle.internal.component.model.ComponentOverrideMetadata;
+import org.gradle.internal.component.model.DefaultComponentOverrideMetadata;
+import org.gradle.internal.component.model.DependencyMetadata;
+import org.gradle.internal.resolve.resolver.ComponentMetaDataResolver;
+import org.gradle.internal.resolve.result.DefaultBuildableComponentResolveResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Fetches the metadata of dependencies for {@link DependencyGraphBuilder} concurrently, ahead of the traversal that uses it.
+ *
+ * <p>A fetch only retrieves the raw metadata for a fixed version of a module, using a resolver that stores the metadata in the persistent caches
+ * without applying any component selection or component metadata rules. The traversal still resolves each dependency with its own resolvers,
+ * on its own thread, so that all of the rules, dependency substitutions and version selection run there, against the metadata that has been fetched.
+ * Fetches that the traversal ends up not using, for example because a dependency is substituted, are wasted but have no effect on the result.</p>
+ *
+ * <p>Each fetch holds the cache lock while it uses the caches. The lock is released while a fetch talks to a remote repository, so the fetches overlap with each other,
+ * and while the traversal waits for a fetch to complete.</p>
+ */
+public class MetadataPrefetcher {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MetadataPrefetcher.class);
+
+    private final Executor executor;
+    private final CacheAccess cacheAccess;
+    private final ComponentMetaDataResolver rawMetaDataResolver;
+    private final VersionSelectorScheme versionSelectorScheme;
+
+    public MetadataPrefetcher(Executor executor, CacheAccess cacheAccess, ComponentMetaDataResolver rawMetaDataResolver, VersionSelectorScheme versionSelectorScheme) {
+        this.executor = executor;
+        this.cacheAccess = cacheAccess;
+        this.rawMetaDataResolver = rawMetaDataResolver;
+        this.versionSelectorScheme = versionSelectorScheme;
+    }
+
+    /**
+     * Starts fetching the metadata for the target of the given dependency.
+     *
+     * @return The fetch, or null when the target is not a fixed version of a module.
+     */
+    @Nullable
+    Future<?> prefetch(DependencyMetadata dependency) {
+        ComponentSelector selector = dependency.getSelector();
+        if (!(selector instanceof ModuleComponentSelector)) {
+            return null;
+        }
+        ModuleComponentSelector moduleSelector = (ModuleComponentSelector) selector;
+        if (versionSelectorScheme.parseSelector(moduleSelector.getVersion()).isDynamic()) {
+            return null;
+        }
+
+        final ModuleComponentIdentifier id = DefaultModuleComponentIdentifier.newId(moduleSelector.getGroup(), moduleSelector.getModule(), moduleSelector.getVersion());
+        final ComponentOverrideMetadata overrideMetadata = DefaultComponentOverrideMetadata.forDependency(dependency);
+        FutureTask<Void> task = new FutureTask<Void>(new Runnable() {
+            @Override
+            public void run() {
+                cacheAccess.useCache(new Runnable() {
+                    @Override
+                    public void run() {
+                        // The result is discarded: the traversal resolves the metadata again, from the caches, and reports any failure
+                        rawMetaDataResolver.resolve(id, overrideMetadata, new DefaultBuildableComponentResolveResult());
+                    }
+                });
+            }
+        }, null);
+        executor.execute(task);
+        return task;
+    }
+
+    /**
+     * Waits for the given fetch to complete. A failed fetch is ignored, as the traversal reports the failure when it resolves the dependency itself.
+     */
+    void waitFor(final Future<?> fetch) {
+        if (fetch.isDone()) {
+            awaitFetch(fetch);
+            return;
+        }
+        cacheAccess.longRunningOperation(new Runnable() {
+            @Override
+            public void run() {
+                awaitFetch(fetch);
+            }
+        });
+    }
+
+    private static void awaitFetch(Future<?> fetch) {
+        try {
+            fetch.get();
+        } catch (InterruptedException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        } catch (ExecutionException e) {
+            LOGGER.debug("Could not fetch dependency metadata in the background.", e.getCause());
+        }
+    }
+}
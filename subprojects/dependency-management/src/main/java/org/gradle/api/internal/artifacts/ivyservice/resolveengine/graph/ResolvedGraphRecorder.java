@@ -0,0 +1,240 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph;
+
+import org.gradle.api.artifacts.ModuleDependency;
+import org.gradle.api.artifacts.ModuleIdentifier;
+import org.gradle.api.artifacts.component.ComponentSelector;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.artifacts.component.ModuleComponentSelector;
+import org.gradle.api.internal.artifacts.dsl.ModuleReplacementsData;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.RepositoryChainModuleSource;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.VersionSelectorScheme;
+import org.gradle.internal.component.local.model.DslOriginDependencyMetadata;
+import org.gradle.internal.component.model.ComponentArtifactMetadata;
+import org.gradle.internal.component.model.ComponentResolveMetadata;
+import org.gradle.internal.component.model.DependencyMetadata;
+import org.gradle.internal.component.model.ModuleSource;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A {@link DependencyGraphVisitor} that takes a detached copy of the resolved graph, so that it can be reused by later builds.
+ *
+ * <p>Only graphs whose result depends on nothing but the declared dependencies of the root configuration and the (unchanging) metadata of
+ * external modules are copied. No copy is taken when the graph contains a failure, a dynamic version, a changing module, a project dependency or a module
+ * from a local repository, whose metadata can be replaced without its version changing.</p>
+ */
+public class ResolvedGraphRecorder implements DependencyGraphVisitor {
+    private final VersionSelectorScheme versionSelectorScheme;
+    private final ModuleReplacementsData moduleReplacements;
+    private final Set<String> localRepositoryIds;
+    private final List<DependencyGraphNode> nodes = new ArrayList<DependencyGraphNode>();
+    private final List<DependencyGraphSelector> selectors = new ArrayList<DependencyGraphSelector>();
+    private CachedGraph graph;
+
+    /**
+     * @param localRepositoryIds The ids of the repositories the graph is resolved from that are local, e.g. backed by files.
+     */
+    public ResolvedGraphRecorder(VersionSelectorScheme versionSelectorScheme, ModuleReplacementsData moduleReplacements, Set<String> localRepositoryIds) {
+        this.versionSelectorScheme = versionSelectorScheme;
+        this.moduleReplacements = moduleReplacements;
+        this.localRepositoryIds = localRepositoryIds;
+    }
+
+    /**
+     * Returns the copy of the graph, or null when the graph cannot be reused.
+     */
+    public CachedGraph getGraph() {
+        return graph;
+    }
+
+    @Override
+    public void start(DependencyGraphNode root) {
+    }
+
+    @Override
+    public void visitNode(DependencyGraphNode resolvedConfiguration) {
+        nodes.add(resolvedConfiguration);
+    }
+
+    @Override
+    public void visitSelector(DependencyGraphSelector selector) {
+        selectors.add(selector);
+    }
+
+    @Override
+    public void visitEdges(DependencyGraphNode resolvedConfiguration) {
+    }
+
+    @Override
+    public void finish(DependencyGraphNode root) {
+        graph = copy(root);
+    }
+
+    private CachedGraph copy(DependencyGraphNode root) {
+        if (!root.getIncomingEdges().isEmpty()) {
+            return null;
+        }
+
+        Map<DependencyGraphComponent, Integer> componentIndexes = new IdentityHashMap<DependencyGraphComponent, Integer>();
+        List<CachedGraph.ComponentData> components = new ArrayList<CachedGraph.ComponentData>();
+        Map<DependencyGraphNode, Integer> nodeIndexes = new IdentityHashMap<DependencyGraphNode, Integer>();
+        List<CachedGraph.NodeData> nodeData = new ArrayList<CachedGraph.NodeData>();
+        Map<ModuleIdentifier, ModuleIdentifier> replacements = new HashMap<ModuleIdentifier, ModuleIdentifier>();
+        for (DependencyGraphNode node : nodes) {
+            if (node == root) {
+                continue;
+            }
+            DependencyGraphComponent owner = node.getOwner();
+            Integer component = componentIndexes.get(owner);
+            if (component == null) {
+                if (!(owner.getComponentId() instanceof ModuleComponentIdentifier) || owner.getMetadata().isChanging() || isFromLocalRepository(owner.getMetadata())) {
+                    return null;
+                }
+                component = components.size();
+                componentIndexes.put(owner, component);
+                components.add(new CachedGraph.ComponentData(owner.getResultId(), owner.getModuleVersion(), owner.getSelectionReason(), owner.getComponentId(), owner.getMetadata()));
+                ModuleIdentifier module = owner.getModuleVersion().getModule();
+                replacements.put(module, moduleReplacements.getReplacementFor(module));
+            }
+            nodeIndexes.put(node, nodeData.size());
+            nodeData.add(new CachedGraph.NodeData(node.getNodeId(), node.getResolvedConfigurationId(), component, node.getMetadata()));
+        }
+
+        Map<DependencyGraphSelector, CachedGraph.SelectorData> selectorData = new IdentityHashMap<DependencyGraphSelector, CachedGraph.SelectorData>();
+        List<CachedGraph.SelectorData> selectorList = new ArrayList<CachedGraph.SelectorData>(selectors.size());
+        for (DependencyGraphSelector selector : selectors) {
+            ComponentSelector requested = selector.getRequested();
+            if (!(requested instanceof ModuleComponentSelector) || versionSelectorScheme.parseSelector(((ModuleComponentSelector) requested).getVersion()).isDynamic()) {
+                return null;
+            }
+            CachedGraph.SelectorData copy = new CachedGraph.SelectorData(selector.getResultId(), requested);
+            selectorData.put(selector, copy);
+            selectorList.add(copy);
+        }
+
+        // Root edges first, in declaration order, followed by the edges of each node
+        Set<DependencyGraphEdge> liveEdges = new LinkedHashSet<DependencyGraphEdge>(root.getOutgoingEdges());
+        for (DependencyGraphNode node : nodes) {
+            if (node != root) {
+                liveEdges.addAll(node.getIncomingEdges());
+                liveEdges.addAll(node.getOutgoingEdges());
+            }
+        }
+        List<? extends DependencyMetadata> rootDependencies = root.getMetadata().getDependencies();
+        Map<DependencyGraphEdge, Integer> edgeIndexes = new IdentityHashMap<DependencyGraphEdge, Integer>();
+        List<CachedGraph.EdgeData> edges = new ArrayList<CachedGraph.EdgeData>(liveEdges.size());
+        for (DependencyGraphEdge edge : liveEdges) {
+            CachedGraph.EdgeData copy = copy(edge, root, rootDependencies, nodeIndexes, selectorData);
+            if (copy == null) {
+                return null;
+            }
+            edgeIndexes.put(edge, edges.size());
+            edges.add(copy);
+        }
+
+        for (Map.Entry<DependencyGraphNode, Integer> entry : nodeIndexes.entrySet()) {
+            CachedGraph.NodeData node = nodeData.get(entry.getValue());
+            node.incoming = indexesOf(entry.getKey().getIncomingEdges(), edgeIndexes);
+            node.outgoing = indexesOf(entry.getKey().getOutgoingEdges(), edgeIndexes);
+        }
+        int[] rootOutgoing = indexesOf(root.getOutgoingEdges(), edgeIndexes);
+
+        return new CachedGraph(root.getNodeId(), root.getOwner().getResultId(), components, nodeData, selectorList, edges, rootOutgoing, replacements);
+    }
+
+    private boolean isFromLocalRepository(ComponentResolveMetadata metadata) {
+        ModuleSource source = metadata.getSource();
+        return source instanceof RepositoryChainModuleSource && localRepositoryIds.contains(((RepositoryChainModuleSource) source).getRepositoryId());
+    }
+
+    private CachedGraph.EdgeData copy(DependencyGraphEdge edge, DependencyGraphNode root, List<? extends DependencyMetadata> rootDependencies,
+                                      Map<DependencyGraphNode, Integer> nodeIndexes, Map<DependencyGraphSelector, CachedGraph.SelectorData> selectorData) {
+        CachedGraph.SelectorData selector = selectorData.get(edge.getSelector());
+        if (edge.getFailure() != null || selector == null) {
+            return null;
+        }
+        int from;
+        int rootDependency = -1;
+        if (edge.getFrom() == root) {
+            from = -1;
+            rootDependency = indexOfDeclaration(edge.getModuleDependency(), rootDependencies);
+            if (rootDependency < 0) {
+                return null;
+            }
+        } else {
+            Integer index = nodeIndexes.get(edge.getFrom());
+            if (index == null) {
+                return null;
+            }
+            from = index;
+        }
+
+        List<Integer> targets = new ArrayList<Integer>();
+        List<Set<ComponentArtifactMetadata>> targetArtifacts = new ArrayList<Set<ComponentArtifactMetadata>>();
+        for (DependencyGraphNode target : edge.getTargets()) {
+            Integer index = nodeIndexes.get(target);
+            if (index == null) {
+                return null;
+            }
+            targets.add(index);
+            // Artifacts of edges from the root are calculated from the declared dependency when the graph is replayed
+            targetArtifacts.add(from < 0 ? null : edge.getArtifacts(target.getMetadata()));
+        }
+        int[] targetIndexes = new int[targets.size()];
+        for (int i = 0; i < targetIndexes.length; i++) {
+            targetIndexes[i] = targets.get(i);
+        }
+        return new CachedGraph.EdgeData(from, rootDependency, selector, edge.getRequested(), edge.getRequestedModuleVersion(), edge.getExclusions(), edge.isTransitive(),
+            edge.getSelected(), edge.getReason(), targetIndexes, targetArtifacts);
+    }
+
+    private static int indexOfDeclaration(ModuleDependency moduleDependency, List<? extends DependencyMetadata> rootDependencies) {
+        if (moduleDependency == null) {
+            return -1;
+        }
+        for (int i = 0; i < rootDependencies.size(); i++) {
+            DependencyMetadata dependency = rootDependencies.get(i);
+            if (dependency instanceof DslOriginDependencyMetadata && ((DslOriginDependencyMetadata) dependency).getSource() == moduleDependency) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int[] indexesOf(Set<? extends DependencyGraphEdge> edges, Map<DependencyGraphEdge, Integer> edgeIndexes) {
+        List<Integer> indexes = new ArrayList<Integer>(edges.size());
+        for (DependencyGraphEdge edge : edges) {
+            Integer index = edgeIndexes.get(edge);
+            if (index != null) {
+                indexes.add(index);
+            }
+        }
+        int[] result = new int[indexes.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = indexes.get(i);
+        }
+        return result;
+    }
+}
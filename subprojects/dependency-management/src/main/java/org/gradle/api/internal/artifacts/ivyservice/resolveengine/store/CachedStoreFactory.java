@@ -41,7 +41,8 @@ public class CachedStoreFactory<T> implements Closeable {
 
     public CachedStoreFactory(String displayName) {
         this.displayName = displayName;
-        cache = CacheBuilder.newBuilder().maximumSize(100).expireAfterAccess(10000, TimeUnit.MILLISECONDS).build();
+        // Values can be discarded under memory pressure, as they can be decoded again from the binary store
+        cache = CacheBuilder.newBuilder().maximumSize(100).softValues().expireAfterAccess(10000, TimeUnit.MILLISECONDS).build();
         stats = new Stats();
     }
 
@@ -15,6 +15,7 @@
  */
 package org.gradle.api.internal.artifacts.ivyservice.resolveengine.store;
 
+import com.google.common.io.ByteStreams;
 import org.gradle.api.internal.cache.BinaryStore;
 import org.gradle.internal.concurrent.CompositeStoppable;
 import org.gradle.internal.io.RandomAccessFileInputStream;
@@ -23,10 +24,13 @@ import org.gradle.internal.serialize.kryo.KryoBackedDecoder;
 import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
 
 import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.gradle.internal.UncheckedException.throwAsUncheckedException;
 
 class DefaultBinaryStore implements BinaryStore, Closeable {
+    private final List<SimpleBinaryData> data = new ArrayList<SimpleBinaryData>();
     private File file;
     private KryoBackedEncoder encoder;
     private int offset = -1;
@@ -67,10 +71,14 @@ class DefaultBinaryStore implements BinaryStore, Closeable {
 
     public BinaryData done() {
         try {
+            int end = offset;
             if (encoder != null) {
                 encoder.flush();
+                end = encoder.getWritePosition();
             }
-            return new SimpleBinaryData(file, offset, diagnose());
+            SimpleBinaryData binaryData = new SimpleBinaryData(file, offset, end, diagnose());
+            data.add(binaryData);
+            return binaryData;
         } finally {
             offset = -1;
         }
@@ -78,13 +86,12 @@ class DefaultBinaryStore implements BinaryStore, Closeable {
 
     public void close() {
         try {
-            if (encoder != null) {
-                encoder.close();
-            }
+            CompositeStoppable.stoppable(data).add(encoder).stop();
         } finally {
             if (file != null) {
                 file.delete();
             }
+            data.clear();
             encoder = null;
             file = null;
         }
@@ -98,17 +105,23 @@ class DefaultBinaryStore implements BinaryStore, Closeable {
         return file.length();
     }
 
+    /**
+     * Reads a region of the store file. The file is only read up to the end of the region, so the data written after the region is not decoded.
+     * The file is closed when the data is closed.
+     */
     private static class SimpleBinaryData implements BinaryStore.BinaryData {
         private final int offset;
+        private final int end;
         private final File inputFile;
         private final String sourceDescription;
 
         private Decoder decoder;
         private CompositeStoppable resources;
 
-        public SimpleBinaryData(File inputFile, int offset, String sourceDescription) {
+        public SimpleBinaryData(File inputFile, int offset, int end, String sourceDescription) {
             this.inputFile = inputFile;
             this.offset = offset;
+            this.end = end;
             this.sourceDescription = sourceDescription;
         }
 
@@ -116,9 +129,10 @@ class DefaultBinaryStore implements BinaryStore, Closeable {
             try {
                 if (decoder == null) {
                     RandomAccessFile randomAccess = new RandomAccessFile(inputFile, "r");
+                    resources = new CompositeStoppable().add(randomAccess);
                     randomAccess.seek(offset);
-                    decoder = new KryoBackedDecoder(new RandomAccessFileInputStream(randomAccess));
-                    resources = new CompositeStoppable().add(randomAccess, decoder);
+                    decoder = new KryoBackedDecoder(ByteStreams.limit(new RandomAccessFileInputStream(randomAccess), Math.max(0, end - offset)));
+                    resources.add(decoder);
                 }
                 return readAction.read(decoder);
             } catch (Exception e) {
@@ -17,6 +17,7 @@
 package org.gradle.api.internal.artifacts.transform;
 
 import org.gradle.api.Action;
+import org.gradle.api.Nullable;
 import org.gradle.api.Transformer;
 import org.gradle.api.artifacts.transform.ArtifactTransform;
 import org.gradle.api.artifacts.transform.ArtifactTransformException;
@@ -32,15 +33,18 @@ class ArtifactTransformRegistration {
     public final AttributeContainer to;
     public final Class<? extends ArtifactTransform> type;
     public final Action<? super ArtifactTransform> config;
+    private final ArtifactTransform artifactTransform;
     private Transformer<List<File>, File> transform;
 
-    ArtifactTransformRegistration(AttributeContainer from, AttributeContainer to, Class<? extends ArtifactTransform> type, Action<? super ArtifactTransform> config) {
+    ArtifactTransformRegistration(AttributeContainer from, AttributeContainer to, Class<? extends ArtifactTransform> type, Action<? super ArtifactTransform> config, @Nullable TransformedFileCache transformedFileCache) {
         this.from = from;
         this.to = to;
         this.type = type;
         this.config = config;
 
-        this.transform = createArtifactTransformer();
+        this.artifactTransform = createArtifactTransform();
+        Transformer<List<File>, File> transform = new ArtifactFileTransformer(artifactTransform, to);
+        this.transform = transformedFileCache == null ? transform : transformedFileCache.decorate(this, transform);
     }
 
     Class<? extends ArtifactTransform> getType() {
@@ -51,10 +55,26 @@ class ArtifactTransformRegistration {
         return transform;
     }
 
-    private Transformer<List<File>, File> createArtifactTransformer() {
+    /**
+     * Returns the configured transform, whose results are returned by {@link #getTransform()} when not cached.
+     */
+    ArtifactTransform getArtifactTransform() {
+        return artifactTransform;
+    }
+
+    /**
+     * Creates a transformer for a new instance of the configured transform, which writes its results to the given output directory.
+     */
+    Transformer<List<File>, File> createTransformer(File outputDirectory) {
+        ArtifactTransform artifactTransform = createArtifactTransform();
+        artifactTransform.setOutputDirectory(outputDirectory);
+        return new ArtifactFileTransformer(artifactTransform, to);
+    }
+
+    private ArtifactTransform createArtifactTransform() {
         ArtifactTransform artifactTransform = DirectInstantiator.INSTANCE.newInstance(type);
         config.execute(artifactTransform);
-        return new ArtifactFileTransformer(artifactTransform, to);
+        return artifactTransform;
     }
 
     private static class ArtifactFileTransformer implements Transformer<List<File>, File> {
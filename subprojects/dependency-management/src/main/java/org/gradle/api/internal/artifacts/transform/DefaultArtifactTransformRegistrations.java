@@ -18,6 +18,7 @@ package org.gradle.api.internal.artifacts.transform;
 
 import com.google.common.collect.Lists;
 import org.gradle.api.Action;
+import org.gradle.api.Nullable;
 import org.gradle.api.artifacts.transform.ArtifactTransform;
 import org.gradle.api.internal.attributes.AttributeContainerInternal;
 import org.gradle.api.internal.attributes.DefaultAttributeContainer;
@@ -27,6 +28,15 @@ import java.util.List;
 
 public class DefaultArtifactTransformRegistrations implements ArtifactTransformRegistrationsInternal {
     private final List<ArtifactTransformRegistration> transforms = Lists.newArrayList();
+    private final TransformedFileCache transformedFileCache;
+
+    public DefaultArtifactTransformRegistrations() {
+        this(null);
+    }
+
+    public DefaultArtifactTransformRegistrations(@Nullable TransformedFileCache transformedFileCache) {
+        this.transformedFileCache = transformedFileCache;
+    }
 
     public void registerTransform(Class<? extends ArtifactTransform> type, Action<? super ArtifactTransform> config) {
         for (ArtifactTransformRegistration transformRegistration : transforms) {
@@ -41,7 +51,7 @@ public class DefaultArtifactTransformRegistrations implements ArtifactTransformR
         artifactTransform.configure(from, registry);
 
         for (AttributeContainerInternal to : registry.getNewTargets()) {
-            ArtifactTransformRegistration registration = new ArtifactTransformRegistration(from.asImmutable(), to.asImmutable(), type, config);
+            ArtifactTransformRegistration registration = new ArtifactTransformRegistration(from.asImmutable(), to.asImmutable(), type, config, transformedFileCache);
             transforms.add(registration);
         }
     }
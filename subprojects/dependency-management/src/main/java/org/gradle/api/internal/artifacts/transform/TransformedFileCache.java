@@ -0,0 +1,513 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.transform;
+
+import com.google.common.base.Charsets;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+import com.google.common.primitives.Longs;
+import com.google.common.util.concurrent.Striped;
+import org.gradle.api.Nullable;
+import org.gradle.api.Transformer;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.api.artifacts.transform.ArtifactTransform;
+import org.gradle.api.attributes.Attribute;
+import org.gradle.api.attributes.AttributeContainer;
+import org.gradle.api.internal.hash.FileHasher;
+import org.gradle.cache.CacheRepository;
+import org.gradle.cache.PersistentCache;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.classloader.ClassLoaderHierarchyHasher;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.util.GFileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.regex.Pattern;
+
+import static org.gradle.cache.internal.FileLockManager.LockMode.None;
+import static org.gradle.cache.internal.filelock.LockOptionsBuilder.mode;
+
+/**
+ * Caches the results of artifact transforms in memory and in a directory in the Gradle user home, keyed by the content of the input file, the implementation
+ * of the transform, the configured properties of the transform and the target attributes. The name of the input file is also part of the key.
+ *
+ * <p>The results can be reused by every project of a build and by later builds, rather than transforming the same file again for each project. The cache
+ * replaces the output directory of the transform with a directory of its own, so that the results do not depend on the project that first runs the
+ * transform. A transform can only use the cache when its implementation can be hashed and its configured properties are simple values, such as strings,
+ * numbers and files. The content of a file property is part of the key, so a transform configured with a directory is not cached.</p>
+ *
+ * <p>Transforms of different files run concurrently. The least recently used entries are deleted once the total size of the entries exceeds the maximum size. The entries
+ * are deleted while holding the cross-process lock of the cache, so that only one process deletes entries at a time. The results of a transform are read by the build
+ * after the transform has returned, without holding any lock, so entries used in the last hour are not deleted, even when the cache exceeds its maximum size.
+ * Temporary directories left behind by processes that stopped while running a transform are deleted when the cache is opened.</p>
+ */
+public class TransformedFileCache implements Stoppable {
+    /**
+     * The maximum size of the transform cache in megabytes. Transforms are not cached across projects and builds when not set.
+     */
+    public static final String TRANSFORM_CACHE_PROPERTY = "org.gradle.resolution.transformCache";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TransformedFileCache.class);
+    private static final Pattern ENTRY_NAME = Pattern.compile("[0-9a-f]+");
+    private static final String TEMP_DIR_SUFFIX = ".part";
+    private static final String RESULTS_FILE = "results.txt";
+    private static final String OUTPUTS_DIR = "outputs";
+    private static final String INPUT_RESULT = "input";
+    private static final String OUTPUT_RESULT_PREFIX = "output:";
+    // Evict down to this proportion of the max size, so that eviction does not run for every entry stored once the cache is full
+    private static final double EVICTION_TARGET = 0.9;
+    // Entries used more recently than this may still be read by a build, so are not evicted
+    private static final long MIN_UNUSED_MILLIS = TimeUnit.HOURS.toMillis(1);
+    // Temporary directories older than this are no longer being written to by a transform
+    private static final long MIN_TEMP_DIR_AGE_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+    private final FileHasher fileHasher;
+    private final ClassLoaderHierarchyHasher classLoaderHierarchyHasher;
+    private final long maxSize;
+    private final PersistentCache persistentCache;
+    private final Cache<HashCode, CachedResult> inMemoryCache = CacheBuilder.newBuilder().maximumSize(10000).build();
+    // Transforms of the same input to the same target are run one at a time, so that each is run once
+    private final Striped<Lock> locks = Striped.lock(64);
+    private final Object sizeLock = new Object();
+    private long estimatedSize = -1;
+
+    public TransformedFileCache(CacheRepository cacheRepository, FileHasher fileHasher, ClassLoaderHierarchyHasher classLoaderHierarchyHasher) {
+        this(cacheRepository, fileHasher, classLoaderHierarchyHasher, Integer.getInteger(TRANSFORM_CACHE_PROPERTY, 0) * 1024L * 1024L);
+    }
+
+    /**
+     * @param maxSize The maximum total size of the cached results in bytes, or 0 to not cache results.
+     */
+    public TransformedFileCache(CacheRepository cacheRepository, FileHasher fileHasher, ClassLoaderHierarchyHasher classLoaderHierarchyHasher, long maxSize) {
+        this.fileHasher = fileHasher;
+        this.classLoaderHierarchyHasher = classLoaderHierarchyHasher;
+        this.maxSize = maxSize;
+        this.persistentCache = maxSize <= 0 ? null : cacheRepository
+            .cache("transforms-1")
+            .withDisplayName("Artifact transforms")
+            .withLockOptions(mode(None))
+            .open();
+        if (persistentCache != null) {
+            deleteStaleTempDirs();
+        }
+    }
+
+    /**
+     * Deletes the temporary directories left behind by processes that stopped while running a transform. Transforms run without holding the lock of the cache,
+     * so only the directories that have not been changed for a long time are deleted.
+     */
+    private void deleteStaleTempDirs() {
+        final long cutoff = System.currentTimeMillis() - MIN_TEMP_DIR_AGE_MILLIS;
+        File[] tempDirs = persistentCache.getBaseDir().listFiles(new FileFilter() {
+            @Override
+            public boolean accept(File file) {
+                return file.isDirectory() && file.getName().endsWith(TEMP_DIR_SUFFIX) && file.lastModified() < cutoff;
+            }
+        });
+        if (tempDirs == null) {
+            return;
+        }
+        for (File tempDir : tempDirs) {
+            GFileUtils.deleteQuietly(tempDir);
+        }
+    }
+
+    public boolean isEnabled() {
+        return persistentCache != null;
+    }
+
+    /**
+     * Returns a transformer that reuses the cached results of the given transform, or the given transformer when the results cannot be cached.
+     */
+    Transformer<List<File>, File> decorate(ArtifactTransformRegistration registration, Transformer<List<File>, File> transformer) {
+        if (!isEnabled()) {
+            return transformer;
+        }
+        HashCode transformKey = hashTransform(registration);
+        if (transformKey == null) {
+            LOGGER.debug("Results of {} cannot be cached.", registration.type.getName());
+            return transformer;
+        }
+        return new CachingTransformer(registration, transformer, transformKey);
+    }
+
+    @Nullable
+    private HashCode hashTransform(ArtifactTransformRegistration registration) {
+        HashCode implementationHash = classLoaderHierarchyHasher.getClassLoaderHash(registration.type.getClassLoader());
+        if (implementationHash == null) {
+            return null;
+        }
+        Hasher hasher = Hashing.md5().newHasher();
+        hasher.putBytes(implementationHash.asBytes());
+        putString(hasher, registration.type.getName());
+        if (!hashProperties(registration.getArtifactTransform(), hasher)) {
+            return null;
+        }
+        List<Attribute<?>> attributes = new ArrayList<Attribute<?>>(registration.to.keySet());
+        Collections.sort(attributes, new Comparator<Attribute<?>>() {
+            @Override
+            public int compare(Attribute<?> o1, Attribute<?> o2) {
+                return o1.getName().compareTo(o2.getName());
+            }
+        });
+        for (Attribute<?> attribute : attributes) {
+            putString(hasher, attribute.getName());
+            putString(hasher, String.valueOf(registration.to.getAttribute(attribute)));
+        }
+        return hasher.hash();
+    }
+
+    /**
+     * Hashes the properties of the configured transform, other than the output directory. Returns false when a property cannot be hashed.
+     */
+    private boolean hashProperties(ArtifactTransform artifactTransform, Hasher hasher) {
+        for (Class<?> type = artifactTransform.getClass(); type != ArtifactTransform.class; type = type.getSuperclass()) {
+            Field[] fields = type.getDeclaredFields();
+            Arrays.sort(fields, new Comparator<Field>() {
+                @Override
+                public int compare(Field o1, Field o2) {
+                    return o1.getName().compareTo(o2.getName());
+                }
+            });
+            for (Field field : fields) {
+                int modifiers = field.getModifiers();
+                if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || field.isSynthetic()) {
+                    continue;
+                }
+                Object value;
+                try {
+                    field.setAccessible(true);
+                    value = field.get(artifactTransform);
+                } catch (IllegalAccessException e) {
+                    throw UncheckedException.throwAsUncheckedException(e);
+                }
+                putString(hasher, type.getName() + "." + field.getName());
+                if (value instanceof File) {
+                    if (!hashFile((File) value, hasher)) {
+                        return false;
+                    }
+                    continue;
+                }
+                if (value instanceof Enum) {
+                    value = ((Enum<?>) value).name();
+                } else if (value != null && !(value instanceof String || value instanceof Number || value instanceof Boolean || value instanceof Character)) {
+                    return false;
+                }
+                putString(hasher, String.valueOf(value));
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Hashes the path and the content of the given file. Returns false for a directory, as the transform may use any file in it.
+     */
+    private boolean hashFile(File file, Hasher hasher) {
+        putString(hasher, file.getAbsolutePath());
+        if (file.isFile()) {
+            hasher.putBytes(fileHasher.hash(file).asBytes());
+            return true;
+        }
+        hasher.putBoolean(false);
+        return !file.exists();
+    }
+
+    private static void putString(Hasher hasher, String value) {
+        hasher.putInt(value.length());
+        hasher.putString(value, Charsets.UTF_8);
+    }
+
+    /**
+     * Returns the cached results of the transform for the given input file, running the transform when not cached. Returns null when the results cannot be cached.
+     */
+    @Nullable
+    private List<File> transform(ArtifactTransformRegistration registration, HashCode transformKey, File input) {
+        // The name of the input file is included, as the names of the outputs are usually derived from it
+        Hasher hasher = Hashing.md5().newHasher();
+        hasher.putBytes(transformKey.asBytes());
+        putString(hasher, input.getName());
+        hasher.putBytes(fileHasher.hash(input).asBytes());
+        HashCode key = hasher.hash();
+        Lock lock = locks.get(key);
+        lock.lock();
+        try {
+            File entryDir = new File(persistentCache.getBaseDir(), key.toString());
+            CachedResult result = inMemoryCache.getIfPresent(key);
+            List<File> outputs = result == null ? null : result.resolve(input);
+            if (outputs != null) {
+                markUsed(entryDir);
+                return outputs;
+            }
+            result = load(entryDir);
+            if (result == null) {
+                result = transformAndStore(registration, input, key, entryDir);
+                if (result == null) {
+                    return null;
+                }
+            }
+            outputs = result.resolve(input);
+            if (outputs == null) {
+                throw new UncheckedIOException(String.format("Cached results of %s for %s have been removed from %s", registration.type.getName(), input, entryDir));
+            }
+            inMemoryCache.put(key, result);
+            return outputs;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Nullable
+    private CachedResult load(File entryDir) {
+        File resultsFile = new File(entryDir, RESULTS_FILE);
+        if (!resultsFile.isFile()) {
+            return null;
+        }
+        List<File> outputs = new ArrayList<File>();
+        try {
+            for (String line : Files.readLines(resultsFile, Charsets.UTF_8)) {
+                if (line.equals(INPUT_RESULT)) {
+                    outputs.add(null);
+                } else if (line.startsWith(OUTPUT_RESULT_PREFIX)) {
+                    outputs.add(new File(new File(entryDir, OUTPUTS_DIR), line.substring(OUTPUT_RESULT_PREFIX.length())));
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.debug("Could not read cached transform results from {}.", resultsFile, e);
+            return null;
+        }
+        CachedResult result = new CachedResult(outputs);
+        if (!result.exists()) {
+            GFileUtils.deleteQuietly(entryDir);
+            return null;
+        }
+        markUsed(entryDir);
+        return result;
+    }
+
+    /**
+     * Records the use of the entry, so that the least recently used entries are evicted first.
+     */
+    private static void markUsed(File entryDir) {
+        //noinspection ResultOfMethodCallIgnored
+        entryDir.setLastModified(System.currentTimeMillis());
+    }
+
+    /**
+     * Runs the transform with an output directory of the cache and stores the results. Returns null when the results cannot be stored, because the transform produced
+     * files outside of its output directory.
+     */
+    @Nullable
+    private CachedResult transformAndStore(ArtifactTransformRegistration registration, File input, HashCode key, File entryDir) {
+        // Write to a temporary directory first, so that a partially written entry is never visible
+        File tempDir = new File(persistentCache.getBaseDir(), key + "-" + UUID.randomUUID() + TEMP_DIR_SUFFIX);
+        try {
+            File outputDir = new File(tempDir, OUTPUTS_DIR);
+            List<File> outputs = registration.createTransformer(outputDir).transform(input);
+            StringBuilder results = new StringBuilder();
+            String outputDirPath = outputDir.getAbsolutePath() + File.separator;
+            for (File output : outputs) {
+                if (output.getAbsoluteFile().equals(input.getAbsoluteFile())) {
+                    results.append(INPUT_RESULT);
+                } else if (output.getAbsolutePath().startsWith(outputDirPath)) {
+                    results.append(OUTPUT_RESULT_PREFIX).append(output.getAbsolutePath().substring(outputDirPath.length()));
+                } else {
+                    LOGGER.debug("Results of {} for {} cannot be cached, as {} is not in the output directory.", registration.type.getName(), input, output);
+                    return null;
+                }
+                results.append('\n');
+            }
+            Files.write(results, new File(tempDir, RESULTS_FILE), Charsets.UTF_8);
+            if (!tempDir.renameTo(entryDir)) {
+                // Another process has stored the same results
+                CachedResult result = load(entryDir);
+                if (result == null) {
+                    throw new IOException(String.format("Could not move temporary directory %s to %s", tempDir, entryDir));
+                }
+                return result;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            GFileUtils.deleteQuietly(tempDir);
+        }
+        entryStored(sizeOf(entryDir));
+        return load(entryDir);
+    }
+
+    private void entryStored(long entrySize) {
+        synchronized (sizeLock) {
+            if (estimatedSize < 0) {
+                estimatedSize = 0;
+                for (File entry : listEntries()) {
+                    estimatedSize += sizeOf(entry);
+                }
+            } else {
+                estimatedSize += entrySize;
+            }
+            if (estimatedSize > maxSize) {
+                persistentCache.useCache(new Runnable() {
+                    @Override
+                    public void run() {
+                        evict();
+                    }
+                });
+            }
+        }
+    }
+
+    private void evict() {
+        File[] entries = listEntries();
+        final long[] lastModified = new long[entries.length];
+        long[] sizes = new long[entries.length];
+        Integer[] order = new Integer[entries.length];
+        long size = 0;
+        for (int i = 0; i < entries.length; i++) {
+            // Read the timestamps once, so that the sort order is stable while other processes use the cache
+            lastModified[i] = entries[i].lastModified();
+            sizes[i] = sizeOf(entries[i]);
+            order[i] = i;
+            size += sizes[i];
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer o1, Integer o2) {
+                return Longs.compare(lastModified[o1], lastModified[o2]);
+            }
+        });
+        long targetSize = (long) (maxSize * EVICTION_TARGET);
+        long lastUseToEvict = System.currentTimeMillis() - MIN_UNUSED_MILLIS;
+        int evicted = 0;
+        for (int i = 0; i < order.length && size > targetSize && lastModified[order[i]] < lastUseToEvict; i++) {
+            if (GFileUtils.deleteQuietly(entries[order[i]])) {
+                size -= sizes[order[i]];
+                evicted++;
+            }
+        }
+        LOGGER.debug("Evicted {} entries from {}", evicted, persistentCache.getBaseDir());
+        estimatedSize = size;
+    }
+
+    private File[] listEntries() {
+        File[] entries = persistentCache.getBaseDir().listFiles(new FileFilter() {
+            @Override
+            public boolean accept(File file) {
+                return file.isDirectory() && ENTRY_NAME.matcher(file.getName()).matches();
+            }
+        });
+        return entries == null ? new File[0] : entries;
+    }
+
+    private static long sizeOf(File file) {
+        File[] children = file.listFiles();
+        if (children == null) {
+            return file.length();
+        }
+        long size = 0;
+        for (File child : children) {
+            size += sizeOf(child);
+        }
+        return size;
+    }
+
+    @Override
+    public void stop() {
+        inMemoryCache.invalidateAll();
+        if (persistentCache != null) {
+            persistentCache.close();
+        }
+    }
+
+    private class CachingTransformer implements Transformer<List<File>, File> {
+        private final ArtifactTransformRegistration registration;
+        private final Transformer<List<File>, File> transformer;
+        private final HashCode transformKey;
+        private volatile boolean cacheable = true;
+
+        CachingTransformer(ArtifactTransformRegistration registration, Transformer<List<File>, File> transformer, HashCode transformKey) {
+            this.registration = registration;
+            this.transformer = transformer;
+            this.transformKey = transformKey;
+        }
+
+        @Override
+        public List<File> transform(File input) {
+            // Only the content of files is hashed
+            if (cacheable && input.isFile()) {
+                List<File> outputs = TransformedFileCache.this.transform(registration, transformKey, input);
+                if (outputs != null) {
+                    return outputs;
+                }
+                // Don't run the transform twice for each file from now on
+                cacheable = false;
+            }
+            return transformer.transform(input);
+        }
+    }
+
+    /**
+     * The outputs of a transform, where null stands for the input file.
+     */
+    private static class CachedResult {
+        private final List<File> outputs;
+
+        CachedResult(List<File> outputs) {
+            this.outputs = outputs;
+        }
+
+        boolean exists() {
+            for (File output : outputs) {
+                if (output != null && !output.exists()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Returns the outputs for the given input file, or null when some outputs have been removed from the cache.
+         */
+        @Nullable
+        List<File> resolve(File input) {
+            if (!exists()) {
+                return null;
+            }
+            List<File> result = new ArrayList<File>(outputs.size());
+            for (File output : outputs) {
+                result.add(output == null ? input : output);
+            }
+            return result;
+        }
+    }
+}
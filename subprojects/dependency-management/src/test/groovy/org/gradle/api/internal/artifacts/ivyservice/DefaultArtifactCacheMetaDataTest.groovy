@@ -51,4 +51,17 @@ class DefaultArtifactCacheMetaDataTest extends Specification {
         then:
         metadataStore == new File(testCacheDir, CacheLayout.META_DATA.key + '/descriptors')
     }
+
+    def "calculates parsed descriptor store directory"() {
+        given:
+        TestFile testCacheDir = temporaryFolder.file("test/cache")
+        scopeMapping.getBaseDirectory(null, CacheLayout.ROOT.key, VersionStrategy.SharedCache) >> testCacheDir
+
+        when:
+        def metaData = new DefaultArtifactCacheMetaData(scopeMapping)
+        File parsedDescriptorStore = metaData.getParsedDescriptorStoreDirectory()
+
+        then:
+        parsedDescriptorStore == new File(testCacheDir, CacheLayout.META_DATA.key + '/parsed-descriptors')
+    }
 }
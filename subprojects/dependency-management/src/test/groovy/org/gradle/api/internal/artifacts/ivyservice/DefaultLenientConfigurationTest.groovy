@@ -38,6 +38,7 @@ class DefaultLenientConfigurationTest extends Specification {
     def artifactsResults = Stub(VisitedArtifactsResults)
     def fileDependencyResults = Stub(VisitedFileDependencyResults)
     def configuration = Stub(ConfigurationInternal)
+    def artifactDownloader = Stub(ParallelArtifactDownloader)
 
     def "should resolve first level dependencies in tree"() {
         given:
@@ -47,7 +48,7 @@ class DefaultLenientConfigurationTest extends Specification {
         rootNode.children.add(child)
         def expectedResults = [child] as Set
 
-        def lenientConfiguration = new DefaultLenientConfiguration(configuration, null, null, artifactsResults, fileDependencyResults, resultsLoader, transforms)
+        def lenientConfiguration = new DefaultLenientConfiguration(configuration, null, null, artifactsResults, fileDependencyResults, resultsLoader, transforms, artifactDownloader)
 
         when:
         def results = lenientConfiguration.getFirstLevelModuleDependencies()
@@ -70,7 +71,7 @@ class DefaultLenientConfigurationTest extends Specification {
         def firstLevelDependencies = [(Mock(ModuleDependency)): node1, (Mock(ModuleDependency)): node2, (Mock(ModuleDependency)): node3]
         def firstLevelDependenciesEntries = firstLevelDependencies.entrySet() as List
 
-        def lenientConfiguration = new DefaultLenientConfiguration(configuration, null, null, artifactsResults, fileDependencyResults, resultsLoader, transforms)
+        def lenientConfiguration = new DefaultLenientConfiguration(configuration, null, null, artifactsResults, fileDependencyResults, resultsLoader, transforms, artifactDownloader)
 
         when:
         def result = lenientConfiguration.getFirstLevelModuleDependencies(spec)
@@ -88,7 +89,7 @@ class DefaultLenientConfigurationTest extends Specification {
 
     def "should flatten all resolved dependencies in dependency tree"() {
         given:
-        def lenientConfiguration = new DefaultLenientConfiguration(configuration, null, null, artifactsResults, fileDependencyResults, resultsLoader, transforms)
+        def lenientConfiguration = new DefaultLenientConfiguration(configuration, null, null, artifactsResults, fileDependencyResults, resultsLoader, transforms, artifactDownloader)
 
         def (expected, root) = generateDependenciesWithChildren(treeStructure)
 
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice
+
+import org.gradle.api.artifacts.ResolvedArtifact
+import org.gradle.api.artifacts.component.ComponentArtifactIdentifier
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier
+import org.gradle.api.artifacts.component.ProjectComponentIdentifier
+import org.gradle.cache.CacheAccess
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import spock.lang.Specification
+
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+class ParallelArtifactDownloaderTest extends Specification {
+    def executorFactory = new DefaultExecutorFactory()
+    def cacheAccess = Mock(CacheAccess)
+
+    def cleanup() {
+        executorFactory.stop()
+    }
+
+    def "is not enabled by default"() {
+        expect:
+        !new ParallelArtifactDownloader(executorFactory, cacheAccess).enabled
+        !new ParallelArtifactDownloader(executorFactory, cacheAccess, 1).enabled
+        new ParallelArtifactDownloader(executorFactory, cacheAccess, 2).enabled
+    }
+
+    def "does nothing when not enabled"() {
+        def downloader = new ParallelArtifactDownloader(executorFactory, cacheAccess, 1)
+        def artifact1 = Mock(ResolvedArtifact)
+        def artifact2 = Mock(ResolvedArtifact)
+
+        when:
+        downloader.download([artifact1, artifact2])
+
+        then:
+        0 * artifact1._
+        0 * artifact2._
+        0 * cacheAccess._
+    }
+
+    def "downloads files of external artifacts concurrently while the cache lock is released"() {
+        def downloader = new ParallelArtifactDownloader(executorFactory, cacheAccess, 2)
+        def started = new CountDownLatch(2)
+        def artifact1 = externalArtifact()
+        def artifact2 = externalArtifact()
+        def artifact3 = projectArtifact()
+
+        when:
+        downloader.download([artifact1, artifact2, artifact3])
+
+        then:
+        1 * cacheAccess.longRunningOperation(_ as Runnable) >> { Runnable action -> action.run() }
+        2 * cacheAccess.useCache(_ as Runnable) >> { Runnable action -> action.run() }
+        1 * artifact1.file >> { awaitOther(started) }
+        1 * artifact2.file >> { awaitOther(started) }
+        0 * artifact3.file
+
+        cleanup:
+        downloader.stop()
+    }
+
+    def "downloads each artifact once"() {
+        def downloader = new ParallelArtifactDownloader(executorFactory, cacheAccess, 2)
+        def artifact1 = externalArtifact()
+        def artifact2 = externalArtifact()
+
+        when:
+        downloader.download([artifact1, artifact2, artifact1])
+
+        then:
+        1 * cacheAccess.longRunningOperation(_ as Runnable) >> { Runnable action -> action.run() }
+        2 * cacheAccess.useCache(_ as Runnable) >> { Runnable action -> action.run() }
+        1 * artifact1.file
+        1 * artifact2.file
+
+        cleanup:
+        downloader.stop()
+    }
+
+    def "ignores failure to download a file"() {
+        def downloader = new ParallelArtifactDownloader(executorFactory, cacheAccess, 2)
+        def artifact1 = externalArtifact()
+        def artifact2 = externalArtifact()
+
+        when:
+        downloader.download([artifact1, artifact2])
+
+        then:
+        1 * cacheAccess.longRunningOperation(_ as Runnable) >> { Runnable action -> action.run() }
+        2 * cacheAccess.useCache(_ as Runnable) >> { Runnable action -> action.run() }
+        1 * artifact1.file >> { throw new RuntimeException("broken") }
+        1 * artifact2.file
+        noExceptionThrown()
+
+        cleanup:
+        downloader.stop()
+    }
+
+    def "does not download a single file ahead of time"() {
+        def downloader = new ParallelArtifactDownloader(executorFactory, cacheAccess, 2)
+        def artifact = externalArtifact()
+
+        when:
+        downloader.download([artifact, projectArtifact()])
+
+        then:
+        0 * artifact.file
+        0 * cacheAccess._
+    }
+
+    private static File awaitOther(CountDownLatch started) {
+        started.countDown()
+        assert started.await(10, TimeUnit.SECONDS)
+        return new File("file")
+    }
+
+    private ResolvedArtifact externalArtifact() {
+        def id = Stub(ComponentArtifactIdentifier) {
+            getComponentIdentifier() >> Stub(ModuleComponentIdentifier)
+        }
+        def artifact = Mock(ResolvedArtifact)
+        _ * artifact.id >> id
+        return artifact
+    }
+
+    private ResolvedArtifact projectArtifact() {
+        def id = Stub(ComponentArtifactIdentifier) {
+            getComponentIdentifier() >> Stub(ProjectComponentIdentifier)
+        }
+        def artifact = Mock(ResolvedArtifact)
+        _ * artifact.id >> id
+        return artifact
+    }
+}
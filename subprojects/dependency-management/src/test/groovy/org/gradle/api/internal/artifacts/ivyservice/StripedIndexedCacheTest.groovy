@@ -0,0 +1,158 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice
+
+import org.gradle.api.Transformer
+import org.gradle.cache.PersistentIndexedCache
+import org.gradle.cache.internal.CacheScopeMapping
+import org.gradle.cache.internal.DefaultCacheFactory
+import org.gradle.cache.internal.DefaultCacheRepository
+import org.gradle.cache.internal.DefaultFileLockManager
+import org.gradle.cache.internal.ProcessMetaDataProvider
+import org.gradle.cache.internal.locklistener.NoOpFileLockContentionHandler
+import org.gradle.internal.Factory
+import org.gradle.internal.concurrent.CompositeStoppable
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import org.gradle.internal.serialize.BaseSerializerFactory
+import org.gradle.internal.serialize.Decoder
+import org.gradle.internal.serialize.Encoder
+import org.gradle.internal.serialize.Serializer
+import org.gradle.test.fixtures.concurrent.ConcurrentSpec
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+
+class StripedIndexedCacheTest extends ConcurrentSpec {
+    @Rule
+    TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+
+    def metaDataProvider = Stub(ProcessMetaDataProvider) {
+        getProcessIdentifier() >> "123"
+        getProcessDisplayName() >> "process"
+    }
+    def cacheExecutorFactory = new DefaultExecutorFactory()
+    def cacheFactory = new DefaultCacheFactory(new DefaultFileLockManager(metaDataProvider, new NoOpFileLockContentionHandler()), cacheExecutorFactory)
+    def cacheRepository = new DefaultCacheRepository(Stub(CacheScopeMapping), cacheFactory)
+    def partitionKey = { String key -> key.split(":")[0] } as Transformer<String, String>
+    def managers = []
+
+    def cleanup() {
+        CompositeStoppable.stoppable(managers).add(cacheFactory).stop()
+        cacheExecutorFactory.stop()
+    }
+
+    def "stores and loads entries from several threads concurrently"() {
+        def lockingManager = manager(4)
+        def cache = cache(lockingManager)
+
+        when:
+        async {
+            8.times { group ->
+                start {
+                    lockingManager.useCache {
+                        50.times { cache.put("group${group}:${it}", "value${group}-${it}") }
+                        50.times { assert cache.get("group${group}:${it}") == "value${group}-${it}" }
+                    }
+                }
+            }
+        }
+
+        then:
+        lockingManager.useCache({
+            (0..<8).every { group -> (0..<50).every { cache.get("group${group}:${it}") == "value${group}-${it}" } }
+        } as Factory)
+    }
+
+    def "does not hold the artifact cache lock while a segment is used"() {
+        def lockingManager = manager(4)
+        def keySerializer = new Serializer<String>() {
+            boolean blocked
+
+            @Override
+            String read(Decoder decoder) {
+                return decoder.readString()
+            }
+
+            @Override
+            void write(Encoder encoder, String value) {
+                if (value == "blocked:a" && !blocked) {
+                    blocked = true
+                    instant.segmentUsed
+                    thread.blockUntil.artifactCacheUsed
+                }
+                encoder.writeString(value)
+            }
+        }
+        def cache = lockingManager.createPartitionedCache("cache", keySerializer, BaseSerializerFactory.STRING_SERIALIZER, partitionKey)
+
+        when:
+        async {
+            start {
+                lockingManager.useCache {
+                    cache.get("blocked:a")
+                }
+            }
+            start {
+                thread.blockUntil.segmentUsed
+                lockingManager.useCache {
+                    instant.artifactCacheUsed
+                }
+            }
+        }
+
+        then:
+        instant.artifactCacheUsed > instant.segmentUsed
+    }
+
+    def "keeps entries when partitioning is turned on and off"() {
+        when:
+        def lockingManager = manager(0)
+        lockingManager.useCache { cache(lockingManager).put("group:a", "1") }
+        close(lockingManager)
+
+        lockingManager = manager(4)
+        def partitioned = cache(lockingManager)
+
+        then:
+        lockingManager.useCache({ partitioned.get("group:a") } as Factory) == "1"
+
+        when:
+        lockingManager.useCache { partitioned.put("group:b", "2") }
+        close(lockingManager)
+        lockingManager = manager(0)
+
+        then:
+        lockingManager.useCache({ cache(lockingManager).get("group:b") } as Factory) == "2"
+    }
+
+    private DefaultCacheLockingManager manager(int segmentCount) {
+        def cacheMetaData = Stub(ArtifactCacheMetaData) {
+            getCacheDir() >> tmpDir.file("cache")
+        }
+        def lockingManager = new DefaultCacheLockingManager(cacheRepository, cacheMetaData, segmentCount)
+        managers << lockingManager
+        return lockingManager
+    }
+
+    private void close(DefaultCacheLockingManager lockingManager) {
+        managers.remove(lockingManager)
+        lockingManager.close()
+    }
+
+    private PersistentIndexedCache<String, String> cache(DefaultCacheLockingManager lockingManager) {
+        return lockingManager.createPartitionedCache("cache", BaseSerializerFactory.STRING_SERIALIZER, BaseSerializerFactory.STRING_SERIALIZER, partitionKey)
+    }
+}
@@ -110,6 +110,29 @@ class ResolveIvyFactoryTest extends Specification {
         }
     }
 
+    def "creates no raw metadata resolver when no repositories are configured" () {
+        expect:
+        resolveIvyFactory.createRawMetaDataResolver(Stub(ResolutionStrategyInternal), Collections.emptyList()) == null
+    }
+
+    def "raw metadata resolver does not use the in-memory caches" () {
+        def spyResolver = externalResourceResolverSpy()
+        def repositories = Lists.newArrayList(Stub(ResolutionAwareRepository) {
+            createResolver() >> spyResolver
+        })
+
+        when:
+        def resolver = resolveIvyFactory.createRawMetaDataResolver(Stub(ResolutionStrategyInternal), repositories)
+
+        then:
+        resolver != null
+        0 * inMemoryCachedRepositoryFactory.cached(_)
+        1 * spyResolver.setComponentResolvers(_) >> { ComponentResolvers parentResolver ->
+            assert parentResolver instanceof ResolveIvyFactory.ParentModuleLookupResolver
+            assert parentResolver.delegate.componentSelectionRules.rules.empty
+        }
+    }
+
     def externalResourceResolverSpy() {
         ExternalResourceRepository externalResourceRepository = Stub()
         CacheAwareExternalResourceAccessor cacheAwareExternalResourceAccessor = Stub()
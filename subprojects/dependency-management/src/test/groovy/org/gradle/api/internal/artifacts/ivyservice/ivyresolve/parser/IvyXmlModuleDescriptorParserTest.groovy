@@ -20,12 +20,15 @@ import com.google.common.collect.LinkedHashMultimap
 import com.google.common.collect.SetMultimap
 import org.apache.ivy.plugins.matcher.PatternMatcher
 import org.gradle.api.internal.artifacts.ivyservice.NamespaceId
+import org.gradle.api.internal.artifacts.ivyservice.modulecache.ModuleMetadataSerializer
+import org.gradle.api.internal.artifacts.ivyservice.modulecache.ParsedDescriptorStore
 import org.gradle.internal.component.external.descriptor.ModuleDescriptorState
 import org.gradle.internal.component.external.model.DefaultModuleComponentIdentifier
 import org.gradle.internal.component.external.model.IvyDependencyMetadata
 import org.gradle.internal.component.external.model.MutableIvyModuleResolveMetadata
 import org.gradle.internal.resource.local.DefaultLocallyAvailableExternalResource
 import org.gradle.internal.resource.local.DefaultLocallyAvailableResource
+import org.gradle.internal.resource.local.PathKeyFileStore
 import org.gradle.test.fixtures.file.TestFile
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
 import org.gradle.util.Resources
@@ -647,6 +650,64 @@ class IvyXmlModuleDescriptorParserTest extends Specification {
         md.extraInfo[new NamespaceId("namespace-c", "a")] == "info 2"
     }
 
+    def "reuses stored result of parsing a descriptor with the same content"() {
+        given:
+        def store = new ParsedDescriptorStore(new PathKeyFileStore(temporaryFolder.file("store")), new ModuleMetadataSerializer())
+        parser = new IvyXmlModuleDescriptorParser(store)
+        def content = """
+<ivy-module version="1.0">
+    <info organisation="myorg" module="mymodule" revision="myrev" status="release"/>
+    <configurations>
+        <conf name="compile"/>
+    </configurations>
+    <dependencies>
+        <dependency org="yourorg" name="yourmodule" rev="1.0" conf="compile->default"/>
+    </dependencies>
+</ivy-module>
+"""
+        def file1 = temporaryFolder.file("first/ivy.xml") << content
+        def file2 = temporaryFolder.file("second/ivy.xml") << content
+
+        when:
+        parse(parseContext, file1)
+
+        then:
+        temporaryFolder.file("store").listFiles().length == 1
+        md.componentIdentifier == componentId("myorg", "mymodule", "myrev")
+        store.hits == 0
+        store.misses == 1
+
+        when:
+        file1.delete()
+        parse(parseContext, file2)
+
+        then:
+        store.hits == 1
+        store.misses == 1
+        md.componentIdentifier == componentId("myorg", "mymodule", "myrev")
+        md.status == "release"
+        metadata.configurationDefinitions.keySet() == ["default", "compile"] as Set
+        metadata.dependencies.size() == 1
+        metadata.dependencies[0].requested == newSelector("yourorg", "yourmodule", "1.0")
+    }
+
+    def "does not store result of parsing a descriptor that uses properties"() {
+        given:
+        def store = new ParsedDescriptorStore(new PathKeyFileStore(temporaryFolder.file("store")), new ModuleMetadataSerializer())
+        parser = new IvyXmlModuleDescriptorParser(store)
+        def file = temporaryFolder.file("ivy.xml") << """
+<ivy-module version="1.0">
+    <info organisation="myorg" module="mymodule" revision="\${myrev}"/>
+</ivy-module>
+"""
+
+        when:
+        parse(parseContext, file)
+
+        then:
+        !temporaryFolder.file("store").exists() || temporaryFolder.file("store").listFiles().length == 0
+    }
+
     private void parse(DescriptorParseContext parseContext, TestFile file) {
         metadata = parser.parseMetaData(parseContext, file)
         md = metadata.descriptor
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser
+
+import org.gradle.api.Transformer
+import org.gradle.internal.resource.local.DefaultLocallyAvailableExternalResource
+import org.gradle.internal.resource.local.DefaultLocallyAvailableResource
+import org.gradle.internal.resource.local.LocallyAvailableExternalResource
+import org.gradle.test.fixtures.file.TestFile
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+class ParsedPomCacheTest extends Specification {
+    private static final String POM = """
+<project>
+    <modelVersion>4.0.0</modelVersion>
+    <groupId>group-one</groupId>
+    <artifactId>artifact-one</artifactId>
+    <version>version-one</version>
+</project>
+"""
+
+    @Rule
+    final TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+    def cache = new ParsedPomCache()
+    def parses = new AtomicInteger()
+
+    def "parses a POM with the same content once"() {
+        given:
+        def first = resource(tmpDir.file("first/pom.xml") << POM)
+        def second = resource(tmpDir.file("second/pom.xml") << POM)
+
+        when:
+        def firstElement = cache.parse(first)
+        def secondElement = cache.parse(second)
+
+        then:
+        firstElement.is(secondElement)
+        PomDomParser.getFirstChildText(firstElement, "artifactId") == "artifact-one"
+        parses.get() == 1
+    }
+
+    def "parses a POM once when it is requested by several threads at the same time"() {
+        given:
+        def pom = resource(tmpDir.file("pom.xml") << POM)
+        def start = new CountDownLatch(1)
+        def elements = Collections.synchronizedList([])
+        def threads = (1..4).collect {
+            Thread.start {
+                assert start.await(10, TimeUnit.SECONDS)
+                elements << cache.parse(pom)
+            }
+        }
+
+        when:
+        start.countDown()
+        threads*.join()
+
+        then:
+        elements.size() == 4
+        elements.every { it.is(elements[0]) }
+        parses.get() == 1
+    }
+
+    def "parses a POM again after the cache is stopped"() {
+        given:
+        def pom = resource(tmpDir.file("pom.xml") << POM)
+        cache.parse(pom)
+
+        when:
+        cache.stop()
+        cache.parse(pom)
+
+        then:
+        parses.get() == 2
+    }
+
+    private LocallyAvailableExternalResource resource(TestFile file) {
+        return new DefaultLocallyAvailableExternalResource(file.toURI(), new DefaultLocallyAvailableResource(file)) {
+            @Override
+            public <T> T withContent(Transformer<? extends T, ? super InputStream> readAction) {
+                parses.incrementAndGet()
+                // Give the other threads the chance to ask for the same POM while it is being parsed
+                Thread.sleep(50)
+                return super.withContent(readAction)
+            }
+        }
+    }
+}
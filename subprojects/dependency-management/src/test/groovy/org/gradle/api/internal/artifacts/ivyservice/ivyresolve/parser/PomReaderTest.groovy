@@ -864,4 +864,46 @@ class PomReaderTest extends AbstractPomReaderTest {
         pomReader.artifactId == pomReader.parentArtifactId
         pomReader.version == pomReader.parentVersion
     }
+
+    def "reads text containing entities and CDATA and ignores build and reporting sections"() {
+        when:
+        pomFile << """<?xml version="1.0" encoding="UTF-8"?>
+<project>
+    <modelVersion>4.0.0</modelVersion>
+    <groupId>group-one</groupId>
+    <artifactId>artifact-one</artifactId>
+    <version>version-one</version>
+    <description>Caf&eacute; &amp; <![CDATA[<bar>]]></description>
+
+    <properties>
+        <build>some-build</build>
+    </properties>
+
+    <build>
+        <plugins>
+            <plugin>
+                <groupId>plugin-group</groupId>
+                <artifactId>plugin-artifact</artifactId>
+                <dependencies>
+                    <dependency>
+                        <groupId>group-two</groupId>
+                        <artifactId>artifact-two</artifactId>
+                        <version>version-two</version>
+                    </dependency>
+                </dependencies>
+            </plugin>
+        </plugins>
+    </build>
+    <reporting>
+        <plugins/>
+    </reporting>
+</project>
+"""
+        pomReader = new PomReader(locallyAvailableExternalResource)
+
+        then:
+        pomReader.description == 'Caf\u00e9 & <bar>'
+        pomReader.pomProperties == [build: 'some-build']
+        pomReader.dependencies.isEmpty()
+    }
 }
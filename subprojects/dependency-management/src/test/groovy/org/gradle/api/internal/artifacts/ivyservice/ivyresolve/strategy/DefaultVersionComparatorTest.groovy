@@ -46,6 +46,19 @@ class DefaultVersionComparatorTest extends Specification {
         "1.0-1" | "1+0_2"
     }
 
+    def "compares numeric parts that are too large for a long numerically"() {
+        expect:
+        compare(smaller, larger) < 0
+        compare(larger, smaller) > 0
+
+        where:
+        smaller                  | larger
+        "1.2"                    | "1.99999999999999999999"
+        "1.99999999999999999998" | "1.99999999999999999999"
+        "1.99999999999999999999" | "1.100000000000000000000"
+        "1.2-beta"               | "1.99999999999999999999"
+    }
+
     def "compares versions lexicographically when parts are not digits"() {
         expect:
         compare(smaller, larger) < 0
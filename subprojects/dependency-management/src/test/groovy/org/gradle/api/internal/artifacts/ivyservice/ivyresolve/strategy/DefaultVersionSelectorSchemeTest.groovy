@@ -78,4 +78,17 @@ class DefaultVersionSelectorSchemeTest extends Specification {
             "[1,2,3]",
         ]
     }
+
+    def "reuses selector for the same selector string"() {
+        expect:
+        matcher.parseSelector(selector).is(matcher.parseSelector(selector))
+
+        where:
+        selector << [
+            "[1.0,2.0]",
+            "1.+",
+            "latest.release",
+            "1.0",
+        ]
+    }
 }
@@ -97,6 +97,11 @@ class VersionParserTest extends Specification {
         '-a b c-  ' | ['', 'a b c', '  ']
     }
 
+    def "reuses parsed version"() {
+        expect:
+        parse("1.2.3").is(new VersionParser().transform("1.2.3"))
+    }
+
     def parse(String v) {
         return versionParser.transform(v)
     }
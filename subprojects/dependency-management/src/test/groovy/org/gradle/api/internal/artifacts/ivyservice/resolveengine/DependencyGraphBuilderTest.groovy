@@ -26,15 +26,22 @@ import org.gradle.api.attributes.AttributesSchema
 import org.gradle.api.internal.artifacts.DefaultModuleIdentifier
 import org.gradle.api.internal.artifacts.configurations.ConfigurationInternal
 import org.gradle.api.internal.artifacts.dsl.ModuleReplacementsData
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.RepositoryChainModuleSource
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.DefaultVersionComparator
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.DefaultVersionSelectorScheme
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.CompositeDependencyGraphVisitor
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphBuilder
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphNode
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphPathResolver
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphSelector
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphVisitor
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.MetadataPrefetcher
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.ResolvedGraphRecorder
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.conflicts.DefaultConflictHandler
 import org.gradle.api.internal.artifacts.publish.DefaultPublishArtifact
 import org.gradle.api.internal.attributes.AttributeContainerInternal
 import org.gradle.api.specs.Specs
+import org.gradle.cache.CacheAccess
 import org.gradle.internal.component.external.descriptor.DefaultExclude
 import org.gradle.internal.component.external.model.DefaultModuleComponentIdentifier
 import org.gradle.internal.component.external.model.DefaultModuleComponentSelector
@@ -45,6 +52,8 @@ import org.gradle.internal.component.model.ComponentResolveMetadata
 import org.gradle.internal.component.model.DependencyMetadata
 import org.gradle.internal.component.model.IvyArtifactName
 import org.gradle.internal.component.model.LocalComponentDependencyMetadata
+import org.gradle.internal.component.model.ModuleSource
+import org.gradle.internal.concurrent.DefaultExecutorFactory
 import org.gradle.internal.resolve.ModuleVersionNotFoundException
 import org.gradle.internal.resolve.ModuleVersionResolveException
 import org.gradle.internal.resolve.resolver.ComponentMetaDataResolver
@@ -54,6 +63,9 @@ import org.gradle.internal.resolve.result.BuildableComponentIdResolveResult
 import org.gradle.internal.resolve.result.BuildableComponentResolveResult
 import spock.lang.Specification
 
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
 import static org.gradle.api.internal.artifacts.DefaultModuleVersionIdentifier.newId
 import static org.gradle.api.internal.artifacts.DefaultModuleVersionSelector.newSelector
 import static org.gradle.internal.component.local.model.TestComponentIdentifiers.newProjectId
@@ -63,6 +75,7 @@ class DependencyGraphBuilderTest extends Specification {
     def conflictResolver = Mock(ModuleConflictResolver)
     def idResolver = Mock(DependencyToComponentIdResolver)
     def metaDataResolver = Mock(ComponentMetaDataResolver)
+    def rawMetaDataResolver = Mock(ComponentMetaDataResolver)
     def attributesSchema = Mock(AttributesSchema)
     def attributes = Mock(AttributeContainerInternal) {
         isEmpty() >> true
@@ -70,6 +83,7 @@ class DependencyGraphBuilderTest extends Specification {
     def root = project('root', '1.0', ['root'])
     def moduleResolver = Mock(ResolveContextToComponentResolver)
     def moduleReplacements = Mock(ModuleReplacementsData)
+    def executorFactory = new DefaultExecutorFactory()
 
     DependencyGraphBuilder builder
 
@@ -81,6 +95,10 @@ class DependencyGraphBuilderTest extends Specification {
         builder = new DependencyGraphBuilder(idResolver, metaDataResolver, moduleResolver, new DefaultConflictHandler(conflictResolver, moduleReplacements), Specs.satisfyAll(), attributesSchema)
     }
 
+    def cleanup() {
+        executorFactory.stop()
+    }
+
     private TestGraphVisitor resolve(DependencyGraphBuilder builder = this.builder) {
         def graphVisitor = new TestGraphVisitor()
         builder.resolve(configuration, graphVisitor)
@@ -944,6 +962,141 @@ class DependencyGraphBuilderTest extends Specification {
         result.components == ids(root, forced, b)
     }
 
+    def "fetches metadata for the dependencies of a configuration concurrently when a prefetcher is used"() {
+        given:
+        builder = prefetchingBuilder()
+        def a = revision('a')
+        def b = revision('b')
+        def c = revision('c')
+        def d = revision('d')
+        def fetched = new CountDownLatch(3)
+        traversesConcurrently fetched, root, a
+        traversesConcurrently fetched, root, b
+        traversesConcurrently fetched, root, c
+        traverses a, d
+
+        when:
+        def result = resolve()
+        result.rethrowFailure()
+
+        then:
+        result.components == ids(root, a, b, c, d)
+    }
+
+    def "fetches metadata only for fixed versions of modules that have not been seen yet when a prefetcher is used"() {
+        given:
+        builder = prefetchingBuilder()
+        def a = revision('a')
+        def b = revision('b')
+        def c = revision('c')
+        def otherC = revision('c', '1.1')
+        traverses root, a, revision: '1.+'
+        traverses root, b
+        traverses root, c
+        doesNotTraverse b, otherC
+        conflictResolver.select(!null) >> { Collection<ComponentResolutionState> candidates -> candidates.find { it.version == '1.0' } }
+
+        when:
+        def result = resolve()
+        result.rethrowFailure()
+
+        then:
+        1 * rawMetaDataResolver.resolve(b.componentId, _, _)
+        1 * rawMetaDataResolver.resolve(c.componentId, _, _)
+        0 * rawMetaDataResolver._
+    }
+
+    def "selects the same versions when a prefetcher is used"() {
+        given:
+        builder = prefetchingBuilder()
+        def selected = revision('a', '1.2')
+        def evicted = revision('a', '1.1')
+        def b = revision('b')
+        def c = revision('c')
+        def d = revision('d')
+        def e = revision('e')
+        traverses root, selected
+        traverses root, b
+        traverses root, c
+        traverses b, d
+        doesNotTraverse b, evicted
+        doesNotResolve evicted, e
+
+        when:
+        def result = resolve()
+        result.rethrowFailure()
+
+        then:
+        1 * conflictResolver.select(!null) >> {
+            Collection<ComponentResolutionState> candidates = it[0]
+            assert candidates*.version as Set == ['1.2', '1.1'] as Set
+            return candidates.find { it.version == '1.2' }
+        }
+        0 * conflictResolver._
+
+        and:
+        result.components == ids(root, selected, b, c, d)
+    }
+
+    def "replays a recorded graph with the same nodes and edges"() {
+        given:
+        def selected = revision('a', '1.2')
+        def evicted = revision('a', '1.1')
+        def b = revision('b')
+        def c = revision('c')
+        def d = revision('d')
+        traverses root, selected
+        traverses selected, c
+        traverses root, b
+        traverses b, d
+        doesNotTraverse d, evicted
+        conflictResolver.select(!null) >> { Collection<ComponentResolutionState> candidates -> candidates.find { it.version == '1.2' } }
+        def recorder = recorder()
+
+        when:
+        def result = new TestGraphVisitor()
+        builder.resolve(configuration, new CompositeDependencyGraphVisitor(result, recorder))
+        result.rethrowFailure()
+        def replayed = new TestGraphVisitor()
+        recorder.graph.replay(root, 'root', replayed)
+
+        then:
+        replayed.root.owner.componentId == root.componentId
+        replayed.components == result.components
+        replayed.edges == result.edges
+        replayed.edges == ["group:root:1.0 -> [group:a:1.2]", "group:root:1.0 -> [group:b:1.0]", "group:a:1.2 -> [group:c:1.0]", "group:b:1.0 -> [group:d:1.0]", "group:d:1.0 -> [group:a:1.2]"]
+    }
+
+    def "does not record a graph with a dynamic version"() {
+        given:
+        def a = revision("a")
+        def b = revision("b")
+        traverses root, a
+        traverses a, b, revision: 'latest.release'
+        def recorder = recorder()
+
+        when:
+        builder.resolve(configuration, recorder)
+
+        then:
+        recorder.graph == null
+    }
+
+    def "does not record a graph with a failure"() {
+        given:
+        def a = revision("a")
+        def b = revision("b")
+        traverses root, a
+        traversesMissing a, b
+        def recorder = recorder()
+
+        when:
+        builder.resolve(configuration, recorder)
+
+        then:
+        recorder.graph == null
+    }
+
     def revision(String name, String revision = '1.0') {
         // TODO Shouldn't really be using the local component implementation here
         def id = newId("group", name, revision)
@@ -953,6 +1106,20 @@ class DependencyGraphBuilderTest extends Specification {
         return metaData
     }
 
+    def revisionFrom(String name, String repositoryId) {
+        def id = newId("group", name, '1.0')
+        def source = new RepositoryChainModuleSource(repositoryId, null)
+        def metaData = new DefaultLocalComponentMetadata(id, DefaultModuleComponentIdentifier.newId(id), "release", attributesSchema) {
+            @Override
+            ModuleSource getSource() {
+                return source
+            }
+        }
+        metaData.addConfiguration("default", "defaultConfig", [] as Set<String>, ["default"] as Set<String>, true, true, attributes, true, true)
+        metaData.addArtifacts("default", [new DefaultPublishArtifact("art1", "zip", "art", null, new Date(), new File("art1.zip"))])
+        return metaData
+    }
+
     def project(String name, String revision = '1.0', List<String> extraConfigs = []) {
         def metaData = new DefaultLocalComponentMetadata(newId("group", name, revision), newProjectId(":${name}"), "release", attributesSchema)
         metaData.addConfiguration("default", "defaultConfig", [] as Set<String>, ["default"] as Set<String>, true, true, attributes, true, true)
@@ -972,6 +1139,25 @@ class DependencyGraphBuilderTest extends Specification {
         }
     }
 
+    def traversesConcurrently(CountDownLatch fetched, def from, ComponentResolveMetadata to) {
+        def dependencyMetaData = dependsOn(from, to.id)
+        def traversalThread = Thread.currentThread()
+        1 * rawMetaDataResolver.resolve(to.componentId, _, _) >> {
+            // Wait for the metadata of the other dependencies to be fetched at the same time
+            fetched.countDown()
+            assert fetched.await(10, TimeUnit.SECONDS)
+        }
+        // The resolvers, and the rules they apply, are only used by the traversal
+        1 * idResolver.resolve(dependencyMetaData, _) >> { DependencyMetadata dep, BuildableComponentIdResolveResult result ->
+            assert Thread.currentThread() == traversalThread
+            result.resolved(to.componentId, to.id)
+        }
+        1 * metaDataResolver.resolve(to.componentId, _, _) >> { ComponentIdentifier id, ComponentOverrideMetadata requestMetaData, BuildableComponentResolveResult result ->
+            assert Thread.currentThread() == traversalThread
+            result.resolved(to)
+        }
+    }
+
     def doesNotTraverse(Map<String, ?> args = [:], def from, ComponentResolveMetadata to) {
         def dependencyMetaData = dependsOn(args, from, to.id)
         selectorResolvesTo(dependencyMetaData, to.componentId, to.id)
@@ -1039,6 +1225,47 @@ class DependencyGraphBuilderTest extends Specification {
         }
     }
 
+    DependencyGraphBuilder prefetchingBuilder() {
+        def cacheAccess = Stub(CacheAccess) {
+            useCache(_ as Runnable) >> { Runnable action -> action.run() }
+            longRunningOperation(_ as Runnable) >> { Runnable action -> action.run() }
+        }
+        def prefetcher = new MetadataPrefetcher(executorFactory.create("metadata", 4), cacheAccess, rawMetaDataResolver, new DefaultVersionSelectorScheme(new DefaultVersionComparator()))
+        return new DependencyGraphBuilder(idResolver, metaDataResolver, moduleResolver, new DefaultConflictHandler(conflictResolver, moduleReplacements), Specs.satisfyAll(), attributesSchema, prefetcher)
+    }
+
+    def "does not record a graph with a module from a local repository"() {
+        given:
+        def a = revision("a")
+        def b = revisionFrom("b", "local-repo")
+        traverses root, a
+        traverses a, b
+        def recorder = recorder(["local-repo"] as Set)
+
+        when:
+        builder.resolve(configuration, recorder)
+
+        then:
+        recorder.graph == null
+    }
+
+    def "records a graph with modules from remote repositories"() {
+        given:
+        def a = revisionFrom("a", "remote-repo")
+        traverses root, a
+        def recorder = recorder(["local-repo"] as Set)
+
+        when:
+        builder.resolve(configuration, recorder)
+
+        then:
+        recorder.graph != null
+    }
+
+    ResolvedGraphRecorder recorder(Set<String> localRepositoryIds = [] as Set) {
+        return new ResolvedGraphRecorder(new DefaultVersionSelectorScheme(new DefaultVersionComparator()), moduleReplacements, localRepositoryIds)
+    }
+
     def ids(ComponentResolveMetadata... descriptors) {
         return descriptors.collect { it.id } as Set
     }
@@ -1046,6 +1273,7 @@ class DependencyGraphBuilderTest extends Specification {
     static class TestGraphVisitor implements DependencyGraphVisitor {
         def root
         def components = new LinkedHashSet()
+        def edges = []
         final Map<ModuleVersionSelector, FailureDetails> failures = new LinkedHashMap<>()
 
         Set<ModuleVersionSelector> getUnresolvedDependencies() {
@@ -1069,6 +1297,7 @@ class DependencyGraphBuilderTest extends Specification {
         @Override
         void visitEdges(DependencyGraphNode resolvedConfiguration) {
             resolvedConfiguration.outgoingEdges.each {
+                edges << "${it.from.owner.moduleVersion} -> ${it.targets.collect { it.owner.moduleVersion.toString() }}".toString()
                 if (it.failure) {
                     def breakage = failures.get(it.requestedModuleVersion)
                     if (breakage == null) {
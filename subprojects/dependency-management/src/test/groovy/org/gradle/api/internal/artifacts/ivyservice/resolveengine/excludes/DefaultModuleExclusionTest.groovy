@@ -635,7 +635,6 @@ class DefaultModuleExclusionTest extends Specification {
         intersect(spec, spec2).is(spec)
     }
 
-    @NotYetImplemented
     def "intersection of two specs where one spec contains a superset of the rules of the other returns the spec containing the superset"() {
         def rule1 = excludeRule("org", "module")
         def rule2 = regexpExcludeRule("org", "module2")
@@ -714,6 +713,43 @@ class DefaultModuleExclusionTest extends Specification {
         !intersect(spec1, spec2).excludesSameModulesAs(intersect(spec1, spec3))
     }
 
+    def "specs with the same rules are the same instance"() {
+        def rule1 = excludeRule("org", "module")
+        def rule2 = regexpExcludeRule("org", "module2")
+        def rule3 = excludeGroupRule("org2")
+
+        expect:
+        excludeAny(rule1, rule2, rule3).is(excludeAny(rule3, rule2, rule1))
+        intersect(excludeAny(rule1), excludeAny(rule2, rule3)).is(excludeAny(rule1, rule2, rule3))
+    }
+
+    def "reuses the result of combining the same specs"() {
+        def spec = excludeAny(excludeRule("org", "module"), excludeModuleRule("module2"))
+        def spec2 = excludeAny(excludeGroupRule("org"), regexpExcludeRule("org2", "module.*"))
+
+        expect:
+        intersect(spec, spec2).is(intersect(spec, spec2))
+        union(spec, spec2).is(union(spec, spec2))
+    }
+
+    def "intersection with many exact rules excludes only the modules matched by a rule"() {
+        def spec = excludeAny(excludeRule("org", "module"), excludeGroupRule("org2"), excludeModuleRule("module3"), regexpExcludeRule("org4", "mod.*"), excludeArtifactRule("a", "jar", "jar"))
+
+        expect:
+        spec.excludeModule(moduleId("org", "module"))
+        spec.excludeModule(moduleId("org2", "any"))
+        spec.excludeModule(moduleId("any", "module3"))
+        spec.excludeModule(moduleId("org4", "module4"))
+        !spec.excludeModule(moduleId("org", "module2"))
+        !spec.excludeModule(moduleId("org4", "other"))
+        !spec.excludeModule(moduleId("org3", "module"))
+
+        and:
+        spec.mayExcludeArtifacts()
+        spec.excludeArtifact(moduleId("org", "module2"), artifactName("a", "jar", "jar"))
+        !spec.excludeArtifact(moduleId("org", "module2"), artifactName("b", "jar", "jar"))
+    }
+
     def "does not accept artifact that matches specific exclude rule"() {
         def rule1 = excludeArtifactRule("a", "jar", "jar")
         def rule2 = excludeArtifactRule("b", "jar", "jar")
@@ -70,6 +70,48 @@ class DefaultBinaryStoreTest extends Specification {
 
     }
 
+    def "data does not include values written after it is done"() {
+        def store = new DefaultBinaryStore(temp.file("foo.bin"))
+
+        when:
+        store.write({ it.writeInt(10) } as BinaryStore.WriteAction)
+        def data1 = store.done()
+        store.write({ it.writeString("y") } as BinaryStore.WriteAction)
+        def data2 = store.done()
+
+        then:
+        data1.read({ it.readInt() } as BinaryStore.ReadAction) == 10
+
+        when:
+        data1.read({ it.readString() } as BinaryStore.ReadAction)
+
+        then:
+        def e = thrown(RuntimeException)
+        e.cause instanceof EOFException
+
+        and:
+        data2.read({ it.readString() } as BinaryStore.ReadAction) == "y"
+
+        cleanup:
+        data1.close()
+        data2.close()
+        store.close()
+    }
+
+    def "deletes the file on close while data is still open"() {
+        def file = temp.file("foo.bin")
+        def store = new DefaultBinaryStore(file)
+        store.write({ it.writeInt(10) } as BinaryStore.WriteAction)
+        def data = store.done()
+        data.read({ it.readInt() } as BinaryStore.ReadAction)
+
+        when:
+        store.close()
+
+        then:
+        !file.exists()
+    }
+
     class SomeException extends RuntimeException {}
 
     def "write action exception is propagated to the client"() {
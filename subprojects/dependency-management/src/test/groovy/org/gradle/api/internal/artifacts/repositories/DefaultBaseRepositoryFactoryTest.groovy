@@ -19,6 +19,7 @@ import org.gradle.api.artifacts.dsl.RepositoryHandler
 import org.gradle.api.internal.artifacts.dsl.DefaultRepositoryHandler
 import org.gradle.api.internal.artifacts.ivyservice.IvyContextManager
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser.MetaDataParser
+import org.gradle.api.internal.artifacts.ivyservice.modulecache.ParsedDescriptorStore
 import org.gradle.api.internal.artifacts.mvnsettings.LocalMavenRepositoryLocator
 import org.gradle.api.internal.artifacts.repositories.transport.RepositoryTransportFactory
 import org.gradle.api.internal.file.FileResolver
@@ -39,11 +40,12 @@ class DefaultBaseRepositoryFactoryTest extends Specification {
     final ArtifactIdentifierFileStore artifactIdentifierFileStore = Stub()
     final MetaDataParser pomParser = Mock()
     final ivyContextManager = Mock(IvyContextManager)
+    final ParsedDescriptorStore parsedDescriptorStore = Stub()
     final AuthenticationSchemeRegistry authenticationSchemeRegistry = new DefaultAuthenticationSchemeRegistry()
 
     final DefaultBaseRepositoryFactory factory = new DefaultBaseRepositoryFactory(
             localMavenRepoLocator, fileResolver, DirectInstantiator.INSTANCE, transportFactory, locallyAvailableResourceFinder,
-            artifactIdentifierFileStore, pomParser, authenticationSchemeRegistry, ivyContextManager
+            artifactIdentifierFileStore, pomParser, authenticationSchemeRegistry, ivyContextManager, parsedDescriptorStore
     )
 
     def testCreateFlatDirResolver() {
@@ -17,6 +17,7 @@ package org.gradle.api.internal.artifacts.repositories
 import org.gradle.api.InvalidUserDataException
 import org.gradle.api.artifacts.repositories.AuthenticationContainer
 import org.gradle.api.internal.artifacts.ivyservice.IvyContextManager
+import org.gradle.api.internal.artifacts.ivyservice.modulecache.ParsedDescriptorStore
 import org.gradle.api.internal.artifacts.repositories.resolver.IvyResolver
 import org.gradle.api.internal.artifacts.repositories.transport.RepositoryTransport
 import org.gradle.api.internal.artifacts.repositories.transport.RepositoryTransportFactory
@@ -37,10 +38,11 @@ class DefaultIvyArtifactRepositoryTest extends Specification {
     final ArtifactIdentifierFileStore artifactIdentifierFileStore = Stub()
     final AuthenticationContainer authenticationContainer = Stub()
     final ivyContextManager = Mock(IvyContextManager)
+    final ParsedDescriptorStore parsedDescriptorStore = Stub()
 
     final DefaultIvyArtifactRepository repository = new DefaultIvyArtifactRepository(
             fileResolver, transportFactory, locallyAvailableResourceFinder,
-            DirectInstantiator.INSTANCE, artifactIdentifierFileStore, authenticationContainer, ivyContextManager
+            DirectInstantiator.INSTANCE, artifactIdentifierFileStore, authenticationContainer, ivyContextManager, parsedDescriptorStore
     )
 
     def "default values"() {
@@ -0,0 +1,343 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.transform
+
+import com.google.common.hash.HashCode
+import com.google.common.hash.Hashing
+import org.gradle.api.Action
+import org.gradle.api.Transformer
+import org.gradle.api.artifacts.transform.ArtifactTransform
+import org.gradle.api.artifacts.transform.ArtifactTransformTargets
+import org.gradle.api.attributes.Attribute
+import org.gradle.api.attributes.AttributeContainer
+import org.gradle.api.internal.attributes.DefaultAttributeContainer
+import org.gradle.api.internal.hash.FileHasher
+import org.gradle.cache.CacheBuilder
+import org.gradle.cache.CacheRepository
+import org.gradle.cache.PersistentCache
+import org.gradle.internal.classloader.ClassLoaderHierarchyHasher
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+import java.util.concurrent.atomic.AtomicInteger
+
+class TransformedFileCacheTest extends Specification {
+    @Rule
+    TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+
+    def cacheDir = tmpDir.file("cache")
+    def fileHasher = Stub(FileHasher) {
+        hash(_ as File) >> { File file -> Hashing.md5().hashBytes(file.bytes) }
+    }
+    def classLoaderHasher = Stub(ClassLoaderHierarchyHasher) {
+        getClassLoaderHash(_) >> HashCode.fromInt(123)
+    }
+    def cacheLocks = new AtomicInteger()
+    def from = new DefaultAttributeContainer().attribute(Attribute.of("type", String), "jar").asImmutable()
+    def to = new DefaultAttributeContainer().attribute(Attribute.of("type", String), "size").asImmutable()
+
+    def setup() {
+        FileSizer.transformed.set(0)
+    }
+
+    def "refreshes the timestamp of entries that are reused from memory"() {
+        def cache = cache(1000)
+        def transform = transform(cache)
+        def input = tmpDir.file("file.jar") << "1234"
+
+        when:
+        def entry = entryDir(transform.transform(input))
+        entry.lastModified = System.currentTimeMillis() - 30000
+        def lastModified = entry.lastModified()
+        transform.transform(input)
+
+        then:
+        FileSizer.transformed.get() == 1
+        entry.lastModified() > lastModified
+    }
+
+    def "reuses results for files with the same content"() {
+        def cache = cache(1000)
+        def transform = transform(cache)
+        def input1 = tmpDir.file("a/file.jar") << "1234"
+        def input2 = tmpDir.file("b/file.jar") << "1234"
+
+        when:
+        def outputs1 = transform.transform(input1)
+        def outputs2 = transform.transform(input2)
+
+        then:
+        FileSizer.transformed.get() == 1
+        outputs1 == outputs2
+        outputs1.size() == 1
+        outputs1[0].text == "4"
+        outputs1[0].absolutePath.startsWith(cacheDir.absolutePath)
+    }
+
+    def "transforms file again when its content changes"() {
+        def cache = cache(1000)
+        def transform = transform(cache)
+        def input = tmpDir.file("file.jar") << "1234"
+
+        when:
+        def outputs1 = transform.transform(input)
+        input << "56"
+        def outputs2 = transform.transform(input)
+
+        then:
+        FileSizer.transformed.get() == 2
+        outputs1[0].text == "4"
+        outputs2[0].text == "6"
+    }
+
+    def "reuses results stored by another instance"() {
+        def input = tmpDir.file("file.jar") << "1234"
+
+        when:
+        def outputs1 = transform(cache(1000)).transform(input)
+        def outputs2 = transform(cache(1000)).transform(input)
+
+        then:
+        FileSizer.transformed.get() == 1
+        outputs1 == outputs2
+    }
+
+    def "does not reuse results of transform with different properties"() {
+        def cache = cache(1000)
+        def input = tmpDir.file("file.jar") << "1234"
+
+        when:
+        def outputs1 = transform(cache, ".txt").transform(input)
+        def outputs2 = transform(cache, ".size").transform(input)
+
+        then:
+        FileSizer.transformed.get() == 2
+        outputs1[0].name == "file.jar.txt"
+        outputs2[0].name == "file.jar.size"
+    }
+
+    def "transforms file again when cached results have been removed"() {
+        def cache = cache(1000)
+        def transform = transform(cache)
+        def input = tmpDir.file("file.jar") << "1234"
+
+        when:
+        def outputs1 = transform.transform(input)
+        outputs1[0].delete()
+        def outputs2 = transform.transform(input)
+
+        then:
+        FileSizer.transformed.get() == 2
+        outputs2 == outputs1
+        outputs2[0].text == "4"
+    }
+
+    def "does not cache results of transform with properties that cannot be hashed"() {
+        def cache = cache(1000)
+        def registration = new ArtifactTransformRegistration(from, to, ListTransform, { ArtifactTransform transform -> transform.outputDirectory = tmpDir.file("out") } as Action, null)
+        def transformer = Stub(Transformer)
+
+        expect:
+        cache.decorate(registration, transformer).is(transformer)
+    }
+
+    def "does not cache results when not enabled"() {
+        def cache = cache(0)
+        def transformer = Stub(Transformer)
+
+        expect:
+        !cache.enabled
+        cache.decorate(registration(".txt", null), transformer).is(transformer)
+    }
+
+    def "evicts least recently used entries when the cache exceeds its maximum size"() {
+        def input1 = tmpDir.file("a.jar") << "1234"
+        def input2 = tmpDir.file("b.jar") << "1234"
+        def input3 = tmpDir.file("c.jar") << "1234"
+        def input4 = tmpDir.file("d.jar") << "1234"
+
+        when:
+        def entry1 = entryDir(transform(cache(1000)).transform(input1))
+        def entrySize = new File(entry1, "results.txt").length() + new File(entry1, "outputs").listFiles()*.length().sum()
+        def transform = transform(cache((long) (entrySize * 3.5)))
+        def entry2 = entryDir(transform.transform(input2))
+        def entry3 = entryDir(transform.transform(input3))
+        entry1.lastModified = System.currentTimeMillis() - hours(2)
+        entry2.lastModified = System.currentTimeMillis() - hours(4)
+        entry3.lastModified = System.currentTimeMillis() - hours(3)
+        def entry4 = entryDir(transform.transform(input4))
+
+        then:
+        entry1.exists()
+        !entry2.exists()
+        entry3.exists()
+        entry4.exists()
+
+        and:
+        cacheLocks.get() == 1
+    }
+
+    def "does not evict entries used recently, as a build may still read them"() {
+        def input1 = tmpDir.file("a.jar") << "1234"
+        def input2 = tmpDir.file("b.jar") << "1234"
+        def input3 = tmpDir.file("c.jar") << "1234"
+
+        when:
+        def entry1 = entryDir(transform(cache(1000)).transform(input1))
+        def entrySize = new File(entry1, "results.txt").length() + new File(entry1, "outputs").listFiles()*.length().sum()
+        def transform = transform(cache((long) (entrySize * 1.5)))
+        def entry2 = entryDir(transform.transform(input2))
+        entry1.lastModified = System.currentTimeMillis() - 10000
+        def entry3 = entryDir(transform.transform(input3))
+
+        then:
+        entry1.exists()
+        entry2.exists()
+        entry3.exists()
+    }
+
+    def "deletes stale temporary directories when opened"() {
+        def staleDir = cacheDir.createDir("0123abcd-1.part")
+        staleDir.createFile("outputs/file.txt")
+        staleDir.lastModified = System.currentTimeMillis() - hours(48)
+        def recentDir = cacheDir.createDir("0123abce-2.part")
+
+        when:
+        cache(1000)
+
+        then:
+        !staleDir.exists()
+        recentDir.exists()
+    }
+
+    def "does not reuse results of transform configured with a file whose content has changed"() {
+        def cache = cache(1000)
+        def input = tmpDir.file("file.jar") << "1234"
+        def config = tmpDir.file("config.txt") << "a"
+
+        when:
+        def outputs1 = fileConfiguredTransform(cache, config).transform(input)
+        config << "b"
+        def outputs2 = fileConfiguredTransform(cache, config).transform(input)
+        def outputs3 = fileConfiguredTransform(cache, config).transform(input)
+
+        then:
+        outputs1 != outputs2
+        outputs2 == outputs3
+        outputs1[0].text == "a"
+        outputs2[0].text == "ab"
+    }
+
+    def "does not cache results of transform configured with a directory"() {
+        def cache = cache(1000)
+        def config = { ArtifactTransform transform ->
+            transform.outputDirectory = tmpDir.file("out")
+            ((FileConfigured) transform).config = tmpDir.createDir("config")
+        } as Action
+        def registration = new ArtifactTransformRegistration(from, to, FileConfigured, config, null)
+        def transformer = Stub(Transformer)
+
+        expect:
+        cache.decorate(registration, transformer).is(transformer)
+    }
+
+    def cache(long maxSize) {
+        def persistentCache = Stub(PersistentCache) {
+            getBaseDir() >> cacheDir.createDir()
+            useCache(_ as Runnable) >> { Runnable action ->
+                cacheLocks.incrementAndGet()
+                action.run()
+            }
+        }
+        def cacheBuilder = Stub(CacheBuilder)
+        cacheBuilder.withDisplayName(_) >> cacheBuilder
+        cacheBuilder.withLockOptions(_) >> cacheBuilder
+        cacheBuilder.open() >> persistentCache
+        def cacheRepository = Stub(CacheRepository) {
+            cache("transforms-1") >> cacheBuilder
+        }
+        return new TransformedFileCache(cacheRepository, fileHasher, classLoaderHasher, maxSize)
+    }
+
+    Transformer<List<File>, File> transform(TransformedFileCache cache, String suffix = ".txt") {
+        return registration(suffix, cache).transform
+    }
+
+    ArtifactTransformRegistration registration(String suffix, TransformedFileCache cache) {
+        def config = { ArtifactTransform transform ->
+            transform.outputDirectory = tmpDir.file("out")
+            ((FileSizer) transform).suffix = suffix
+        } as Action
+        return new ArtifactTransformRegistration(from, to, FileSizer, config, cache)
+    }
+
+    Transformer<List<File>, File> fileConfiguredTransform(TransformedFileCache cache, File configFile) {
+        def config = { ArtifactTransform transform ->
+            transform.outputDirectory = tmpDir.file("out")
+            ((FileConfigured) transform).config = configFile
+        } as Action
+        return new ArtifactTransformRegistration(from, to, FileConfigured, config, cache).transform
+    }
+
+    static long hours(int count) {
+        return count * 60 * 60 * 1000L
+    }
+
+    static File entryDir(List<File> outputs) {
+        return outputs[0].parentFile.parentFile
+    }
+
+    static class FileSizer extends ArtifactTransform {
+        static final AtomicInteger transformed = new AtomicInteger()
+        String suffix
+
+        void configure(AttributeContainer from, ArtifactTransformTargets targetRegistry) {
+        }
+
+        List<File> transform(File input, AttributeContainer target) {
+            transformed.incrementAndGet()
+            def output = new File(outputDirectory, input.name + suffix)
+            output.text = String.valueOf(input.length())
+            return [output]
+        }
+    }
+
+    static class FileConfigured extends ArtifactTransform {
+        File config
+
+        void configure(AttributeContainer from, ArtifactTransformTargets targetRegistry) {
+        }
+
+        List<File> transform(File input, AttributeContainer target) {
+            def output = new File(outputDirectory, input.name + ".txt")
+            output.text = config.text
+            return [output]
+        }
+    }
+
+    static class ListTransform extends ArtifactTransform {
+        List<String> values = []
+
+        void configure(AttributeContainer from, ArtifactTransformTargets targetRegistry) {
+        }
+
+        List<File> transform(File input, AttributeContainer target) {
+            return [input]
+        }
+    }
+}
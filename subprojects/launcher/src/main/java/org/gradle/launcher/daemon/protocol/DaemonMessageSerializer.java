@@ -39,6 +39,9 @@ import org.gradle.internal.serialize.DefaultSerializerRegistry;
 import org.gradle.internal.serialize.Encoder;
 import org.gradle.internal.serialize.ListSerializer;
 import org.gradle.internal.serialize.Serializer;
+import org.gradle.launcher.daemon.diagnostics.DaemonDiagnostics;
+
+import java.io.File;
 
 public class DaemonMessageSerializer {
     public static Serializer<Message> create() {
@@ -50,6 +53,12 @@ public class DaemonMessageSerializer {
         registry.register(BuildEvent.class, new BuildEventSerializer());
         registry.register(Failure.class, new FailureSerializer(throwableSerializer));
 
+        // Build lifecycle
+        registry.register(BuildStarted.class, new BuildStartedSerializer());
+        registry.register(DaemonUnavailable.class, new DaemonUnavailableSerializer());
+        registry.register(Cancel.class, new CancelSerializer());
+        registry.register(Finished.class, new FinishedSerializer());
+
         // Input events
         registry.register(ForwardInput.class, new ForwardInputSerializer());
         registry.register(CloseInput.class, new CloseInputSerializer());
@@ -101,6 +110,69 @@ public class DaemonMessageSerializer {
         }
     }
 
+    private static class BuildStartedSerializer implements Serializer<BuildStarted> {
+        @Override
+        public void write(Encoder encoder, BuildStarted buildStarted) throws Exception {
+            DaemonDiagnostics diagnostics = buildStarted.getDiagnostics();
+            if (diagnostics == null) {
+                encoder.writeBoolean(false);
+                return;
+            }
+            encoder.writeBoolean(true);
+            if (diagnostics.getPid() == null) {
+                encoder.writeBoolean(false);
+            } else {
+                encoder.writeBoolean(true);
+                encoder.writeLong(diagnostics.getPid());
+            }
+            encoder.writeString(diagnostics.getDaemonLog().getPath());
+        }
+
+        @Override
+        public BuildStarted read(Decoder decoder) throws Exception {
+            if (!decoder.readBoolean()) {
+                return new BuildStarted(null);
+            }
+            Long pid = decoder.readBoolean() ? decoder.readLong() : null;
+            File daemonLog = new File(decoder.readString());
+            return new BuildStarted(new DaemonDiagnostics(daemonLog, pid));
+        }
+    }
+
+    private static class DaemonUnavailableSerializer implements Serializer<DaemonUnavailable> {
+        @Override
+        public void write(Encoder encoder, DaemonUnavailable message) throws Exception {
+            encoder.writeNullableString(message.getReason());
+        }
+
+        @Override
+        public DaemonUnavailable read(Decoder decoder) throws Exception {
+            return new DaemonUnavailable(decoder.readNullableString());
+        }
+    }
+
+    private static class CancelSerializer implements Serializer<Cancel> {
+        @Override
+        public void write(Encoder encoder, Cancel value) {
+        }
+
+        @Override
+        public Cancel read(Decoder decoder) {
+            return new Cancel();
+        }
+    }
+
+    private static class FinishedSerializer implements Serializer<Finished> {
+        @Override
+        public void write(Encoder encoder, Finished value) {
+        }
+
+        @Override
+        public Finished read(Decoder decoder) {
+            return new Finished();
+        }
+    }
+
     private static class ProgressStartEventSerializer implements Serializer<ProgressStartEvent> {
         @Override
         public void write(Encoder encoder, ProgressStartEvent event) throws Exception {
@@ -22,6 +22,7 @@ import org.gradle.internal.logging.text.StyledTextOutput
 import org.gradle.internal.serialize.PlaceholderException
 import org.gradle.internal.serialize.Serializer
 import org.gradle.internal.serialize.SerializerSpec
+import org.gradle.launcher.daemon.diagnostics.DaemonDiagnostics
 
 class DaemonMessageSerializerTest extends SerializerSpec {
     def serializer = DaemonMessageSerializer.create()
@@ -164,13 +165,51 @@ class DaemonMessageSerializerTest extends SerializerSpec {
         messageResult.bytes == message.bytes
     }
 
-    def "can serialize other messages"() {
+    def "can serialize BuildStarted messages"() {
+        expect:
+        def message = new BuildStarted(new DaemonDiagnostics(new File("daemon.log"), 1234L))
+        def messageResult = usesEfficientSerialization(message, serializer)
+        messageResult instanceof BuildStarted
+        messageResult.diagnostics.daemonLog == new File("daemon.log")
+        messageResult.diagnostics.pid == 1234L
+
+        def message2 = new BuildStarted(new DaemonDiagnostics(new File("daemon.log"), null))
+        def messageResult2 = usesEfficientSerialization(message2, serializer)
+        messageResult2.diagnostics.daemonLog == new File("daemon.log")
+        messageResult2.diagnostics.pid == null
+    }
+
+    def "can serialize DaemonUnavailable messages"() {
+        expect:
+        def message = new DaemonUnavailable("busy")
+        def messageResult = usesEfficientSerialization(message, serializer)
+        messageResult instanceof DaemonUnavailable
+        messageResult.reason == "busy"
+    }
+
+    def "can serialize Cancel messages"() {
         expect:
         def message = new Cancel()
-        def messageResult = serialize(message, serializer)
+        def messageResult = usesEfficientSerialization(message, serializer)
         messageResult instanceof Cancel
     }
 
+    def "can serialize Finished messages"() {
+        expect:
+        def message = new Finished()
+        def messageResult = usesEfficientSerialization(message, serializer)
+        messageResult instanceof Finished
+    }
+
+    def "can serialize other messages"() {
+        expect:
+        def message = new Stop("id", "token".bytes)
+        def messageResult = serialize(message, serializer)
+        messageResult instanceof Stop
+        messageResult.identifier == "id"
+        messageResult.token == "token".bytes
+    }
+
     OutputEvent serialize(OutputEvent event, Serializer<Object> serializer) {
         def result = serialize(new OutputMessage(event), serializer)
         assert result instanceof OutputMessage
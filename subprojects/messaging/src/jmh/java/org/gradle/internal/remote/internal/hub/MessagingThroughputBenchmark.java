@@ -0,0 +1,110 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.remote.internal.hub;
+
+import org.gradle.api.Action;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.internal.remote.ConnectionAcceptor;
+import org.gradle.internal.remote.MessagingClient;
+import org.gradle.internal.remote.MessagingServer;
+import org.gradle.internal.remote.ObjectConnection;
+import org.gradle.internal.remote.services.MessagingServices;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.SynchronousQueue;
+
+/**
+ * Sends many small messages from a client to a server over a loopback connection, the way a test worker sends test output events to the build process.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class MessagingThroughputBenchmark {
+    @Param({"0", "2"})
+    int batchLingerMillis;
+
+    @Param({"20000"})
+    int messageCount;
+
+    private MessagingServices serverServices;
+    private MessagingServices clientServices;
+    private ConnectionAcceptor acceptor;
+    private ObjectConnection serverConnection;
+    private ObjectConnection clientConnection;
+    private OutputReceiver sender;
+    private final CountingReceiver receiver = new CountingReceiver();
+
+    @Setup(Level.Trial)
+    public void connect() throws InterruptedException {
+        System.setProperty(MessageHub.BATCH_LINGER_PROPERTY, String.valueOf(batchLingerMillis));
+        serverServices = new MessagingServices();
+        clientServices = new MessagingServices();
+        final SynchronousQueue<ObjectConnection> accepted = new SynchronousQueue<ObjectConnection>();
+        acceptor = serverServices.get(MessagingServer.class).accept(new Action<ObjectConnection>() {
+            @Override
+            public void execute(ObjectConnection connection) {
+                try {
+                    accepted.put(connection);
+                } catch (InterruptedException e) {
+                    throw UncheckedException.throwAsUncheckedException(e);
+                }
+            }
+        });
+        clientConnection = clientServices.get(MessagingClient.class).getConnection(acceptor.getAddress());
+        sender = clientConnection.addOutgoing(OutputReceiver.class);
+        clientConnection.connect();
+        serverConnection = accepted.take();
+        serverConnection.addIncoming(OutputReceiver.class, receiver);
+        serverConnection.connect();
+    }
+
+    @TearDown(Level.Trial)
+    public void disconnect() {
+        CompositeStoppable.stoppable(clientConnection, serverConnection, acceptor, clientServices, serverServices).stop();
+    }
+
+    @Benchmark
+    public void sendOutputEvents() throws InterruptedException {
+        CountDownLatch received = receiver.expect(messageCount);
+        for (int i = 0; i < messageCount; i++) {
+            sender.output(i, "test output line");
+        }
+        received.await();
+    }
+
+    public interface OutputReceiver {
+        void output(int sequence, String text);
+    }
+
+    private static class CountingReceiver implements OutputReceiver {
+        private volatile CountDownLatch received;
+
+        CountDownLatch expect(int count) {
+            received = new CountDownLatch(count);
+            return received;
+        }
+
+        @Override
+        public void output(int sequence, String text) {
+            received.countDown();
+        }
+    }
+}
@@ -29,6 +29,7 @@ import org.gradle.internal.remote.internal.hub.queue.EndPointQueue;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -41,12 +42,21 @@ import java.util.concurrent.locks.ReentrantLock;
  *
  */
 public class MessageHub implements AsyncStoppable {
+    /**
+     * The maximum time in milliseconds that a connection waits for further outgoing messages before it writes a batch of messages to the connection.
+     * When not set, a batch contains the messages queued while the previous batch was written, and is written without waiting.
+     */
+    public static final String BATCH_LINGER_PROPERTY = "org.gradle.messaging.batchLingerMillis";
+    // The maximum number of messages written to a connection before it is flushed, so that the receiver does not wait too long for the first message of a batch
+    private static final int MAX_BATCH_SIZE = 1000;
+
     private enum State {Running, Stopping, Stopped}
 
     private static final Discard DISCARD = new Discard();
     private final StoppableExecutor workers;
     private final String displayName;
     private final Action<? super Throwable> errorHandler;
+    private final long batchLingerNanos;
     private final Lock lock = new ReentrantLock();
     private State state = State.Running;
     private final IncomingQueue incomingQueue = new IncomingQueue(lock);
@@ -59,6 +69,7 @@ public class MessageHub implements AsyncStoppable {
     public MessageHub(String displayName, ExecutorFactory executorFactory, Action<? super Throwable> errorHandler) {
         this.displayName = displayName;
         this.errorHandler = errorHandler;
+        this.batchLingerNanos = TimeUnit.MILLISECONDS.toNanos(Integer.getInteger(BATCH_LINGER_PROPERTY, 0));
         workers = executorFactory.create(displayName + " workers");
     }
 
@@ -294,15 +305,30 @@ public class MessageHub implements AsyncStoppable {
                         } finally {
                             lock.unlock();
                         }
-                        for (InterHubMessage message : messages) {
-                            connection.dispatch(message);
-                            if (message instanceof EndOfStream) {
-                                connection.flush();
-                                return;
+                        long deadline = System.nanoTime() + batchLingerNanos;
+                        int batchSize = 0;
+                        // Write the messages queued while this batch is written, so that they are flushed together
+                        while (!messages.isEmpty()) {
+                            for (InterHubMessage message : messages) {
+                                connection.dispatch(message);
+                                if (message instanceof EndOfStream) {
+                                    connection.flush();
+                                    return;
+                                }
+                            }
+                            batchSize += messages.size();
+                            messages.clear();
+                            if (batchSize >= MAX_BATCH_SIZE) {
+                                break;
+                            }
+                            lock.lock();
+                            try {
+                                queue.poll(messages, deadline - System.nanoTime());
+                            } finally {
+                                lock.unlock();
                             }
                         }
                         connection.flush();
-                        messages.clear();
                     }
                 } finally {
                     lock.lock();
@@ -55,6 +55,28 @@ public class EndPointQueue implements Dispatch<InterHubMessage> {
         queue.clear();
     }
 
+    /**
+     * Adds the queued messages to the given collection. When there are no queued messages, waits up to the given time for a message to be queued.
+     * Unlike {@link #take(Collection)}, this endpoint does not remain waiting for messages once this method returns.
+     */
+    public void poll(Collection<InterHubMessage> drainTo, long timeoutNanos) {
+        if (queue.isEmpty()) {
+            owner.empty(this);
+            long remaining = timeoutNanos;
+            while (queue.isEmpty() && remaining > 0) {
+                try {
+                    remaining = condition.awaitNanos(remaining);
+                } catch (InterruptedException e) {
+                    throw UncheckedException.throwAsUncheckedException(e);
+                }
+            }
+            // The caller goes on to handle the messages, so should not be handed messages that another endpoint could handle in the meantime
+            owner.notWaiting(this);
+        }
+        drainTo.addAll(queue);
+        queue.clear();
+    }
+
     public void stop() {
         owner.stopped(this);
     }
@@ -141,7 +141,8 @@ public class SocketConnection<T> implements RemoteConnection<T> {
             this.socket = socket;
             selector = Selector.open();
             socket.register(selector, SelectionKey.OP_READ);
-            buffer = ByteBuffer.allocateDirect(4096);
+            // Use the same size as the buffer of the sending side, so that a batch of messages can be read at once
+            buffer = ByteBuffer.allocateDirect(SocketOutputStream.BUFFER_SIZE);
             buffer.limit(0);
         }
 
@@ -202,6 +203,7 @@ public class SocketConnection<T> implements RemoteConnection<T> {
 
     private static class SocketOutputStream extends OutputStream {
         private static final int RETRIES_WHEN_BUFFER_FULL = 2;
+        private static final int BUFFER_SIZE = 32 * 1024;
         private Selector selector;
         private final SocketChannel socket;
         private final ByteBuffer buffer;
@@ -209,7 +211,7 @@ public class SocketConnection<T> implements RemoteConnection<T> {
 
         public SocketOutputStream(SocketChannel socket) throws IOException {
             this.socket = socket;
-            buffer = ByteBuffer.allocateDirect(32 * 1024);
+            buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
         }
 
         @Override
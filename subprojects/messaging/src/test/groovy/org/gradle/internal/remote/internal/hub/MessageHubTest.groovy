@@ -196,6 +196,40 @@ class MessageHubTest extends ConcurrentSpec {
         connection.stop()
     }
 
+    def "outgoing messages queued while a batch is written to connection are flushed with that batch"() {
+        RemoteConnection<InterHubMessage> outgoing = Mock()
+        def connection = new MockOutgoingConnection(outgoing)
+        def dispatcher = hub.getOutgoing("channel", String)
+
+        given:
+        hub.addConnection(connection)
+
+        when:
+        async {
+            dispatcher.dispatch("message1")
+            thread.blockUntil.message1Written
+            dispatcher.dispatch("message2")
+            dispatcher.dispatch("message3")
+            instant.queued
+            thread.blockUntil.flushed
+        }
+
+        then:
+        1 * outgoing.dispatch({ it.payload == "message1" }) >> {
+            instant.message1Written
+            thread.blockUntil.queued
+        }
+        1 * outgoing.dispatch({ it.payload == "message2" })
+        1 * outgoing.dispatch({ it.payload == "message3" })
+        1 * outgoing.flush() >> {
+            instant.flushed
+        }
+        0 * _._
+
+        cleanup:
+        connection.stop()
+    }
+
     def "each outgoing message is dispatched to exactly one connection"() {
         def messages = new CopyOnWriteArrayList()
         RemoteConnection<InterHubMessage> outgoing = Mock()
@@ -18,6 +18,8 @@ package org.gradle.internal.remote.internal.hub.queue
 
 import org.gradle.internal.remote.internal.hub.protocol.EndOfStream
 
+import java.util.concurrent.TimeUnit
+
 class MultiEndPointQueueTest extends AbstractQueueTest {
     final MultiEndPointQueue queue = new MultiEndPointQueue(lock)
 
@@ -40,6 +42,50 @@ class MultiEndPointQueueTest extends AbstractQueueTest {
         messages == [message1, message2]
     }
 
+    def "endpoint polls for queued unicast messages"() {
+        given:
+        def message1 = unicast()
+        def message2 = unicast()
+        def endpoint = queue.newEndpoint()
+
+        and:
+        queue.dispatch(message1)
+        queue.dispatch(message2)
+
+        when:
+        def messages = []
+        endpoint.poll(messages, 0)
+
+        then:
+        messages == [message1, message2]
+    }
+
+    def "endpoint that finds no messages when it polls does not remain waiting"() {
+        given:
+        def message = unicast()
+        def endpoint1 = queue.newEndpoint()
+        def endpoint2 = queue.newEndpoint()
+
+        when:
+        def messages1 = []
+        endpoint1.poll(messages1, timeout)
+
+        then:
+        messages1.empty
+
+        when:
+        queue.dispatch(message)
+        def messages2 = []
+        endpoint2.poll(messages2, 0)
+
+        then:
+        messages1.empty
+        messages2 == [message]
+
+        where:
+        timeout << [0, TimeUnit.MILLISECONDS.toNanos(10)]
+    }
+
     def "forwards unicast message to first waiting endpoint"() {
         given:
         def message = unicast()
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.process.internal.health.memory;
+
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.internal.UncheckedException;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Grants a reservation when the free physical memory, less the minimum amount of free memory maintained by {@link DefaultMemoryManager}, covers the
+ * reservation, and the total physical memory, less the same minimum, covers the reservation plus all the reservations already held.
+ *
+ * <p>The free memory already accounts for the memory the running processes use, so it is only compared with the new reservation. Each running process
+ * may still grow to the full amount it reserved, which the check against the total memory accounts for. When the free memory of the machine is not known,
+ * all reservations are granted.</p>
+ */
+public class DefaultMemoryAdmissionController implements MemoryAdmissionController {
+    private static final Logger LOGGER = Logging.getLogger(MemoryAdmissionController.class);
+    // The free memory also changes as processes not started through this controller come and go, so check again periodically while waiting
+    private static final long RECHECK_INTERVAL_MILLIS = 1000;
+
+    private final MemoryInfo memoryInfo;
+    private final MemoryManager memoryManager;
+    private final boolean osMemoryStatusSupported;
+    private final Lock lock = new ReentrantLock();
+    private final Condition reservationReleased = lock.newCondition();
+    private long reservedBytes;
+    private int reservationCount;
+    // The amount by which the reservations exceed the total memory, as found by the last check
+    private long capacityShortfallBytes;
+
+    public DefaultMemoryAdmissionController(MemoryInfo memoryInfo, MemoryManager memoryManager) {
+        this.memoryInfo = memoryInfo;
+        this.memoryManager = memoryManager;
+        this.osMemoryStatusSupported = supportsOsMemoryStatus();
+    }
+
+    private boolean supportsOsMemoryStatus() {
+        try {
+            memoryInfo.getOsSnapshot();
+            return true;
+        } catch (UnsupportedOperationException ex) {
+            return false;
+        }
+    }
+
+    @Override
+    public MemoryReservation tryReserve(long memoryAmountBytes) {
+        long capacityShortfallBytes;
+        lock.lock();
+        try {
+            if (isAvailable(memoryAmountBytes)) {
+                return newReservation(memoryAmountBytes);
+            }
+            capacityShortfallBytes = this.capacityShortfallBytes;
+        } finally {
+            lock.unlock();
+        }
+
+        // Don't hold the lock while memory is released, as releasing memory can stop processes and so release their reservations
+        if (capacityShortfallBytes > 0) {
+            // Processes that are idle keep their reservations but may use little memory, so the free memory can be plenty while the reservations do not fit.
+            // Ask for reserved memory to be released directly in this case, as asking for free memory would not release anything
+            memoryManager.requestMemoryRelease(capacityShortfallBytes);
+        }
+        memoryManager.requestFreeMemory(memoryAmountBytes);
+
+        lock.lock();
+        try {
+            if (isAvailable(memoryAmountBytes)) {
+                return newReservation(memoryAmountBytes);
+            }
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public MemoryReservation reserve(long memoryAmountBytes) {
+        MemoryReservation reservation = tryReserve(memoryAmountBytes);
+        while (reservation == null) {
+            lock.lock();
+            try {
+                reservationReleased.await(RECHECK_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                throw UncheckedException.throwAsUncheckedException(e);
+            } finally {
+                lock.unlock();
+            }
+            reservation = tryReserve(memoryAmountBytes);
+        }
+        return reservation;
+    }
+
+    private boolean isAvailable(long memoryAmountBytes) {
+        capacityShortfallBytes = 0;
+        if (reservationCount == 0 || !osMemoryStatusSupported) {
+            return true;
+        }
+        OsMemoryStatus os;
+        try {
+            os = memoryInfo.getOsSnapshot();
+        } catch (Exception ex) {
+            LOGGER.debug("Failed to query free memory: {}", ex.getMessage(), ex);
+            return true;
+        }
+        long minFreeBytes = DefaultMemoryManager.getMinFreeMemory(os);
+        long availableBytes = os.getFreePhysicalMemory() - minFreeBytes;
+        long capacityBytes = os.getTotalPhysicalMemory() - minFreeBytes;
+        capacityShortfallBytes = Math.max(0, reservedBytes + memoryAmountBytes - capacityBytes);
+        if (availableBytes >= memoryAmountBytes && capacityShortfallBytes == 0) {
+            return true;
+        }
+        LOGGER.debug("Cannot reserve {} bytes of memory: {} bytes are available and {} of {} bytes are reserved by {} process(es)", memoryAmountBytes, availableBytes, reservedBytes, capacityBytes, reservationCount);
+        return false;
+    }
+
+    private MemoryReservation newReservation(long memoryAmountBytes) {
+        reservedBytes += memoryAmountBytes;
+        reservationCount++;
+        return new DefaultMemoryReservation(memoryAmountBytes);
+    }
+
+    private class DefaultMemoryReservation implements MemoryReservation {
+        private final long memoryAmountBytes;
+        private boolean released;
+
+        DefaultMemoryReservation(long memoryAmountBytes) {
+            this.memoryAmountBytes = memoryAmountBytes;
+        }
+
+        @Override
+        public long getMemoryAmountBytes() {
+            return memoryAmountBytes;
+        }
+
+        @Override
+        public void release() {
+            lock.lock();
+            try {
+                if (released) {
+                    return;
+                }
+                released = true;
+                reservedBytes -= memoryAmountBytes;
+                reservationCount--;
+                reservationReleased.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
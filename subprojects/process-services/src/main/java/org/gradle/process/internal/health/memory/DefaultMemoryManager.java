@@ -23,11 +23,16 @@ import org.gradle.internal.concurrent.Stoppable;
 import org.gradle.internal.concurrent.StoppableScheduledExecutor;
 import org.gradle.internal.event.ListenerManager;
 
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
 
 public class DefaultMemoryManager implements MemoryManager, Stoppable {
     private static final Logger LOGGER = Logging.getLogger(MemoryManager.class);
     public static final int STATUS_INTERVAL_SECONDS = 5;
+    // Ask holders to release memory when less than the larger of these amounts of physical memory is free
+    private static final long MIN_FREE_MEMORY_BYTES = 384L * 1024 * 1024;
+    private static final double MIN_FREE_MEMORY_PERCENTAGE = 0.1;
 
     private final MemoryInfo memoryInfo;
     private final ListenerManager listenerManager;
@@ -35,6 +40,8 @@ public class DefaultMemoryManager implements MemoryManager, Stoppable {
     private final JvmMemoryStatusListener jvmBroadcast;
     private final OsMemoryStatusListener osBroadcast;
     private final boolean osMemoryStatusSupported;
+    private final List<MemoryHolder> holders = new CopyOnWriteArrayList<MemoryHolder>();
+    private final Object releaseLock = new Object();
 
     public DefaultMemoryManager(MemoryInfo memoryInfo, ListenerManager listenerManager, ExecutorFactory executorFactory) {
         this.memoryInfo = memoryInfo;
@@ -76,6 +83,7 @@ public class DefaultMemoryManager implements MemoryManager, Stoppable {
                     OsMemoryStatus os = memoryInfo.getOsSnapshot();
                     LOGGER.debug("Emitting OS memory status event {}", os);
                     osBroadcast.onOsMemoryStatus(os);
+                    releaseMemory(os, 0);
                 }
                 JvmMemoryStatus jvm = memoryInfo.getJvmSnapshot();
                 LOGGER.debug("Emitting JVM memory status event {}", jvm);
@@ -86,6 +94,64 @@ public class DefaultMemoryManager implements MemoryManager, Stoppable {
         }
     }
 
+    private void releaseMemory(OsMemoryStatus os, long requiredBytes) {
+        long toReleaseBytes = requiredBytes + getMinFreeMemory(os) - os.getFreePhysicalMemory();
+        if (toReleaseBytes <= 0) {
+            return;
+        }
+        LOGGER.debug("{} bytes of physical memory are free, asking {} memory holder(s) to release {} bytes", os.getFreePhysicalMemory(), holders.size(), toReleaseBytes);
+        askHoldersToRelease(toReleaseBytes);
+    }
+
+    private void askHoldersToRelease(long toReleaseBytes) {
+        synchronized (releaseLock) {
+            for (MemoryHolder holder : holders) {
+                if (toReleaseBytes <= 0) {
+                    break;
+                }
+                toReleaseBytes -= holder.attemptToRelease(toReleaseBytes);
+            }
+        }
+    }
+
+    /**
+     * Returns the amount of physical memory that should be kept free, in bytes.
+     */
+    static long getMinFreeMemory(OsMemoryStatus os) {
+        return Math.max(MIN_FREE_MEMORY_BYTES, (long) (os.getTotalPhysicalMemory() * MIN_FREE_MEMORY_PERCENTAGE));
+    }
+
+    @Override
+    public void requestFreeMemory(long memoryAmountBytes) {
+        if (!osMemoryStatusSupported) {
+            return;
+        }
+        try {
+            releaseMemory(memoryInfo.getOsSnapshot(), memoryAmountBytes);
+        } catch (Exception ex) {
+            LOGGER.debug("Failed to release memory: {}", ex.getMessage(), ex);
+        }
+    }
+
+    @Override
+    public void requestMemoryRelease(long memoryAmountBytes) {
+        if (memoryAmountBytes <= 0) {
+            return;
+        }
+        LOGGER.debug("Asking {} memory holder(s) to release {} bytes of reserved memory", holders.size(), memoryAmountBytes);
+        askHoldersToRelease(memoryAmountBytes);
+    }
+
+    @Override
+    public void addMemoryHolder(MemoryHolder holder) {
+        holders.add(holder);
+    }
+
+    @Override
+    public void removeMemoryHolder(MemoryHolder holder) {
+        holders.remove(holder);
+    }
+
     @Override
     public void addListener(JvmMemoryStatusListener listener) {
         listenerManager.addListener(listener);
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.process.internal.health.memory;
+
+import org.gradle.api.Nullable;
+
+/**
+ * Decides whether a new process can be started without running out of physical memory, given the amount of memory the process may use and the amount
+ * of memory reserved by the processes that are already running.
+ *
+ * <p>A reservation is always granted when no other reservations are held, so that work can always make progress.</p>
+ */
+public interface MemoryAdmissionController {
+    /**
+     * Reserves the given amount of memory, when it is available. Asks the memory holders registered with the {@link MemoryManager} to release memory when
+     * not enough memory is available.
+     *
+     * @return the reservation, or null when not enough memory is available.
+     */
+    @Nullable
+    MemoryReservation tryReserve(long memoryAmountBytes);
+
+    /**
+     * Reserves the given amount of memory, blocking until it is available.
+     */
+    MemoryReservation reserve(long memoryAmountBytes);
+}
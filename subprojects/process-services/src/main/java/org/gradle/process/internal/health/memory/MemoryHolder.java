@@ -0,0 +1,30 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.process.internal.health.memory;
+
+/**
+ * Holds memory that can be released on request, such as idle worker processes.
+ */
+public interface MemoryHolder {
+    /**
+     * Attempts to release at least the given amount of memory.
+     *
+     * @param memoryAmountBytes the amount of memory to release, in bytes
+     * @return the amount of memory that was released, in bytes, which may be more or less than requested
+     */
+    long attemptToRelease(long memoryAmountBytes);
+}
@@ -26,4 +26,23 @@ public interface MemoryManager {
 
     void removeListener(OsMemoryStatusListener listener);
 
+    /**
+     * Registers a holder that is asked to release memory when the free physical memory of the machine runs low.
+     */
+    void addMemoryHolder(MemoryHolder holder);
+
+    void removeMemoryHolder(MemoryHolder holder);
+
+    /**
+     * Asks the registered holders to release memory, so that the given amount of memory is available in addition to the minimum amount of free memory
+     * this manager attempts to maintain. Does nothing when enough memory is already free or the free memory of the machine is not known.
+     */
+    void requestFreeMemory(long memoryAmountBytes);
+
+    /**
+     * Asks the registered holders to release at least the given amount of memory, regardless of how much memory is free. This is used to release memory
+     * that is reserved, but not necessarily in use, such as the memory reserved by idle worker processes.
+     */
+    void requestMemoryRelease(long memoryAmountBytes);
+
 }
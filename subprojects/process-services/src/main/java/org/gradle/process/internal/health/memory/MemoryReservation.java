@@ -0,0 +1,33 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.process.internal.health.memory;
+
+/**
+ * An amount of memory reserved for a process started by this process, such as a worker process.
+ */
+public interface MemoryReservation {
+    /**
+     * @return the amount of memory reserved, in bytes
+     */
+    long getMemoryAmountBytes();
+
+    /**
+     * Releases this reservation. Should be called once the process has stopped. Does nothing when this reservation has already been released.
+     */
+    void release();
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.process.internal.health.memory
+
+import spock.lang.Specification
+
+class DefaultMemoryAdmissionControllerTest extends Specification {
+    private static final long MB = 1024 * 1024
+
+    def memoryInfo = Mock(MemoryInfo)
+    def memoryManager = Mock(MemoryManager)
+
+    def "grants first reservation regardless of free memory"() {
+        def controller = controller(10240 * MB, 0)
+
+        when:
+        def reservation = controller.tryReserve(2048 * MB)
+
+        then:
+        reservation.memoryAmountBytes == 2048 * MB
+        0 * memoryManager._
+    }
+
+    def "grants reservation when free memory covers the reservation"() {
+        def controller = controller(10240 * MB, 6144 * MB)
+        controller.tryReserve(2048 * MB)
+
+        when:
+        def reservation = controller.tryReserve(2048 * MB)
+
+        then:
+        reservation != null
+        0 * memoryManager._
+    }
+
+    def "does not count the memory used by running processes against the free memory again"() {
+        def controller = controller(10240 * MB, 4096 * MB)
+        controller.tryReserve(4096 * MB)
+
+        when:
+        def reservation = controller.tryReserve(2048 * MB)
+
+        then:
+        reservation != null
+        0 * memoryManager._
+    }
+
+    def "denies reservation when all reservations exceed the total memory"() {
+        def controller = controller(10240 * MB, 10240 * MB)
+        controller.tryReserve(8192 * MB)
+
+        when:
+        def reservation = controller.tryReserve(2048 * MB)
+
+        then:
+        reservation == null
+        1 * memoryManager.requestMemoryRelease(1024 * MB)
+        1 * memoryManager.requestFreeMemory(2048 * MB)
+    }
+
+    def "asks memory holders to release reserved memory when reservations exceed the total memory while enough memory is free"() {
+        def controller = controller(10240 * MB, 10240 * MB)
+        def idle = controller.tryReserve(8192 * MB)
+
+        when:
+        def reservation = controller.tryReserve(2048 * MB)
+
+        then:
+        reservation != null
+        1 * memoryManager.requestMemoryRelease(1024 * MB) >> { idle.release() }
+    }
+
+    def "asks memory holders to release memory when free memory does not cover the reservation"() {
+        def controller = controller(10240 * MB, 2048 * MB)
+        controller.tryReserve(2048 * MB)
+
+        when:
+        def reservation = controller.tryReserve(2048 * MB)
+
+        then:
+        reservation == null
+        0 * memoryManager.requestMemoryRelease(_)
+        1 * memoryManager.requestFreeMemory(2048 * MB)
+    }
+
+    def "grants reservation when memory holders release enough memory"() {
+        def lowMemory = new OsMemoryStatusSnapshot(10240 * MB, 2048 * MB)
+        def snapshots = [lowMemory, lowMemory, new OsMemoryStatusSnapshot(10240 * MB, 6144 * MB)]
+        def controller = new DefaultMemoryAdmissionController(Stub(MemoryInfo) {
+            getOsSnapshot() >> { snapshots.size() > 1 ? snapshots.remove(0) : snapshots[0] }
+        }, memoryManager)
+        controller.tryReserve(2048 * MB)
+
+        when:
+        def reservation = controller.tryReserve(2048 * MB)
+
+        then:
+        reservation != null
+        1 * memoryManager.requestFreeMemory(2048 * MB)
+    }
+
+    def "grants reservation once other reservations are released"() {
+        def controller = controller(10240 * MB, 0)
+        def first = controller.tryReserve(2048 * MB)
+
+        expect:
+        controller.tryReserve(2048 * MB) == null
+
+        when:
+        first.release()
+        first.release()
+
+        then:
+        controller.tryReserve(2048 * MB) != null
+        controller.tryReserve(2048 * MB) == null
+    }
+
+    def "blocks until memory is available"() {
+        def controller = controller(10240 * MB, 0)
+        def first = controller.tryReserve(2048 * MB)
+        def reservation = null
+
+        when:
+        def thread = Thread.start {
+            reservation = controller.reserve(1024 * MB)
+        }
+        thread.join(200)
+
+        then:
+        thread.alive
+        reservation == null
+
+        when:
+        first.release()
+        thread.join()
+
+        then:
+        reservation.memoryAmountBytes == 1024 * MB
+    }
+
+    def "grants all reservations when free memory is not known"() {
+        memoryInfo.getOsSnapshot() >> { throw new UnsupportedOperationException() }
+        def controller = new DefaultMemoryAdmissionController(memoryInfo, memoryManager)
+        controller.tryReserve(2048 * MB)
+
+        expect:
+        controller.tryReserve(2048 * MB) != null
+    }
+
+    private DefaultMemoryAdmissionController controller(long totalMemory, long freeMemory) {
+        memoryInfo.getOsSnapshot() >> new OsMemoryStatusSnapshot(totalMemory, freeMemory)
+        return new DefaultMemoryAdmissionController(memoryInfo, memoryManager)
+    }
+}
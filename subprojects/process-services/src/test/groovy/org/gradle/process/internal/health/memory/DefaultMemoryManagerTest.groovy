@@ -0,0 +1,120 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.process.internal.health.memory
+
+import org.gradle.internal.concurrent.ExecutorFactory
+import org.gradle.internal.concurrent.StoppableScheduledExecutor
+import org.gradle.internal.event.ListenerManager
+import spock.lang.Specification
+
+class DefaultMemoryManagerTest extends Specification {
+    private static final long MB = 1024 * 1024
+
+    def memoryInfo = Mock(MemoryInfo)
+    def executorFactory = Stub(ExecutorFactory) {
+        createScheduled(_, _, _) >> Stub(StoppableScheduledExecutor)
+    }
+    def holder1 = Mock(MemoryHolder)
+    def holder2 = Mock(MemoryHolder)
+
+    def "does not ask holders to release memory when enough memory is free"() {
+        def memoryManager = memoryManager(10240 * MB, 2048 * MB)
+
+        when:
+        memoryManager.requestFreeMemory(1024 * MB)
+
+        then:
+        0 * holder1._
+        0 * holder2._
+    }
+
+    def "asks holders to release memory until enough memory is released"() {
+        def memoryManager = memoryManager(10240 * MB, 1024 * MB)
+
+        when:
+        memoryManager.requestFreeMemory(1024 * MB)
+
+        then:
+        1 * holder1.attemptToRelease(1024 * MB) >> 1024 * MB
+        0 * holder2._
+    }
+
+    def "asks next holder to release remaining memory"() {
+        def memoryManager = memoryManager(10240 * MB, 1024 * MB)
+
+        when:
+        memoryManager.requestFreeMemory(1024 * MB)
+
+        then:
+        1 * holder1.attemptToRelease(1024 * MB) >> 256 * MB
+        1 * holder2.attemptToRelease(768 * MB) >> 1024 * MB
+    }
+
+    def "maintains minimum amount of free memory"() {
+        def memoryManager = memoryManager(10240 * MB, 512 * MB)
+
+        when:
+        memoryManager.requestFreeMemory(0)
+
+        then:
+        1 * holder1.attemptToRelease(512 * MB) >> 512 * MB
+        0 * holder2._
+    }
+
+    def "does not ask removed holders to release memory"() {
+        def memoryManager = memoryManager(10240 * MB, 1024 * MB)
+        memoryManager.removeMemoryHolder(holder1)
+
+        when:
+        memoryManager.requestFreeMemory(1024 * MB)
+
+        then:
+        0 * holder1._
+        1 * holder2.attemptToRelease(1024 * MB) >> 1024 * MB
+    }
+
+    def "asks holders to release reserved memory even when enough memory is free"() {
+        def memoryManager = memoryManager(10240 * MB, 8192 * MB)
+
+        when:
+        memoryManager.requestMemoryRelease(2048 * MB)
+
+        then:
+        1 * holder1.attemptToRelease(2048 * MB) >> 1024 * MB
+        1 * holder2.attemptToRelease(1024 * MB) >> 1024 * MB
+    }
+
+    def "does nothing when free memory is not known"() {
+        memoryInfo.getOsSnapshot() >> { throw new UnsupportedOperationException() }
+        def memoryManager = new DefaultMemoryManager(memoryInfo, Stub(ListenerManager), executorFactory)
+        memoryManager.addMemoryHolder(holder1)
+
+        when:
+        memoryManager.requestFreeMemory(1024 * MB)
+
+        then:
+        0 * holder1._
+    }
+
+    private DefaultMemoryManager memoryManager(long totalMemory, long freeMemory) {
+        memoryInfo.getOsSnapshot() >> new OsMemoryStatusSnapshot(totalMemory, freeMemory)
+        def memoryManager = new DefaultMemoryManager(memoryInfo, Stub(ListenerManager), executorFactory)
+        memoryManager.addMemoryHolder(holder1)
+        memoryManager.addMemoryHolder(holder2)
+        return memoryManager
+    }
+}
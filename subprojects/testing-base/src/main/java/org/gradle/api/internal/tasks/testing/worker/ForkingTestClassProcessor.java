@@ -23,8 +23,11 @@ import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
 import org.gradle.api.internal.tasks.testing.TestResultProcessor;
 import org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory;
 import org.gradle.internal.operations.BuildOperationWorkerRegistry;
+import org.gradle.internal.progress.BuildOperationExecutor;
 import org.gradle.internal.remote.ObjectConnection;
 import org.gradle.process.JavaForkOptions;
+import org.gradle.process.internal.health.memory.MemoryReservation;
+import org.gradle.process.internal.worker.WorkerMemoryReservations;
 import org.gradle.process.internal.worker.WorkerProcess;
 import org.gradle.process.internal.worker.WorkerProcessBuilder;
 import org.gradle.process.internal.worker.WorkerProcessFactory;
@@ -34,6 +37,10 @@ import java.io.File;
 import java.net.URL;
 import java.util.List;
 
+/**
+ * Runs test classes in a forked worker process. The worker process is started once a worker lease is available and, after that, once the memory
+ * it may use is available. See {@link WorkerMemoryReservations}.
+ */
 public class ForkingTestClassProcessor implements TestClassProcessor {
     private final WorkerProcessFactory workerFactory;
     private final WorkerTestClassProcessorFactory processorFactory;
@@ -42,12 +49,15 @@ public class ForkingTestClassProcessor implements TestClassProcessor {
     private final Action<WorkerProcessBuilder> buildConfigAction;
     private final ModuleRegistry moduleRegistry;
     private final BuildOperationWorkerRegistry.Operation owner;
+    private final WorkerMemoryReservations memoryReservations;
+    private final BuildOperationExecutor.Operation parentOperation;
     private RemoteTestClassProcessor remoteProcessor;
     private WorkerProcess workerProcess;
     private TestResultProcessor resultProcessor;
     private BuildOperationWorkerRegistry.Completion workerCompletion;
+    private MemoryReservation memoryReservation;
 
-    public ForkingTestClassProcessor(WorkerProcessFactory workerFactory, WorkerTestClassProcessorFactory processorFactory, JavaForkOptions options, Iterable<File> classPath, Action<WorkerProcessBuilder> buildConfigAction, ModuleRegistry moduleRegistry, BuildOperationWorkerRegistry.Operation owner) {
+    public ForkingTestClassProcessor(WorkerProcessFactory workerFactory, WorkerTestClassProcessorFactory processorFactory, JavaForkOptions options, Iterable<File> classPath, Action<WorkerProcessBuilder> buildConfigAction, ModuleRegistry moduleRegistry, BuildOperationWorkerRegistry.Operation owner, WorkerMemoryReservations memoryReservations, BuildOperationExecutor.Operation parentOperation) {
         this.workerFactory = workerFactory;
         this.processorFactory = processorFactory;
         this.options = options;
@@ -55,6 +65,8 @@ public class ForkingTestClassProcessor implements TestClassProcessor {
         this.buildConfigAction = buildConfigAction;
         this.moduleRegistry = moduleRegistry;
         this.owner = owner;
+        this.memoryReservations = memoryReservations;
+        this.parentOperation = parentOperation;
     }
 
     @Override
@@ -66,7 +78,13 @@ public class ForkingTestClassProcessor implements TestClassProcessor {
     public void processTestClass(TestClassRunInfo testClass) {
         if (remoteProcessor == null) {
             workerCompletion = owner.operationStart();
-            remoteProcessor = forkProcess();
+            memoryReservation = memoryReservations.reserve("Gradle Test Executor", options.getMaxHeapSize(), parentOperation);
+            try {
+                remoteProcessor = forkProcess();
+            } catch (RuntimeException e) {
+                memoryReservation.release();
+                throw e;
+            }
         }
 
         remoteProcessor.processTestClass(testClass);
@@ -120,6 +138,7 @@ public class ForkingTestClassProcessor implements TestClassProcessor {
                 remoteProcessor.stop();
                 workerProcess.waitForStop();
             } finally {
+                memoryReservation.release();
                 workerCompletion.operationFinish();
             }
         }
@@ -23,8 +23,11 @@ import org.gradle.api.internal.tasks.testing.TestClassRunInfo
 import org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory
 import org.gradle.internal.classpath.ClassPath
 import org.gradle.internal.operations.BuildOperationWorkerRegistry
+import org.gradle.internal.progress.BuildOperationExecutor
 import org.gradle.internal.remote.ObjectConnection
 import org.gradle.process.JavaForkOptions
+import org.gradle.process.internal.health.memory.MemoryReservation
+import org.gradle.process.internal.worker.WorkerMemoryReservations
 import org.gradle.process.internal.worker.WorkerProcess
 import org.gradle.process.internal.worker.WorkerProcessBuilder
 import org.gradle.process.internal.worker.WorkerProcessFactory
@@ -37,10 +40,13 @@ class ForkingTestClassProcessorTest extends Specification {
     WorkerProcess workerProcess = Mock(WorkerProcess)
     ModuleRegistry moduleRegistry = Mock(ModuleRegistry)
     BuildOperationWorkerRegistry.Operation owner = Mock(BuildOperationWorkerRegistry.Operation)
+    WorkerMemoryReservations memoryReservations = Mock(WorkerMemoryReservations)
+    BuildOperationExecutor.Operation parentOperation = Mock(BuildOperationExecutor.Operation)
+    JavaForkOptions options = Stub(JavaForkOptions) { getMaxHeapSize() >> "1g" }
     @Subject
-        processor = Spy(ForkingTestClassProcessor, constructorArgs: [workerProcessFactory, Mock(WorkerTestClassProcessorFactory), Mock(JavaForkOptions), [new File("classpath.jar")], Mock(Action), moduleRegistry, owner])
+        processor = Spy(ForkingTestClassProcessor, constructorArgs: [workerProcessFactory, Mock(WorkerTestClassProcessorFactory), options, [new File("classpath.jar")], Mock(Action), moduleRegistry, owner, memoryReservations, parentOperation])
 
-    def "acquires worker lease and starts worker process on first test"() {
+    def "acquires worker lease and memory and starts worker process on first test"() {
         def test1 = Mock(TestClassRunInfo)
         def test2 = Mock(TestClassRunInfo)
         def workerCompletion = Mock(BuildOperationWorkerRegistry.Completion)
@@ -53,6 +59,9 @@ class ForkingTestClassProcessorTest extends Specification {
         then:
         1 * owner.operationStart() >> workerCompletion
 
+        then:
+        1 * memoryReservations.reserve("Gradle Test Executor", "1g", parentOperation) >> Stub(MemoryReservation)
+
         then:
         1 * processor.forkProcess() >> remoteProcessor
         1 * remoteProcessor.processTestClass(test1)
@@ -60,6 +69,45 @@ class ForkingTestClassProcessorTest extends Specification {
         0 * remoteProcessor._
     }
 
+    def "releases memory and worker lease when stopped"() {
+        def workerCompletion = Mock(BuildOperationWorkerRegistry.Completion)
+        def memoryReservation = Mock(MemoryReservation)
+        def remoteProcessor = Mock(RemoteTestClassProcessor)
+        owner.operationStart() >> workerCompletion
+        memoryReservations.reserve(_, _, _) >> memoryReservation
+        workerProcessFactory.create(_) >> workerProcessBuilder
+        workerProcessBuilder.build() >> workerProcess
+        workerProcess.getConnection() >> Stub(ObjectConnection) { addOutgoing(_) >> remoteProcessor }
+        moduleRegistry.getModule(_) >> { module(it[0]) }
+        moduleRegistry.getExternalModule(_) >> { module(it[0]) }
+        processor.processTestClass(Mock(TestClassRunInfo))
+
+        when:
+        processor.stop()
+
+        then:
+        1 * remoteProcessor.stop()
+        1 * workerProcess.waitForStop()
+
+        then:
+        1 * memoryReservation.release()
+        1 * workerCompletion.operationFinish()
+    }
+
+    def "releases memory when worker process cannot be started"() {
+        def memoryReservation = Mock(MemoryReservation)
+        owner.operationStart() >> Mock(BuildOperationWorkerRegistry.Completion)
+        memoryReservations.reserve(_, _, _) >> memoryReservation
+        processor.forkProcess() >> { throw new RuntimeException("Boo!") }
+
+        when:
+        processor.processTestClass(Mock(TestClassRunInfo))
+
+        then:
+        thrown(RuntimeException)
+        1 * memoryReservation.release()
+    }
+
     def "starts process with a limited implementation classpath"() {
         setup:
         1 * workerProcessFactory.create(_) >> workerProcessBuilder
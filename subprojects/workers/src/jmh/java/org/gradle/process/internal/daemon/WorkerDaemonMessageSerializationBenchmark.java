@@ -0,0 +1,129 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.process.internal.daemon;
+
+import org.gradle.internal.Cast;
+import org.gradle.internal.serialize.Decoder;
+import org.gradle.internal.serialize.Encoder;
+import org.gradle.internal.serialize.Message;
+import org.gradle.internal.serialize.Serializer;
+import org.gradle.internal.serialize.kryo.KryoBackedDecoder;
+import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
+import org.gradle.process.internal.worker.request.Request;
+import org.gradle.process.internal.worker.request.RequestArgumentSerializers;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes and reads back the messages sent for each request run by a worker daemon, using either the serializers registered for worker daemons
+ * or Java serialization of the method arguments, as used before the serializers were registered. The size of each message is printed during setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class WorkerDaemonMessageSerializationBenchmark {
+    @Param({"java", "registry"})
+    String serialization;
+
+    @Param({"request", "result"})
+    String message;
+
+    private Object value;
+    private Serializer<Object> serializer;
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        ClassLoader classLoader = getClass().getClassLoader();
+        RequestArgumentSerializers argumentSerializers = new RequestArgumentSerializers();
+        argumentSerializers.add(WorkerDaemonResult.class, WorkerDaemonResultSerializer.class);
+        if (message.equals("request")) {
+            Request request = new Request("execute", new Class<?>[]{WorkerDaemonAction.class, WorkSpec.class}, new Object[]{new CompileAction(), new CompileSpec()});
+            if (serialization.equals("java")) {
+                value = new Object[]{request.getMethodName(), request.getParamTypes(), request.getArgs()};
+                serializer = new JavaSerializer(classLoader);
+            } else {
+                value = request;
+                serializer = Cast.uncheckedCast(argumentSerializers.getRequestSerializer(classLoader));
+            }
+        } else {
+            WorkerDaemonResult result = new WorkerDaemonResult(true, null);
+            if (serialization.equals("java")) {
+                value = new Object[]{result};
+                serializer = new JavaSerializer(classLoader);
+            } else {
+                value = result;
+                serializer = argumentSerializers.getSerializer(classLoader);
+            }
+        }
+    }
+
+    @Benchmark
+    public Object writeAndRead() throws Exception {
+        return serializer.read(new KryoBackedDecoder(new ByteArrayInputStream(write())));
+    }
+
+    private byte[] write() throws Exception {
+        bytes.reset();
+        KryoBackedEncoder encoder = new KryoBackedEncoder(bytes);
+        serializer.write(encoder, value);
+        encoder.flush();
+        return bytes.toByteArray();
+    }
+
+    private static class JavaSerializer implements Serializer<Object> {
+        private final ClassLoader classLoader;
+
+        JavaSerializer(ClassLoader classLoader) {
+            this.classLoader = classLoader;
+        }
+
+        @Override
+        public Object read(Decoder decoder) throws Exception {
+            return Message.receive(decoder.getInputStream(), classLoader);
+        }
+
+        @Override
+        public void write(Encoder encoder, Object value) throws Exception {
+            Message.send(value, encoder.getOutputStream());
+        }
+    }
+
+    public static class CompileAction implements WorkerDaemonAction<CompileSpec> {
+        @Override
+        public WorkerDaemonResult execute(CompileSpec spec) {
+            return new WorkerDaemonResult(true, null);
+        }
+
+        @Override
+        public String getDescription() {
+            return "compile";
+        }
+    }
+
+    public static class CompileSpec implements WorkSpec {
+        private final File destinationDir = new File("build/classes/main");
+        private final String[] sourceFiles = {"src/main/java/org/gradle/A.java", "src/main/java/org/gradle/B.java"};
+    }
+}
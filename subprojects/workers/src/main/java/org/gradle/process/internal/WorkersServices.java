@@ -17,22 +17,42 @@
 package org.gradle.process.internal;
 
 import org.gradle.StartParameter;
+import org.gradle.api.internal.DefaultClassPathProvider;
+import org.gradle.api.internal.DefaultClassPathRegistry;
+import org.gradle.api.internal.classpath.ModuleRegistry;
 import org.gradle.api.internal.file.FileResolver;
+import org.gradle.api.internal.file.TemporaryFileProvider;
+import org.gradle.api.logging.LogLevel;
+import org.gradle.cache.CacheRepository;
+import org.gradle.initialization.GradleUserHomeDirProvider;
+import org.gradle.internal.id.LongIdGenerator;
+import org.gradle.internal.jvm.inspection.JvmVersionDetector;
+import org.gradle.internal.logging.events.OutputEventListener;
 import org.gradle.internal.operations.BuildOperationWorkerRegistry;
+import org.gradle.internal.remote.MessagingServer;
 import org.gradle.internal.service.ServiceRegistration;
+import org.gradle.internal.service.scopes.GradleUserHomeScopePluginServices;
 import org.gradle.internal.service.scopes.PluginServiceRegistry;
 import org.gradle.process.daemon.WorkerDaemonService;
 import org.gradle.process.internal.daemon.DefaultWorkerDaemonService;
 import org.gradle.process.internal.daemon.WorkerDaemonClientsManager;
 import org.gradle.process.internal.daemon.WorkerDaemonManager;
 import org.gradle.process.internal.daemon.WorkerDaemonStarter;
-import org.gradle.process.internal.worker.WorkerProcessFactory;
+import org.gradle.process.internal.health.memory.MemoryManager;
+import org.gradle.process.internal.worker.DefaultWorkerProcessFactory;
+import org.gradle.process.internal.worker.WorkerMemoryReservations;
+import org.gradle.process.internal.worker.child.WorkerProcessClassPathProvider;
 
-public class WorkersServices implements PluginServiceRegistry {
+public class WorkersServices implements PluginServiceRegistry, GradleUserHomeScopePluginServices {
     @Override
     public void registerGlobalServices(ServiceRegistration registration) {
     }
 
+    @Override
+    public void registerGradleUserHomeServices(ServiceRegistration registration) {
+        registration.addProvider(new GradleUserHomeScopeServices());
+    }
+
     @Override
     public void registerBuildSessionServices(ServiceRegistration registration) {
         registration.addProvider(new BuildSessionScopeServices());
@@ -50,9 +70,29 @@ public class WorkersServices implements PluginServiceRegistry {
     public void registerProjectServices(ServiceRegistration registration) {
     }
 
+    private static class GradleUserHomeScopeServices {
+        WorkerDaemonClientsManager createWorkerDaemonClientsManager(MemoryManager memoryManager) {
+            return new WorkerDaemonClientsManager(memoryManager);
+        }
+
+        WorkerProcessClassPathProvider createWorkerProcessClassPathProvider(CacheRepository cacheRepository) {
+            return new WorkerProcessClassPathProvider(cacheRepository);
+        }
+
+        // Worker daemons may be kept for later builds, so are started using services that outlive the build session
+        WorkerDaemonStarter createWorkerDaemonStarter(MessagingServer messagingServer, ModuleRegistry moduleRegistry, WorkerProcessClassPathProvider workerProcessClassPathProvider, GradleUserHomeDirProvider userHomeDirProvider,
+                                                      TemporaryFileProvider temporaryFileProvider, JavaExecHandleFactory execHandleFactory, JvmVersionDetector jvmVersionDetector, OutputEventListener outputEventListener) {
+            DefaultClassPathRegistry classPathRegistry = new DefaultClassPathRegistry(new DefaultClassPathProvider(moduleRegistry), workerProcessClassPathProvider);
+            // The log level is set for each daemon when it is started
+            DefaultWorkerProcessFactory workerFactory = new DefaultWorkerProcessFactory(LogLevel.LIFECYCLE, messagingServer, classPathRegistry, new LongIdGenerator(),
+                userHomeDirProvider.getGradleUserHomeDirectory(), temporaryFileProvider, execHandleFactory, jvmVersionDetector, outputEventListener);
+            return new WorkerDaemonStarter(workerFactory);
+        }
+    }
+
     private static class BuildSessionScopeServices {
-        WorkerDaemonManager createWorkerDaemonManager(BuildOperationWorkerRegistry buildOperationWorkerRegistry, WorkerProcessFactory workerFactory, StartParameter startParameter) {
-            return new WorkerDaemonManager(new WorkerDaemonClientsManager(new WorkerDaemonStarter(buildOperationWorkerRegistry, workerFactory, startParameter)));
+        WorkerDaemonManager createWorkerDaemonManager(WorkerDaemonClientsManager clientsManager, WorkerDaemonStarter workerDaemonStarter, BuildOperationWorkerRegistry buildOperationWorkerRegistry, WorkerMemoryReservations memoryReservations, StartParameter startParameter) {
+            return new WorkerDaemonManager(clientsManager, workerDaemonStarter, buildOperationWorkerRegistry, memoryReservations, startParameter.getLogLevel());
         }
 
         WorkerDaemonService createWorkerDaemonService(WorkerDaemonManager workerDaemonManager, FileResolver fileResolver) {
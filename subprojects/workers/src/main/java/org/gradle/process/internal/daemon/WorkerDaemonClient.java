@@ -15,38 +15,57 @@
  */
 package org.gradle.process.internal.daemon;
 
+import org.gradle.api.logging.LogLevel;
 import org.gradle.internal.concurrent.Stoppable;
-import org.gradle.internal.operations.BuildOperationWorkerRegistry;
+import org.gradle.process.internal.health.memory.MemoryReservation;
+
+import java.io.File;
 
 class WorkerDaemonClient implements WorkerDaemon, Stoppable {
-    private final BuildOperationWorkerRegistry buildOperationWorkerRegistry;
     private final DaemonForkOptions forkOptions;
+    private final File workingDir;
+    private final LogLevel logLevel;
     private final WorkerDaemonWorker workerProcess;
+    private final MemoryReservation memoryReservation;
 
-    public WorkerDaemonClient(BuildOperationWorkerRegistry buildOperationWorkerRegistry, DaemonForkOptions forkOptions, WorkerDaemonWorker workerProcess) {
-        this.buildOperationWorkerRegistry = buildOperationWorkerRegistry;
+    public WorkerDaemonClient(DaemonForkOptions forkOptions, File workingDir, LogLevel logLevel, WorkerDaemonWorker workerProcess, MemoryReservation memoryReservation) {
         this.forkOptions = forkOptions;
+        this.workingDir = workingDir;
+        this.logLevel = logLevel;
         this.workerProcess = workerProcess;
+        this.memoryReservation = memoryReservation;
     }
 
     @Override
     public <T extends WorkSpec> WorkerDaemonResult execute(WorkerDaemonAction<T> action, T spec) {
-        // currently we just allow a single compilation thread at a time (per compiler daemon)
-        // one problem to solve when allowing multiple threads is how to deal with memory requirements specified by compile tasks
-        BuildOperationWorkerRegistry.Completion workerLease = buildOperationWorkerRegistry.getCurrent().operationStart();
-        try {
-            return workerProcess.execute(action, spec);
-        } finally {
-            workerLease.operationFinish();
-        }
+        return workerProcess.execute(action, spec);
+    }
+
+    public DaemonForkOptions getForkOptions() {
+        return forkOptions;
     }
 
-    public boolean isCompatibleWith(DaemonForkOptions required) {
-        return forkOptions.isCompatibleWith(required);
+    /**
+     * Returns the memory reserved for this daemon, which is released when this daemon is stopped.
+     */
+    public MemoryReservation getMemoryReservation() {
+        return memoryReservation;
+    }
+
+    /**
+     * Returns true when this daemon can run work that requires the given fork options and working directory, for a build that uses the given log level.
+     * The working directory is compared as daemons are shared with later builds, which may be builds of other projects.
+     */
+    public boolean isCompatibleWith(DaemonForkOptions required, File workingDir, LogLevel logLevel) {
+        return this.logLevel == logLevel && this.workingDir.equals(workingDir) && forkOptions.isCompatibleWith(required);
     }
 
     @Override
     public void stop() {
-        workerProcess.stop();
+        try {
+            workerProcess.stop();
+        } finally {
+            memoryReservation.release();
+        }
     }
 }
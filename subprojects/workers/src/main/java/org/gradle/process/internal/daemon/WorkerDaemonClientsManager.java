@@ -15,16 +15,25 @@
  */
 package org.gradle.process.internal.daemon;
 
+import org.gradle.api.logging.LogLevel;
 import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
 import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.process.internal.health.memory.MemoryHolder;
+import org.gradle.process.internal.health.memory.MemoryManager;
+import org.gradle.process.internal.health.memory.MemoryReservation;
 
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 
-public class WorkerDaemonClientsManager {
+/**
+ * Keeps track of the worker daemons that have been started. Idle daemons are kept in the order they were last used, so that they can be reused by later work,
+ * including work from later builds in the same process, and the least recently used ones are stopped when memory runs low.
+ */
+public class WorkerDaemonClientsManager implements Stoppable {
 
     private static final Logger LOGGER = Logging.getLogger(WorkerDaemonManager.class);
 
@@ -32,22 +41,24 @@ public class WorkerDaemonClientsManager {
     private final List<WorkerDaemonClient> allClients = new ArrayList<WorkerDaemonClient>();
     private final List<WorkerDaemonClient> idleClients = new ArrayList<WorkerDaemonClient>();
 
-    private WorkerDaemonStarter workerDaemonStarter;
+    private final MemoryManager memoryManager;
+    private final MemoryHolder expiration = new WorkerDaemonExpiration();
 
-    public WorkerDaemonClientsManager(WorkerDaemonStarter workerDaemonStarter) {
-        this.workerDaemonStarter = workerDaemonStarter;
+    public WorkerDaemonClientsManager(MemoryManager memoryManager) {
+        this.memoryManager = memoryManager;
+        memoryManager.addMemoryHolder(expiration);
     }
 
-    public WorkerDaemonClient reserveIdleClient(DaemonForkOptions forkOptions) {
-        return reserveIdleClient(forkOptions, idleClients);
+    public WorkerDaemonClient reserveIdleClient(DaemonForkOptions forkOptions, File workingDir, LogLevel logLevel) {
+        return reserveIdleClient(forkOptions, workingDir, logLevel, idleClients);
     }
 
-    WorkerDaemonClient reserveIdleClient(DaemonForkOptions forkOptions, List<WorkerDaemonClient> clients) {
+    WorkerDaemonClient reserveIdleClient(DaemonForkOptions forkOptions, File workingDir, LogLevel logLevel, List<WorkerDaemonClient> clients) {
         synchronized (lock) {
             Iterator<WorkerDaemonClient> it = clients.iterator();
             while(it.hasNext()) {
                 WorkerDaemonClient candidate = it.next();
-                if(candidate.isCompatibleWith(forkOptions)) {
+                if(candidate.isCompatibleWith(forkOptions, workingDir, logLevel)) {
                     it.remove();
                     return candidate;
                 }
@@ -56,9 +67,9 @@ public class WorkerDaemonClientsManager {
         }
     }
 
-    public WorkerDaemonClient reserveNewClient(Class<? extends WorkerDaemonProtocol> serverImplementationClass, File workingDir, DaemonForkOptions forkOptions) {
+    public WorkerDaemonClient reserveNewClient(WorkerDaemonStarter workerDaemonStarter, Class<? extends WorkerDaemonProtocol> serverImplementationClass, File workingDir, DaemonForkOptions forkOptions, LogLevel logLevel, MemoryReservation memoryReservation) {
         //allow the daemon to be started concurrently
-        WorkerDaemonClient client = workerDaemonStarter.startDaemon(serverImplementationClass, workingDir, forkOptions);
+        WorkerDaemonClient client = workerDaemonStarter.startDaemon(serverImplementationClass, workingDir, forkOptions, logLevel, memoryReservation);
         synchronized (lock) {
             allClients.add(client);
         }
@@ -71,12 +82,56 @@ public class WorkerDaemonClientsManager {
         }
     }
 
+    /**
+     * Stops the least recently used idle clients, so that at most the given number of idle clients keep running.
+     */
+    public void trimIdleClients(int maxIdleClients) {
+        List<WorkerDaemonClient> toStop = new ArrayList<WorkerDaemonClient>();
+        synchronized (lock) {
+            while (idleClients.size() > maxIdleClients) {
+                WorkerDaemonClient client = idleClients.remove(0);
+                allClients.remove(client);
+                toStop.add(client);
+            }
+        }
+        stopClients(toStop);
+    }
+
+    private void stopClients(List<WorkerDaemonClient> clients) {
+        if (!clients.isEmpty()) {
+            LOGGER.debug("Stopping {} idle worker daemon(s).", clients.size());
+            CompositeStoppable.stoppable(clients).stop();
+            LOGGER.info("Stopped {} idle worker daemon(s).", clients.size());
+        }
+    }
+
+    @Override
     public void stop() {
+        memoryManager.removeMemoryHolder(expiration);
         synchronized (lock) {
             LOGGER.debug("Stopping {} worker daemon(s).", allClients.size());
             CompositeStoppable.stoppable(allClients).stop();
             LOGGER.info("Stopped {} worker daemon(s).", allClients.size());
             allClients.clear();
+            idleClients.clear();
+        }
+    }
+
+    private class WorkerDaemonExpiration implements MemoryHolder {
+        @Override
+        public long attemptToRelease(long memoryAmountBytes) {
+            List<WorkerDaemonClient> toStop = new ArrayList<WorkerDaemonClient>();
+            long releasedBytes = 0;
+            synchronized (lock) {
+                while (releasedBytes < memoryAmountBytes && !idleClients.isEmpty()) {
+                    WorkerDaemonClient client = idleClients.remove(0);
+                    allClients.remove(client);
+                    toStop.add(client);
+                    releasedBytes += client.getMemoryReservation().getMemoryAmountBytes();
+                }
+            }
+            stopClients(toStop);
+            return releasedBytes;
         }
     }
 }
@@ -16,41 +16,83 @@
 package org.gradle.process.internal.daemon;
 
 import net.jcip.annotations.ThreadSafe;
+import org.gradle.api.logging.LogLevel;
 import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.operations.BuildOperationWorkerRegistry;
+import org.gradle.process.internal.health.memory.MemoryReservation;
+import org.gradle.process.internal.worker.WorkerMemoryReservations;
 
 import java.io.File;
 
 /**
  * Controls the lifecycle of the worker daemon and provides access to it.
+ *
+ * <p>The daemons are shared with later builds in the same process, but by default the idle daemons are stopped when the build session finishes.
+ * See {@link #KEEP_IDLE_DAEMONS_PROPERTY}. A daemon is only reused for work with compatible fork options, the same working directory and the same log level.
+ * This applies to worker daemons only: test workers are single use processes, and are not kept.</p>
+ *
+ * <p>A new daemon is only started once the memory it may use is available. See {@link WorkerMemoryReservations}.</p>
  */
 @ThreadSafe
 public class WorkerDaemonManager implements WorkerDaemonFactory, Stoppable {
+    /**
+     * The maximum number of idle worker daemons to keep running when a build session finishes, so that later builds in the same process can reuse them
+     * without paying for JVM startup and class loading again. Defaults to 0, which stops all idle worker daemons. Daemons that are kept are stopped when
+     * the free physical memory of the machine runs low.
+     */
+    public static final String KEEP_IDLE_DAEMONS_PROPERTY = "org.gradle.workers.keepIdleDaemons";
 
-    private WorkerDaemonClientsManager clientsManager;
+    private final WorkerDaemonClientsManager clientsManager;
+    private final WorkerDaemonStarter workerDaemonStarter;
+    private final BuildOperationWorkerRegistry buildOperationWorkerRegistry;
+    private final WorkerMemoryReservations memoryReservations;
+    private final LogLevel logLevel;
 
-    public WorkerDaemonManager(WorkerDaemonClientsManager clientsManager) {
+    public WorkerDaemonManager(WorkerDaemonClientsManager clientsManager, WorkerDaemonStarter workerDaemonStarter, BuildOperationWorkerRegistry buildOperationWorkerRegistry, WorkerMemoryReservations memoryReservations, LogLevel logLevel) {
         this.clientsManager = clientsManager;
+        this.workerDaemonStarter = workerDaemonStarter;
+        this.buildOperationWorkerRegistry = buildOperationWorkerRegistry;
+        this.memoryReservations = memoryReservations;
+        this.logLevel = logLevel;
     }
 
     @Override
     public WorkerDaemon getDaemon(final Class<? extends WorkerDaemonProtocol> serverImplementationClass, final File workingDir, final DaemonForkOptions forkOptions) {
         return new WorkerDaemon() {
             public <T extends WorkSpec> WorkerDaemonResult execute(WorkerDaemonAction<T> action, T spec) {
-                WorkerDaemonClient client = clientsManager.reserveIdleClient(forkOptions);
-                if (client == null) {
-                    client = clientsManager.reserveNewClient(serverImplementationClass, workingDir, forkOptions);
-                }
+                // currently we just allow a single compilation thread at a time (per compiler daemon)
+                // one problem to solve when allowing multiple threads is how to deal with memory requirements specified by compile tasks
+                // the worker lease is acquired before memory is reserved, so that waiting for memory does not prevent other work from finishing
+                BuildOperationWorkerRegistry.Completion workerLease = buildOperationWorkerRegistry.getCurrent().operationStart();
                 try {
-                    return client.execute(action, spec);
+                    WorkerDaemonClient client = clientsManager.reserveIdleClient(forkOptions, workingDir, logLevel);
+                    if (client == null) {
+                        client = reserveNewClient(serverImplementationClass, workingDir, forkOptions);
+                    }
+                    try {
+                        return client.execute(action, spec);
+                    } finally {
+                        clientsManager.release(client);
+                    }
                 } finally {
-                    clientsManager.release(client);
+                    workerLease.operationFinish();
                 }
             }
         };
     }
 
+    private WorkerDaemonClient reserveNewClient(Class<? extends WorkerDaemonProtocol> serverImplementationClass, File workingDir, DaemonForkOptions forkOptions) {
+        MemoryReservation memoryReservation = memoryReservations.reserve("Gradle Worker Daemon", forkOptions.getMaxHeapSize(), null);
+        try {
+            return clientsManager.reserveNewClient(workerDaemonStarter, serverImplementationClass, workingDir, forkOptions, logLevel, memoryReservation);
+        } catch (RuntimeException e) {
+            memoryReservation.release();
+            throw e;
+        }
+    }
+
     @Override
     public void stop() {
-        clientsManager.stop();
+        clientsManager.trimIdleClients(Integer.getInteger(KEEP_IDLE_DAEMONS_PROPERTY, 0));
     }
 }
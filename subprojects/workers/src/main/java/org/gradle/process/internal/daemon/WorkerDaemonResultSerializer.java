@@ -0,0 +1,53 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.process.internal.daemon;
+
+import org.gradle.internal.serialize.Decoder;
+import org.gradle.internal.serialize.Encoder;
+import org.gradle.internal.serialize.Message;
+import org.gradle.internal.serialize.Serializer;
+
+/**
+ * Serializes the result of each request run by a worker daemon. The exception of a failed result is written using Java serialization.
+ */
+public class WorkerDaemonResultSerializer implements Serializer<WorkerDaemonResult> {
+    private final ClassLoader classLoader;
+
+    public WorkerDaemonResultSerializer(ClassLoader classLoader) {
+        this.classLoader = classLoader;
+    }
+
+    @Override
+    public WorkerDaemonResult read(Decoder decoder) throws Exception {
+        boolean didWork = decoder.readBoolean();
+        Throwable exception = null;
+        if (decoder.readBoolean()) {
+            exception = (Throwable) Message.receive(decoder.getInputStream(), classLoader);
+        }
+        return new WorkerDaemonResult(didWork, exception);
+    }
+
+    @Override
+    public void write(Encoder encoder, WorkerDaemonResult value) throws Exception {
+        encoder.writeBoolean(value.getDidWork());
+        Throwable exception = value.getException();
+        encoder.writeBoolean(exception != null);
+        if (exception != null) {
+            Message.send(exception, encoder.getOutputStream());
+        }
+    }
+}
@@ -15,36 +15,36 @@
  */
 package org.gradle.process.internal.daemon;
 
-import org.gradle.StartParameter;
+import org.gradle.api.logging.LogLevel;
 import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
-import org.gradle.internal.operations.BuildOperationWorkerRegistry;
 import org.gradle.internal.time.Timer;
 import org.gradle.internal.time.Timers;
 import org.gradle.process.internal.JavaExecHandleBuilder;
+import org.gradle.process.internal.health.memory.MemoryReservation;
 import org.gradle.process.internal.worker.MultiRequestWorkerProcessBuilder;
 import org.gradle.process.internal.worker.WorkerProcessFactory;
 
 import java.io.File;
 
+/**
+ * Starts worker daemons. The daemons may outlive the build session that starts them, so the given {@link WorkerProcessFactory} must not use any build session services.
+ */
 public class WorkerDaemonStarter {
     private final static Logger LOG = Logging.getLogger(WorkerDaemonStarter.class);
-    private final BuildOperationWorkerRegistry buildOperationWorkerRegistry;
     private final WorkerProcessFactory workerFactory;
-    private final StartParameter startParameter;
 
-    public WorkerDaemonStarter(BuildOperationWorkerRegistry buildOperationWorkerRegistry, WorkerProcessFactory workerFactory, StartParameter startParameter) {
-        this.buildOperationWorkerRegistry = buildOperationWorkerRegistry;
+    public WorkerDaemonStarter(WorkerProcessFactory workerFactory) {
         this.workerFactory = workerFactory;
-        this.startParameter = startParameter;
     }
 
-    public WorkerDaemonClient startDaemon(Class<? extends WorkerDaemonProtocol> serverImplementationClass, File workingDir, DaemonForkOptions forkOptions) {
+    public WorkerDaemonClient startDaemon(Class<? extends WorkerDaemonProtocol> serverImplementationClass, File workingDir, DaemonForkOptions forkOptions, LogLevel logLevel, MemoryReservation memoryReservation) {
         LOG.debug("Starting Gradle worker daemon with fork options {}.", forkOptions);
         Timer clock = Timers.startTimer();
         MultiRequestWorkerProcessBuilder<WorkerDaemonWorker> builder = workerFactory.multiRequestWorker(WorkerDaemonWorker.class, WorkerDaemonProtocol.class, serverImplementationClass);
         builder.setBaseName("Gradle Worker Daemon");
-        builder.setLogLevel(startParameter.getLogLevel()); // NOTE: might make sense to respect per-compile-task log level
+        builder.registerArgumentSerializer(WorkerDaemonResult.class, WorkerDaemonResultSerializer.class);
+        builder.setLogLevel(logLevel); // NOTE: might make sense to respect per-compile-task log level
         builder.applicationClasspath(forkOptions.getClasspath());
         builder.sharedPackages(forkOptions.getSharedPackages());
         JavaExecHandleBuilder javaCommand = builder.getJavaCommand();
@@ -55,7 +55,7 @@ public class WorkerDaemonStarter {
         WorkerDaemonWorker worker = builder.build();
         worker.start();
 
-        WorkerDaemonClient client = new WorkerDaemonClient(buildOperationWorkerRegistry, forkOptions, worker);
+        WorkerDaemonClient client = new WorkerDaemonClient(forkOptions, workingDir, logLevel, worker, memoryReservation);
 
         LOG.info("Started Gradle worker daemon ({}) with fork options {}.", clock.getElapsed(), forkOptions);
 
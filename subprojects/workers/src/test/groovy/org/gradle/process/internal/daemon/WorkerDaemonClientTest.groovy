@@ -0,0 +1,42 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.process.internal.daemon
+
+import org.gradle.api.logging.LogLevel
+import org.gradle.process.internal.health.memory.MemoryReservation
+import spock.lang.Specification
+
+class WorkerDaemonClientTest extends Specification {
+    def workingDir = new File("some-dir")
+    def options = Stub(DaemonForkOptions)
+    def client = new WorkerDaemonClient(options, workingDir, LogLevel.LIFECYCLE, Stub(WorkerDaemonWorker), Stub(MemoryReservation))
+
+    def "is compatible with work that has compatible fork options, the same working directory and the same log level"() {
+        def required = Stub(DaemonForkOptions)
+        options.isCompatibleWith(required) >> compatibleOptions
+
+        expect:
+        client.isCompatibleWith(required, new File(dir), logLevel) == compatible
+
+        where:
+        compatibleOptions | dir          | logLevel           | compatible
+        true              | "some-dir"   | LogLevel.LIFECYCLE | true
+        false             | "some-dir"   | LogLevel.LIFECYCLE | false
+        true              | "other-dir"  | LogLevel.LIFECYCLE | false
+        true              | "some-dir"   | LogLevel.DEBUG     | false
+    }
+}
@@ -16,6 +16,10 @@
 
 package org.gradle.process.internal.daemon
 
+import org.gradle.api.logging.LogLevel
+import org.gradle.process.internal.health.memory.MemoryHolder
+import org.gradle.process.internal.health.memory.MemoryManager
+import org.gradle.process.internal.health.memory.MemoryReservation
 import org.gradle.util.ConcurrentSpecification
 import spock.lang.Subject
 
@@ -26,39 +30,42 @@ class WorkerDaemonClientsManagerTest extends ConcurrentSpecification {
     def options = Stub(DaemonForkOptions)
     def starter = Stub(WorkerDaemonStarter)
     def serverImpl = Stub(WorkerDaemonProtocol)
+    def memoryManager = Mock(MemoryManager)
+    def memoryReservation = Stub(MemoryReservation)
+    def logLevel = LogLevel.LIFECYCLE
 
-    @Subject manager = new WorkerDaemonClientsManager(starter)
+    @Subject manager = new WorkerDaemonClientsManager(memoryManager)
 
     def "does not reserve idle client when no clients"() {
         expect:
-        manager.reserveIdleClient(options) == null
+        manager.reserveIdleClient(options, workingDir, logLevel) == null
     }
 
     def "does not reserve idle client when no matching client found"() {
         def noMatch = Stub(WorkerDaemonClient) {
-            isCompatibleWith(_) >> false
+            isCompatibleWith(_, _, _) >> false
         }
 
         expect:
-        manager.reserveIdleClient(options, [noMatch]) == null
+        manager.reserveIdleClient(options, workingDir, logLevel, [noMatch]) == null
     }
 
     def "reserves idle client when match found"() {
-        def noMatch = Stub(WorkerDaemonClient) { isCompatibleWith(_) >> false }
-        def match = Stub(WorkerDaemonClient) { isCompatibleWith(_) >> true }
+        def noMatch = Stub(WorkerDaemonClient) { isCompatibleWith(_, _, _) >> false }
+        def match = Stub(WorkerDaemonClient) { isCompatibleWith(_, _, _) >> true }
         def input = [noMatch, match]
 
         expect:
-        manager.reserveIdleClient(options, input) == match
+        manager.reserveIdleClient(options, workingDir, logLevel, input) == match
         input == [noMatch] //match removed from input
     }
 
     def "reserves new client"() {
         def newClient = Stub(WorkerDaemonClient)
-        starter.startDaemon(serverImpl.class, workingDir, options) >> newClient
+        starter.startDaemon(serverImpl.class, workingDir, options, logLevel, memoryReservation) >> newClient
 
         when:
-        def client = manager.reserveNewClient(serverImpl.class, workingDir, options)
+        def client = manager.reserveNewClient(starter, serverImpl.class, workingDir, options, logLevel, memoryReservation)
 
         then:
         newClient == client
@@ -67,11 +74,11 @@ class WorkerDaemonClientsManagerTest extends ConcurrentSpecification {
     def "can stop all created clients"() {
         def client1 = Mock(WorkerDaemonClient)
         def client2 = Mock(WorkerDaemonClient)
-        starter.startDaemon(serverImpl.class, workingDir, options) >>> [client1, client2]
+        starter.startDaemon(serverImpl.class, workingDir, options, logLevel, memoryReservation) >>> [client1, client2]
 
         when:
-        manager.reserveNewClient(serverImpl.class, workingDir, options)
-        manager.reserveNewClient(serverImpl.class, workingDir, options)
+        manager.reserveNewClient(starter, serverImpl.class, workingDir, options, logLevel, memoryReservation)
+        manager.reserveNewClient(starter, serverImpl.class, workingDir, options, logLevel, memoryReservation)
         manager.stop()
 
         then:
@@ -80,19 +87,85 @@ class WorkerDaemonClientsManagerTest extends ConcurrentSpecification {
     }
 
     def "clients can be released for further use"() {
-        def client = Mock(WorkerDaemonClient) { isCompatibleWith(_) >> true }
-        starter.startDaemon(serverImpl.class, workingDir, options) >> client
+        def client = Mock(WorkerDaemonClient) { isCompatibleWith(_, _, _) >> true }
+        starter.startDaemon(serverImpl.class, workingDir, options, logLevel, memoryReservation) >> client
 
         when:
-        manager.reserveNewClient(serverImpl.class, workingDir, options)
+        manager.reserveNewClient(starter, serverImpl.class, workingDir, options, logLevel, memoryReservation)
 
         then:
-        manager.reserveIdleClient(options) == null
+        manager.reserveIdleClient(options, workingDir, logLevel) == null
 
         when:
         manager.release(client)
 
         then:
-        manager.reserveIdleClient(options) == client
+        manager.reserveIdleClient(options, workingDir, logLevel) == client
+    }
+
+    def "stops least recently used idle clients when trimmed"() {
+        def client1 = Mock(WorkerDaemonClient)
+        def client2 = Mock(WorkerDaemonClient)
+        def client3 = Mock(WorkerDaemonClient)
+        starter.startDaemon(serverImpl.class, workingDir, options, logLevel, memoryReservation) >>> [client1, client2, client3]
+
+        when:
+        manager.reserveNewClient(starter, serverImpl.class, workingDir, options, logLevel, memoryReservation)
+        manager.reserveNewClient(starter, serverImpl.class, workingDir, options, logLevel, memoryReservation)
+        manager.reserveNewClient(starter, serverImpl.class, workingDir, options, logLevel, memoryReservation)
+        manager.release(client2)
+        manager.release(client1)
+        manager.trimIdleClients(1)
+
+        then:
+        1 * client2.stop()
+        0 * client1.stop()
+        0 * client3.stop()
+
+        when:
+        manager.trimIdleClients(0)
+
+        then:
+        1 * client1.stop()
+        0 * client3.stop()
+    }
+
+    def "stops least recently used idle clients when memory is requested"() {
+        MemoryHolder holder
+        def manager = new WorkerDaemonClientsManager(Stub(MemoryManager) {
+            addMemoryHolder(_) >> { MemoryHolder h -> holder = h }
+        })
+        def client1 = Mock(WorkerDaemonClient) { getMemoryReservation() >> reservation(512) }
+        def client2 = Mock(WorkerDaemonClient) { getMemoryReservation() >> reservation(1024) }
+        def client3 = Mock(WorkerDaemonClient) { getMemoryReservation() >> reservation(1024) }
+        starter.startDaemon(serverImpl.class, workingDir, options, logLevel, memoryReservation) >>> [client1, client2, client3]
+
+        when:
+        manager.reserveNewClient(starter, serverImpl.class, workingDir, options, logLevel, memoryReservation)
+        manager.reserveNewClient(starter, serverImpl.class, workingDir, options, logLevel, memoryReservation)
+        manager.reserveNewClient(starter, serverImpl.class, workingDir, options, logLevel, memoryReservation)
+        manager.release(client1)
+        manager.release(client2)
+        def released = holder.attemptToRelease(600L * 1024 * 1024)
+
+        then:
+        released == 1536L * 1024 * 1024
+        1 * client1.stop()
+        1 * client2.stop()
+        0 * client3.stop()
+    }
+
+    def "removes memory holder when stopped"() {
+        when:
+        manager.stop()
+
+        then:
+        1 * memoryManager.removeMemoryHolder(_)
+    }
+
+    def reservation(long memoryAmountMb) {
+        return Stub(MemoryReservation) {
+            getMemoryAmountBytes() >> memoryAmountMb * 1024 * 1024
+        }
     }
 }
@@ -16,6 +16,10 @@
 
 package org.gradle.process.internal.daemon
 
+import org.gradle.api.logging.LogLevel
+import org.gradle.internal.operations.BuildOperationWorkerRegistry
+import org.gradle.process.internal.health.memory.MemoryReservation
+import org.gradle.process.internal.worker.WorkerMemoryReservations
 import spock.lang.Specification
 import spock.lang.Subject
 
@@ -23,8 +27,17 @@ class WorkerDaemonManagerTest extends Specification {
 
     def clientsManager = Mock(WorkerDaemonClientsManager)
     def client = Mock(WorkerDaemonClient)
+    def starter = Stub(WorkerDaemonStarter)
+    def workerLease = Mock(BuildOperationWorkerRegistry.Completion)
+    def buildOperationWorkerRegistry = Stub(BuildOperationWorkerRegistry) {
+        getCurrent() >> Stub(BuildOperationWorkerRegistry.Operation) {
+            operationStart() >> workerLease
+        }
+    }
+    def memoryReservations = Mock(WorkerMemoryReservations)
+    def memoryReservation = Mock(MemoryReservation)
 
-    @Subject manager = new WorkerDaemonManager(clientsManager)
+    @Subject manager = new WorkerDaemonManager(clientsManager, starter, buildOperationWorkerRegistry, memoryReservations, LogLevel.LIFECYCLE)
 
     def workingDir = new File("some-dir")
     def worker = Stub(WorkerDaemonAction)
@@ -45,16 +58,38 @@ class WorkerDaemonManagerTest extends Specification {
         manager.getDaemon(serverImpl.class, workingDir, options).execute(worker, spec)
 
         then:
-        1 * clientsManager.reserveIdleClient(options) >> null
+        1 * clientsManager.reserveIdleClient(options, workingDir, LogLevel.LIFECYCLE) >> null
+
+        then:
+        1 * memoryReservations.reserve("Gradle Worker Daemon", _, null) >> memoryReservation
 
         then:
-        1 * clientsManager.reserveNewClient(serverImpl.class, workingDir, options) >> client
+        1 * clientsManager.reserveNewClient(starter, serverImpl.class, workingDir, options, LogLevel.LIFECYCLE, memoryReservation) >> client
 
         then:
         1 * client.execute(worker, spec)
 
         then:
         1 * clientsManager.release(client)
+
+        then:
+        1 * workerLease.operationFinish()
+        0 * _._
+    }
+
+    def "memory is released when new client cannot be started"() {
+        when:
+        manager.getDaemon(serverImpl.class, workingDir, options).execute(worker, spec)
+
+        then:
+        1 * clientsManager.reserveIdleClient(options, workingDir, LogLevel.LIFECYCLE) >> null
+        1 * memoryReservations.reserve("Gradle Worker Daemon", _, null) >> memoryReservation
+        1 * clientsManager.reserveNewClient(starter, serverImpl.class, workingDir, options, LogLevel.LIFECYCLE, memoryReservation) >> { throw new RuntimeException("Boo!") }
+
+        then:
+        thrown(RuntimeException)
+        1 * memoryReservation.release()
+        1 * workerLease.operationFinish()
         0 * _._
     }
 
@@ -63,13 +98,16 @@ class WorkerDaemonManagerTest extends Specification {
         manager.getDaemon(serverImpl.class, workingDir, options).execute(worker, spec)
 
         then:
-        1 * clientsManager.reserveIdleClient(options) >> client
+        1 * clientsManager.reserveIdleClient(options, workingDir, LogLevel.LIFECYCLE) >> client
 
         then:
         1 * client.execute(worker, spec)
 
         then:
         1 * clientsManager.release(client)
+
+        then:
+        1 * workerLease.operationFinish()
         0 * _._
     }
 
@@ -78,22 +116,38 @@ class WorkerDaemonManagerTest extends Specification {
         manager.getDaemon(serverImpl.class, workingDir, options).execute(worker, spec)
 
         then:
-        1 * clientsManager.reserveIdleClient(options) >> client
+        1 * clientsManager.reserveIdleClient(options, workingDir, LogLevel.LIFECYCLE) >> client
 
         then:
         1 * client.execute(worker, spec) >> { throw new RuntimeException("Boo!") }
 
         then:
         thrown(RuntimeException)
+        1 * workerLease.operationFinish()
         1 * clientsManager.release(client)
         0 * _._
     }
 
-    def "stops clients"() {
+    def "stops idle clients when stopped"() {
         when:
         manager.stop()
 
         then:
-        clientsManager.stop()
+        1 * clientsManager.trimIdleClients(0)
+        0 * clientsManager._
+    }
+
+    def "keeps configured number of idle clients when stopped"() {
+        System.setProperty(WorkerDaemonManager.KEEP_IDLE_DAEMONS_PROPERTY, "2")
+
+        when:
+        manager.stop()
+
+        then:
+        1 * clientsManager.trimIdleClients(2)
+        0 * clientsManager._
+
+        cleanup:
+        System.clearProperty(WorkerDaemonManager.KEEP_IDLE_DAEMONS_PROPERTY)
     }
 }
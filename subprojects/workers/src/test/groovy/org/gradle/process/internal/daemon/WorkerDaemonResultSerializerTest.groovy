@@ -0,0 +1,41 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.process.internal.daemon
+
+import org.gradle.internal.serialize.SerializerSpec
+
+class WorkerDaemonResultSerializerTest extends SerializerSpec {
+    def serializer = new WorkerDaemonResultSerializer(getClass().classLoader)
+
+    def "serializes successful results"() {
+        expect:
+        def result = usesEfficientSerialization(new WorkerDaemonResult(didWork, null), serializer)
+        result.didWork == didWork
+        result.exception == null
+
+        where:
+        didWork << [true, false]
+    }
+
+    def "serializes failed results"() {
+        expect:
+        def result = serialize(new WorkerDaemonResult(true, new IllegalStateException("broken")), serializer)
+        result.didWork
+        result.exception instanceof IllegalStateException
+        result.exception.message == "broken"
+    }
+}